@@ -0,0 +1,399 @@
+/**
+ * AutoSaver.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.swing.Timer;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
+/**
+ * Saves the snippets held by a snippet manager to a file every so often while they have changed since they were last saved. Changes
+ * are tracked from the notifications of the manager and from edits reported by the editor, so nothing is written while nothing has
+ * changed. Each save takes a snapshot on the event dispatch thread and writes it on a background thread, so editing carries on while
+ * the file is written.
+ * <p>
+ * The time each save takes, both to take the snapshot and to write the file, is measured, and the next save waits long enough that
+ * saving never takes more than a fixed fraction of the time, its budget. A library that is cheap to save is saved at every interval,
+ * while one that takes long to save is saved less often the longer it takes. Nothing is saved until a path has been set, and all of
+ * this class, apart from writing the file, runs on the event dispatch thread.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetSaver
+ */
+public class AutoSaver implements SnippetSetChangedListener {
+
+  /**
+   * A save started by the auto saver, which measures how long it takes
+   */
+  private class AutoSave extends SnippetSaver {
+
+    /** The number of changes that had been made when the snapshot was taken */
+    private final long    version;
+
+    /** How long taking the snapshot took, in nanoseconds */
+    private final long    snapshotTime;
+
+    /** How long writing the file took, in nanoseconds */
+    private volatile long writeTime;
+
+    /**
+     * Take a snapshot to save
+     *
+     * @param path
+     *          The path to the file to save to
+     * @param codec
+     *          The codec to write the file with
+     * @param version
+     *          The number of changes that have been made
+     * @param started
+     *          When the save was started, in nanoseconds
+     */
+    public AutoSave(String path, SnippetFileCodec codec, long version, long started) {
+      // The user did not ask for this save, so it should not be announced to them
+      super(AutoSaver.this.manager, path, codec, false);
+      this.version = version;
+      this.snapshotTime = System.nanoTime() - started;
+    }
+
+    /**
+     * Write the snapshot to the file, measuring how long it takes
+     *
+     * @see uk.co.ryanharrison.snippetmanager.SnippetSaver#doInBackground()
+     */
+    @Override
+    protected Integer doInBackground() throws ParserConfigurationException, TransformerException {
+      long start = System.nanoTime();
+      try {
+        return super.doInBackground();
+      }
+      finally {
+        this.writeTime = System.nanoTime() - start;
+      }
+    }
+
+    /**
+     * Tell the auto saver that the save has finished
+     *
+     * @see javax.swing.SwingWorker#done()
+     */
+    @Override
+    protected void done() {
+      AutoSaver.this.finished(this);
+    }
+  }
+
+  /** The system property holding the interval between checks for changes in milliseconds. Zero turns automatic saving off */
+  public static final String     INTERVAL_PROPERTY = "snippetmanager.autosave";
+
+  /** The default interval between checks for changes, in milliseconds */
+  public static final long       DEFAULT_INTERVAL  = 30000;
+
+  /** The default fraction of the time that may be spent saving */
+  public static final double     DEFAULT_BUDGET    = 0.05;
+
+  /** How much each new measurement counts for in the smoothed cost of a save, so that one slow save does not hold back the next */
+  private static final double    SMOOTHING         = 0.5;
+
+  /** Counts the automatic saves */
+  private static final LongAdder AUTOSAVES         = Metrics.getInstance().getCounter("autosaves");
+
+  /** The manager to save the snippets of */
+  private final SnippetManager   manager;
+
+  /** Runs the saves in the background */
+  private final Executor         executor;
+
+  /** The fraction of the time that may be spent saving */
+  private final double           budget;
+
+  /** Checks for changes at every interval */
+  private final Timer            timer;
+
+  /** The path to the file to save to, or null if there is nowhere to save to yet */
+  private String                 path;
+
+  /** The codec the file is written with, or null if there is nowhere to save to yet */
+  private SnippetFileCodec       codec;
+
+  /** The number of changes that have been made */
+  private long                   version;
+
+  /** The number of changes that had been made when the snippets were last saved */
+  private long                   savedVersion;
+
+  /** Whether a save is in progress */
+  private boolean                saving;
+
+  /** The smoothed time a save takes in nanoseconds, or zero before the first save */
+  private long                   cost;
+
+  /** The time before which the next save may not start, in nanoseconds */
+  private long                   nextSave;
+
+  /**
+   * Create a new auto saver. Nothing is saved until it is started and a path has been set
+   *
+   * @param manager
+   *          The manager to save the snippets of
+   * @param executor
+   *          Runs the saves in the background. Should run one task at a time if anything else saves to the same file through it
+   * @param interval
+   *          The interval between checks for changes, in milliseconds
+   * @param budget
+   *          The fraction of the time that may be spent saving, greater than zero and at most one
+   * @throws NullPointerException
+   *           If the manager or the executor is null
+   * @throws IllegalArgumentException
+   *           If the interval is not positive or the budget is out of range
+   */
+  public AutoSaver(SnippetManager manager, Executor executor, long interval, double budget) {
+    super();
+    if (manager == null || executor == null) {
+      throw new NullPointerException("Manager and executor cannot be null");
+    }
+    if (interval <= 0 || interval > Integer.MAX_VALUE) {
+      throw new IllegalArgumentException("Interval must be positive");
+    }
+    if (!(budget > 0 && budget <= 1)) {
+      throw new IllegalArgumentException("Budget must be greater than zero and at most one");
+    }
+    this.manager = manager;
+    this.executor = executor;
+    this.budget = budget;
+    this.nextSave = System.nanoTime();
+    this.timer = new Timer((int) interval, new ActionListener() {
+
+      @Override
+      public void actionPerformed(ActionEvent e) {
+        AutoSaver.this.tick();
+      }
+    });
+  }
+
+  /**
+   * Called on the event dispatch thread just before a snapshot is taken to save, so that changes that have not been handed to the
+   * manager yet, such as text still in an editor, can be. Does nothing unless overridden
+   */
+  protected void beforeSave() {
+    // Nothing to do by default
+  }
+
+  /**
+   * Called on the event dispatch thread after a save has failed. The changes are still unsaved, so the next check tries again. Does
+   * nothing unless overridden
+   *
+   * @param path
+   *          The path to the file that could not be saved to
+   * @param error
+   *          What stopped the file being saved
+   */
+  protected void failed(String path, Exception error) {
+    // Nothing to do by default
+  }
+
+  /**
+   * Record how long a save took and whether it succeeded
+   *
+   * @param save
+   *          The save that has finished
+   */
+  private void finished(AutoSave save) {
+    this.saving = false;
+    long cost = save.snapshotTime + save.writeTime;
+    this.cost = this.cost == 0 ? cost : (long) (SMOOTHING * cost + (1 - SMOOTHING) * this.cost);
+    // Wait long enough after each save that the time spent saving stays within the budget
+    this.nextSave = System.nanoTime() + (long) (this.cost * (1 - this.budget) / this.budget);
+    try {
+      save.get();
+      // Anything changed since the snapshot was taken still needs saving
+      this.savedVersion = Math.max(this.savedVersion, save.version);
+      if (Metrics.isRecording()) {
+        AUTOSAVES.increment();
+      }
+      this.saved();
+    }
+    // The changes are still unsaved, so the next check tries again
+    catch (InterruptedException | ExecutionException e) {
+      this.failed(save.getPath(), e);
+    }
+  }
+
+  /**
+   * Get the codec the file being saved to is written with
+   *
+   * @return The codec, or null if there is nowhere to save to yet
+   */
+  public SnippetFileCodec getCodec() {
+    return this.codec;
+  }
+
+  /**
+   * Get the fraction of the time that may be spent saving
+   *
+   * @return The budget
+   */
+  public double getBudget() {
+    return this.budget;
+  }
+
+  /**
+   * Get the path to the file being saved to
+   *
+   * @return The path, or null if there is nowhere to save to yet
+   */
+  public String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Get how long a save takes
+   *
+   * @return The smoothed time a save takes in nanoseconds, or zero before the first save
+   */
+  public long getSaveCost() {
+    return this.cost;
+  }
+
+  /**
+   * Determine whether the snippets have changed since they were last saved
+   *
+   * @return True if there are unsaved changes, otherwise false
+   */
+  public boolean isDirty() {
+    return this.version != this.savedVersion;
+  }
+
+  /**
+   * Determine whether the auto saver has been started
+   *
+   * @return True if it is checking for changes, otherwise false
+   */
+  public boolean isRunning() {
+    return this.timer.isRunning();
+  }
+
+  /**
+   * Record that every change made so far has been saved, as when the user saves the snippets or loads a file
+   */
+  public void markClean() {
+    this.savedVersion = this.version;
+  }
+
+  /**
+   * Record that the snippets have changed in a way the manager does not report, such as by text being edited
+   */
+  public void markDirty() {
+    this.version++;
+  }
+
+  /**
+   * Record changes to the snippets
+   *
+   * @param subject
+   *          The observable whose snippet set has been changed
+   * @param type
+   *          The type of the change
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetSetChangedListener#onSnippetSetChanged(uk.co.ryanharrison.snippetmanager.SnippetSetObservable,
+   *      uk.co.ryanharrison.snippetmanager.ChangeType)
+   */
+  @Override
+  public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+    switch (type) {
+      case Add:
+      case Delete:
+      case Update:
+        this.markDirty();
+        break;
+      case Load:
+        // The snippets are now those held in the file
+        this.markClean();
+        break;
+      case Save:
+      case Loading:
+        // A save has already been marked clean by whoever started it, and a file being loaded is not a change until it has loaded
+        break;
+    }
+  }
+
+  /**
+   * Called on the event dispatch thread after a save has succeeded. Does nothing unless overridden
+   */
+  protected void saved() {
+    // Nothing to do by default
+  }
+
+  /**
+   * Set the path to the file to save to, which is compressed if its name ends with the extension of a codec
+   *
+   * @param path
+   *          The path, or null to stop saving until a path is set again
+   */
+  public void setPath(String path) {
+    this.setPath(path, path == null ? null : SnippetFileCodec.forPath(path));
+  }
+
+  /**
+   * Set the path to the file to save to and the codec to write it with whatever it is named, as for a file that was compressed when
+   * it was loaded
+   *
+   * @param path
+   *          The path, or null to stop saving until a path is set again
+   * @param codec
+   *          The codec to write the file with, or null if the path is null
+   * @throws NullPointerException
+   *           If there is a path but no codec
+   */
+  public void setPath(String path, SnippetFileCodec codec) {
+    if (path != null && codec == null) {
+      throw new NullPointerException("Codec cannot be null");
+    }
+    this.path = path;
+    this.codec = path == null ? null : codec;
+  }
+
+  /**
+   * Start listening for changes and checking for them at every interval
+   */
+  public void start() {
+    this.manager.addSnippetSetChangedListener(this);
+    this.timer.start();
+  }
+
+  /**
+   * Stop listening for changes and checking for them. A save in progress carries on
+   */
+  public void stop() {
+    this.timer.stop();
+    this.manager.removeSnippetSetChangedListener(this);
+  }
+
+  /**
+   * Save the snippets if they have changed since they were last saved, there is a path to save to, no save is in progress and the
+   * budget allows it
+   *
+   * @return True if a save was started, otherwise false
+   */
+  boolean tick() {
+    long now = System.nanoTime();
+    if (this.path == null || this.saving || now - this.nextSave < 0) {
+      return false;
+    }
+    this.beforeSave();
+    if (!this.isDirty()) {
+      return false;
+    }
+    this.saving = true;
+    this.executor.execute(new AutoSave(this.path, this.codec, this.version, now));
+    return true;
+  }
+}
@@ -0,0 +1,16 @@
+/**
+ * ChangeType.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+/**
+ * A set of constants representing the type of change that has happened to the snippet set. Loading is a part of a file having been
+ * added while the file is loaded in parts, or the set being emptied or put back at the start or cancellation of such a load, while
+ * Load is a whole file having been loaded
+ * 
+ * @author Ryan Harrison
+ */
+enum ChangeType {
+  Add, Delete, Update, Save, Load, Loading;
+}
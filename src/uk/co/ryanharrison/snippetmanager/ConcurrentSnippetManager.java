@@ -0,0 +1,396 @@
+/**
+ * ConcurrentSnippetManager.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A snippet manager that can safely be shared between several threads. Snippets are held in concurrent skip list sets so reads never
+ * take a lock and iterators never throw a ConcurrentModificationException, instead reflecting the state of the set at some point at or
+ * since their creation. Writes are serialised per snippet name through a set of striped locks, so writers changing different snippets
+ * rarely contend with each other.
+ *
+ * @author Ryan Harrison
+ */
+public class ConcurrentSnippetManager extends SnippetManager {
+
+  /** The default number of lock stripes */
+  public static final int DEFAULT_STRIPES = 16;
+
+  /** The locks guarding writes. A snippet is guarded by the stripe its case insensitive name hashes to */
+  private ReentrantLock[] stripes;
+
+  /**
+   * Create a new concurrent snippet manager with the default number of lock stripes
+   */
+  public ConcurrentSnippetManager() {
+    this(DEFAULT_STRIPES);
+  }
+
+  /**
+   * Create a new concurrent snippet manager with a specified number of lock stripes
+   *
+   * @param stripes
+   *          The number of locks that writes are spread across
+   * @throws IllegalArgumentException
+   *           If the number of stripes is not positive
+   */
+  public ConcurrentSnippetManager(int stripes) {
+    super();
+    if (stripes <= 0) {
+      throw new IllegalArgumentException("Number of stripes must be positive");
+    }
+    this.stripes = new ReentrantLock[stripes];
+    for (int i = 0; i < stripes; i++) {
+      this.stripes[i] = new ReentrantLock();
+    }
+  }
+
+  /**
+   * Add a batch of snippets while holding every lock, so that no other write can add a name between the batch being checked and it
+   * being added
+   * 
+   * @param snippets
+   *          The snippets to add
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists in the set, or two of the snippets have the same name
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#addAllHelper(java.util.Collection)
+   */
+  @Override
+  protected void addAllHelper(Collection<Snippet> snippets) throws DuplicateSnippetException {
+    this.lockAll();
+    try {
+      super.addAllHelper(snippets);
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Add a snippet while holding the lock for its name, so that two writers cannot add snippets with the same name
+   *
+   * @param snippet
+   *          The snippet to add
+   * @throws DuplicateSnippetException
+   *           If the snippet already exists in the set
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#addSnippetHelper(uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected void addSnippetHelper(Snippet snippet) throws DuplicateSnippetException {
+    ReentrantLock lock = this.stripes[this.stripeFor(snippet.getName())];
+    lock.lock();
+    try {
+      super.addSnippetHelper(snippet);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Put the current set aside at the start of a load in parts while holding every lock, so that no other write is in progress when
+   * the set is swapped
+   * 
+   * @throws IllegalStateException
+   *           If a load in parts is already in progress
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#beginLoadHelper()
+   */
+  @Override
+  protected void beginLoadHelper() throws IllegalStateException {
+    this.lockAll();
+    try {
+      super.beginLoadHelper();
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Put back the snippets held before a load in parts began while holding every lock
+   * 
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#cancelLoadHelper()
+   */
+  @Override
+  protected void cancelLoadHelper() throws IllegalStateException {
+    this.lockAll();
+    try {
+      super.cancelLoadHelper();
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Use a copy on write list so listeners can be added while observers are being notified
+   *
+   * @return A new, empty list of listeners
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createListenerList()
+   */
+  @Override
+  protected List<SnippetSetChangedListener> createListenerList() {
+    return new CopyOnWriteArrayList<SnippetSetChangedListener>();
+  }
+
+  /**
+   * Use a concurrent hash map so snippets can be found by name without locking
+   * 
+   * @return A new, empty map of names to snippets
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createNameIndex()
+   */
+  @Override
+  protected Map<String, Snippet> createNameIndex() {
+    return new ConcurrentHashMap<String, Snippet>();
+  }
+
+  /**
+   * Take a snapshot while holding every lock, so that no write is half done when the snapshot is taken
+   *
+   * @return A snapshot of every snippet in the current set as it is now
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnapshot()
+   */
+  @Override
+  public SnippetSnapshot createSnapshot() {
+    this.lockAll();
+    try {
+      return super.createSnapshot();
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Use a concurrent map ordered by language
+   *
+   * @return A new, empty map of languages to snippet sets
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnippetMap()
+   */
+  @Override
+  protected Map<Language, SortedSet<Snippet>> createSnippetMap() {
+    return new ConcurrentSkipListMap<Language, SortedSet<Snippet>>();
+  }
+
+  /**
+   * Use a concurrent skip list set so snippets can be read without locking
+   *
+   * @return A new, empty set of snippets
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnippetSet()
+   */
+  @Override
+  protected SortedSet<Snippet> createSnippetSet() {
+    return new ConcurrentSkipListSet<Snippet>();
+  }
+
+  /**
+   * Delete a batch of snippets while holding every lock
+   *
+   * @param snippets
+   *          The snippets to delete
+   * @return The snippets that were deleted
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#deleteAllHelper(java.util.Collection)
+   */
+  @Override
+  protected Collection<Snippet> deleteAllHelper(Collection<Snippet> snippets) {
+    this.lockAll();
+    try {
+      return super.deleteAllHelper(snippets);
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Delete a snippet while holding the lock for its name
+   *
+   * @param snippet
+   *          The snippet to delete
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#deleteSnippetHelper(uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected void deleteSnippetHelper(Snippet snippet) {
+    ReentrantLock lock = this.stripes[this.stripeFor(snippet.getName())];
+    lock.lock();
+    try {
+      super.deleteSnippetHelper(snippet);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Drop the snippets held before a load in parts began while holding every lock
+   * 
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#endLoadHelper()
+   */
+  @Override
+  protected void endLoadHelper() throws IllegalStateException {
+    this.lockAll();
+    try {
+      super.endLoadHelper();
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Add the next part of a file while holding every lock, so that no other write can add a name between the part being checked for
+   * names already held and it being added
+   * 
+   * @param snippets
+   *          The snippets read from the next part of the file
+   * @return The number of snippets added
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#loadPartHelper(java.util.Collection)
+   */
+  @Override
+  protected int loadPartHelper(Collection<Snippet> snippets) throws IllegalStateException {
+    this.lockAll();
+    try {
+      return super.loadPartHelper(snippets);
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Take every lock, so that no other write is in progress until they are released
+   */
+  private void lockAll() {
+    // Always take the locks in the same order to avoid deadlock
+    for (ReentrantLock lock : this.stripes) {
+      lock.lock();
+    }
+  }
+
+  /**
+   * Replace the whole set while holding every lock, so that no other write is in progress when the set is swapped
+   *
+   * @param snippets
+   *          The new map of languages to snippet sets
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#replaceSnippets(java.util.Map)
+   */
+  @Override
+  protected void replaceSnippets(Map<Language, SortedSet<Snippet>> snippets) {
+    this.lockAll();
+    try {
+      super.replaceSnippets(snippets);
+    }
+    finally {
+      this.unlockAll();
+    }
+  }
+
+  /**
+   * Get the index of the lock that guards writes to snippets with a name
+   *
+   * @param name
+   *          The name of the snippet
+   * @return The index of the lock for the name
+   */
+  private int stripeFor(String name) {
+    // Names are unique regardless of case, so names differing only in case must share a lock
+    int hash = nameKey(name).hashCode();
+    hash ^= (hash >>> 16);
+    return (hash & 0x7fffffff) % this.stripes.length;
+  }
+
+  /**
+   * Release every lock taken by lockAll
+   */
+  private void unlockAll() {
+    for (int i = this.stripes.length - 1; i >= 0; i--) {
+      this.stripes[i].unlock();
+    }
+  }
+
+  /**
+   * Change the content of a snippet while holding the lock for its name, so that it cannot be replaced at the same time
+   *
+   * @param snippet
+   *          The snippet to change
+   * @param body
+   *          The new content of the snippet
+   * @param event
+   *          The flight recorder event of the update, which has already begun
+   * @return True if the snippet is held in the set and now has the new content, otherwise false
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#updateSnippetBodyHelper(uk.co.ryanharrison.snippetmanager.Snippet,
+   *      java.lang.String, uk.co.ryanharrison.snippetmanager.SnippetChangeEvent)
+   */
+  @Override
+  protected boolean updateSnippetBodyHelper(Snippet snippet, String body, SnippetChangeEvent event) {
+    ReentrantLock lock = this.stripes[this.stripeFor(snippet.getName())];
+    lock.lock();
+    try {
+      return super.updateSnippetBodyHelper(snippet, body, event);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Update a snippet while holding the locks of both the old and new names, so that the delete and add happen as one operation
+   *
+   * @param old
+   *          The snippet to update
+   * @param newSnippet
+   *          The new snippet to replace the old one with
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#updateSnippetHelper(uk.co.ryanharrison.snippetmanager.Snippet,
+   *      uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected void updateSnippetHelper(Snippet old, Snippet newSnippet) {
+    // Always take the locks in the same order to avoid deadlock
+    int oldStripe = this.stripeFor(old.getName());
+    int newStripe = this.stripeFor(newSnippet.getName());
+    ReentrantLock first = this.stripes[Math.min(oldStripe, newStripe)];
+    ReentrantLock second = this.stripes[Math.max(oldStripe, newStripe)];
+    first.lock();
+    second.lock();
+    try {
+      super.updateSnippetHelper(old, newSnippet);
+    }
+    finally {
+      second.unlock();
+      first.unlock();
+    }
+  }
+}
@@ -0,0 +1,25 @@
+/**
+ * ConflictPolicy.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+/**
+ * What to do when snippets with the same name are loaded from more than one file. Names are compared ignoring case, as they are
+ * throughout the manager. The files are always merged in the order they were given, whatever order they finish being read in, so
+ * the same files always give the same snippets.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetFilesReader
+ */
+public enum ConflictPolicy {
+  /** Keep the snippet from the file given first, as loading a single file does with a name it holds more than once */
+  KeepFirst,
+
+  /** Keep the snippet from the file given last, so later files override earlier ones */
+  KeepLast,
+
+  /** Fail the whole load, leaving the current snippets as they are */
+  Fail;
+}
@@ -0,0 +1,61 @@
+/**
+ * EdtStallEvent.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * A flight recorder event for an event that has been dispatching on the event dispatch thread for longer than the watchdog threshold.
+ * It is recorded as soon as the stall is detected, while the thread is still stuck, so a stall that never ends is recorded too
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.EdtWatchdog
+ */
+@Name("uk.co.ryanharrison.snippetmanager.EdtStall")
+@Label("Event Dispatch Thread Stall")
+@Description("An event taking longer than the watchdog threshold to dispatch")
+public class EdtStallEvent extends SnippetEvent {
+
+  /** A description of the event that stalled */
+  @Label("Event")
+  private String event;
+
+  /** The MainFrame handler that was running, or null if the event was not being handled by MainFrame */
+  @Label("Handler")
+  private String handler;
+
+  /** The stack of the event dispatch thread when the stall was detected, innermost call first */
+  @Label("Stack")
+  private String stack;
+
+  /** How long the event had been dispatching when the stall was detected */
+  @Label("Stalled For")
+  @Timespan(Timespan.MILLISECONDS)
+  private long   stalled;
+
+  /**
+   * Fill in the event and commit it, if it is being recorded
+   *
+   * @param stall
+   *          The stall that has been detected
+   */
+  public void finish(EdtWatchdog.Stall stall) {
+    if (this.shouldCommit()) {
+      this.event = stall.getEvent();
+      this.handler = stall.getHandler();
+      StringBuilder builder = new StringBuilder();
+      for (StackTraceElement element : stall.getStack()) {
+        builder.append(element).append(System.lineSeparator());
+      }
+      this.stack = builder.toString();
+      this.stalled = stall.getDuration();
+      this.commit();
+    }
+  }
+}
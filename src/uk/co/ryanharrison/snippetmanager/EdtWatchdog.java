@@ -0,0 +1,380 @@
+/**
+ * EdtWatchdog.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.awt.AWTEvent;
+import java.awt.EventQueue;
+import java.awt.Toolkit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Watches the event dispatch thread for events that take so long to dispatch that the interface freezes. The watchdog replaces the
+ * system event queue so that it knows which event is being dispatched and since when, and a background thread checks on it several
+ * times per threshold. When an event has been dispatching for longer than the threshold, the stack of the event dispatch thread is
+ * captured while it is still stuck, along with the MainFrame handler that was running, and the stall is kept, counted in the metrics
+ * and recorded as a flight recorder event.
+ * <p>
+ * A modal dialog dispatches events itself from inside the event that opened it, so while such events keep being dispatched the
+ * outer event does not count as stalled. Only the most recent stalls are kept.
+ *
+ * @author Ryan Harrison
+ */
+public class EdtWatchdog extends EventQueue {
+
+  /**
+   * A single event that took longer than the threshold to dispatch
+   */
+  public static class Stall {
+
+    /** A description of the event that stalled */
+    private final String              event;
+
+    /** The MainFrame handler that was running, or null if the event was not being handled by MainFrame */
+    private final String              handler;
+
+    /** The stack of the event dispatch thread when the stall was detected */
+    private final StackTraceElement[] stack;
+
+    /** When the event started to dispatch, in milliseconds since the epoch */
+    private final long                started;
+
+    /** How long the event took to dispatch in milliseconds, or how long it had taken so far if it is still dispatching */
+    private volatile long             duration;
+
+    /** Whether the event has finished dispatching */
+    private volatile boolean          finished;
+
+    /**
+     * Create a new stall
+     *
+     * @param event
+     *          A description of the event that stalled
+     * @param handler
+     *          The MainFrame handler that was running, may be null
+     * @param stack
+     *          The stack of the event dispatch thread when the stall was detected
+     * @param started
+     *          When the event started to dispatch, in milliseconds since the epoch
+     * @param duration
+     *          How long the event had been dispatching when the stall was detected, in milliseconds
+     */
+    public Stall(String event, String handler, StackTraceElement[] stack, long started, long duration) {
+      super();
+      this.event = event;
+      this.handler = handler;
+      this.stack = stack;
+      this.started = started;
+      this.duration = duration;
+    }
+
+    /**
+     * Record that the event has finished dispatching
+     *
+     * @param duration
+     *          How long the event took to dispatch in milliseconds
+     */
+    private void finish(long duration) {
+      this.duration = duration;
+      this.finished = true;
+    }
+
+    /**
+     * Get how long the event took to dispatch
+     *
+     * @return The duration in milliseconds, or how long it had taken so far if it is still dispatching
+     */
+    public long getDuration() {
+      return this.duration;
+    }
+
+    /**
+     * Get a description of the event that stalled
+     *
+     * @return The type of the event and the type of its source
+     */
+    public String getEvent() {
+      return this.event;
+    }
+
+    /**
+     * Get the MainFrame handler that was running when the stall was detected
+     *
+     * @return The class and method of the handler, such as MainFrame.actionPerformed, or null if the event was not being handled
+     *         by MainFrame
+     */
+    public String getHandler() {
+      return this.handler;
+    }
+
+    /**
+     * Get the stack of the event dispatch thread when the stall was detected
+     *
+     * @return The stack, innermost call first
+     */
+    public StackTraceElement[] getStack() {
+      return this.stack.clone();
+    }
+
+    /**
+     * Get when the event started to dispatch
+     *
+     * @return The start time in milliseconds since the epoch
+     */
+    public long getStarted() {
+      return this.started;
+    }
+
+    /**
+     * Determine whether the event has finished dispatching
+     *
+     * @return True if the event has finished, false if the thread is still stuck in it
+     */
+    public boolean isFinished() {
+      return this.finished;
+    }
+
+    /**
+     * Get a description of the stall along with the captured stack
+     *
+     * @return The duration, event, handler and stack of the stall
+     *
+     * @see java.lang.Object#toString()
+     */
+    @Override
+    public String toString() {
+      StringBuilder builder = new StringBuilder();
+      builder.append(String.format(Locale.ROOT, "Event dispatch thread stalled for %dms%s dispatching %s in %s", this.duration,
+          this.finished ? "" : " so far", this.event, this.handler == null ? "no MainFrame handler" : this.handler));
+      for (StackTraceElement element : this.stack) {
+        builder.append(System.lineSeparator()).append("\tat ").append(element);
+      }
+      return builder.toString();
+    }
+  }
+
+  /** The system property holding the threshold in milliseconds. The watchdog is installed at start up when it is set */
+  public static final String             THRESHOLD_PROPERTY = "snippetmanager.watchdog";
+
+  /** The number of stalls to keep */
+  private static final int               HISTORY            = 50;
+
+  /** Counts the stalls detected */
+  private static final LongAdder         STALLS             = Metrics.getInstance().getCounter("edt.stalls");
+
+  /** How long an event may take to dispatch before it counts as a stall, in nanoseconds */
+  private final long                     threshold;
+
+  /** The thread checking on the event being dispatched */
+  private final ScheduledExecutorService checker;
+
+  /** The most recent stalls, oldest first */
+  private final Deque<Stall>             stalls;
+
+  /**
+   * Guards the event being dispatched and its stall, so that a stall is only ever attached to the event that was stuck when its stack
+   * was captured
+   */
+  private final Object                   lock;
+
+  /** The event dispatch thread, set when the first event is dispatched */
+  private Thread                         dispatchThread;
+
+  /** The event being dispatched, or null if the queue is waiting for an event */
+  private AWTEvent                       current;
+
+  /** When the current event started to dispatch, or when a nested event last finished, in nanoseconds */
+  private long                           started;
+
+  /** The stall detected for the current event, or null if it has not stalled */
+  private Stall                          stall;
+
+  /** The number of times an event has started or finished dispatching, so that a check can tell whether the thread has moved on */
+  private long                           dispatches;
+
+  /**
+   * Create a new watchdog. It does nothing until it is installed
+   *
+   * @param threshold
+   *          How long an event may take to dispatch before it counts as a stall, in milliseconds
+   * @throws IllegalArgumentException
+   *           If the threshold is not positive
+   */
+  public EdtWatchdog(long threshold) {
+    super();
+    if (threshold <= 0) {
+      throw new IllegalArgumentException("Threshold must be positive");
+    }
+    this.threshold = TimeUnit.MILLISECONDS.toNanos(threshold);
+    this.lock = new Object();
+    this.stalls = new ArrayDeque<Stall>();
+    this.checker = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "edt-watchdog");
+        // Do not keep the application alive just to watch it
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+
+  /**
+   * Check whether the current event has been dispatching for longer than the threshold, and if so capture the stack of the event
+   * dispatch thread. Each event is only reported once however long it stalls for
+   */
+  private void check() {
+    AWTEvent event;
+    Thread thread;
+    long elapsed;
+    long dispatch;
+    synchronized (this.lock) {
+      event = this.current;
+      thread = this.dispatchThread;
+      elapsed = System.nanoTime() - this.started;
+      if (event == null || thread == null || this.stall != null || elapsed < this.threshold) {
+        return;
+      }
+      dispatch = this.dispatches;
+    }
+    // The stack is captured without the lock, so the event dispatch thread is never held up waiting for it
+    StackTraceElement[] stack = thread.getStackTrace();
+    long duration = TimeUnit.NANOSECONDS.toMillis(elapsed);
+    Stall stall = new Stall(describe(event), getHandler(stack), stack, System.currentTimeMillis() - duration, duration);
+    synchronized (this.lock) {
+      // The event may have finished, or another started inside it, while the stack was captured, so the stack shows something else
+      if (this.dispatches != dispatch) {
+        return;
+      }
+      this.stall = stall;
+    }
+    synchronized (this.stalls) {
+      if (this.stalls.size() == HISTORY) {
+        this.stalls.removeFirst();
+      }
+      this.stalls.addLast(stall);
+    }
+    if (Metrics.isRecording()) {
+      STALLS.increment();
+    }
+    new EdtStallEvent().finish(stall);
+  }
+
+  /**
+   * Describe an event for a stall report
+   *
+   * @param event
+   *          The event
+   * @return The type of the event and the type of its source
+   */
+  private static String describe(AWTEvent event) {
+    Object source = event.getSource();
+    return event.getClass().getSimpleName() + " from " + (source == null ? "nothing" : source.getClass().getName());
+  }
+
+  /**
+   * Dispatch an event, keeping track of which event is being dispatched and since when
+   *
+   * @param event
+   *          The event to dispatch
+   *
+   * @see java.awt.EventQueue#dispatchEvent(java.awt.AWTEvent)
+   */
+  @Override
+  protected void dispatchEvent(AWTEvent event) {
+    AWTEvent outer;
+    Stall outerStall;
+    long start = System.nanoTime();
+    synchronized (this.lock) {
+      this.dispatchThread = Thread.currentThread();
+      outer = this.current;
+      outerStall = this.stall;
+      this.started = start;
+      this.stall = null;
+      this.current = event;
+      this.dispatches++;
+    }
+    try {
+      super.dispatchEvent(event);
+    }
+    finally {
+      Stall stall;
+      synchronized (this.lock) {
+        stall = this.stall;
+        // An event that dispatches events of its own, as a modal dialog does, is not stuck, so it starts timing again from here
+        this.current = outer;
+        this.stall = outerStall;
+        this.started = System.nanoTime();
+        this.dispatches++;
+      }
+      if (stall != null) {
+        stall.finish(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+      }
+    }
+  }
+
+  /**
+   * Find the MainFrame handler in a stack. This is the outermost call into MainFrame, or one of its inner classes, as that is the
+   * entry point the event was handed to
+   *
+   * @param stack
+   *          The stack, innermost call first
+   * @return The class and method of the handler, such as MainFrame.actionPerformed, or null if MainFrame is not on the stack
+   */
+  static String getHandler(StackTraceElement[] stack) {
+    String name = MainFrame.class.getName();
+    for (int i = stack.length - 1; i >= 0; i--) {
+      String className = stack[i].getClassName();
+      if (className.equals(name) || className.startsWith(name + "$")) {
+        return className.substring(className.lastIndexOf('.') + 1) + "." + stack[i].getMethodName();
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Get the most recent stalls
+   *
+   * @return The stalls kept, oldest first
+   */
+  public List<Stall> getStalls() {
+    synchronized (this.stalls) {
+      return new ArrayList<Stall>(this.stalls);
+    }
+  }
+
+  /**
+   * Replace the system event queue with this watchdog and start checking on it
+   */
+  public void install() {
+    Toolkit.getDefaultToolkit().getSystemEventQueue().push(this);
+    // Check several times per threshold so that a stall is caught soon after it passes the threshold
+    long period = Math.max(this.threshold / 4, TimeUnit.MILLISECONDS.toNanos(1));
+    this.checker.scheduleAtFixedRate(new Runnable() {
+
+      @Override
+      public void run() {
+        EdtWatchdog.this.check();
+      }
+    }, period, period, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Stop checking and put back the event queue that this watchdog replaced. Events waiting in this queue are moved back to it
+   */
+  public void uninstall() {
+    this.checker.shutdownNow();
+    this.pop();
+  }
+}
@@ -0,0 +1,63 @@
+/**
+ * FilterEvaluationEvent.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for applying the filter of a filtered tree model to the whole tree, which happens once each time the
+ * filter is set or the tree is reloaded, so the snippets each one checks show how much work a change to the filter causes
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.FilteredTreeModel
+ */
+@Name("uk.co.ryanharrison.snippetmanager.FilterEvaluation")
+@Label("Filter Evaluation")
+@Description("The filter of the snippet tree applied to the whole tree")
+public class FilterEvaluationEvent extends SnippetEvent {
+
+  /** The size of the filter text */
+  @Label("Filter Size")
+  @DataAmount
+  private long size;
+
+  /** The number of snippets the filter was applied to */
+  @Label("Snippets")
+  private int  snippets;
+
+  /** The number of snippets that passed the filter */
+  @Label("Matches")
+  private int  matches;
+
+  /**
+   * Count a snippet the filter has been applied to
+   *
+   * @param matched
+   *          Whether the snippet passed the filter
+   */
+  public void count(boolean matched) {
+    this.snippets++;
+    if (matched) {
+      this.matches++;
+    }
+  }
+
+  /**
+   * Fill in the event and commit it, if it is being recorded
+   *
+   * @param filter
+   *          The filter text
+   */
+  public void finish(String filter) {
+    if (this.shouldCommit()) {
+      this.size = getSize(filter);
+      this.commit();
+    }
+  }
+}
@@ -1,5 +1,13 @@
 package uk.co.ryanharrison.snippetmanager;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.event.TreeModelEvent;
 import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeModel;
@@ -8,19 +16,32 @@ import javax.swing.tree.TreePath;
 /**
  * Custom tree model that wraps an underlying tree model into a filter so that only nodes that match the filter are displayed in the
  * tree view
+ * <p>
+ * The filter is applied to the whole tree once, the first time the tree asks for a node after the filter has been set or the
+ * underlying model has changed, and whether each node passed is remembered until then. The tree asks for the children of a node
+ * many times as it is painted, and each of those is then only a look up rather than the filter being applied again.
  * 
  * @author Ryan Harrison
  */
 public class FilteredTreeModel implements TreeModel {
 
   /** The underlying tree model that is being filtered */
-  private TreeModel               treeModel;
+  private TreeModel                                 treeModel;
 
   /** The filter text string that is used to determine which nodes should be displayed */
-  private String                  filter;
+  private String                                    filter;
 
   /** Comparator used to check whether or not a snippet matches the filter text */
-  private SnippetFilterComparator comparator;
+  private SnippetFilterComparator                   comparator;
+
+  /** Snippets that match the filter despite not containing it, such as those with a name close to a misspelt filter */
+  private Set<Snippet>                              similar;
+
+  /** Whether each node passed the filter, or null if the filter has not been applied since it or the underlying model changed */
+  private Map<Object, Boolean>                      matches;
+
+  /** The listeners of the underlying model that forget the filtered nodes before passing each change on to the listener added */
+  private Map<TreeModelListener, TreeModelListener> listeners;
 
   /**
    * Create a new filtered tree model with specified underlying tree model that should be filtered
@@ -33,6 +54,8 @@ public class FilteredTreeModel implements TreeModel {
     this.treeModel = treeModel;
     this.filter = "";
     this.comparator = new SnippetFilterComparator();
+    this.similar = Collections.emptySet();
+    this.listeners = new HashMap<TreeModelListener, TreeModelListener>();
   }
 
   /**
@@ -44,31 +67,64 @@ public class FilteredTreeModel implements TreeModel {
    * @see javax.swing.tree.TreeModel#addTreeModelListener(javax.swing.event.TreeModelListener)
    */
   @Override
-  public void addTreeModelListener(TreeModelListener l) {
-    this.treeModel.addTreeModelListener(l);
+  public void addTreeModelListener(final TreeModelListener l) {
+    // Each listener forgets the filtered nodes itself, as the underlying model may tell its listeners in any order
+    TreeModelListener listener = new TreeModelListener() {
+
+      @Override
+      public void treeNodesChanged(TreeModelEvent e) {
+        FilteredTreeModel.this.matches = null;
+        l.treeNodesChanged(e);
+      }
+
+      @Override
+      public void treeNodesInserted(TreeModelEvent e) {
+        FilteredTreeModel.this.matches = null;
+        l.treeNodesInserted(e);
+      }
+
+      @Override
+      public void treeNodesRemoved(TreeModelEvent e) {
+        FilteredTreeModel.this.matches = null;
+        l.treeNodesRemoved(e);
+      }
+
+      @Override
+      public void treeStructureChanged(TreeModelEvent e) {
+        FilteredTreeModel.this.matches = null;
+        l.treeStructureChanged(e);
+      }
+    };
+    this.listeners.put(l, listener);
+    this.treeModel.addTreeModelListener(listener);
   }
 
   /**
    * Apply a filter to a node, and all of its children recursively, to check whether it passes through the filter and so should be
-   * displayed in the tree. The custom comparator is used to apply the filter to the node (if it is a snippet object).
+   * displayed in the tree, remembering the result for each node. The custom comparator is used to apply the filter to the node (if
+   * it is a snippet object).
    * 
    * @param node
    *          The node to check
    * @param filter
    *          The filter to apply
+   * @param event
+   *          Counts the snippets the filter is applied to and those that pass
    * @return True if the node, or any of its children, pass the filter
    */
-  private boolean applyFilter(Object node, String filter) {
-    // Normalise the filter
-    filter = filter.trim().toLowerCase();
-    // Determine if the node matches only the name of the node first
-    boolean matches = node.toString().toLowerCase().contains(filter);
-
+  private boolean applyFilter(Object node, String filter, FilterEvaluationEvent event) {
+    boolean matches;
     DefaultMutableTreeNode treeNode = (DefaultMutableTreeNode) node;
     // If the node is a snippet
     if (treeNode.getUserObject() instanceof Snippet) {
-      // Use the custom comparator to check if any part of the snippet passes the filter
-      matches |= this.comparator.isMatch((Snippet) treeNode.getUserObject(), filter);
+      // Use the custom comparator to check if any part of the snippet, including its name, passes the filter
+      Snippet snippet = (Snippet) treeNode.getUserObject();
+      matches = this.comparator.isMatch(snippet, filter) || this.similar.contains(snippet);
+      event.count(matches);
+    }
+    else {
+      // Otherwise only the name of the node can match
+      matches = node.toString().toLowerCase().contains(filter);
     }
 
     // Get the number of children that this node has
@@ -79,9 +135,10 @@ public class FilteredTreeModel implements TreeModel {
       // Get the child node as an object
       Object child = this.treeModel.getChild(node, i);
       // Apply the filter to each child node as well
-      matches |= this.applyFilter(child, filter);
+      matches |= this.applyFilter(child, filter, event);
     }
 
+    this.matches.put(node, matches);
     return matches;
   }
 
@@ -106,7 +163,7 @@ public class FilteredTreeModel implements TreeModel {
       // Get the child as an object
       Object child = this.treeModel.getChild(parent, i);
       // We are only interested in children that pass the filter
-      if (this.applyFilter(child, this.filter)) {
+      if (this.isMatch(child)) {
         // If we have reached the index, return the child
         if (counter == index) {
           return child;
@@ -138,7 +195,7 @@ public class FilteredTreeModel implements TreeModel {
       // Get the object representing the child
       Object child = this.treeModel.getChild(parent, i);
       // If the child passes the filter, increment the counter
-      if (this.applyFilter(child, this.filter)) {
+      if (this.isMatch(child)) {
         children++;
       }
     }
@@ -165,7 +222,7 @@ public class FilteredTreeModel implements TreeModel {
       // Get the child node as an object
       Object child = this.treeModel.getChild(parent, i);
       // If the child passes through the filter
-      if (this.applyFilter(child, this.filter)) {
+      if (this.isMatch(child)) {
         // If the current child matches the child to found return the current index
         if (childToFind.equals(child)) {
           return i;
@@ -211,6 +268,33 @@ public class FilteredTreeModel implements TreeModel {
     return this.treeModel.isLeaf(node);
   }
 
+  /**
+   * Check whether a node passes the filter, applying the filter to the whole tree first if it has not been since it or the
+   * underlying model changed
+   * 
+   * @param node
+   *          The node to check
+   * @return True if the node, or any of its children, pass the filter
+   */
+  private boolean isMatch(Object node) {
+    if (this.matches == null) {
+      this.matches = new IdentityHashMap<Object, Boolean>();
+      FilterEvaluationEvent event = new FilterEvaluationEvent();
+      event.begin();
+      this.applyFilter(this.treeModel.getRoot(), this.filter, event);
+      event.finish(this.filter);
+    }
+    Boolean matches = this.matches.get(node);
+    // A node added to the underlying model without telling its listeners has not been filtered yet
+    if (matches == null) {
+      FilterEvaluationEvent event = new FilterEvaluationEvent();
+      event.begin();
+      matches = this.applyFilter(node, this.filter, event);
+      event.finish(this.filter);
+    }
+    return matches;
+  }
+
   /**
    * Remove a tree listener that monitors for changes in a trees model from the underlying tree model
    * 
@@ -221,7 +305,10 @@ public class FilteredTreeModel implements TreeModel {
    */
   @Override
   public void removeTreeModelListener(TreeModelListener listener) {
-    this.treeModel.removeTreeModelListener(listener);
+    TreeModelListener removed = this.listeners.remove(listener);
+    if (removed != null) {
+      this.treeModel.removeTreeModelListener(removed);
+    }
   }
 
   /**
@@ -231,7 +318,27 @@ public class FilteredTreeModel implements TreeModel {
    *          The new filter to use
    */
   public void setFilter(String filter) {
-    this.filter = filter;
+    this.setFilter(filter, Collections.<Snippet> emptySet());
+  }
+
+  /**
+   * Set the filter text that will be used to filter the tree nodes, along with snippets that should be shown even though they do not
+   * contain the filter text
+   * 
+   * @param filter
+   *          The new filter to use
+   * @param similar
+   *          The snippets to show as well as those that match the filter, such as those found by a fuzzy search for the filter
+   */
+  public void setFilter(String filter, Collection<Snippet> similar) {
+    // Normalise the filter once here rather than every time it is applied to a node
+    this.filter = filter.trim().toLowerCase();
+    // Compare by identity, as the snippets in the tree are the same instances that were found
+    Set<Snippet> set = Collections.newSetFromMap(new IdentityHashMap<Snippet, Boolean>());
+    set.addAll(similar);
+    this.similar = set;
+    // The filter is applied again the next time the tree asks for a node
+    this.matches = null;
   }
 
   /**
@@ -28,46 +28,52 @@ import javax.swing.JTextField;
  */
 public class FindReplace extends JFrame implements ActionListener, FindReplaceObservable {
 
-  private static final long         serialVersionUID = 5068260384806127496L;
+  private static final long            serialVersionUID = 5068260384806127496L;
+
+  /** Times finding the next match, not counting any message shown when there is none */
+  private static final LatencyRecorder FIND_LATENCY     = Metrics.getInstance().getRecorder("find");
+
+  /** Times replacing every match, including updating the observers with the new text */
+  private static final LatencyRecorder REPLACE_LATENCY  = Metrics.getInstance().getRecorder("replace");
 
   /** List of observers that listen to find/replace events */
-  private List<FindReplaceObserver> observers;
+  private List<FindReplaceObserver>    observers;
 
   /** The text to find */
-  private JTextField                findField;
+  private JTextField                   findField;
 
   /** The text to replace with */
-  private JTextField                replaceField;
+  private JTextField                   replaceField;
 
   /** The button to find the text */
-  private JButton                   findButton;
+  private JButton                      findButton;
 
   /** The button to close the dialog */
-  private JButton                   closeButton;
+  private JButton                      closeButton;
 
   /** The button to replace all occurrences of the text */
-  private JButton                   replaceAllButton;
+  private JButton                      replaceAllButton;
 
   /** The label to display find */
-  private JLabel                    findLabel;
+  private JLabel                       findLabel;
 
   /** The label to display replace */
-  private JLabel                    replaceLabel;
+  private JLabel                       replaceLabel;
 
   /** Whether or not to consider the text as a regular expression when searching */
-  private JCheckBox                 regularExpressions;
+  private JCheckBox                    regularExpressions;
 
   /** The text to search in */
-  private String                    text;
+  private String                       text;
 
   /** The current index to start searching for text from */
-  private int                       index;
+  private int                          index;
 
   /** The start index of a match when searching for text */
-  private int                       start;
+  private int                          start;
 
   /** The end index of a match when searching for text */
-  private int                       end;
+  private int                          end;
 
   /**
    * Create a new Find/Replace dialog.
@@ -192,6 +198,7 @@ public class FindReplace extends JFrame implements ActionListener, FindReplaceOb
    *          The string to find
    */
   public void findNext(String find) {
+    long started = FIND_LATENCY.start();
     // If the user wants to use regular expressions
     if (this.regularExpressions.isSelected()) {
       this.findNextRegex(find);
@@ -201,6 +208,7 @@ public class FindReplace extends JFrame implements ActionListener, FindReplaceOb
       this.start = this.text.indexOf(find, this.index);
       this.end = this.start + find.length();
     }
+    FIND_LATENCY.stop(started);
 
     // If a match was found, update the starting index for the next search and notify the observers that a match has been found
     if (this.start != -1) {
@@ -306,6 +314,7 @@ public class FindReplace extends JFrame implements ActionListener, FindReplaceOb
    *          The string to replace all instances of find to
    */
   public void replaceAll(String find, String replace) {
+    long started = REPLACE_LATENCY.start();
     // If the user is using regular expressions
     if (this.regularExpressions.isSelected()) {
       this.text = this.text.replaceAll(find, replace);
@@ -315,5 +324,6 @@ public class FindReplace extends JFrame implements ActionListener, FindReplaceOb
     }
     // Notify the observers that the text has been replaced
     this.notifyObservers();
+    REPLACE_LATENCY.stop(started);
   }
 }
\ No newline at end of file
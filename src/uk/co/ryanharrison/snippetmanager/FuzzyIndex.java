@@ -0,0 +1,440 @@
+/**
+ * FuzzyIndex.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * An index used to find snippets whose names or keywords contain a word close to a misspelt one, such as "concurrent" for
+ * "concurent" or "hashmap" for "hashmpa". The distinct terms of every name and keyword form a vocabulary, and each term is indexed
+ * by its trigrams, the runs of three characters in the term padded at either end. Inserting, deleting or replacing a character
+ * changes at most three trigrams, and swapping two adjacent characters at most four, so a term within a few edits of the query must
+ * share most of the trigrams of the query. Counting shared trigrams over the posting lists of the query narrows the vocabulary to a
+ * handful of candidates, and only those are compared with the query character by character. A query too short to be sure of sharing
+ * a trigram with a close term is instead compared with the terms of a close enough length. Either way only part of the vocabulary is
+ * ever looked at, so a query stays fast enough to run on every keystroke however large the vocabulary grows.
+ * <p>
+ * The number of edits allowed grows with the length of the query: none for up to two characters, one for up to five and two for
+ * anything longer. Swapping two adjacent characters counts as a single edit.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.KeywordIndex
+ */
+public class FuzzyIndex extends SnippetIndex<Set<String>> {
+
+  /**
+   * A growable list of term ids, kept in no particular order
+   */
+  private static class TermList {
+
+    /** The ids in the list */
+    private int[] ids;
+
+    /** The number of ids in the list */
+    private int   size;
+
+    /**
+     * Create a new, empty list
+     */
+    public TermList() {
+      super();
+      this.ids = new int[4];
+    }
+
+    /**
+     * Add an id to the list
+     *
+     * @param id
+     *          The id to add
+     */
+    public void add(int id) {
+      if (this.size == this.ids.length) {
+        this.ids = Arrays.copyOf(this.ids, this.size * 2);
+      }
+      this.ids[this.size++] = id;
+    }
+
+    /**
+     * Remove an id from the list, replacing it with the last id
+     *
+     * @param id
+     *          The id to remove
+     */
+    public void remove(int id) {
+      for (int i = 0; i < this.size; i++) {
+        if (this.ids[i] == id) {
+          this.ids[i] = this.ids[--this.size];
+          return;
+        }
+      }
+    }
+  }
+
+  /** The character used to pad terms at either end, which never appears in a term */
+  private static final char          PADDING = '$';
+
+  /** The id of each term in the vocabulary */
+  private Map<String, Integer>       ids;
+
+  /** The term with each id, null if the id is free */
+  private List<String>               vocabulary;
+
+  /** The ids that are free to be given to new terms */
+  private BitSet                     free;
+
+  /** The slots of the snippets with each term, indexed by term id */
+  private List<BitSet>               postings;
+
+  /** The ids of the terms containing each trigram */
+  private Map<String, TermList>      trigrams;
+
+  /** The ids of the terms of each length */
+  private Map<Integer, TermList>     lengths;
+
+  /**
+   * Create a new, empty fuzzy index
+   */
+  public FuzzyIndex() {
+    super();
+    this.ids = new HashMap<String, Integer>();
+    this.vocabulary = new ArrayList<String>();
+    this.free = new BitSet();
+    this.postings = new ArrayList<BitSet>();
+    this.trigrams = new HashMap<String, TermList>();
+    this.lengths = new HashMap<Integer, TermList>();
+  }
+
+  /**
+   * Add a snippet to the posting list of each of its terms, adding terms that are new to the vocabulary
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param terms
+   *          The distinct terms of the name and keywords of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#added(int, java.lang.Object)
+   */
+  @Override
+  protected void added(int slot, Set<String> terms) {
+    for (String term : terms) {
+      Integer id = this.ids.get(term);
+      if (id == null) {
+        id = this.addTerm(term);
+      }
+      this.postings.get(id).set(slot);
+    }
+  }
+
+  /**
+   * Add a term to the vocabulary, reusing the id of a removed term if there is one
+   *
+   * @param term
+   *          The term to add
+   * @return The id of the term
+   */
+  private int addTerm(String term) {
+    int id = this.free.nextSetBit(0);
+    if (id < 0) {
+      id = this.vocabulary.size();
+      this.vocabulary.add(term);
+      this.postings.add(new BitSet());
+    }
+    else {
+      this.vocabulary.set(id, term);
+      this.free.clear(id);
+    }
+    this.ids.put(term, id);
+    for (String trigram : getTrigrams(term)) {
+      TermList list = this.trigrams.get(trigram);
+      if (list == null) {
+        list = new TermList();
+        this.trigrams.put(trigram, list);
+      }
+      list.add(id);
+    }
+    TermList list = this.lengths.get(term.length());
+    if (list == null) {
+      list = new TermList();
+      this.lengths.put(term.length(), list);
+    }
+    list.add(id);
+    return id;
+  }
+
+  /**
+   * Get the distinct terms of the name and keywords of a snippet
+   *
+   * @param snippet
+   *          The snippet
+   * @return The distinct terms of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#analyse(uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected Set<String> analyse(Snippet snippet) {
+    Set<String> terms = new LinkedHashSet<String>(SearchIndex.tokenize(snippet.getName()));
+    for (String keyword : snippet.getKeywords()) {
+      terms.addAll(SearchIndex.tokenize(keyword));
+    }
+    return terms;
+  }
+
+  /**
+   * Forget the whole vocabulary
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#cleared()
+   */
+  @Override
+  protected void cleared() {
+    this.ids.clear();
+    this.vocabulary.clear();
+    this.free.clear();
+    this.postings.clear();
+    this.trigrams.clear();
+    this.lengths.clear();
+  }
+
+  /**
+   * Find the snippets with a name or keyword close to every word of a query. Each word of the query must be close to a term of the
+   * snippet, though different words may match different terms
+   *
+   * @param query
+   *          The words to search for
+   * @return The matching snippets, in no particular order. Empty if the query has no words
+   */
+  public List<Snippet> find(String query) {
+    Set<String> words = new LinkedHashSet<String>(SearchIndex.tokenize(query));
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      BitSet result = null;
+      for (String word : words) {
+        BitSet matches = this.match(word);
+        if (result == null) {
+          result = matches;
+        }
+        else {
+          result.and(matches);
+        }
+        if (result.isEmpty()) {
+          break;
+        }
+      }
+      return result == null ? new ArrayList<Snippet>() : this.toSnippets(result);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Find the number of edits needed to turn one string into another, where an edit inserts, deletes or replaces a character or
+   * swaps two adjacent characters. Work stops as soon as the distance is known to be over the limit
+   *
+   * @param a
+   *          The first string
+   * @param b
+   *          The second string
+   * @param limit
+   *          The largest distance of interest
+   * @return The number of edits, or limit + 1 if more than limit edits are needed
+   */
+  public static int getDistance(String a, String b, int limit) {
+    if (Math.abs(a.length() - b.length()) > limit) {
+      return limit + 1;
+    }
+    // Only the previous two rows of the table are needed
+    int[] before = new int[b.length() + 1];
+    int[] previous = new int[b.length() + 1];
+    int[] current = new int[b.length() + 1];
+    for (int j = 0; j <= b.length(); j++) {
+      previous[j] = j;
+    }
+    for (int i = 1; i <= a.length(); i++) {
+      current[0] = i;
+      int smallest = i;
+      for (int j = 1; j <= b.length(); j++) {
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          distance = Math.min(distance, before[j - 2] + 1);
+        }
+        current[j] = distance;
+        smallest = Math.min(smallest, distance);
+      }
+      // Every later row is at least as large as the smallest value in this one
+      if (smallest > limit) {
+        return limit + 1;
+      }
+      int[] free = before;
+      before = previous;
+      previous = current;
+      current = free;
+    }
+    return Math.min(previous[b.length()], limit + 1);
+  }
+
+  /**
+   * Get the number of edits allowed between a word of a query and a term for the term to match
+   *
+   * @param length
+   *          The length of the word
+   * @return The number of edits allowed
+   */
+  public static int getMaxDistance(int length) {
+    if (length < 3) {
+      return 0;
+    }
+    return length < 6 ? 1 : 2;
+  }
+
+  /**
+   * Get the distinct trigrams of a term, padded at either end so that the start and end of the term form trigrams of their own
+   *
+   * @param term
+   *          The term
+   * @return The distinct trigrams of the term
+   */
+  private static Set<String> getTrigrams(String term) {
+    String padded = "" + PADDING + PADDING + term + PADDING + PADDING;
+    Set<String> trigrams = new LinkedHashSet<String>();
+    for (int i = 0; i + 3 <= padded.length(); i++) {
+      trigrams.add(padded.substring(i, i + 3));
+    }
+    return trigrams;
+  }
+
+  /**
+   * Find the slots of the snippets with a term close to a word
+   *
+   * @param word
+   *          The word, in lower case
+   * @return A new bit set of the matching slots
+   */
+  private BitSet match(String word) {
+    BitSet matches = new BitSet();
+    int limit = getMaxDistance(word.length());
+    if (limit == 0) {
+      Integer id = this.ids.get(word);
+      if (id != null) {
+        matches.or(this.postings.get(id));
+      }
+      return matches;
+    }
+
+    // Each edit removes at most four of the trigrams of the word, as a swap does, so a close term must share the rest
+    Set<String> trigrams = getTrigrams(word);
+    int needed = trigrams.size() - 4 * limit;
+    if (needed <= 0) {
+      // A close term may share no trigram at all, but it cannot differ in length by more than the number of edits
+      for (int length = word.length() - limit; length <= word.length() + limit; length++) {
+        TermList list = this.lengths.get(length);
+        if (list != null) {
+          for (int i = 0; i < list.size; i++) {
+            this.matchTerm(word, list.ids[i], limit, matches);
+          }
+        }
+      }
+      return matches;
+    }
+    // Only the terms sharing a trigram with the word are counted, rather than the whole vocabulary
+    Map<Integer, int[]> shared = new HashMap<Integer, int[]>();
+    for (String trigram : trigrams) {
+      TermList list = this.trigrams.get(trigram);
+      if (list != null) {
+        for (int i = 0; i < list.size; i++) {
+          int[] count = shared.get(list.ids[i]);
+          if (count == null) {
+            count = new int[1];
+            shared.put(list.ids[i], count);
+          }
+          count[0]++;
+        }
+      }
+    }
+    for (Map.Entry<Integer, int[]> entry : shared.entrySet()) {
+      if (entry.getValue()[0] >= needed) {
+        this.matchTerm(word, entry.getKey(), limit, matches);
+      }
+    }
+    return matches;
+  }
+
+  /**
+   * Add the slots of the snippets with a term to a set of matches if the term is close enough to a word
+   *
+   * @param word
+   *          The word, in lower case
+   * @param id
+   *          The id of the term
+   * @param limit
+   *          The number of edits allowed
+   * @param matches
+   *          The matching slots so far
+   */
+  private void matchTerm(String word, int id, int limit, BitSet matches) {
+    if (getDistance(word, this.vocabulary.get(id), limit) <= limit) {
+      matches.or(this.postings.get(id));
+    }
+  }
+
+  /**
+   * Remove a snippet from the posting list of each of its terms, removing terms no snippet has any more from the vocabulary
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param terms
+   *          The distinct terms of the name and keywords of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#removed(int, java.lang.Object)
+   */
+  @Override
+  protected void removed(int slot, Set<String> terms) {
+    for (String term : terms) {
+      Integer id = this.ids.get(term);
+      if (id != null) {
+        BitSet posting = this.postings.get(id);
+        posting.clear(slot);
+        if (posting.isEmpty()) {
+          this.removeTerm(id);
+        }
+      }
+    }
+  }
+
+  /**
+   * Remove a term that no snippet has any more from the vocabulary, freeing its id
+   *
+   * @param id
+   *          The id of the term
+   */
+  private void removeTerm(int id) {
+    String term = this.vocabulary.get(id);
+    for (String trigram : getTrigrams(term)) {
+      TermList list = this.trigrams.get(trigram);
+      list.remove(id);
+      if (list.size == 0) {
+        this.trigrams.remove(trigram);
+      }
+    }
+    TermList list = this.lengths.get(term.length());
+    list.remove(id);
+    if (list.size == 0) {
+      this.lengths.remove(term.length());
+    }
+    this.ids.remove(term);
+    this.vocabulary.set(id, null);
+    this.free.set(id);
+  }
+}
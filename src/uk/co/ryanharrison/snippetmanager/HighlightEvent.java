@@ -0,0 +1,55 @@
+/**
+ * HighlightEvent.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for highlighting the keywords of a whole document
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SyntaxHighlighter
+ */
+@Name("uk.co.ryanharrison.snippetmanager.Highlight")
+@Label("Highlight")
+@Description("The keywords of a whole snippet highlighted")
+public class HighlightEvent extends SnippetEvent {
+
+  /** The language highlighted */
+  @Label("Language")
+  private String language;
+
+  /** The size of the text highlighted */
+  @Label("Size")
+  @DataAmount
+  private long   size;
+
+  /** The number of keywords found and highlighted */
+  @Label("Keywords")
+  private int    keywords;
+
+  /**
+   * Fill in the event and commit it, if it is being recorded
+   *
+   * @param language
+   *          The language highlighted
+   * @param text
+   *          The text highlighted
+   * @param keywords
+   *          The number of keywords found and highlighted
+   */
+  public void finish(String language, String text, int keywords) {
+    if (this.shouldCommit()) {
+      this.language = language;
+      this.size = getSize(text);
+      this.keywords = keywords;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * HorspoolMatcher.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Arrays;
+
+/**
+ * Finds a fixed pattern in text using the Boyer-Moore-Horspool algorithm. The pattern is compared from its last character backwards,
+ * and on a mismatch the search skips ahead by a distance looked up from the text character under the end of the pattern, so most
+ * characters of the text are never examined at all. The skip table is built once when the matcher is created, after which searching
+ * allocates nothing, making it suitable for matching one filter against every snippet in a library.
+ * <p>
+ * The comparison is exact, so to search case insensitively both the pattern and the text should be converted to lower case first.
+ * Matchers are immutable and can be shared between threads.
+ *
+ * @author Ryan Harrison
+ */
+public class HorspoolMatcher {
+
+  /** The number of entries in the skip table. Characters are mapped to an entry by their low bits */
+  private static final int TABLE_SIZE = 256;
+
+  /** The pattern to search for */
+  private final String     pattern;
+
+  /**
+   * How far the pattern can be moved along when each character is under its end. Characters sharing an entry take the smallest of
+   * their distances, which can only make the search skip less, never miss a match
+   */
+  private final int[]      skip;
+
+  /**
+   * Create a new matcher for a pattern
+   *
+   * @param pattern
+   *          The pattern to search for
+   * @throws NullPointerException
+   *           If the pattern is null
+   */
+  public HorspoolMatcher(String pattern) {
+    super();
+    if (pattern == null) {
+      throw new NullPointerException("Pattern cannot be null");
+    }
+    this.pattern = pattern;
+    this.skip = new int[TABLE_SIZE];
+    int last = pattern.length() - 1;
+    Arrays.fill(this.skip, Math.max(pattern.length(), 1));
+    // The last character of the pattern is left out, as it is already under the end of the pattern
+    for (int i = 0; i < last; i++) {
+      int entry = pattern.charAt(i) & (TABLE_SIZE - 1);
+      this.skip[entry] = Math.min(this.skip[entry], last - i);
+    }
+  }
+
+  /**
+   * Get the pattern this matcher searches for
+   *
+   * @return The pattern
+   */
+  public String getPattern() {
+    return this.pattern;
+  }
+
+  /**
+   * Find the first occurrence of the pattern in some text
+   *
+   * @param text
+   *          The text to search
+   * @return The index of the first occurrence of the pattern in the text, or -1 if the text does not contain it
+   */
+  public int indexIn(String text) {
+    int length = this.pattern.length();
+    if (length == 0) {
+      return 0;
+    }
+    int last = length - 1;
+    int end = text.length() - length;
+    int position = 0;
+    while (position <= end) {
+      // Compare from the end of the pattern backwards
+      int i = last;
+      while (text.charAt(position + i) == this.pattern.charAt(i)) {
+        if (i == 0) {
+          return position;
+        }
+        i--;
+      }
+      position += this.skip[text.charAt(position + last) & (TABLE_SIZE - 1)];
+    }
+    return -1;
+  }
+
+  /**
+   * Determine whether some text contains the pattern
+   *
+   * @param text
+   *          The text to search
+   * @return True if the text contains the pattern, otherwise false
+   */
+  public boolean isFoundIn(String text) {
+    return this.indexIn(text) >= 0;
+  }
+}
@@ -0,0 +1,299 @@
+/**
+ * KeywordDictionary.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A singleton dictionary that gives every distinct keyword used by any snippet a small integer id. Snippets store the ids of their
+ * keywords in a sorted array rather than holding their own set of strings, so each keyword is only held once however many snippets
+ * use it, and checking whether a snippet has a keyword is a binary search over a few ints. Ids are never reused, so the dictionary
+ * only grows for the life of the application.
+ *
+ * @author Ryan Harrison
+ */
+public class KeywordDictionary {
+
+  /**
+   * A read only set of keywords backed by a sorted array of keyword ids
+   *
+   * @author Ryan Harrison
+   */
+  private class KeywordSet extends AbstractSet<String> {
+
+    /** The sorted ids of the keywords in the set */
+    private int[] ids;
+
+    /**
+     * Create a new set backed by an array of ids
+     *
+     * @param ids
+     *          The sorted ids of the keywords in the set
+     */
+    public KeywordSet(int[] ids) {
+      super();
+      this.ids = ids;
+    }
+
+    /**
+     * Determine whether a keyword is in the set
+     *
+     * @param o
+     *          The keyword to look for
+     * @return True if the keyword is in the set, otherwise false
+     *
+     * @see java.util.AbstractCollection#contains(java.lang.Object)
+     */
+    @Override
+    public boolean contains(Object o) {
+      if (!(o instanceof String)) {
+        return false;
+      }
+      return KeywordDictionary.contains(this.ids, KeywordDictionary.this.findId((String) o));
+    }
+
+    /**
+     * Get an iterator over the keywords in the set
+     *
+     * @return An iterator over the set
+     *
+     * @see java.util.AbstractCollection#iterator()
+     */
+    @Override
+    public Iterator<String> iterator() {
+      return new Iterator<String>() {
+
+        /** The index of the next id to return */
+        private int index = 0;
+
+        @Override
+        public boolean hasNext() {
+          return this.index < KeywordSet.this.ids.length;
+        }
+
+        @Override
+        public String next() {
+          if (this.index >= KeywordSet.this.ids.length) {
+            throw new NoSuchElementException();
+          }
+          return KeywordDictionary.this.getKeyword(KeywordSet.this.ids[this.index++]);
+        }
+
+        @Override
+        public void remove() {
+          throw new UnsupportedOperationException("Keywords cannot be removed");
+        }
+      };
+    }
+
+    /**
+     * Get the number of keywords in the set
+     *
+     * @return The number of keywords in the set
+     *
+     * @see java.util.AbstractCollection#size()
+     */
+    @Override
+    public int size() {
+      return this.ids.length;
+    }
+  }
+
+  /** An empty array of ids, shared by every snippet without keywords */
+  private static final int[]                 NO_IDS = new int[0];
+
+  /** As this class is a singleton, maintain a single instance of it. Created with the class, so getting it needs no lock */
+  private static final KeywordDictionary     INSTANCE = new KeywordDictionary();
+
+  /** The id of each keyword */
+  private ConcurrentHashMap<String, Integer> ids;
+
+  /** The keyword of each id, indexed by id. Only the first size entries are used */
+  private volatile String[]                  keywords;
+
+  /** The number of keywords in the dictionary */
+  private volatile int                       size;
+
+  /**
+   * Private constructor as singleton. Initialise fields
+   */
+  private KeywordDictionary() {
+    super();
+    this.ids = new ConcurrentHashMap<String, Integer>();
+    this.keywords = new String[64];
+    this.size = 0;
+  }
+
+  /**
+   * Get a read only set view of some keyword ids
+   *
+   * @param ids
+   *          The sorted ids of the keywords
+   * @return A set of the keywords with the ids
+   */
+  public Set<String> asSet(int[] ids) {
+    return new KeywordSet(ids);
+  }
+
+  /**
+   * Get the id of a keyword if it is in the dictionary
+   *
+   * @param keyword
+   *          The keyword to look up
+   * @return The id of the keyword, or -1 if no snippet has ever used it
+   */
+  public int findId(String keyword) {
+    Integer id = this.ids.get(keyword);
+    return id == null ? -1 : id;
+  }
+
+  /**
+   * Get the id of a keyword, adding it to the dictionary if it is not already there
+   *
+   * @param keyword
+   *          The keyword to get the id of
+   * @return The id of the keyword
+   * @throws NullPointerException
+   *           If the keyword is null
+   */
+  public int getId(String keyword) {
+    if (keyword == null) {
+      throw new NullPointerException("Keyword cannot be null");
+    }
+    Integer id = this.ids.get(keyword);
+    if (id != null) {
+      return id;
+    }
+    synchronized (this) {
+      // Another thread may have added the keyword while waiting for the lock
+      id = this.ids.get(keyword);
+      if (id != null) {
+        return id;
+      }
+      if (this.size == this.keywords.length) {
+        this.keywords = Arrays.copyOf(this.keywords, this.keywords.length * 2);
+      }
+      id = this.size;
+      this.keywords[id] = keyword;
+      this.size = id + 1;
+      // Publish the id last, so that any thread that can see it can also see the keyword
+      this.ids.put(keyword, id);
+      return id;
+    }
+  }
+
+  /**
+   * Get the sorted ids of a collection of keywords, adding any new keywords to the dictionary
+   *
+   * @param keywords
+   *          The keywords to get the ids of
+   * @return The distinct ids of the keywords in ascending order
+   */
+  public int[] getIds(Collection<String> keywords) {
+    if (keywords.isEmpty()) {
+      return NO_IDS;
+    }
+    int[] result = new int[keywords.size()];
+    int count = 0;
+    for (String keyword : keywords) {
+      result[count++] = this.getId(keyword);
+    }
+    return sortDistinct(result, count);
+  }
+
+  /**
+   * Get the keyword with an id
+   *
+   * @param id
+   *          The id of the keyword
+   * @return The keyword with the id
+   * @throws IndexOutOfBoundsException
+   *           If no keyword has the id
+   */
+  public String getKeyword(int id) {
+    if (id < 0 || id >= this.size) {
+      throw new IndexOutOfBoundsException("No keyword with id " + id);
+    }
+    return this.keywords[id];
+  }
+
+  /**
+   * Parse a comma separated list of keywords, as entered by the user or held in a file, into the sorted ids of the keywords. Each
+   * keyword is trimmed and converted to lower case, and empty keywords are ignored
+   *
+   * @param text
+   *          The comma separated keywords
+   * @return The distinct ids of the keywords in ascending order
+   */
+  public int[] parse(String text) {
+    String[] parts = text.split(",");
+    int[] result = new int[parts.length];
+    int count = 0;
+    for (String part : parts) {
+      String keyword = part.trim().toLowerCase();
+      if (!keyword.isEmpty()) {
+        result[count++] = this.getId(keyword);
+      }
+    }
+    return count == 0 ? NO_IDS : sortDistinct(result, count);
+  }
+
+  /**
+   * Get the number of keywords in the dictionary
+   *
+   * @return The number of keywords in the dictionary
+   */
+  public int size() {
+    return this.size;
+  }
+
+  /**
+   * Determine whether a sorted array of keyword ids contains an id
+   *
+   * @param ids
+   *          The sorted ids to search
+   * @param id
+   *          The id to look for
+   * @return True if the id is in the array, otherwise false
+   */
+  public static boolean contains(int[] ids, int id) {
+    return id >= 0 && Arrays.binarySearch(ids, id) >= 0;
+  }
+
+  /**
+   * Gets the single instance of this class
+   *
+   * @return The single instance of this class
+   */
+  public static KeywordDictionary getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Sort the start of an array of ids and remove any duplicates
+   *
+   * @param ids
+   *          The array of ids
+   * @param count
+   *          The number of ids at the start of the array to use
+   * @return A new array exactly holding the distinct ids in ascending order
+   */
+  private static int[] sortDistinct(int[] ids, int count) {
+    Arrays.sort(ids, 0, count);
+    int distinct = 0;
+    for (int i = 0; i < count; i++) {
+      if (distinct == 0 || ids[distinct - 1] != ids[i]) {
+        ids[distinct++] = ids[i];
+      }
+    }
+    return Arrays.copyOf(ids, distinct);
+  }
+}
@@ -0,0 +1,250 @@
+/**
+ * KeywordIndex.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * An index from keywords to the snippets that have them. Each keyword has a bit set of the slots of the snippets with that keyword.
+ * Finding the snippets that have all or any of several keywords is then a handful of word-wide AND or OR operations over those bit
+ * sets, and the number of snippets with a keyword is a population count. Slots are reused once their snippet is removed, so the bit
+ * sets stay about as long as the number of snippets in the index.
+ * <p>
+ * Keywords are looked up exactly as they are held in the keyword dictionary, so keywords entered by the user should be trimmed and
+ * converted to lower case first.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.KeywordDictionary
+ */
+public class KeywordIndex extends SnippetIndex<int[]> {
+
+  /** The slots of the snippets with each keyword, indexed by keyword id. Null until a snippet with the keyword is added */
+  private List<BitSet> postings;
+
+  /**
+   * Create a new, empty keyword index
+   */
+  public KeywordIndex() {
+    super();
+    this.postings = new ArrayList<BitSet>();
+  }
+
+  /**
+   * Set the slot of a snippet in the bit set of each of its keywords
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param ids
+   *          The ids of the keywords of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#added(int, java.lang.Object)
+   */
+  @Override
+  protected void added(int slot, int[] ids) {
+    for (int id : ids) {
+      while (this.postings.size() <= id) {
+        this.postings.add(null);
+      }
+      BitSet posting = this.postings.get(id);
+      if (posting == null) {
+        posting = new BitSet();
+        this.postings.set(id, posting);
+      }
+      posting.set(slot);
+    }
+  }
+
+  /**
+   * Get the ids of the keywords of a snippet
+   *
+   * @param snippet
+   *          The snippet
+   * @return The ids of its keywords
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#analyse(uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected int[] analyse(Snippet snippet) {
+    return snippet.getKeywordIds();
+  }
+
+  /**
+   * Forget the bit set of every keyword
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#cleared()
+   */
+  @Override
+  protected void cleared() {
+    this.postings.clear();
+  }
+
+  /**
+   * Find the snippets that have every one of some keywords
+   *
+   * @param keywords
+   *          The keywords the snippets must have
+   * @return The snippets with all of the keywords, in no particular order. Empty if no keywords are given
+   */
+  public List<Snippet> findAll(Collection<String> keywords) {
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      return this.toSnippets(this.matchAll(keywords));
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Find the snippets that have at least one of some keywords
+   *
+   * @param keywords
+   *          The keywords the snippets may have
+   * @return The snippets with any of the keywords, in no particular order
+   */
+  public List<Snippet> findAny(Collection<String> keywords) {
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      BitSet result = new BitSet();
+      for (String keyword : keywords) {
+        BitSet posting = this.getPosting(keyword);
+        if (posting != null) {
+          result.or(posting);
+        }
+      }
+      return this.toSnippets(result);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the number of indexed snippets with each keyword, for example to show alongside each keyword in a list of keywords to filter
+   * by
+   *
+   * @return A map of each keyword used by an indexed snippet to the number of snippets with it, in keyword id order
+   */
+  public Map<String, Integer> getKeywordCounts() {
+    KeywordDictionary dictionary = KeywordDictionary.getInstance();
+    Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      for (int id = 0; id < this.postings.size(); id++) {
+        BitSet posting = this.postings.get(id);
+        if (posting != null && !posting.isEmpty()) {
+          counts.put(dictionary.getKeyword(id), posting.cardinality());
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+    return counts;
+  }
+
+  /**
+   * Get the number of snippets with each keyword among the snippets that have every one of some keywords. This gives the counts to
+   * show once the user has already filtered by those keywords
+   *
+   * @param keywords
+   *          The keywords the counted snippets must have
+   * @return A map of each keyword used by a matching snippet to the number of matching snippets with it, in keyword id order
+   */
+  public Map<String, Integer> getKeywordCounts(Collection<String> keywords) {
+    KeywordDictionary dictionary = KeywordDictionary.getInstance();
+    Map<String, Integer> counts = new LinkedHashMap<String, Integer>();
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      BitSet matches = this.matchAll(keywords);
+      if (matches.isEmpty()) {
+        return counts;
+      }
+      BitSet both = new BitSet();
+      for (int id = 0; id < this.postings.size(); id++) {
+        BitSet posting = this.postings.get(id);
+        if (posting != null && posting.intersects(matches)) {
+          both.clear();
+          both.or(posting);
+          both.and(matches);
+          counts.put(dictionary.getKeyword(id), both.cardinality());
+        }
+      }
+    }
+    finally {
+      lock.unlock();
+    }
+    return counts;
+  }
+
+  /**
+   * Get the slots of the snippets with a keyword
+   *
+   * @param keyword
+   *          The keyword
+   * @return The slots of the snippets with the keyword, null if no snippet has it. This is the bit set held by the index and must
+   *         not be modified
+   */
+  private BitSet getPosting(String keyword) {
+    int id = KeywordDictionary.getInstance().findId(keyword);
+    return id < 0 || id >= this.postings.size() ? null : this.postings.get(id);
+  }
+
+  /**
+   * Get the slots of the snippets that have every one of some keywords
+   *
+   * @param keywords
+   *          The keywords the snippets must have
+   * @return A new bit set of the matching slots
+   */
+  private BitSet matchAll(Collection<String> keywords) {
+    BitSet result = null;
+    for (String keyword : keywords) {
+      BitSet posting = this.getPosting(keyword);
+      // No snippet can match if one of the keywords is not used at all
+      if (posting == null) {
+        return new BitSet();
+      }
+      if (result == null) {
+        result = (BitSet) posting.clone();
+      }
+      else {
+        result.and(posting);
+      }
+      if (result.isEmpty()) {
+        break;
+      }
+    }
+    return result == null ? new BitSet() : result;
+  }
+
+  /**
+   * Clear the slot of a snippet in the bit set of each of its keywords
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param ids
+   *          The ids of the keywords of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#removed(int, java.lang.Object)
+   */
+  @Override
+  protected void removed(int slot, int[] ids) {
+    for (int id : ids) {
+      this.postings.get(id).clear(slot);
+    }
+  }
+}
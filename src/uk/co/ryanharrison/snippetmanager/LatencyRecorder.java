@@ -0,0 +1,231 @@
+/**
+ * LatencyRecorder.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of how long an operation takes, in the style of HdrHistogram. Times are counted in buckets whose width grows with the
+ * time, so every power of two is split into the same number of sub-buckets and any recorded time is known to within about six per
+ * cent however large it is. Recording a time is a few shifts and an atomic increment, with no allocation and no locking, so it can
+ * be left in hot paths. Percentiles are worked out from the buckets when they are asked for.
+ * <p>
+ * Recorders are created and named by the metrics registry. Operations are timed by calling start before them and stop after them,
+ * and while metrics are turned off start returns straight away and stop ignores the time, so an untimed operation only pays for
+ * reading a flag.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.Metrics
+ */
+public class LatencyRecorder {
+
+  /** The number of bits of each time that are kept, the first of which is always set, giving 16 sub-buckets per power of two */
+  private static final int      SUB_BUCKET_BITS  = 4;
+
+  /** The number of sub-buckets each power of two is split into */
+  private static final int      SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+  /** The number of buckets needed to cover every non-negative long */
+  private static final int      BUCKET_COUNT     = (64 - SUB_BUCKET_BITS) * SUB_BUCKET_COUNT;
+
+  /** The name of the operation being timed */
+  private final String          name;
+
+  /** The number of times recorded in each bucket */
+  private final AtomicLongArray buckets;
+
+  /** The number of times recorded */
+  private final LongAdder       count;
+
+  /** The sum of the times recorded, in nanoseconds */
+  private final LongAdder       total;
+
+  /** The longest time recorded, in nanoseconds */
+  private final AtomicLong      max;
+
+  /**
+   * Create a new, empty recorder. Recorders are normally created through the metrics registry, so that they can be reported
+   *
+   * @param name
+   *          The name of the operation being timed
+   */
+  public LatencyRecorder(String name) {
+    super();
+    this.name = name;
+    this.buckets = new AtomicLongArray(BUCKET_COUNT);
+    this.count = new LongAdder();
+    this.total = new LongAdder();
+    this.max = new AtomicLong();
+  }
+
+  /**
+   * Get the bucket that a time is counted in. Times below twice the number of sub-buckets have a bucket each, above that each power
+   * of two is split into the same number of buckets
+   *
+   * @param value
+   *          The time, which must not be negative
+   * @return The index of the bucket
+   */
+  static int getBucket(long value) {
+    if (value < 2 * SUB_BUCKET_COUNT) {
+      return (int) value;
+    }
+    // Keep the highest bits of the value, the first of which is always set, and count how many were dropped
+    int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+    return shift * SUB_BUCKET_COUNT + (int) (value >>> shift);
+  }
+
+  /**
+   * Get the number of times recorded
+   *
+   * @return The number of times recorded
+   */
+  public long getCount() {
+    return this.count.sum();
+  }
+
+  /**
+   * Get the highest time that is counted in a bucket
+   *
+   * @param bucket
+   *          The index of the bucket
+   * @return The highest time in the bucket, in nanoseconds
+   */
+  static long getHighestValue(int bucket) {
+    if (bucket < 2 * SUB_BUCKET_COUNT) {
+      return bucket;
+    }
+    int shift = bucket / SUB_BUCKET_COUNT - 1;
+    long top = bucket % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT + 1;
+    return (top << shift) - 1;
+  }
+
+  /**
+   * Get the longest time recorded
+   *
+   * @return The longest time recorded in nanoseconds, or zero if nothing has been recorded
+   */
+  public long getMax() {
+    return this.max.get();
+  }
+
+  /**
+   * Get the mean of the times recorded
+   *
+   * @return The mean time in nanoseconds, or zero if nothing has been recorded
+   */
+  public double getMean() {
+    long n = this.count.sum();
+    return n == 0 ? 0 : (double) this.total.sum() / n;
+  }
+
+  /**
+   * Get the name of the operation being timed
+   *
+   * @return The name of the operation
+   */
+  public String getName() {
+    return this.name;
+  }
+
+  /**
+   * Get a snapshot of the recorder to report. Times may be recorded while the snapshot is taken, so the figures in it may be a
+   * recording or two apart from each other
+   *
+   * @return A snapshot of the count, mean, percentiles and maximum of the times
+   */
+  public LatencySnapshot getSnapshot() {
+    return new LatencySnapshot(this.getCount(), this.getMean(), this.getValueAtPercentile(50), this.getValueAtPercentile(90),
+        this.getValueAtPercentile(99), this.getMax());
+  }
+
+  /**
+   * Get the time that a percentage of the recorded times are no longer than. The time is the top of the bucket the percentile falls
+   * in, so it may be a little above the actual time recorded, but never above the longest time
+   *
+   * @param percentile
+   *          The percentile, between 0 and 100
+   * @return The time at the percentile in nanoseconds, or zero if nothing has been recorded
+   * @throws IllegalArgumentException
+   *           If the percentile is not between 0 and 100
+   */
+  public long getValueAtPercentile(double percentile) {
+    if (percentile < 0 || percentile > 100) {
+      throw new IllegalArgumentException("Percentile must be between 0 and 100");
+    }
+    long[] counts = new long[BUCKET_COUNT];
+    long n = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      counts[i] = this.buckets.get(i);
+      n += counts[i];
+    }
+    if (n == 0) {
+      return 0;
+    }
+    long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+    long seen = 0;
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return Math.min(getHighestValue(i), this.max.get());
+      }
+    }
+    return this.max.get();
+  }
+
+  /**
+   * Record how long an operation took
+   *
+   * @param nanos
+   *          The time the operation took in nanoseconds. Negative times, which the clock can give across a change of processor, are
+   *          counted as zero
+   */
+  public void record(long nanos) {
+    long value = Math.max(nanos, 0);
+    this.buckets.incrementAndGet(getBucket(value));
+    this.count.increment();
+    this.total.add(value);
+    long longest = this.max.get();
+    while (value > longest && !this.max.compareAndSet(longest, value)) {
+      longest = this.max.get();
+    }
+  }
+
+  /**
+   * Forget every time recorded so far
+   */
+  public void reset() {
+    for (int i = 0; i < BUCKET_COUNT; i++) {
+      this.buckets.set(i, 0);
+    }
+    this.count.reset();
+    this.total.reset();
+    this.max.set(0);
+  }
+
+  /**
+   * Start timing an operation
+   *
+   * @return The time the operation started, to pass to stop, or zero if metrics are turned off
+   */
+  public long start() {
+    return Metrics.isRecording() ? System.nanoTime() : 0;
+  }
+
+  /**
+   * Stop timing an operation and record how long it took
+   *
+   * @param start
+   *          The time returned by start when the operation began. Nothing is recorded if this is zero, as metrics were turned off
+   */
+  public void stop(long start) {
+    if (start != 0) {
+      this.record(System.nanoTime() - start);
+    }
+  }
+}
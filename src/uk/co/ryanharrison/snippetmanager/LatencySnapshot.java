@@ -0,0 +1,130 @@
+/**
+ * LatencySnapshot.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.beans.ConstructorProperties;
+import java.util.Locale;
+
+/**
+ * The figures of a latency recorder at one moment, as reported through JMX. Every time is in nanoseconds.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.LatencyRecorder
+ */
+public class LatencySnapshot {
+
+  /** The number of times recorded */
+  private final long   count;
+
+  /** The mean time */
+  private final double mean;
+
+  /** The median time */
+  private final long   p50;
+
+  /** The 90th percentile time */
+  private final long   p90;
+
+  /** The 99th percentile time */
+  private final long   p99;
+
+  /** The longest time */
+  private final long   max;
+
+  /**
+   * Create a new snapshot
+   *
+   * @param count
+   *          The number of times recorded
+   * @param mean
+   *          The mean time
+   * @param p50
+   *          The median time
+   * @param p90
+   *          The 90th percentile time
+   * @param p99
+   *          The 99th percentile time
+   * @param max
+   *          The longest time
+   */
+  @ConstructorProperties({ "count", "mean", "p50", "p90", "p99", "max" })
+  public LatencySnapshot(long count, double mean, long p50, long p90, long p99, long max) {
+    super();
+    this.count = count;
+    this.mean = mean;
+    this.p50 = p50;
+    this.p90 = p90;
+    this.p99 = p99;
+    this.max = max;
+  }
+
+  /**
+   * Get the number of times recorded
+   *
+   * @return The number of times recorded
+   */
+  public long getCount() {
+    return this.count;
+  }
+
+  /**
+   * Get the longest time
+   *
+   * @return The longest time in nanoseconds
+   */
+  public long getMax() {
+    return this.max;
+  }
+
+  /**
+   * Get the mean time
+   *
+   * @return The mean time in nanoseconds
+   */
+  public double getMean() {
+    return this.mean;
+  }
+
+  /**
+   * Get the median time
+   *
+   * @return The median time in nanoseconds
+   */
+  public long getP50() {
+    return this.p50;
+  }
+
+  /**
+   * Get the 90th percentile time
+   *
+   * @return The 90th percentile time in nanoseconds
+   */
+  public long getP90() {
+    return this.p90;
+  }
+
+  /**
+   * Get the 99th percentile time
+   *
+   * @return The 99th percentile time in nanoseconds
+   */
+  public long getP99() {
+    return this.p99;
+  }
+
+  /**
+   * Get a readable summary of the snapshot in milliseconds
+   *
+   * @return The count, mean, percentiles and maximum
+   *
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return String.format(Locale.ROOT, "count=%d mean=%.3fms p50=%.3fms p90=%.3fms p99=%.3fms max=%.3fms", this.count,
+        this.mean / 1e6, this.p50 / 1e6, this.p90 / 1e6, this.p99 / 1e6, this.max / 1e6);
+  }
+}
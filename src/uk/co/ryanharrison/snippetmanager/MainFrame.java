@@ -10,12 +10,26 @@ import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.WindowAdapter;
 import java.awt.event.WindowEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 import java.io.File;
-import java.io.IOException;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Calendar;
-
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.management.JMException;
 import javax.swing.Box;
 import javax.swing.BoxLayout;
 import javax.swing.JButton;
@@ -34,8 +48,11 @@ import javax.swing.JTextField;
 import javax.swing.JTextPane;
 import javax.swing.JTree;
 import javax.swing.KeyStroke;
+import javax.swing.ProgressMonitor;
 import javax.swing.ScrollPaneConstants;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.WindowConstants;
 import javax.swing.event.CaretEvent;
@@ -45,24 +62,23 @@ import javax.swing.event.DocumentListener;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Document;
 import javax.swing.text.Element;
+import javax.swing.text.StyledDocument;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeModel;
 import javax.swing.tree.TreeNode;
 import javax.swing.tree.TreePath;
 import javax.swing.tree.TreeSelectionModel;
-import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.TransformerException;
-
-import org.xml.sax.SAXException;
 
 /**
  * MainFrame is the main user interface of the application. It provides abilities to create/edit/organise/delete/save snippets.
  * 
  * @author Ryan Harrison
  */
-public class MainFrame extends JPanel implements TreeSelectionListener, ActionListener, SnippetSetChangedListener,
+public class MainFrame extends JPanel implements TreeSelectionListener, ActionListener, SnippetSetBatchListener,
     FindReplaceObserver {
 
   /** Serialisation identifier */
@@ -110,9 +126,27 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
   /** The snippet that is currently loaded in the editor */
   private Snippet             snippet;
 
+  /** Flag specifying whether or not the text in the editor has changed since the current snippet was last updated with it */
+  private boolean             snippetModified;
+
   /** The tree path directing to the currently loaded snippet in the tree view */
   private TreePath            treePath;
 
+  /** The undo histories and prepared documents of each snippet that has been opened in the editor */
+  private UndoHistoryCache    histories;
+
+  /** Reads the files being loaded in the background, or null if nothing is being loaded */
+  private SwingWorker<?, ?>   loader;
+
+  /** Writes the snippets in the background, one save after another so that two saves never write to a file at once */
+  private ExecutorService     saves;
+
+  /** The most recently started save, or null if it has finished */
+  private SnippetSaver        saver;
+
+  /** Saves the snippets to the file they were last saved to or loaded from whenever they have changed */
+  private AutoSaver           autoSaver;
+
   /**
    * Construct a new SnippetManager frame, Initialise all GUI elements and add events
    * 
@@ -132,10 +166,62 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     this.parent = parent;
     this.manager = new SnippetManager();
     this.manager.addSnippetSetChangedListener(this);
+    // Deliver changes on the event dispatch thread after the current event, so a burst of changes only refreshes the view once
+    this.manager.setNotificationExecutor(new Executor() {
+
+      @Override
+      public void execute(Runnable command) {
+        SwingUtilities.invokeLater(command);
+      }
+    });
     this.fc = new XMLFileChooser();
     this.dateFormatter = new SimpleDateFormat("hh:mm a dd/MM/yyyy");
     this.hasSavedToFile = true;
     this.treePath = null;
+    this.histories = new UndoHistoryCache();
+    this.saves = Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "snippet-saver");
+        // Exiting waits for the last save itself, so this thread does not need to keep the application alive
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+    // Autosaves go through the same executor as saves the user asks for, so they never write to the file at the same time
+    long autoSaveInterval = Long.getLong(AutoSaver.INTERVAL_PROPERTY, AutoSaver.DEFAULT_INTERVAL);
+    this.autoSaver = new AutoSaver(this.manager, this.saves, Math.max(1, autoSaveInterval), AutoSaver.DEFAULT_BUDGET) {
+
+      /** Whether the last autosave failed, so that the user is only told once however many times it is retried */
+      private boolean failing;
+
+      @Override
+      protected void beforeSave() {
+        // Hand any text still in the editor to the manager so that it is saved too
+        MainFrame.this.updateCurrentSnippet();
+      }
+
+      @Override
+      protected void failed(String path, Exception error) {
+        if (!this.failing) {
+          this.failing = true;
+          JOptionPane.showMessageDialog(MainFrame.this, "Unable to save snippets automatically to " + path, "Error",
+              JOptionPane.ERROR_MESSAGE);
+        }
+      }
+
+      @Override
+      protected void saved() {
+        this.failing = false;
+        if (!this.isDirty()) {
+          MainFrame.this.hasSavedToFile = true;
+        }
+      }
+    };
+    if (autoSaveInterval > 0) {
+      this.autoSaver.start();
+    }
 
     // Create the root node of the tree
     TreeNode node = new DefaultMutableTreeNode("Snippets");
@@ -175,43 +261,65 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     lines.setEditable(false);
 
     // Add the dynamic line number generation
-    this.snippetPane.getDocument().addDocumentListener(new DocumentListener() {
+    final DocumentListener lineNumbers = new DocumentListener() {
 
-      /** Refresh the line numbers */
+      /** Style changes from the highlighter do not change the number of lines, so there is nothing to refresh */
       @Override
       public void changedUpdate(DocumentEvent de) {
-        lines.setText(this.getText());
-      }
-
-      /**
-       * Get the line number text corresponding to the current number of lines
-       * 
-       * @return The line number text
-       */
-      public String getText() {
-        // Get the current caret position
-        int caretPosition = MainFrame.this.snippetPane.getDocument().getLength();
-        Element root = MainFrame.this.snippetPane.getDocument().getDefaultRootElement();
-        String text = "1" + "\n";
-        // Loop through each line in the text, for each adding on a new number to the line text
-        for (int i = 2; i < root.getElementIndex(caretPosition) + 2; i++) {
-          text += i + "\n";
-        }
-        return text;
       }
 
       /** Refresh the line numbers */
       @Override
       public void insertUpdate(DocumentEvent de) {
-        lines.setText(this.getText());
+        lines.setText(MainFrame.this.getLineNumberText());
       }
 
       /** Refresh the line numbers */
       @Override
       public void removeUpdate(DocumentEvent de) {
-        lines.setText(this.getText());
+        lines.setText(MainFrame.this.getLineNumberText());
+      }
+
+    };
+    this.snippetPane.getDocument().addDocumentListener(lineNumbers);
+
+    // Track whether the text has been edited, so the current snippet is only updated when it has actually changed
+    final DocumentListener modifications = new DocumentListener() {
+
+      /** Style changes from the highlighter do not change the text */
+      @Override
+      public void changedUpdate(DocumentEvent de) {
+      }
+
+      /** Mark the current snippet as modified */
+      @Override
+      public void insertUpdate(DocumentEvent de) {
+        MainFrame.this.snippetModified = true;
+        MainFrame.this.autoSaver.markDirty();
+      }
+
+      /** Mark the current snippet as modified */
+      @Override
+      public void removeUpdate(DocumentEvent de) {
+        MainFrame.this.snippetModified = true;
+        MainFrame.this.autoSaver.markDirty();
       }
+    };
+    this.snippetPane.getDocument().addDocumentListener(modifications);
+
+    // Each snippet has its own document, so move the line number generation and modification tracking across when it is swapped
+    this.snippetPane.addPropertyChangeListener("document", new PropertyChangeListener() {
 
+      @Override
+      public void propertyChange(PropertyChangeEvent e) {
+        ((Document) e.getOldValue()).removeDocumentListener(lineNumbers);
+        ((Document) e.getOldValue()).removeDocumentListener(modifications);
+        ((Document) e.getNewValue()).addDocumentListener(lineNumbers);
+        ((Document) e.getNewValue()).addDocumentListener(modifications);
+        lines.setText(MainFrame.this.getLineNumberText());
+        // A newly swapped in document holds the current text of its snippet
+        MainFrame.this.snippetModified = false;
+      }
     });
 
     // Add the necessary listeners to the snippet editor
@@ -337,6 +445,10 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
             return;
           }
         }
+        // Do not exit part way through writing a file, or if writing it failed
+        if (!MainFrame.this.finishSaving()) {
+          return;
+        }
         System.exit(0);
       }
     });
@@ -384,6 +496,10 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
           return;
         }
       }
+      // Do not exit part way through writing a file, or if writing it failed
+      if (!this.finishSaving()) {
+        return;
+      }
       System.exit(0);
     }
     // If the source is the save menu item, prompt the user to enter a path to save
@@ -393,17 +509,29 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     }
     // If the source is the load menu item, prompt the user to enter a path to load snippets from
     else if (item.getText().equals("Load...")) {
+      // Only one load can run at a time
+      if (this.loader != null) {
+        JOptionPane.showMessageDialog(this, "Snippets are already being loaded", "Error", JOptionPane.ERROR_MESSAGE);
+        return;
+      }
       this.updateCurrentSnippet();
-      // Get the user to select a file to load
-      if (this.fc.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
-        File file = this.fc.getSelectedFile();
-        try {
-          // Load the file
-          this.manager.loadFromFile(file.getAbsolutePath());
-          this.hasSavedToFile = true;
+      // Get the user to select one or more files, or directories of them, to load
+      this.fc.setMultiSelectionEnabled(true);
+      this.fc.setFileSelectionMode(JFileChooser.FILES_AND_DIRECTORIES);
+      int result = this.fc.showOpenDialog(this);
+      this.fc.setMultiSelectionEnabled(false);
+      this.fc.setFileSelectionMode(JFileChooser.FILES_ONLY);
+      if (result == JFileChooser.APPROVE_OPTION) {
+        List<File> files = SnippetFilesReader.expand(Arrays.asList(this.fc.getSelectedFiles()));
+        if (files.isEmpty()) {
+          JOptionPane.showMessageDialog(this, "No snippet files were selected", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+        // A single file is shown as it is read, while several are read in parallel and then merged
+        else if (files.size() == 1) {
+          this.loadFromFile(files.get(0));
         }
-        catch (NullPointerException | ParserConfigurationException | SAXException | IOException e1) {
-          JOptionPane.showMessageDialog(this, "Unable to load snippets from file", "Error", JOptionPane.ERROR_MESSAGE);
+        else {
+          this.loadFromFiles(files);
         }
       }
     }
@@ -420,6 +548,8 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
           this.snippet = newSnippet;
           // Update the snippet to new one from the editor
           this.manager.updateSnippet(selected, newSnippet);
+          // The document and undo history go with the snippet if it has been renamed, rather than staying with the old name
+          this.histories.rename(selected.getName(), newSnippet.getName());
         }
       }
       else {
@@ -430,7 +560,8 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
       this.updateCurrentSnippet();
       Snippet selected = this.getCurrentlySelectedSnippet();
       if (selected != null) {
-        // Delete the snippet from the current set
+        // Delete the snippet from the current set along with its document and undo history
+        this.histories.remove(selected.getName());
         this.manager.deleteSnippet(selected);
         this.snippet = null;
       }
@@ -452,7 +583,10 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     // If the source is the undo menu item, undo a change in the snippet view
     else if (item.getText().equals("Undo")) {
       this.snippetPane.undo();
-      item.setEnabled(this.snippetPane.canUndo());
+    }
+    // If the source is the redo menu item, redo the last undone change in the snippet view
+    else if (item.getText().equals("Redo")) {
+      this.snippetPane.redo();
     }
     else if (item.getText().equals("Cut")) {
       this.snippetPane.cut();
@@ -514,12 +648,16 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
   private DocumentListener createDocumentListener(final JTree tree, final JTextField filter) {
     return new DocumentListener() {
 
+      /** Times applying the filter, including reloading and expanding the tree */
+      private final LatencyRecorder latency = Metrics.getInstance().getRecorder("filter");
+
       /** Apply a new filter to the tree view with the filter text */
       public void applyFilter() {
+        long start = this.latency.start();
         // Get the current model
         FilteredTreeModel filteredModel = (FilteredTreeModel) tree.getModel();
-        // Set the new filter text
-        filteredModel.setFilter(filter.getText());
+        // Set the new filter text, also showing snippets with names or keywords close to the filter in case it is misspelt
+        filteredModel.setFilter(filter.getText(), MainFrame.this.manager.findSimilar(filter.getText()));
 
         // Reload the model
         DefaultTreeModel treeModel = (DefaultTreeModel) filteredModel.getTreeModel();
@@ -527,6 +665,7 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
 
         // Expand all the results
         MainFrame.this.expandTree();
+        this.latency.stop(start);
       }
 
       /** When the text changes, apply a new filter */
@@ -586,6 +725,11 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     undo.addActionListener(this);
     undo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, ActionEvent.CTRL_MASK));
     edit.add(undo);
+
+    JMenuItem redo = new JMenuItem("Redo");
+    redo.addActionListener(this);
+    redo.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, ActionEvent.CTRL_MASK));
+    edit.add(redo);
     edit.addSeparator();
 
     JMenuItem cut = new JMenuItem("Cut");
@@ -695,15 +839,17 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
    */
   private void displaySnippet(Snippet snippet) {
     if (snippet == null) {
-      this.snippetPane.setText("No snippet selected");
+      this.displayText("No snippet selected");
       this.description.setText("No Description");
       this.parent.setTitle("Snippet Manager");
     }
     else {
       // Update the title bar to show the snippet name
       this.parent.setTitle("Snippet Manager - " + snippet.getName());
-      // Set the text in the editor to the snippet content
-      this.snippetPane.setText(snippet.getSnippet());
+      // Use the prepared, already highlighted document the undo history of the snippet belongs to
+      SnippetUndoManager history = this.histories.get(snippet);
+      // Swap the document into the editor rather than setting the text, so nothing has to be inserted or highlighted again
+      this.snippetPane.setDocument((StyledDocument) history.getDocument(), history);
       // Change the current language
       this.languages.setSelectedItem(snippet.getLanguage());
       // Set the description label
@@ -725,6 +871,64 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     }
   }
 
+  /**
+   * Display a piece of text that does not belong to any snippet in the editor. The text is shown in a new document so that it does
+   * not become part of the undo history of a snippet
+   * 
+   * @param text
+   *          The text to display
+   */
+  private void displayText(String text) {
+    SnippetUndoManager history = this.createHistory(text);
+    this.snippetPane.setDocument((StyledDocument) history.getDocument(), history);
+  }
+
+  /**
+   * Create a new document containing some text along with an empty undo history for it
+   * 
+   * @param text
+   *          The initial text of the document
+   * @return An empty undo history bound to the new document
+   */
+  private SnippetUndoManager createHistory(String text) {
+    StyledDocument document = new DefaultStyledDocument();
+    try {
+      document.insertString(0, text, null);
+    }
+    catch (BadLocationException e) {
+      e.printStackTrace();
+    }
+    SnippetUndoManager history = new SnippetUndoManager();
+    history.setDocument(document);
+    return history;
+  }
+
+  /**
+   * Wait for the snippets being saved in the background, if there are any, to be written
+   * 
+   * @return True if nothing was being saved or it has now been saved, false if saving failed
+   */
+  private boolean finishSaving() {
+    SnippetSaver saver = this.saver;
+    try {
+      // Saves run one after another, so once a task submitted now has run every save started before it, autosaves included, has too
+      this.saves.submit(new Runnable() {
+
+        @Override
+        public void run() {
+        }
+      }).get();
+      if (saver != null) {
+        saver.get();
+      }
+      return true;
+    }
+    // The saver reports the failure to the user itself
+    catch (InterruptedException | ExecutionException e) {
+      return false;
+    }
+  }
+
   /**
    * Get the currently selected Snippet if one has been selected
    * 
@@ -751,6 +955,164 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     }
   }
 
+  /**
+   * Get the line number text corresponding to the current number of lines in the editor
+   * 
+   * @return The line number text
+   */
+  private String getLineNumberText() {
+    // Get the current caret position
+    int caretPosition = this.snippetPane.getDocument().getLength();
+    Element root = this.snippetPane.getDocument().getDefaultRootElement();
+    StringBuilder text = new StringBuilder("1\n");
+    // Loop through each line in the text, for each adding on a new number to the line text
+    for (int i = 2; i < root.getElementIndex(caretPosition) + 2; i++) {
+      text.append(i).append('\n');
+    }
+    return text.toString();
+  }
+
+  /**
+   * Get the data model behind the interface. This lets a test harness load a library directly rather than through the file chooser
+   * 
+   * @return The data model of the snippets shown in the interface
+   */
+  SnippetManager getManager() {
+    return this.manager;
+  }
+
+  /**
+   * Load the snippets from a file in the background, replacing the current snippets. The tree shows each language as soon as it has
+   * been read, and a progress monitor lets the user cancel the load, which puts back the snippets there were before
+   * 
+   * @param file
+   *          The file to load
+   */
+  private void loadFromFile(File file) {
+    // The editor, documents and histories belong to the snippets that are being replaced
+    this.histories.clear();
+    this.displaySnippet(null);
+    this.snippet = null;
+    this.treePath = null;
+    final boolean saved = this.hasSavedToFile;
+    this.hasSavedToFile = true;
+    // Nothing is autosaved while the file loads, as the snippets are only part loaded
+    final String autoSavePath = this.autoSaver.getPath();
+    final SnippetFileCodec autoSaveCodec = this.autoSaver.getCodec();
+    this.autoSaver.setPath(null);
+
+    final ProgressMonitor monitor = new ProgressMonitor(this.parent, "Loading snippets from " + file.getName(), null, 0, 100);
+    this.loader = new SnippetLoader(this.manager, file) {
+
+      @Override
+      protected void finished(Exception error) {
+        monitor.close();
+        MainFrame.this.loader = null;
+        if (this.isCancelled() || error != null) {
+          // The snippets from before are back, but not the documents and histories of any snippets read from the file
+          MainFrame.this.histories.clear();
+          MainFrame.this.displaySnippet(null);
+          MainFrame.this.snippet = null;
+          MainFrame.this.hasSavedToFile = saved;
+          MainFrame.this.autoSaver.setPath(autoSavePath, autoSaveCodec);
+          if (error != null) {
+            JOptionPane.showMessageDialog(MainFrame.this, "Unable to load snippets from file", "Error", JOptionPane.ERROR_MESSAGE);
+          }
+        }
+        // From now on changes are saved to the file that was loaded, compressed the way it was whatever it is named
+        else {
+          MainFrame.this.autoSaver.setPath(this.getFile().getAbsolutePath(), this.getCodec());
+        }
+      }
+    };
+    this.loader.addPropertyChangeListener(new PropertyChangeListener() {
+
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("progress".equals(evt.getPropertyName())) {
+          monitor.setProgress((Integer) evt.getNewValue());
+        }
+        // Progress is reported often while the file is read, so this is soon after the user cancels
+        if (monitor.isCanceled()) {
+          ((SnippetLoader) evt.getSource()).cancel(true);
+        }
+      }
+    });
+    this.loader.execute();
+  }
+
+  /**
+   * Load the snippets from several files in the background, reading them in parallel and merging them, and then replace the current
+   * snippets. A snippet whose name is in more than one file is taken from the first of them, as with a name held twice in one file.
+   * The merged snippets do not belong to any one file, so they are not autosaved until they are saved to a file
+   * 
+   * @param files
+   *          The files to load, in the order they are merged
+   */
+  private void loadFromFiles(final List<File> files) {
+    // Nothing is autosaved while the files load, so nothing is written to a file that is being read
+    final String autoSavePath = this.autoSaver.getPath();
+    final SnippetFileCodec autoSaveCodec = this.autoSaver.getCodec();
+    this.autoSaver.setPath(null);
+
+    final ProgressMonitor monitor = new ProgressMonitor(this.parent, "Loading snippets from " + files.size() + " files", null, 0,
+        100);
+    this.loader = new SwingWorker<List<Snippet>, Void>() {
+
+      @Override
+      protected List<Snippet> doInBackground() throws Exception {
+        final AtomicInteger read = new AtomicInteger();
+        return new SnippetFilesReader(files, ConflictPolicy.KeepFirst) {
+
+          @Override
+          protected void fileRead(File file, int snippets) {
+            setProgress(100 * read.incrementAndGet() / files.size());
+          }
+        }.read();
+      }
+
+      @Override
+      protected void done() {
+        monitor.close();
+        MainFrame.this.loader = null;
+        if (this.isCancelled()) {
+          MainFrame.this.autoSaver.setPath(autoSavePath, autoSaveCodec);
+          return;
+        }
+        try {
+          List<Snippet> snippets = this.get();
+          // The current snippets stay in use until the files have been merged, and only then are the editor and histories cleared
+          MainFrame.this.histories.clear();
+          MainFrame.this.displaySnippet(null);
+          MainFrame.this.snippet = null;
+          MainFrame.this.treePath = null;
+          // Replace the snippets in one go, as though they had been read from a single file
+          MainFrame.this.manager.beginLoad();
+          MainFrame.this.manager.loadPart(snippets);
+          MainFrame.this.manager.endLoad();
+          MainFrame.this.hasSavedToFile = false;
+        }
+        catch (InterruptedException | ExecutionException e) {
+          MainFrame.this.autoSaver.setPath(autoSavePath, autoSaveCodec);
+          JOptionPane.showMessageDialog(MainFrame.this, "Unable to load snippets from files", "Error", JOptionPane.ERROR_MESSAGE);
+        }
+      }
+    };
+    this.loader.addPropertyChangeListener(new PropertyChangeListener() {
+
+      @Override
+      public void propertyChange(PropertyChangeEvent evt) {
+        if ("progress".equals(evt.getPropertyName())) {
+          monitor.setProgress((Integer) evt.getNewValue());
+        }
+        if (monitor.isCanceled()) {
+          ((SwingWorker<?, ?>) evt.getSource()).cancel(true);
+        }
+      }
+    });
+    this.loader.execute();
+  }
+
   /**
    * Called when a find/replace action has occurred in the find replace dialog. This frame is the observer to the dialog which is
    * the observable
@@ -789,31 +1151,74 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
    */
   @Override
   public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+    this.onSnippetSetChanged(subject, Collections.singletonMap(type, 1));
+  }
+
+  /**
+   * Called when a batch of changes has been made to the snippet set in the snippet manager. The tree is only refreshed once however
+   * many changes the batch holds.
+   * 
+   * @param subject
+   *          The observable whose snippet set has changed
+   * @param changes
+   *          The types of the changes to the snippet set, each mapped to the number of times that type of change occurred
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetSetBatchListener#onSnippetSetChanged(uk.co.ryanharrison.snippetmanager.SnippetSetObservable,
+   *      java.util.Map)
+   */
+  @Override
+  public void onSnippetSetChanged(SnippetSetObservable subject, Map<ChangeType, Integer> changes) {
     // Refresh the contents of the tree to show newly added/removed snippets
     this.refreshSnippetTree();
-    // Depending on the type of change, show a message to the user
-    switch (type) {
-      case Add:
-        JOptionPane.showMessageDialog(this, "Snippet successfully added", "Snippet added", JOptionPane.INFORMATION_MESSAGE);
-        break;
-      case Delete:
-        JOptionPane.showMessageDialog(this, "Snippet successfully deleted", "Snippet deleted", JOptionPane.INFORMATION_MESSAGE);
-        this.snippetPane.setText("");
-        this.snippet = null;
-        break;
-      case Update:
-        JOptionPane.showMessageDialog(this, "Snippet successfully updated", "Snippet updated", JOptionPane.INFORMATION_MESSAGE);
-        break;
-      case Save:
-        JOptionPane.showMessageDialog(this, "Snippets successfully saved", "Snippet updated", JOptionPane.INFORMATION_MESSAGE);
-        break;
-      case Load:
-        this.snippetPane.setText("No snippet selected");
-        JOptionPane.showMessageDialog(this, "Snippets successfully loaded", "Snippet updated", JOptionPane.INFORMATION_MESSAGE);
-        break;
-    }
-    this.hasSavedToFile = false;
+    // Depending on the type of change, tell the user what happened, in one message however many changes the batch holds
+    List<String> messages = new ArrayList<String>();
+    String title = null;
+    for (Entry<ChangeType, Integer> change : changes.entrySet()) {
+      int count = change.getValue();
+      switch (change.getKey()) {
+        case Add:
+          messages.add(count == 1 ? "Snippet successfully added" : count + " snippets successfully added");
+          title = "Snippet added";
+          this.hasSavedToFile = false;
+          break;
+        case Delete:
+          messages.add(count == 1 ? "Snippet successfully deleted" : count + " snippets successfully deleted");
+          title = "Snippet deleted";
+          this.displayText("");
+          this.snippet = null;
+          this.hasSavedToFile = false;
+          break;
+        case Update:
+          messages.add(count == 1 ? "Snippet successfully updated" : count + " snippets successfully updated");
+          title = "Snippet updated";
+          this.hasSavedToFile = false;
+          break;
+        case Save:
+          // Whoever saved the snippets has already marked them as saved
+          messages.add("Snippets successfully saved");
+          title = "Snippet updated";
+          break;
+        case Load:
+          // The documents and histories belong to the snippets that have just been replaced
+          this.histories.clear();
+          this.displayText("No snippet selected");
+          messages.add("Snippets successfully loaded");
+          title = "Snippet updated";
+          break;
+        case Loading:
+          // Part of a file is being loaded, which the refreshed tree already shows
+          break;
+      }
+    }
     this.description.setText("No Description");
+    if (!messages.isEmpty()) {
+      StringBuilder message = new StringBuilder();
+      for (String line : messages) {
+        message.append(message.length() == 0 ? "" : "\n").append(line);
+      }
+      JOptionPane.showMessageDialog(this, message.toString(), messages.size() == 1 ? title : "Snippets changed",
+          JOptionPane.INFORMATION_MESSAGE);
+    }
   }
 
   /**
@@ -844,18 +1249,35 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
     // Show the file chooser
     if (this.fc.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
       String path = this.fc.getSelectedFile().getAbsolutePath();
-      if (!path.endsWith(".xml")) {
+      // A name ending in .xml.gz asks for the file to be compressed
+      if (!path.endsWith(".xml") && !path.endsWith(".xml" + SnippetFileCodec.Gzip.getExtension())) {
         path = path + ".xml";
       }
-      try {
-        // Save the snippets to the file the user chose
-        this.manager.saveSnippetsToFile(path);
-        this.hasSavedToFile = true;
-      }
-      // If there was an error, prompt the user
-      catch (ParserConfigurationException | TransformerException e1) {
-        JOptionPane.showMessageDialog(this, "Unable to save snippets to file", "Error", JOptionPane.ERROR_MESSAGE);
-      }
+      // Take a snapshot of the snippets now and write it in the background, so they can carry on being edited while it is written
+      this.saver = new SnippetSaver(this.manager, path) {
+
+        @Override
+        protected void done() {
+          try {
+            this.get();
+          }
+          // If there was an error, prompt the user
+          catch (InterruptedException | ExecutionException e1) {
+            MainFrame.this.hasSavedToFile = false;
+            MainFrame.this.autoSaver.markDirty();
+            JOptionPane.showMessageDialog(MainFrame.this, "Unable to save snippets to file", "Error", JOptionPane.ERROR_MESSAGE);
+          }
+          if (MainFrame.this.saver == this) {
+            MainFrame.this.saver = null;
+          }
+        }
+      };
+      // The file will hold the snapshot, so only changes made from now on are unsaved
+      this.hasSavedToFile = true;
+      this.autoSaver.markClean();
+      // From now on changes are saved to the file the user chose
+      this.autoSaver.setPath(path);
+      this.saves.execute(this.saver);
     }
   }
 
@@ -868,13 +1290,13 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
 
   /** Update the current snippet that is being viewed with the new text entered by the user from the editor */
   private void updateCurrentSnippet() {
-    if (this.snippet != null) {
-      Snippet newSnippet = new Snippet(this.snippet.getName(), this.snippetPane.getText(), this.snippet.getDescription(),
-          this.snippet.getKeywords(), this.snippet.getLanguage());
-      // Update the snippet in the data model with the new text
-      this.manager.updateSnippetData(this.snippet, newSnippet);
-      // Update the tree
-      this.tree.getModel().valueForPathChanged(this.treePath, newSnippet);
+    // Nothing needs updating if the text has not been edited
+    if (this.snippet != null && this.snippetModified) {
+      // Only the text can be edited here, so change the snippet in place rather than replacing it in the data model
+      this.manager.updateSnippetBody(this.snippet, this.snippetPane.getText());
+      // The document now holds the body of the snippet, so it can be shown again without being prepared again
+      UndoHistoryCache.markCurrent(this.snippetPane.getDocument(), this.snippet);
+      this.snippetModified = false;
     }
   }
 
@@ -952,6 +1374,20 @@ public class MainFrame extends JPanel implements TreeSelectionListener, ActionLi
    *          Command line arguments
    */
   public static void main(String[] args) {
+    // Expose the metrics through JMX so that they can be watched, and turned on, while the program runs
+    try {
+      Metrics.getInstance().register();
+    }
+    catch (JMException e) {
+      System.err.println("Couldn't register metrics.");
+    }
+
+    // Watch for the interface freezing if a threshold has been given
+    Long threshold = Long.getLong(EdtWatchdog.THRESHOLD_PROPERTY);
+    if (threshold != null) {
+      new EdtWatchdog(threshold).install();
+    }
+
     // Create and display the frame
     javax.swing.SwingUtilities.invokeLater(new Runnable() {
 
@@ -0,0 +1,201 @@
+/**
+ * Metrics.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * A singleton registry of the latency recorders and counters that the snippet manager records how it spends its time with. Each
+ * instrumented class asks the registry for its recorders and counters once, by name, and keeps them, so recording does not involve
+ * looking anything up. The registry can be registered with the platform MBean server to expose every recorder and counter through
+ * JMX.
+ * <p>
+ * Recording is off unless the system property snippetmanager.metrics is true, and can be turned on and off while running through
+ * JMX. While it is off, timing an operation only costs a read of a volatile flag and nothing is recorded.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.LatencyRecorder
+ */
+public class Metrics implements MetricsMXBean {
+
+  /** The name the registry is registered with the MBean server under */
+  public static final String                           OBJECT_NAME = "uk.co.ryanharrison.snippetmanager:type=Metrics";
+
+  /** Whether latencies and counters are being recorded. Kept outside the instance so that checking it does not need a lock */
+  private static volatile boolean                      enabled     = Boolean.getBoolean("snippetmanager.metrics");
+
+  /** As this class is a singleton, maintain a single instance of it. Created with the class, so getting it needs no lock */
+  private static final Metrics                         INSTANCE    = new Metrics();
+
+  /** The latency recorders, by the name of the operation they time */
+  private final ConcurrentMap<String, LatencyRecorder> recorders;
+
+  /** The counters, by name */
+  private final ConcurrentMap<String, LongAdder>       counters;
+
+  /**
+   * Private constructor as singleton. Initialise fields
+   */
+  private Metrics() {
+    super();
+    this.recorders = new ConcurrentHashMap<String, LatencyRecorder>();
+    this.counters = new ConcurrentHashMap<String, LongAdder>();
+  }
+
+  /**
+   * Get a counter, creating it if it does not exist yet. Counters should only be added to while metrics are being recorded
+   *
+   * @param name
+   *          The name of the counter
+   * @return The counter with the name
+   *
+   * @see uk.co.ryanharrison.snippetmanager.Metrics#isRecording()
+   */
+  public LongAdder getCounter(String name) {
+    LongAdder counter = this.counters.get(name);
+    if (counter == null) {
+      LongAdder created = new LongAdder();
+      counter = this.counters.putIfAbsent(name, created);
+      if (counter == null) {
+        counter = created;
+      }
+    }
+    return counter;
+  }
+
+  /**
+   * Get the value of every counter
+   *
+   * @return The value of each counter in order of name
+   *
+   * @see uk.co.ryanharrison.snippetmanager.MetricsMXBean#getCounters()
+   */
+  @Override
+  public Map<String, Long> getCounters() {
+    Map<String, Long> result = new TreeMap<String, Long>();
+    for (Map.Entry<String, LongAdder> counter : this.counters.entrySet()) {
+      result.put(counter.getKey(), counter.getValue().sum());
+    }
+    return result;
+  }
+
+  /**
+   * Get the singleton instance of this class
+   *
+   * @return The Metrics instance
+   */
+  public static Metrics getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * Get a snapshot of every latency recorder
+   *
+   * @return A snapshot of each recorder in order of name
+   *
+   * @see uk.co.ryanharrison.snippetmanager.MetricsMXBean#getLatencies()
+   */
+  @Override
+  public Map<String, LatencySnapshot> getLatencies() {
+    Map<String, LatencySnapshot> result = new TreeMap<String, LatencySnapshot>();
+    for (LatencyRecorder recorder : this.recorders.values()) {
+      result.put(recorder.getName(), recorder.getSnapshot());
+    }
+    return result;
+  }
+
+  /**
+   * Get a latency recorder, creating it if it does not exist yet
+   *
+   * @param name
+   *          The name of the operation the recorder times
+   * @return The recorder with the name
+   */
+  public LatencyRecorder getRecorder(String name) {
+    LatencyRecorder recorder = this.recorders.get(name);
+    if (recorder == null) {
+      LatencyRecorder created = new LatencyRecorder(name);
+      recorder = this.recorders.putIfAbsent(name, created);
+      if (recorder == null) {
+        recorder = created;
+      }
+    }
+    return recorder;
+  }
+
+  /**
+   * Determine whether latencies and counters are being recorded
+   *
+   * @return True if metrics are being recorded, otherwise false
+   *
+   * @see uk.co.ryanharrison.snippetmanager.MetricsMXBean#isEnabled()
+   */
+  @Override
+  public boolean isEnabled() {
+    return enabled;
+  }
+
+  /**
+   * Determine whether latencies and counters are being recorded, without needing the instance. This is what instrumented code should
+   * check before doing any work to record something
+   *
+   * @return True if metrics are being recorded, otherwise false
+   */
+  public static boolean isRecording() {
+    return enabled;
+  }
+
+  /**
+   * Register the registry with the platform MBean server, so that it can be watched through JMX. Registering it again has no effect
+   *
+   * @throws JMException
+   *           If the registry could not be registered
+   */
+  public void register() throws JMException {
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(OBJECT_NAME);
+    if (!server.isRegistered(name)) {
+      server.registerMBean(this, name);
+    }
+  }
+
+  /**
+   * Reset every latency recorder and counter to zero
+   *
+   * @see uk.co.ryanharrison.snippetmanager.MetricsMXBean#reset()
+   */
+  @Override
+  public void reset() {
+    for (LatencyRecorder recorder : this.recorders.values()) {
+      recorder.reset();
+    }
+    for (LongAdder counter : this.counters.values()) {
+      counter.reset();
+    }
+  }
+
+  /**
+   * Turn the recording of latencies and counters on or off
+   *
+   * @param enabled
+   *          True to record metrics, false to stop recording them
+   *
+   * @see uk.co.ryanharrison.snippetmanager.MetricsMXBean#setEnabled(boolean)
+   */
+  @Override
+  public void setEnabled(boolean enabled) {
+    Metrics.enabled = enabled;
+  }
+}
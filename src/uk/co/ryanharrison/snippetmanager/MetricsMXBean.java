@@ -0,0 +1,52 @@
+/**
+ * MetricsMXBean.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Map;
+
+/**
+ * The management interface of the metrics registry, through which the latencies and counters of the snippet manager can be watched
+ * and the recording of them turned on and off from a JMX console such as JConsole or VisualVM
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.Metrics
+ */
+public interface MetricsMXBean {
+
+  /**
+   * Get the value of every counter
+   *
+   * @return The value of each counter, by the name of the counter
+   */
+  public Map<String, Long> getCounters();
+
+  /**
+   * Get a snapshot of every latency recorder
+   *
+   * @return The count, mean, percentiles and maximum of the times of each operation in nanoseconds, by the name of the operation
+   */
+  public Map<String, LatencySnapshot> getLatencies();
+
+  /**
+   * Determine whether latencies and counters are being recorded
+   *
+   * @return True if metrics are being recorded, otherwise false
+   */
+  public boolean isEnabled();
+
+  /**
+   * Reset every latency recorder and counter to zero
+   */
+  public void reset();
+
+  /**
+   * Turn the recording of latencies and counters on or off. What has already been recorded is kept
+   *
+   * @param enabled
+   *          True to record metrics, false to stop recording them
+   */
+  public void setEnabled(boolean enabled);
+}
@@ -0,0 +1,53 @@
+/**
+ * ReadOptimisedSnippetManager.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.SortedSet;
+
+/**
+ * A snippet manager suited to libraries that are read far more often than they are changed. The snippets of each language are held
+ * in a sorted array rather than a tree, so building the snippet tree or iterating the library is a linear scan over contiguous memory
+ * and there is no per snippet node overhead. Adding snippets is buffered and merged into the arrays in batches, which keeps loading a
+ * file or adding a batch of snippets cheap, but single inserts and deletes cost more than with the default manager.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SortedArraySet
+ */
+public class ReadOptimisedSnippetManager extends SnippetManager {
+
+  /**
+   * Create a new read optimised snippet manager
+   */
+  public ReadOptimisedSnippetManager() {
+    super();
+  }
+
+  /**
+   * Use an enum map, which holds its values in an array indexed by language
+   *
+   * @return A new, empty map of languages to snippet sets
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnippetMap()
+   */
+  @Override
+  protected Map<Language, SortedSet<Snippet>> createSnippetMap() {
+    return new EnumMap<Language, SortedSet<Snippet>>(Language.class);
+  }
+
+  /**
+   * Use a sorted array set so the snippets of a language are held next to each other in memory
+   *
+   * @return A new, empty set of snippets
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnippetSet()
+   */
+  @Override
+  protected SortedSet<Snippet> createSnippetSet() {
+    return new SortedArraySet<Snippet>();
+  }
+}
@@ -0,0 +1,371 @@
+/**
+ * RegexLiterals.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Finds the literal text that any match of a regular expression must contain. A pattern is split into its top level alternatives,
+ * and each alternative is walked from start to end collecting runs of plain characters that cannot be skipped. Anything that can
+ * match more than one string, such as a character class, a group, an optional character or an escape like \d, ends the current run.
+ * The analysis is conservative: the literals may leave out text that every match contains, but they never include text that a
+ * match could do without. When the pattern uses a feature that is not understood, no literals are found at all.
+ * <p>
+ * Literals are in lower case and only contain ASCII characters, so they are required whether or not the pattern ignores case.
+ *
+ * @author Ryan Harrison
+ */
+public class RegexLiterals {
+
+  /** Flags that change how a pattern is read or matched in ways the analysis does not follow */
+  private static final int  UNSUPPORTED_FLAGS = Pattern.COMMENTS | Pattern.CANON_EQ | Pattern.UNICODE_CASE;
+
+  /** The pattern being analysed */
+  private final String      pattern;
+
+  /** The position of the next character of the pattern to read */
+  private int               position;
+
+  /** The literals found in the current alternative */
+  private List<String>      literals;
+
+  /** The literal run currently being read */
+  private StringBuilder     run;
+
+  /**
+   * Create a new analysis of a pattern
+   *
+   * @param pattern
+   *          The pattern to analyse
+   */
+  private RegexLiterals(String pattern) {
+    super();
+    this.pattern = pattern;
+  }
+
+  /**
+   * Find the literals that every match of a pattern must contain. The result has one list for each top level alternative of the
+   * pattern, and text that matches the pattern contains every literal of at least one of the alternatives
+   *
+   * @param pattern
+   *          The pattern to analyse
+   * @return The literals required by each alternative, or null if there is an alternative for which no literals could be found
+   */
+  public static List<List<String>> extract(Pattern pattern) {
+    if ((pattern.flags() & UNSUPPORTED_FLAGS) != 0) {
+      return null;
+    }
+    List<List<String>> alternatives = new ArrayList<List<String>>();
+    if ((pattern.flags() & Pattern.LITERAL) != 0) {
+      List<String> literals = new ArrayList<String>();
+      if (isAscii(pattern.pattern())) {
+        literals.add(pattern.pattern().toLowerCase());
+      }
+      alternatives.add(literals);
+    }
+    else {
+      RegexLiterals analysis = new RegexLiterals(pattern.pattern());
+      do {
+        List<String> literals = analysis.readAlternative();
+        if (literals == null) {
+          return null;
+        }
+        alternatives.add(literals);
+      }
+      while (analysis.position++ < analysis.pattern.length());
+    }
+    for (List<String> literals : alternatives) {
+      if (literals.isEmpty()) {
+        return null;
+      }
+    }
+    return alternatives;
+  }
+
+  /**
+   * End the current literal run, keeping it if it is not empty
+   */
+  private void flush() {
+    if (this.run.length() > 0) {
+      this.literals.add(this.run.toString());
+      this.run.setLength(0);
+    }
+  }
+
+  /**
+   * Determine whether a string only contains ASCII characters
+   *
+   * @param text
+   *          The string to check
+   * @return True if every character is ASCII, otherwise false
+   */
+  private static boolean isAscii(String text) {
+    for (int i = 0; i < text.length(); i++) {
+      if (text.charAt(i) > 127) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Add a literal character to the current run, unless the quantifier after it means it may not be in the match
+   *
+   * @param c
+   *          The literal character
+   */
+  private void literal(char c) {
+    int start = this.position;
+    boolean required = this.skipQuantifier();
+    // Case folding outside ASCII is not followed, so such characters cannot be relied on
+    if (!required || c > 127) {
+      this.flush();
+      return;
+    }
+    this.run.append(Character.toLowerCase(c));
+    // A repeated character may be followed by more of itself, so the run cannot continue past it
+    if (this.position != start) {
+      this.flush();
+    }
+  }
+
+  /**
+   * Read the literals of the alternative starting at the current position, stopping at the top level '|' that ends it or at the end
+   * of the pattern
+   *
+   * @return The literals of the alternative, or null if the pattern uses a feature that is not understood
+   */
+  private List<String> readAlternative() {
+    this.literals = new ArrayList<String>();
+    this.run = new StringBuilder();
+    while (this.position < this.pattern.length()) {
+      char c = this.pattern.charAt(this.position);
+      if (c == '|') {
+        break;
+      }
+      this.position++;
+      switch (c) {
+        case '\\':
+          if (!this.readEscape()) {
+            return null;
+          }
+          break;
+        case '[':
+          this.flush();
+          this.skipClass();
+          this.skipQuantifier();
+          break;
+        case '(':
+          this.flush();
+          if (!this.skipGroup()) {
+            return null;
+          }
+          this.skipQuantifier();
+          break;
+        case ')':
+          return null;
+        case '.':
+        case '^':
+        case '$':
+          this.flush();
+          this.skipQuantifier();
+          break;
+        default:
+          this.literal(c);
+      }
+    }
+    this.flush();
+    return this.literals;
+  }
+
+  /**
+   * Read an escape sequence, the backslash having already been read
+   *
+   * @return True if the escape was understood, otherwise false
+   */
+  private boolean readEscape() {
+    if (this.position >= this.pattern.length()) {
+      return false;
+    }
+    char c = this.pattern.charAt(this.position++);
+    if (c == 'Q') {
+      // Everything up to \E is literal, and a quantifier after \E only applies to the last character
+      int end = this.pattern.indexOf("\\E", this.position);
+      String quoted = this.pattern.substring(this.position, end < 0 ? this.pattern.length() : end);
+      this.position = end < 0 ? this.pattern.length() : end + 2;
+      for (int i = 0; i < quoted.length() - 1; i++) {
+        char q = quoted.charAt(i);
+        if (q > 127) {
+          this.flush();
+        }
+        else {
+          this.run.append(Character.toLowerCase(q));
+        }
+      }
+      if (quoted.length() > 0) {
+        this.literal(quoted.charAt(quoted.length() - 1));
+      }
+      return true;
+    }
+    if (!Character.isLetterOrDigit(c)) {
+      // An escaped symbol stands for itself
+      this.literal(c);
+      return true;
+    }
+    this.flush();
+    switch (c) {
+      case 't':
+      case 'n':
+      case 'r':
+      case 'f':
+      case 'a':
+      case 'e':
+      case 'd':
+      case 'D':
+      case 's':
+      case 'S':
+      case 'w':
+      case 'W':
+      case 'h':
+      case 'H':
+      case 'v':
+      case 'V':
+      case 'R':
+      case 'X':
+        this.skipQuantifier();
+        return true;
+      case 'b':
+      case 'B':
+      case 'A':
+      case 'G':
+      case 'z':
+      case 'Z':
+        return true;
+      case 'p':
+      case 'P':
+        if (this.pattern.startsWith("{", this.position)) {
+          int end = this.pattern.indexOf('}', this.position);
+          if (end < 0) {
+            return false;
+          }
+          this.position = end + 1;
+        }
+        else {
+          this.position++;
+        }
+        this.skipQuantifier();
+        return true;
+      default:
+        // Back references, code points and named escapes are not followed
+        return false;
+    }
+  }
+
+  /**
+   * Skip over a character class, the opening bracket having already been read. Classes may be nested and may contain escapes
+   */
+  private void skipClass() {
+    int depth = 1;
+    // A closing bracket straight after the opening one, or after a negation, is a literal
+    if (this.position < this.pattern.length() && this.pattern.charAt(this.position) == '^') {
+      this.position++;
+    }
+    if (this.position < this.pattern.length() && this.pattern.charAt(this.position) == ']') {
+      this.position++;
+    }
+    while (this.position < this.pattern.length() && depth > 0) {
+      char c = this.pattern.charAt(this.position++);
+      if (c == '\\') {
+        this.position++;
+      }
+      else if (c == '[') {
+        depth++;
+      }
+      else if (c == ']') {
+        depth--;
+      }
+    }
+  }
+
+  /**
+   * Skip over a group, the opening parenthesis having already been read. The contents of the group are not analysed, except to check
+   * for flags that change how the rest of the pattern is read
+   *
+   * @return True if the group was skipped, false if it sets a flag that the analysis does not follow
+   */
+  private boolean skipGroup() {
+    if (this.pattern.startsWith("?", this.position)) {
+      // A group of flags such as (?i) or (?i:...) must not turn on comments or unicode case folding
+      int i = this.position + 1;
+      while (i < this.pattern.length() && (Character.isLetter(this.pattern.charAt(i)) || this.pattern.charAt(i) == '-')) {
+        char flag = this.pattern.charAt(i++);
+        if (flag == 'x' || flag == 'u' || flag == 'U') {
+          return false;
+        }
+      }
+    }
+    int depth = 1;
+    while (this.position < this.pattern.length() && depth > 0) {
+      char c = this.pattern.charAt(this.position++);
+      if (c == '\\') {
+        if (this.pattern.startsWith("Q", this.position)) {
+          int end = this.pattern.indexOf("\\E", this.position);
+          this.position = end < 0 ? this.pattern.length() : end + 2;
+        }
+        else {
+          this.position++;
+        }
+      }
+      else if (c == '[') {
+        this.skipClass();
+      }
+      else if (c == '(') {
+        depth++;
+      }
+      else if (c == ')') {
+        depth--;
+      }
+    }
+    return depth == 0;
+  }
+
+  /**
+   * Skip over a quantifier at the current position, along with any lazy or possessive modifier after it
+   *
+   * @return True if the item before the quantifier must still appear at least once, false if the quantifier makes it optional
+   */
+  private boolean skipQuantifier() {
+    if (this.position >= this.pattern.length()) {
+      return true;
+    }
+    boolean required = true;
+    char c = this.pattern.charAt(this.position);
+    if (c == '*' || c == '?') {
+      required = false;
+      this.position++;
+    }
+    else if (c == '+') {
+      this.position++;
+    }
+    else if (c == '{') {
+      int end = this.pattern.indexOf('}', this.position);
+      if (end < 0) {
+        return true;
+      }
+      String bounds = this.pattern.substring(this.position + 1, end).trim();
+      required = !bounds.startsWith("0") && !bounds.startsWith(",");
+      this.position = end + 1;
+    }
+    else {
+      return true;
+    }
+    if (this.pattern.startsWith("?", this.position) || this.pattern.startsWith("+", this.position)) {
+      this.position++;
+    }
+    return required;
+  }
+}
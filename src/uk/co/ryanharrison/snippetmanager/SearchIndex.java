@@ -0,0 +1,424 @@
+/**
+ * SearchIndex.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * A full text index used to rank snippets by how well they match a query. The name, keywords, description and body of each snippet
+ * are split into terms, and each term has a posting list of the snippets it appears in along with how many times it appears in each
+ * field. A query is scored with BM25F: the frequency of a term in each field is normalised by the length of that field relative to
+ * its average, the fields are weighted by how much a match in them is worth and combined, and the result is saturated and weighted
+ * by how rare the term is across the library. Only the postings of the query terms are visited, and the best results are kept in a
+ * heap the size of the number wanted, so finding the best few matches does not sort every snippet that matched.
+ * <p>
+ * The terms of a snippet are found again when it is removed, so a snippet must not change while it is indexed; remove it first and
+ * add it again afterwards.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.KeywordIndex
+ */
+public class SearchIndex extends SnippetIndex<Map<String, int[]>> {
+
+  /**
+   * The snippets a term appears in and how often it appears in each of their fields. Entries are kept in no particular order and a
+   * removed entry is replaced by the last one
+   */
+  private static class Posting {
+
+    /** The slot of each snippet the term appears in */
+    private int[] slots;
+
+    /** The number of times the term appears in each field of each snippet, FIELDS entries per snippet */
+    private int[] frequencies;
+
+    /** The number of snippets the term appears in */
+    private int   size;
+
+    /**
+     * Create a new, empty posting list
+     */
+    public Posting() {
+      super();
+      this.slots = new int[2];
+      this.frequencies = new int[2 * FIELDS];
+    }
+
+    /**
+     * Add a snippet to the posting list
+     *
+     * @param slot
+     *          The slot of the snippet
+     * @param counts
+     *          The number of times the term appears in each field of the snippet
+     */
+    public void add(int slot, int[] counts) {
+      if (this.size == this.slots.length) {
+        this.slots = Arrays.copyOf(this.slots, this.size * 2);
+        this.frequencies = Arrays.copyOf(this.frequencies, this.size * 2 * FIELDS);
+      }
+      this.slots[this.size] = slot;
+      System.arraycopy(counts, 0, this.frequencies, this.size * FIELDS, FIELDS);
+      this.size++;
+    }
+
+    /**
+     * Remove a snippet from the posting list
+     *
+     * @param slot
+     *          The slot of the snippet
+     */
+    public void remove(int slot) {
+      for (int i = 0; i < this.size; i++) {
+        if (this.slots[i] == slot) {
+          // Move the last entry into the gap
+          this.size--;
+          this.slots[i] = this.slots[this.size];
+          System.arraycopy(this.frequencies, this.size * FIELDS, this.frequencies, i * FIELDS, FIELDS);
+          return;
+        }
+      }
+    }
+  }
+
+  /**
+   * The score of each snippet a query has matched so far, kept in an open addressed table sized to the number of postings the query
+   * visits rather than to the whole index, so a query for rare terms does little work however many snippets are indexed
+   */
+  private static class Scores {
+
+    /** The slot in each entry of the table, or -1 if the entry is empty */
+    private final int[]    slots;
+
+    /** The score of the snippet in each entry of the table */
+    private final double[] scores;
+
+    /** How far a hashed slot is shifted to leave as many bits as the table has entries */
+    private final int      shift;
+
+    /**
+     * Create a new table with room for a number of snippets
+     *
+     * @param expected
+     *          The largest number of snippets that can be added
+     */
+    public Scores(int expected) {
+      super();
+      // Keep the table at most half full so probe sequences stay short
+      int capacity = Integer.highestOneBit(Math.max(expected, 1) * 2 - 1) << 1;
+      this.slots = new int[capacity];
+      this.scores = new double[capacity];
+      this.shift = Integer.numberOfLeadingZeros(capacity - 1);
+      Arrays.fill(this.slots, -1);
+    }
+
+    /**
+     * Add to the score of a snippet
+     *
+     * @param slot
+     *          The slot of the snippet
+     * @param score
+     *          The score to add
+     */
+    public void add(int slot, double score) {
+      int mask = this.slots.length - 1;
+      int entry = slot * 0x9E3779B9 >>> this.shift;
+      while (this.slots[entry] != slot && this.slots[entry] >= 0) {
+        entry = entry + 1 & mask;
+      }
+      this.slots[entry] = slot;
+      this.scores[entry] += score;
+    }
+  }
+
+  /** The index of the name field */
+  public static final int         NAME        = 0;
+
+  /** The index of the keywords field */
+  public static final int         KEYWORDS    = 1;
+
+  /** The index of the description field */
+  public static final int         DESCRIPTION = 2;
+
+  /** The index of the body field */
+  public static final int         BODY        = 3;
+
+  /** The number of fields that are indexed */
+  public static final int         FIELDS      = 4;
+
+  /** How much a match in each field is worth relative to a match in the body */
+  private static final double[]   BOOSTS      = { 3.0, 2.0, 1.5, 1.0 };
+
+  /** How quickly repeated occurrences of a term stop adding to the score */
+  private static final double     K1          = 1.2;
+
+  /** How much the frequency of a term is normalised by the length of the field, from none at 0 to fully at 1 */
+  private static final double     B           = 0.75;
+
+  /** The number of terms in each field of each snippet, FIELDS entries per slot */
+  private int[]                   lengths;
+
+  /** The total number of terms in each field over every indexed snippet, used to find the average length of each field */
+  private long[]                  totalLengths;
+
+  /** The posting list of each term that appears in an indexed snippet */
+  private Map<String, Posting>    postings;
+
+  /**
+   * Create a new, empty search index
+   */
+  public SearchIndex() {
+    super();
+    this.lengths = new int[this.getCapacity() * FIELDS];
+    this.totalLengths = new long[FIELDS];
+    this.postings = new HashMap<String, Posting>();
+  }
+
+  /**
+   * Add a snippet to the posting list of each of its terms, and add the length of each of its fields to the totals
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param terms
+   *          Each term of the snippet mapped to the number of times it appears in each field
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#added(int, java.lang.Object)
+   */
+  @Override
+  protected void added(int slot, Map<String, int[]> terms) {
+    if (this.lengths.length < this.getCapacity() * FIELDS) {
+      this.lengths = Arrays.copyOf(this.lengths, this.getCapacity() * FIELDS);
+    }
+    for (Map.Entry<String, int[]> term : terms.entrySet()) {
+      Posting posting = this.postings.get(term.getKey());
+      if (posting == null) {
+        posting = new Posting();
+        this.postings.put(term.getKey(), posting);
+      }
+      posting.add(slot, term.getValue());
+      for (int field = 0; field < FIELDS; field++) {
+        this.lengths[slot * FIELDS + field] += term.getValue()[field];
+      }
+    }
+    for (int field = 0; field < FIELDS; field++) {
+      this.totalLengths[field] += this.lengths[slot * FIELDS + field];
+    }
+  }
+
+  /**
+   * Count the terms in each field of a snippet
+   *
+   * @param snippet
+   *          The snippet
+   * @return A map of each term in the snippet to the number of times it appears in each field
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#analyse(uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected Map<String, int[]> analyse(Snippet snippet) {
+    Map<String, int[]> terms = new HashMap<String, int[]>();
+    countTerms(snippet.getName(), NAME, terms);
+    for (String keyword : snippet.getKeywords()) {
+      countTerms(keyword, KEYWORDS, terms);
+    }
+    countTerms(snippet.getDescription(), DESCRIPTION, terms);
+    countTerms(snippet.getSnippet(), BODY, terms);
+    return terms;
+  }
+
+  /**
+   * Forget the posting list of every term and the length of every field
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#cleared()
+   */
+  @Override
+  protected void cleared() {
+    Arrays.fill(this.lengths, 0);
+    Arrays.fill(this.totalLengths, 0);
+    this.postings.clear();
+  }
+
+  /**
+   * Count the terms in some text as belonging to a field
+   *
+   * @param text
+   *          The text to split into terms, may be null
+   * @param field
+   *          The field the text is from
+   * @param terms
+   *          The map of terms to their counts in each field to add to
+   */
+  private static void countTerms(String text, int field, Map<String, int[]> terms) {
+    for (String term : tokenize(text)) {
+      int[] counts = terms.get(term);
+      if (counts == null) {
+        counts = new int[FIELDS];
+        terms.put(term, counts);
+      }
+      counts[field]++;
+    }
+  }
+
+  /**
+   * Remove a snippet from the posting list of each of its terms, and take the length of each of its fields from the totals
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param terms
+   *          Each term of the snippet mapped to the number of times it appears in each field
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#removed(int, java.lang.Object)
+   */
+  @Override
+  protected void removed(int slot, Map<String, int[]> terms) {
+    for (String term : terms.keySet()) {
+      Posting posting = this.postings.get(term);
+      if (posting != null) {
+        posting.remove(slot);
+        if (posting.size == 0) {
+          this.postings.remove(term);
+        }
+      }
+    }
+    for (int field = 0; field < FIELDS; field++) {
+      this.totalLengths[field] -= this.lengths[slot * FIELDS + field];
+      this.lengths[slot * FIELDS + field] = 0;
+    }
+  }
+
+  /**
+   * Find the snippets that best match a query. Each term of the query adds to the score of every snippet it appears in, so snippets
+   * need not contain every term to be found, but those that contain more of the rarer terms rank higher
+   *
+   * @param query
+   *          The text to search for
+   * @param limit
+   *          The largest number of results to return
+   * @return The best matching snippets, best first. Empty if the query has no terms or nothing matched
+   * @throws IllegalArgumentException
+   *           If the limit is not positive
+   */
+  public List<SearchResult> search(String query, int limit) {
+    if (limit <= 0) {
+      throw new IllegalArgumentException("Limit must be positive: " + limit);
+    }
+    Set<String> terms = new LinkedHashSet<String>(tokenize(query));
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      return this.search(terms, limit);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Find the snippets that best match the terms of a query. Called while the read lock is held
+   *
+   * @param terms
+   *          The distinct terms of the query
+   * @param limit
+   *          The largest number of results to return
+   * @return The best matching snippets, best first
+   */
+  private List<SearchResult> search(Set<String> terms, int limit) {
+    int count = this.size();
+    if (count == 0) {
+      return Collections.emptyList();
+    }
+    double[] averages = new double[FIELDS];
+    for (int field = 0; field < FIELDS; field++) {
+      // A field that is empty in every snippet never matches, so its average only needs to avoid dividing by zero
+      averages[field] = Math.max((double) this.totalLengths[field] / count, 1);
+    }
+
+    List<Posting> matching = new ArrayList<Posting>(terms.size());
+    int visited = 0;
+    for (String term : terms) {
+      Posting posting = this.postings.get(term);
+      if (posting != null) {
+        matching.add(posting);
+        visited += posting.size;
+      }
+    }
+
+    // Accumulate the score of each snippet term by term, only for the snippets that the postings hit
+    Scores scores = new Scores(Math.min(visited, count));
+    for (Posting posting : matching) {
+      double idf = Math.log(1 + (count - posting.size + 0.5) / (posting.size + 0.5));
+      for (int i = 0; i < posting.size; i++) {
+        int slot = posting.slots[i];
+        double frequency = 0;
+        for (int field = 0; field < FIELDS; field++) {
+          int occurrences = posting.frequencies[i * FIELDS + field];
+          if (occurrences != 0) {
+            double norm = 1 - B + B * this.lengths[slot * FIELDS + field] / averages[field];
+            frequency += BOOSTS[field] * occurrences / norm;
+          }
+        }
+        scores.add(slot, idf * frequency * (K1 + 1) / (K1 + frequency));
+      }
+    }
+
+    // Keep the best results in a heap with the worst of them at the head, so each candidate is compared against the worst only
+    PriorityQueue<SearchResult> best = new PriorityQueue<SearchResult>(Math.min(limit, count), Collections.reverseOrder());
+    for (int entry = 0; entry < scores.slots.length; entry++) {
+      int slot = scores.slots[entry];
+      if (slot < 0) {
+        continue;
+      }
+      SearchResult result = new SearchResult(this.getSnippet(slot), scores.scores[entry]);
+      if (best.size() < limit) {
+        best.add(result);
+      }
+      else if (result.compareTo(best.peek()) < 0) {
+        best.poll();
+        best.add(result);
+      }
+    }
+    List<SearchResult> results = new ArrayList<SearchResult>(best);
+    Collections.sort(results);
+    return results;
+  }
+
+  /**
+   * Split some text into lower case terms. A term is a run of letters and digits, so punctuation and symbols in code separate terms
+   * rather than being part of them
+   *
+   * @param text
+   *          The text to split, may be null
+   * @return The terms of the text in the order they appear, including repeats
+   */
+  public static List<String> tokenize(String text) {
+    List<String> terms = new ArrayList<String>();
+    if (text == null) {
+      return terms;
+    }
+    int start = -1;
+    for (int i = 0; i <= text.length(); i++) {
+      boolean part = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+      if (part && start < 0) {
+        start = i;
+      }
+      else if (!part && start >= 0) {
+        terms.add(text.substring(start, i).toLowerCase(Locale.ROOT));
+        start = -1;
+      }
+    }
+    return terms;
+  }
+}
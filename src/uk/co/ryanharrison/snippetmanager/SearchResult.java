@@ -0,0 +1,79 @@
+/**
+ * SearchResult.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+/**
+ * A snippet found by a search along with how well it matched the query. Results compare by score, so the best results sort first
+ *
+ * @author Ryan Harrison
+ */
+public class SearchResult implements Comparable<SearchResult> {
+
+  /** The snippet that was found */
+  private Snippet snippet;
+
+  /** How well the snippet matched the query. Higher scores are better matches */
+  private double  score;
+
+  /**
+   * Create a new search result
+   *
+   * @param snippet
+   *          The snippet that was found
+   * @param score
+   *          How well the snippet matched the query
+   */
+  public SearchResult(Snippet snippet, double score) {
+    super();
+    this.snippet = snippet;
+    this.score = score;
+  }
+
+  /**
+   * Compare the scores of two results so that the better result comes first. Results with the same score are ordered by the name of
+   * their snippets
+   *
+   * @param o
+   *          The other result to compare
+   * @return A negative number if this result is better, a positive number if it is worse, otherwise zero
+   *
+   * @see java.lang.Comparable#compareTo(java.lang.Object)
+   */
+  @Override
+  public int compareTo(SearchResult o) {
+    int result = Double.compare(o.score, this.score);
+    return result != 0 ? result : this.snippet.compareTo(o.snippet);
+  }
+
+  /**
+   * Get how well the snippet matched the query
+   *
+   * @return The score of the snippet. Higher scores are better matches
+   */
+  public double getScore() {
+    return this.score;
+  }
+
+  /**
+   * Get the snippet that was found
+   *
+   * @return The snippet that was found
+   */
+  public Snippet getSnippet() {
+    return this.snippet;
+  }
+
+  /**
+   * Show the snippet and its score in a short human readable format
+   *
+   * @return The name of the snippet and its score
+   *
+   * @see java.lang.Object#toString()
+   */
+  @Override
+  public String toString() {
+    return this.snippet.getName() + " (" + String.format("%.3f", this.score) + ")";
+  }
+}
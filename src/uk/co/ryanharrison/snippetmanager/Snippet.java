@@ -1,7 +1,5 @@
 package uk.co.ryanharrison.snippetmanager;
 
-import java.util.Arrays;
-import java.util.HashSet;
 import java.util.Set;
 
 import org.w3c.dom.Document;
@@ -15,19 +13,22 @@ import org.w3c.dom.Element;
 public class Snippet implements Comparable<Snippet> {
 
   /** The name of the snippet */
-  private String      name;
+  private String          name;
 
-  /** The snippet itself */
-  private String      snippet;
+  /** The snippet itself. This is the only part of a snippet that can change, through the snippet manager */
+  private volatile String snippet;
 
   /** A short description about the snippet */
-  private String      description;
+  private String          description;
 
-  /** A set of keywords that can be used to search for the snippet */
-  private Set<String> keywords;
+  /** The sorted ids of the keywords that can be used to search for the snippet, as given by the keyword dictionary */
+  private int[]           keywords;
 
   /** The language the snippet is written in */
-  private Language    language;
+  private Language        language;
+
+  /** The lower case name, description and language of the snippet used when filtering, created the first time it is needed */
+  private String          searchText;
 
   /**
    * Construct a new snippet. The name field cannot be null or empty. The keywords cannot be null.
@@ -60,6 +61,44 @@ public class Snippet implements Comparable<Snippet> {
       throw new NullPointerException("Keywords cannot be null");
     }
 
+    this.name = name;
+    this.snippet = snippet;
+    this.description = description;
+    this.keywords = KeywordDictionary.getInstance().getIds(keywords);
+    this.language = language;
+  }
+
+  /**
+   * Construct a new snippet from the ids of its keywords. The name field cannot be null or empty. The keyword ids cannot be null.
+   * 
+   * @param name
+   *          The name
+   * @param snippet
+   *          The content
+   * @param description
+   *          The description
+   * @param keywords
+   *          The sorted, distinct ids of the keywords used to describe the snippet, as given by the keyword dictionary
+   * @param language
+   *          The language of the snippet
+   * @throws NullPointerException
+   *           If the name or the keyword ids is null
+   */
+  Snippet(String name, String snippet, String description, int[] keywords, Language language) {
+    super();
+
+    if (name == null) {
+      throw new NullPointerException("Name cannot be null");
+    }
+
+    if (name.isEmpty()) {
+      throw new IllegalArgumentException("Name cannot be empty");
+    }
+
+    if (keywords == null) {
+      throw new NullPointerException("Keywords cannot be null");
+    }
+
     this.name = name;
     this.snippet = snippet;
     this.description = description;
@@ -81,6 +120,16 @@ public class Snippet implements Comparable<Snippet> {
     return this.name.compareTo(o.name);
   }
 
+  /**
+   * Copy the snippet as it is now. The copy shares everything that cannot change, and keeps the current content even if the content of
+   * this snippet is changed in place afterwards
+   * 
+   * @return A new snippet with the same name, content, description, keywords and language
+   */
+  Snippet copy() {
+    return new Snippet(this.name, this.snippet, this.description, this.keywords, this.language);
+  }
+
   /**
    * Get the description of the snippet
    * 
@@ -96,9 +145,47 @@ public class Snippet implements Comparable<Snippet> {
    * @return The keywords of the snippet
    */
   public Set<String> getKeywords() {
+    return KeywordDictionary.getInstance().asSet(this.keywords);
+  }
+
+  /**
+   * Get the sorted ids of the keywords of the snippet. The array is shared and must not be modified
+   * 
+   * @return The sorted ids of the keywords of the snippet
+   */
+  int[] getKeywordIds() {
     return this.keywords;
   }
 
+  /**
+   * Get the text that is searched when filtering snippets. This is the trimmed name, description and language of the snippet in
+   * lower case, separated by null characters so a filter cannot match across two of them. Those parts of a snippet never change, so
+   * the text is only created once for each snippet
+   * 
+   * @return The lower case text to search when filtering
+   */
+  String getSearchText() {
+    String text = this.searchText;
+    if (text == null) {
+      String description = this.description == null ? "" : this.description.toLowerCase().trim();
+      String language = this.language == null ? "" : this.language.toString().toLowerCase();
+      text = this.name.toLowerCase().trim() + '\0' + description + '\0' + language;
+      this.searchText = text;
+    }
+    return text;
+  }
+
+  /**
+   * Determine whether the snippet has a keyword, without creating a set of its keywords
+   * 
+   * @param keyword
+   *          The keyword to look for
+   * @return True if the snippet has the keyword, otherwise false
+   */
+  public boolean hasKeyword(String keyword) {
+    return KeywordDictionary.contains(this.keywords, KeywordDictionary.getInstance().findId(keyword));
+  }
+
   /**
    * Get the language of the snippet
    * 
@@ -126,6 +213,17 @@ public class Snippet implements Comparable<Snippet> {
     return this.snippet;
   }
 
+  /**
+   * Change the content of the snippet in place. As the name is unchanged, the snippet keeps its position in any sorted set it is held
+   * in. This is only used by the snippet manager, so that a snippet it holds is not changed behind its back
+   * 
+   * @param snippet
+   *          The new content
+   */
+  void setSnippet(String snippet) {
+    this.snippet = snippet;
+  }
+
   /**
    * Provide a toString method to make sure Snippets are displayed in a short human readable format in gui elements
    * 
@@ -166,7 +264,7 @@ public class Snippet implements Comparable<Snippet> {
 
     // Add a keywords tag and append it to the snippet tag
     Element keywords = doc.createElement("keywords");
-    keywords.appendChild(doc.createTextNode(this.keywords.toString().replace("[", "").replace("]", "")));
+    keywords.appendChild(doc.createTextNode(this.getKeywords().toString().replace("[", "").replace("]", "")));
     snippet.appendChild(keywords);
 
     return snippet;
@@ -187,12 +285,8 @@ public class Snippet implements Comparable<Snippet> {
     String data = item.getElementsByTagName("data").item(0).getTextContent().trim();
     String description = item.getElementsByTagName("description").item(0).getTextContent();
 
-    // The keywords are comma separated. Split them and add them to a set
-    String[] keywordsString = item.getElementsByTagName("keywords").item(0).getTextContent().split(",");
-    for (int i = 0; i < keywordsString.length; i++) {
-      keywordsString[i] = keywordsString[i].trim().toLowerCase();
-    }
-    Set<String> keywords = new HashSet<String>(Arrays.asList(keywordsString));
+    // The keywords are comma separated. Look up the id of each one in the dictionary
+    int[] keywords = KeywordDictionary.getInstance().parse(item.getElementsByTagName("keywords").item(0).getTextContent());
     // Return this snippet from the data collected from the xml element
     return new Snippet(name, data, description, keywords, lang);
   }
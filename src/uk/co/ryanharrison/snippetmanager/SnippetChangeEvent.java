@@ -0,0 +1,62 @@
+/**
+ * SnippetChangeEvent.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Collection;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for a change to the snippets held by a snippet manager, that is adding, deleting or updating snippets
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager
+ */
+@Name("uk.co.ryanharrison.snippetmanager.SnippetChange")
+@Label("Snippet Change")
+@Description("Snippets added to, deleted from or updated in a snippet manager")
+public class SnippetChangeEvent extends SnippetEvent {
+
+  /** The type of change, one of add, delete or update */
+  @Label("Operation")
+  private String operation;
+
+  /** The number of snippets changed */
+  @Label("Snippets")
+  private int    snippets;
+
+  /** The size of the bodies of the snippets changed */
+  @Label("Size")
+  @DataAmount
+  private long   size;
+
+  /** The number of snippets held once the change was made */
+  @Label("Library Size")
+  private int    librarySize;
+
+  /**
+   * Fill in the event and commit it, if it is being recorded
+   *
+   * @param operation
+   *          The type of change, one of add, delete or update
+   * @param changed
+   *          The snippets changed
+   * @param librarySize
+   *          The number of snippets held once the change was made
+   */
+  public void finish(String operation, Collection<Snippet> changed, int librarySize) {
+    if (this.shouldCommit()) {
+      this.operation = operation;
+      this.snippets = changed.size();
+      this.size = getSize(changed);
+      this.librarySize = librarySize;
+      this.commit();
+    }
+  }
+}
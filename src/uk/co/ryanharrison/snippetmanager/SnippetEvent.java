@@ -0,0 +1,64 @@
+/**
+ * SnippetEvent.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Collection;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+
+/**
+ * The base of the Java Flight Recorder events emitted by the snippet manager, which puts them all in the same category of a
+ * recording so that they can be lined up against garbage collection, allocation and thread events. Events cost next to nothing
+ * when they are not being recorded, as the work of filling them in is only done once the recorder has said it wants them.
+ *
+ * @author Ryan Harrison
+ */
+@Category("Snippet Manager")
+public abstract class SnippetEvent extends Event {
+
+  /**
+   * Get the size of some text when encoded in UTF-8, as it is when written to a file, without encoding it
+   *
+   * @param text
+   *          The text, may be null
+   * @return The size of the text in bytes, zero if it is null
+   */
+  static long getSize(CharSequence text) {
+    if (text == null) {
+      return 0;
+    }
+    long size = 0;
+    for (int i = 0; i < text.length(); i++) {
+      char c = text.charAt(i);
+      if (c < 0x80) {
+        size++;
+      }
+      else if (c < 0x800 || Character.isSurrogate(c)) {
+        // Each half of a surrogate pair counts for two of the four bytes of the pair
+        size += 2;
+      }
+      else {
+        size += 3;
+      }
+    }
+    return size;
+  }
+
+  /**
+   * Get the total size of the bodies of some snippets when encoded in UTF-8
+   *
+   * @param snippets
+   *          The snippets
+   * @return The size of the bodies in bytes
+   */
+  static long getSize(Collection<Snippet> snippets) {
+    long size = 0;
+    for (Snippet snippet : snippets) {
+      size += getSize(snippet.getSnippet());
+    }
+    return size;
+  }
+}
@@ -0,0 +1,176 @@
+/**
+ * SnippetFileCodec.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Locale;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * The ways a file of snippets can be compressed. Each codec wraps the stream a file is read from or written to, so the xml is
+ * compressed and decompressed as it streams through the parser and the writer, and no uncompressed copy of the file is ever held
+ * whole.
+ * <p>
+ * The codec of a file being read is worked out from the magic bytes at its start, so a compressed file is read whatever it is
+ * named. The codec of a file being written is worked out from its name, so that the name says what it holds.
+ *
+ * @author Ryan Harrison
+ */
+public enum SnippetFileCodec {
+
+  /** Plain, uncompressed xml */
+  Plain("") {
+
+    @Override
+    public InputStream decode(InputStream in) {
+      return in;
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) {
+      return out;
+    }
+  },
+
+  /** Xml compressed with gzip */
+  Gzip(".gz") {
+
+    @Override
+    public InputStream decode(InputStream in) throws IOException {
+      return new GZIPInputStream(in, BUFFER_SIZE);
+    }
+
+    @Override
+    public OutputStream encode(OutputStream out) throws IOException {
+      return new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+  };
+
+  /** The size of the buffers used by the compressed streams */
+  private static final int    BUFFER_SIZE = 65536;
+
+  /** The bytes a file compressed with gzip starts with */
+  private static final byte[] GZIP_MAGIC  = { 0x1f, (byte) 0x8b };
+
+  /** The bytes a file compressed with Zstandard starts with */
+  private static final byte[] ZSTD_MAGIC  = { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd };
+
+  /**
+   * Work out the codec of a stream from the bytes it starts with, leaving the stream where it was
+   *
+   * @param in
+   *          The stream, which must support mark and reset
+   * @return The codec the stream was written with
+   * @throws IllegalArgumentException
+   *           If the stream does not support mark and reset
+   * @throws IOException
+   *           If the stream could not be read, or it is compressed in a way that cannot be read
+   */
+  public static SnippetFileCodec detect(InputStream in) throws IOException {
+    if (!in.markSupported()) {
+      throw new IllegalArgumentException("Stream must support mark and reset");
+    }
+    byte[] magic = new byte[ZSTD_MAGIC.length];
+    in.mark(magic.length);
+    int read = 0;
+    try {
+      for (int count; read < magic.length && (count = in.read(magic, read, magic.length - read)) >= 0;) {
+        read += count;
+      }
+    }
+    finally {
+      in.reset();
+    }
+    if (startsWith(magic, read, GZIP_MAGIC)) {
+      return Gzip;
+    }
+    if (startsWith(magic, read, ZSTD_MAGIC)) {
+      throw new IOException("Files compressed with Zstandard are not supported, recompress the file with gzip");
+    }
+    return Plain;
+  }
+
+  /**
+   * Get the codec to write a file with from its name
+   *
+   * @param path
+   *          The path to the file
+   * @return Gzip if the name ends with .gz, otherwise Plain
+   */
+  public static SnippetFileCodec forPath(String path) {
+    return path.toLowerCase(Locale.ROOT).endsWith(Gzip.extension) ? Gzip : Plain;
+  }
+
+  /**
+   * Determine whether some bytes start with a magic number
+   *
+   * @param bytes
+   *          The bytes
+   * @param length
+   *          The number of the bytes that were read
+   * @param magic
+   *          The magic number
+   * @return True if the bytes start with the magic number, otherwise false
+   */
+  private static boolean startsWith(byte[] bytes, int length, byte[] magic) {
+    if (length < magic.length) {
+      return false;
+    }
+    for (int i = 0; i < magic.length; i++) {
+      if (bytes[i] != magic[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** The extension added to the name of an xml file written with the codec */
+  private final String extension;
+
+  /**
+   * Create a new codec
+   *
+   * @param extension
+   *          The extension added to the name of an xml file written with the codec
+   */
+  private SnippetFileCodec(String extension) {
+    this.extension = extension;
+  }
+
+  /**
+   * Wrap a stream holding a file written with this codec, so that reading it gives the xml
+   *
+   * @param in
+   *          The stream of the file
+   * @return A stream of the xml
+   * @throws IOException
+   *           If the stream could not be read
+   */
+  public abstract InputStream decode(InputStream in) throws IOException;
+
+  /**
+   * Wrap a stream to write a file to, so that the xml written to it is written with this codec. Closing the returned stream finishes
+   * the file and closes the stream
+   *
+   * @param out
+   *          The stream of the file
+   * @return A stream to write the xml to
+   * @throws IOException
+   *           If the stream could not be written to
+   */
+  public abstract OutputStream encode(OutputStream out) throws IOException;
+
+  /**
+   * Get the extension added to the name of an xml file written with this codec
+   *
+   * @return The extension, such as .gz, or an empty string if none is added
+   */
+  public String getExtension() {
+    return this.extension;
+  }
+}
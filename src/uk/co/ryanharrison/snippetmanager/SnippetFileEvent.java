@@ -0,0 +1,93 @@
+/**
+ * SnippetFileEvent.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.File;
+import java.util.List;
+
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A flight recorder event for loading snippets from a file or saving them to one. Loading several files at once gives a load event
+ * for each file as it is read, then a merge event whose path lists every file and whose size is the size of them all
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager
+ */
+@Name("uk.co.ryanharrison.snippetmanager.SnippetFile")
+@Label("Snippet File")
+@Description("Snippets loaded from or saved to a file")
+public class SnippetFileEvent extends SnippetEvent {
+
+  /** The type of access, either load, merge or save */
+  @Label("Operation")
+  private String operation;
+
+  /** The path of the file, or the paths of the files separated by the path separator */
+  @Label("Path")
+  private String path;
+
+  /** The number of snippets loaded or saved */
+  @Label("Snippets")
+  private int    snippets;
+
+  /** The size of the file, or the total size of the files */
+  @Label("File Size")
+  @DataAmount
+  private long   size;
+
+  /**
+   * Fill in the event and commit it, if it is being recorded
+   *
+   * @param operation
+   *          The type of access, either load or save
+   * @param path
+   *          The path of the file
+   * @param snippets
+   *          The number of snippets loaded or saved
+   */
+  public void finish(String operation, String path, int snippets) {
+    if (this.shouldCommit()) {
+      this.operation = operation;
+      this.path = path;
+      this.snippets = snippets;
+      this.size = new File(path).length();
+      this.commit();
+    }
+  }
+
+  /**
+   * Fill in the event for several files read at once and commit it, if it is being recorded
+   *
+   * @param operation
+   *          The type of access, normally merge
+   * @param files
+   *          The files
+   * @param snippets
+   *          The number of snippets left once the files have been merged
+   */
+  public void finish(String operation, List<File> files, int snippets) {
+    if (this.shouldCommit()) {
+      StringBuilder paths = new StringBuilder();
+      long size = 0;
+      for (File file : files) {
+        if (paths.length() > 0) {
+          paths.append(File.pathSeparator);
+        }
+        paths.append(file.getPath());
+        size += file.length();
+      }
+      this.operation = operation;
+      this.path = paths.toString();
+      this.snippets = snippets;
+      this.size = size;
+      this.commit();
+    }
+  }
+}
@@ -0,0 +1,338 @@
+/**
+ * SnippetFileReader.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+/**
+ * Reads a file of snippets as a stream rather than building the whole document in memory first. The snippets of each language are
+ * handed to a listener as soon as the element for that language has been read, and the listener is told how much of the file has
+ * been read as it goes, so that a caller can show the snippets and the progress of a large file before the whole of it has been
+ * read.
+ * <p>
+ * The file holds a root element with an element for each language, named after the language, which holds a snippet element for
+ * each snippet. Each snippet element holds a name, data, description and keywords element, where the keywords are comma separated.
+ * The file may be compressed, which is worked out from the bytes it starts with, and is then decompressed as it is parsed.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager#loadFromFile(java.lang.String)
+ * @see uk.co.ryanharrison.snippetmanager.SnippetFileCodec
+ */
+public class SnippetFileReader {
+
+  /**
+   * A listener for the parts of a file as they are read
+   */
+  public interface Listener {
+
+    /**
+     * Called when every snippet of a language has been read. Languages without any snippets are not reported
+     *
+     * @param language
+     *          The language
+     * @param snippets
+     *          The snippets of the language, in the order they appear in the file
+     */
+    public void languageRead(Language language, List<Snippet> snippets);
+
+    /**
+     * Called each time more of the file has been read
+     *
+     * @param read
+     *          The number of bytes read so far
+     * @param length
+     *          The length of the file in bytes
+     */
+    public void progressMade(long read, long length);
+  }
+
+  /**
+   * Parses the elements of the file into snippets, handing each language to the listener as it is finished
+   */
+  private static class Handler extends DefaultHandler {
+
+    /** The listener to hand each language to */
+    private final Listener      listener;
+
+    /** The text of the field being read */
+    private final StringBuilder text;
+
+    /** The snippets read so far for the current language */
+    private List<Snippet>       snippets;
+
+    /** The language being read, or null if a language element is not open */
+    private Language            language;
+
+    /** How many elements deep the parser is, where the root element is at depth one */
+    private int                 depth;
+
+    /** The name of the snippet being read */
+    private String              name;
+
+    /** The content of the snippet being read */
+    private String              data;
+
+    /** The description of the snippet being read */
+    private String              description;
+
+    /** The comma separated keywords of the snippet being read */
+    private String              keywords;
+
+    /** Whether a field is being read */
+    private boolean             reading;
+
+    /**
+     * Create a new handler
+     *
+     * @param listener
+     *          The listener to hand each language to
+     */
+    public Handler(Listener listener) {
+      super();
+      this.listener = listener;
+      this.text = new StringBuilder();
+    }
+
+    /**
+     * Collect the text of the field being read
+     *
+     * @see org.xml.sax.helpers.DefaultHandler#characters(char[], int, int)
+     */
+    @Override
+    public void characters(char[] ch, int start, int length) {
+      if (this.reading) {
+        this.text.append(ch, start, length);
+      }
+    }
+
+    /**
+     * Finish a field, snippet or language
+     *
+     * @throws SAXException
+     *           If a snippet is missing one of its fields
+     *
+     * @see org.xml.sax.helpers.DefaultHandler#endElement(java.lang.String, java.lang.String, java.lang.String)
+     */
+    @Override
+    public void endElement(String uri, String localName, String qName) throws SAXException {
+      if (this.depth == 4 && this.reading) {
+        String value = this.text.toString();
+        if (qName.equals("name")) {
+          this.name = value;
+        }
+        else if (qName.equals("data")) {
+          this.data = value.trim();
+        }
+        else if (qName.equals("description")) {
+          this.description = value;
+        }
+        else {
+          this.keywords = value;
+        }
+        this.reading = false;
+      }
+      else if (this.depth == 3 && qName.equals("snippet")) {
+        if (this.name == null || this.data == null || this.description == null || this.keywords == null) {
+          throw new SAXException("Snippet " + (this.name == null ? "without a name" : "'" + this.name + "'") + " is missing a field");
+        }
+        // The keywords are comma separated. Look up the id of each one in the dictionary
+        this.snippets.add(new Snippet(this.name, this.data, this.description, KeywordDictionary.getInstance().parse(this.keywords),
+            this.language));
+      }
+      else if (this.depth == 2) {
+        if (!this.snippets.isEmpty()) {
+          this.listener.languageRead(this.language, this.snippets);
+        }
+        this.language = null;
+        this.snippets = null;
+      }
+      this.depth--;
+    }
+
+    /**
+     * Start a language, snippet or field
+     *
+     * @throws SAXException
+     *           If a language element is not named after a language
+     *
+     * @see org.xml.sax.helpers.DefaultHandler#startElement(java.lang.String, java.lang.String, java.lang.String,
+     *      org.xml.sax.Attributes)
+     */
+    @Override
+    public void startElement(String uri, String localName, String qName, Attributes attributes) throws SAXException {
+      this.depth++;
+      if (this.depth == 2) {
+        try {
+          this.language = Language.valueOf(qName);
+        }
+        catch (IllegalArgumentException e) {
+          throw new SAXException("Unknown language '" + qName + "'", e);
+        }
+        this.snippets = new ArrayList<Snippet>();
+      }
+      else if (this.depth == 3 && qName.equals("snippet")) {
+        this.name = null;
+        this.data = null;
+        this.description = null;
+        this.keywords = null;
+      }
+      else if (this.depth == 4 && this.snippets != null
+          && (qName.equals("name") || qName.equals("data") || qName.equals("description") || qName.equals("keywords"))) {
+        this.text.setLength(0);
+        this.reading = true;
+      }
+    }
+  }
+
+  /**
+   * An input stream that tells the listener how much of the file has been read
+   */
+  private static class ProgressInputStream extends FilterInputStream {
+
+    /** The listener to tell */
+    private final Listener listener;
+
+    /** The length of the file in bytes */
+    private final long     length;
+
+    /** The number of bytes read so far */
+    private long           read;
+
+    /**
+     * Create a new stream
+     *
+     * @param in
+     *          The stream to read the file from
+     * @param listener
+     *          The listener to tell
+     * @param length
+     *          The length of the file in bytes
+     */
+    public ProgressInputStream(InputStream in, Listener listener, long length) {
+      super(in);
+      this.listener = listener;
+      this.length = length;
+    }
+
+    /**
+     * Count the bytes read and tell the listener
+     *
+     * @param count
+     *          The number of bytes just read, or -1 at the end of the file
+     * @return The number of bytes just read
+     */
+    private long progress(long count) {
+      if (count > 0) {
+        this.read += count;
+        this.listener.progressMade(this.read, this.length);
+      }
+      return count;
+    }
+
+    /**
+     * Read a byte
+     *
+     * @see java.io.FilterInputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+      int b = super.read();
+      this.progress(b < 0 ? -1 : 1);
+      return b;
+    }
+
+    /**
+     * Read some bytes
+     *
+     * @see java.io.FilterInputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+      return (int) this.progress(super.read(b, off, len));
+    }
+
+    /**
+     * Skip some bytes
+     *
+     * @see java.io.FilterInputStream#skip(long)
+     */
+    @Override
+    public long skip(long n) throws IOException {
+      return this.progress(super.skip(n));
+    }
+  }
+
+  /** The file to read */
+  private final File                file;
+
+  /** The codec the file was found to be written with, or null if it has not been read yet */
+  private volatile SnippetFileCodec codec;
+
+  /**
+   * Create a new reader
+   *
+   * @param file
+   *          The file to read
+   * @throws NullPointerException
+   *           If the file is null
+   */
+  public SnippetFileReader(File file) {
+    super();
+    if (file == null) {
+      throw new NullPointerException("File cannot be null");
+    }
+    this.file = file;
+  }
+
+  /**
+   * Get the codec the file was found to be written with when it was read, so that it can be saved the same way whatever it is named
+   *
+   * @return The codec of the file, or null if it has not been read yet
+   */
+  public SnippetFileCodec getCodec() {
+    return this.codec;
+  }
+
+  /**
+   * Read the file, handing each language to the listener as it is finished. The listener is called on the thread reading the file,
+   * and can stop the read part way through by throwing an unchecked exception, which is passed on to the caller
+   *
+   * @param listener
+   *          The listener to hand each language and the progress to
+   * @throws ParserConfigurationException
+   *           If a parser could not be created
+   * @throws SAXException
+   *           If the file is not a valid file of snippets
+   * @throws IOException
+   *           If there was an error reading the file, or it is compressed in a way that cannot be read
+   */
+  public void read(Listener listener) throws ParserConfigurationException, SAXException, IOException {
+    // Progress is counted in bytes of the file as it is stored, so it is right however the file is compressed
+    InputStream in = new BufferedInputStream(new ProgressInputStream(new FileInputStream(this.file), listener, this.file.length()));
+    try {
+      this.codec = SnippetFileCodec.detect(in);
+      in = this.codec.decode(in);
+      SAXParserFactory.newInstance().newSAXParser().parse(in, new Handler(listener));
+    }
+    finally {
+      in.close();
+    }
+  }
+}
@@ -0,0 +1,274 @@
+/**
+ * SnippetFileWriter.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+
+/**
+ * Writes a file of snippets as a stream rather than building the whole document in memory first. Each snippet is written straight
+ * through the codec of the file as it is reached, so only a buffer's worth of xml is held at a time however large the library is.
+ * <p>
+ * The snippets are written to a new file beside the file being replaced, which is then moved over it in one step once it is
+ * complete and on disk. A save that fails part way through, or a crash while saving, leaves the old file as it was rather than a
+ * truncated one.
+ * <p>
+ * The file has the same layout that a snippet file reader reads: a root element with an element for each language, named after the
+ * language, which holds a snippet element for each snippet. Each snippet element holds a name, data, description and keywords
+ * element, where the keywords are comma separated.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetFileReader
+ * @see uk.co.ryanharrison.snippetmanager.SnippetFileCodec
+ */
+public class SnippetFileWriter {
+
+  /** The indentation of each level of elements */
+  private static final String    INDENT = "    ";
+
+  /** The file to write */
+  private final File             file;
+
+  /** The codec the file is written with */
+  private final SnippetFileCodec codec;
+
+  /**
+   * Create a new writer, compressing the file if its name ends with the extension of a codec
+   *
+   * @param file
+   *          The file to write
+   * @throws NullPointerException
+   *           If the file is null
+   */
+  public SnippetFileWriter(File file) {
+    this(file, file == null ? null : SnippetFileCodec.forPath(file.getName()));
+  }
+
+  /**
+   * Create a new writer that writes the file with a codec, whatever it is named
+   *
+   * @param file
+   *          The file to write
+   * @param codec
+   *          The codec to write the file with
+   * @throws NullPointerException
+   *           If the file or the codec is null
+   */
+  public SnippetFileWriter(File file, SnippetFileCodec codec) {
+    super();
+    if (file == null || codec == null) {
+      throw new NullPointerException("File and codec cannot be null");
+    }
+    this.file = file;
+    this.codec = codec;
+  }
+
+  /**
+   * Get the codec the file is written with
+   *
+   * @return The codec
+   */
+  public SnippetFileCodec getCodec() {
+    return this.codec;
+  }
+
+  /**
+   * Open a new file to write to, which is flushed to disk as it is closed
+   *
+   * @param temp
+   *          The path of the file, which must not exist yet
+   * @return A stream writing to the file
+   * @throws IOException
+   *           If the file could not be created
+   */
+  private static OutputStream create(Path temp) throws IOException {
+    final FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+    return new FilterOutputStream(Channels.newOutputStream(channel)) {
+
+      @Override
+      public void close() throws IOException {
+        try {
+          this.flush();
+          channel.force(true);
+        }
+        finally {
+          super.close();
+        }
+      }
+
+      @Override
+      public void write(byte[] b, int off, int len) throws IOException {
+        this.out.write(b, off, len);
+      }
+    };
+  }
+
+  /**
+   * Start a new line indented to a depth
+   *
+   * @param writer
+   *          The writer
+   * @param depth
+   *          The depth of the element that follows, where the root element is at depth one
+   * @throws XMLStreamException
+   *           If the line could not be written
+   */
+  private static void indent(XMLStreamWriter writer, int depth) throws XMLStreamException {
+    writer.writeCharacters("\n");
+    for (int i = 1; i < depth; i++) {
+      writer.writeCharacters(INDENT);
+    }
+  }
+
+  /**
+   * Move a complete file over the file it replaces, in one step where the file system allows
+   *
+   * @param temp
+   *          The complete file
+   * @param target
+   *          The file to replace
+   * @throws IOException
+   *           If the file could not be moved
+   */
+  private static void replace(Path temp, Path target) throws IOException {
+    if (Files.exists(target)) {
+      // Keep the permissions of the file being replaced
+      try {
+        Files.setPosixFilePermissions(temp, Files.getPosixFilePermissions(target));
+      }
+      catch (UnsupportedOperationException e) {
+        // Not a posix file system
+      }
+    }
+    try {
+      Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    catch (AtomicMoveNotSupportedException e) {
+      Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+    }
+  }
+
+  /**
+   * Write the snippets to the file, replacing anything it held only once they have all been written
+   *
+   * @param snippets
+   *          The snippets of each language to write
+   * @throws IOException
+   *           If there was an error writing the file
+   * @throws XMLStreamException
+   *           If there was an error writing the xml
+   */
+  public void write(Map<Language, ? extends Collection<Snippet>> snippets) throws IOException, XMLStreamException {
+    Path target = this.file.toPath().toAbsolutePath();
+    Path temp = target.resolveSibling("." + target.getFileName() + "." + Long.toHexString(System.nanoTime()) + ".tmp");
+    OutputStream out = this.codec.encode(new BufferedOutputStream(create(temp)));
+    boolean written = false;
+    try {
+      XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+      writer.writeStartDocument("UTF-8", "1.0");
+      indent(writer, 1);
+      writer.writeStartElement("snippets");
+      for (Entry<Language, ? extends Collection<Snippet>> entry : snippets.entrySet()) {
+        indent(writer, 2);
+        writer.writeStartElement(entry.getKey().name());
+        for (Snippet snippet : entry.getValue()) {
+          writeSnippet(writer, snippet);
+        }
+        indent(writer, 2);
+        writer.writeEndElement();
+      }
+      indent(writer, 1);
+      writer.writeEndElement();
+      writer.writeEndDocument();
+      writer.close();
+      // Closing finishes a compressed file, so a failure to close means the file is incomplete
+      out.close();
+      replace(temp, target);
+      written = true;
+    }
+    finally {
+      if (!written) {
+        try {
+          out.close();
+        }
+        catch (IOException e) {
+          // The write has already failed
+        }
+        try {
+          Files.deleteIfExists(temp);
+        }
+        catch (IOException e) {
+          // Leave the incomplete file, which is hidden beside the old one
+        }
+      }
+    }
+  }
+
+  /**
+   * Write a field of a snippet
+   *
+   * @param writer
+   *          The writer
+   * @param name
+   *          The name of the field
+   * @param value
+   *          The value of the field
+   * @throws XMLStreamException
+   *           If the field could not be written
+   */
+  private static void writeField(XMLStreamWriter writer, String name, String value) throws XMLStreamException {
+    indent(writer, 4);
+    writer.writeStartElement(name);
+    writer.writeCharacters(value);
+    writer.writeEndElement();
+  }
+
+  /**
+   * Write a snippet
+   *
+   * @param writer
+   *          The writer
+   * @param snippet
+   *          The snippet to write
+   * @throws XMLStreamException
+   *           If the snippet could not be written
+   */
+  private static void writeSnippet(XMLStreamWriter writer, Snippet snippet) throws XMLStreamException {
+    indent(writer, 3);
+    writer.writeStartElement("snippet");
+    writeField(writer, "name", snippet.getName());
+    writeField(writer, "data", snippet.getSnippet().trim());
+    writeField(writer, "description", snippet.getDescription());
+    StringBuilder keywords = new StringBuilder();
+    for (Iterator<String> iterator = snippet.getKeywords().iterator(); iterator.hasNext();) {
+      keywords.append(iterator.next());
+      if (iterator.hasNext()) {
+        keywords.append(", ");
+      }
+    }
+    writeField(writer, "keywords", keywords.toString());
+    indent(writer, 3);
+    writer.writeEndElement();
+  }
+}
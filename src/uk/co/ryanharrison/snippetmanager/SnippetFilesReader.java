@@ -0,0 +1,345 @@
+/**
+ * SnippetFilesReader.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * Reads several files of snippets at once, each on its own thread, and merges them into one set of snippets. A library split across
+ * many files, as on a shared network drive, then takes about as long to read as its largest file rather than all of its files one
+ * after another.
+ * <p>
+ * The files are taken as they finish being read but merged in the order they were given, so snippets with the same name in more
+ * than one file are resolved by the conflict policy the same way every time. If any file cannot be read the whole read fails as
+ * soon as that is known, and the files still being read are stopped.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager#loadFromFiles(java.util.List,
+ *      uk.co.ryanharrison.snippetmanager.ConflictPolicy)
+ */
+public class SnippetFilesReader {
+
+  /** The number of files read at once. Reading is mostly waiting for the disk or network, so this is more than the processors */
+  private static final int        THREADS       = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+  /** Accepts files of snippets, whether plain or compressed */
+  private static final FileFilter SNIPPET_FILES = new FileFilter() {
+
+    @Override
+    public boolean accept(File file) {
+      String name = file.getName().toLowerCase(Locale.ROOT);
+      return file.isFile() && (name.endsWith(".xml") || name.endsWith(".xml" + SnippetFileCodec.Gzip.getExtension()));
+    }
+  };
+
+  /** The files to read, in the order they are merged */
+  private final List<File>        files;
+
+  /** What to do with snippets of the same name in more than one file */
+  private final ConflictPolicy    policy;
+
+  /**
+   * Create a new reader
+   *
+   * @param files
+   *          The files to read, in the order they are merged
+   * @param policy
+   *          What to do with snippets of the same name in more than one file
+   * @throws NullPointerException
+   *           If the files, any file or the policy is null
+   */
+  public SnippetFilesReader(List<File> files, ConflictPolicy policy) {
+    super();
+    if (files == null || policy == null) {
+      throw new NullPointerException("Files and policy cannot be null");
+    }
+    for (File file : files) {
+      if (file == null) {
+        throw new NullPointerException("File cannot be null");
+      }
+    }
+    this.files = new ArrayList<File>(files);
+    this.policy = policy;
+  }
+
+  /**
+   * Replace each directory in a collection of files with the files of snippets directly inside it, in order of name
+   *
+   * @param files
+   *          The files and directories
+   * @return The files, with each directory replaced by the files of snippets it holds
+   */
+  public static List<File> expand(Collection<File> files) {
+    List<File> result = new ArrayList<File>();
+    for (File file : files) {
+      File[] children = file.isDirectory() ? file.listFiles(SNIPPET_FILES) : null;
+      if (children == null) {
+        result.add(file);
+      }
+      else {
+        Arrays.sort(children);
+        result.addAll(Arrays.asList(children));
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Called once each file has been read, on the thread that read it. Does nothing unless overridden
+   *
+   * @param file
+   *          The file that has been read
+   * @param snippets
+   *          The number of snippets read from the file
+   */
+  protected void fileRead(File file, int snippets) {
+    // Nothing to do by default
+  }
+
+  /**
+   * Get the files being read
+   *
+   * @return An unmodifiable list of the files, in the order they are merged
+   */
+  public List<File> getFiles() {
+    return Collections.unmodifiableList(this.files);
+  }
+
+  /**
+   * Get what is done with snippets of the same name in more than one file
+   *
+   * @return The conflict policy
+   */
+  public ConflictPolicy getPolicy() {
+    return this.policy;
+  }
+
+  /**
+   * Merge the snippets read from one file into those read from the files before it
+   *
+   * @param file
+   *          The file the snippets were read from
+   * @param snippets
+   *          The snippets read from the file
+   * @param merged
+   *          The snippets merged so far, by name key
+   * @param sources
+   *          The file each merged snippet was read from, by name key
+   * @throws DuplicateSnippetException
+   *           If the policy is to fail and an earlier file holds a snippet with the same name
+   */
+  private void merge(File file, List<Snippet> snippets, Map<String, Snippet> merged, Map<String, File> sources)
+      throws DuplicateSnippetException {
+    // A file holding a name more than once keeps the first, by the rule the manager uses when loading it on its own
+    Map<String, Snippet> none = Collections.emptyMap();
+    for (Snippet snippet : SnippetManager.keepFirstOfEachName(snippets, none, new HashMap<String, Snippet>())) {
+      String key = SnippetManager.nameKey(snippet.getName());
+      File source = sources.get(key);
+      if (source == null || this.policy == ConflictPolicy.KeepLast) {
+        merged.put(key, snippet);
+        sources.put(key, file);
+      }
+      else if (this.policy == ConflictPolicy.Fail) {
+        throw new DuplicateSnippetException("Snippet " + snippet.getName() + " is in both " + source + " and " + file);
+      }
+    }
+  }
+
+  /**
+   * Read every file in parallel on a thread pool of its own, and merge them
+   *
+   * @return The merged snippets
+   * @throws ParserConfigurationException
+   *           If a parser could not be created
+   * @throws SAXException
+   *           If a file is not a valid file of snippets
+   * @throws IOException
+   *           If there was an error reading a file
+   * @throws DuplicateSnippetException
+   *           If the policy is to fail and more than one file holds a snippet with the same name
+   * @throws InterruptedException
+   *           If the thread was interrupted while waiting for the files to be read
+   */
+  public List<Snippet> read() throws ParserConfigurationException, SAXException, IOException, DuplicateSnippetException,
+      InterruptedException {
+    final AtomicInteger threads = new AtomicInteger();
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(this.files.size(), THREADS)),
+        new ThreadFactory() {
+
+          @Override
+          public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "snippet-reader-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          }
+        });
+    try {
+      return this.read(executor);
+    }
+    finally {
+      executor.shutdownNow();
+    }
+  }
+
+  /**
+   * Read every file in parallel on an executor, and merge them. The files are read at once only as far as the executor allows
+   *
+   * @param executor
+   *          Reads the files
+   * @return The merged snippets
+   * @throws ParserConfigurationException
+   *           If a parser could not be created
+   * @throws SAXException
+   *           If a file is not a valid file of snippets
+   * @throws IOException
+   *           If there was an error reading a file
+   * @throws DuplicateSnippetException
+   *           If the policy is to fail and more than one file holds a snippet with the same name
+   * @throws InterruptedException
+   *           If the thread was interrupted while waiting for the files to be read
+   */
+  public List<Snippet> read(ExecutorService executor) throws ParserConfigurationException, SAXException, IOException,
+      DuplicateSnippetException, InterruptedException {
+    CompletionService<List<Snippet>> completion = new ExecutorCompletionService<List<Snippet>>(executor);
+    Map<Future<List<Snippet>>, Integer> positions = new IdentityHashMap<Future<List<Snippet>>, Integer>();
+    try {
+      for (final File file : this.files) {
+        positions.put(completion.submit(new Callable<List<Snippet>>() {
+
+          @Override
+          public List<Snippet> call() throws Exception {
+            return SnippetFilesReader.this.readFile(file);
+          }
+        }), positions.size());
+      }
+
+      // Take each file as soon as it has been read, so the first failure is seen however late its file comes, but merge them in
+      // the order they were given by holding on to each file until those before it have been merged
+      List<List<Snippet>> read = new ArrayList<List<Snippet>>(Collections.<List<Snippet>> nCopies(this.files.size(), null));
+      Map<String, Snippet> merged = new LinkedHashMap<String, Snippet>();
+      Map<String, File> sources = new HashMap<String, File>();
+      int next = 0;
+      while (next < this.files.size()) {
+        Future<List<Snippet>> result = completion.take();
+        read.set(positions.get(result), unwrap(result));
+        for (; next < read.size() && read.get(next) != null; next++) {
+          this.merge(this.files.get(next), read.set(next, null), merged, sources);
+        }
+      }
+      return new ArrayList<Snippet>(merged.values());
+    }
+    finally {
+      // Once one file has failed the others are not needed, and once all have been merged this does nothing
+      for (Future<List<Snippet>> result : positions.keySet()) {
+        result.cancel(true);
+      }
+    }
+  }
+
+  /**
+   * Read the snippets held in one file
+   *
+   * @param file
+   *          The file to read
+   * @return The snippets in the file, in the order they were read
+   * @throws ParserConfigurationException
+   *           If a parser could not be created
+   * @throws SAXException
+   *           If the file is not a valid file of snippets
+   * @throws IOException
+   *           If there was an error reading the file
+   */
+  private List<Snippet> readFile(File file) throws ParserConfigurationException, SAXException, IOException {
+    final List<Snippet> snippets = new ArrayList<Snippet>();
+    SnippetFileEvent event = new SnippetFileEvent();
+    event.begin();
+    new SnippetFileReader(file).read(new SnippetFileReader.Listener() {
+
+      @Override
+      public void languageRead(Language language, List<Snippet> read) {
+        snippets.addAll(read);
+      }
+
+      @Override
+      public void progressMade(long read, long length) {
+        // Stop reading soon after the read is cancelled, as reading a file cannot be interrupted
+        if (Thread.currentThread().isInterrupted()) {
+          throw new CancellationException("Reading was cancelled");
+        }
+      }
+    });
+    event.finish("load", file.getAbsolutePath(), snippets.size());
+    this.fileRead(file, snippets.size());
+    return snippets;
+  }
+
+  /**
+   * Wait for a file to be read and get its snippets, passing on whatever stopped it being read
+   *
+   * @param result
+   *          The result of reading the file
+   * @return The snippets read from the file
+   * @throws ParserConfigurationException
+   *           If a parser could not be created
+   * @throws SAXException
+   *           If the file is not a valid file of snippets
+   * @throws IOException
+   *           If there was an error reading the file
+   * @throws InterruptedException
+   *           If the thread was interrupted while waiting for the file to be read
+   */
+  private static List<Snippet> unwrap(Future<List<Snippet>> result) throws ParserConfigurationException, SAXException,
+      IOException, InterruptedException {
+    try {
+      return result.get();
+    }
+    catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof ParserConfigurationException) {
+        throw (ParserConfigurationException) cause;
+      }
+      if (cause instanceof SAXException) {
+        throw (SAXException) cause;
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      }
+      if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      }
+      if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new IOException(cause);
+    }
+  }
+}
@@ -5,30 +5,48 @@
 package uk.co.ryanharrison.snippetmanager;
 
 /**
- * A custom filter comparator that compares a snippet and a search filter string
+ * A custom filter comparator that compares a snippet and a search filter string. The same filter is normally matched against every
+ * snippet in turn, so the matcher for the last filter is kept and matching a snippet allocates nothing.
  * 
  * @author Ryan Harrison
  */
 public class SnippetFilterComparator implements FilterComparator<Snippet> {
 
+  /** The matcher for the last filter used. Replaced as a whole so that it can be read without locking */
+  private volatile HorspoolMatcher matcher;
+
+  /**
+   * Get a matcher for a filter, reusing the last matcher if the filter has not changed
+   * 
+   * @param filter
+   *          The filter to match
+   * @return A matcher for the filter
+   */
+  private HorspoolMatcher getMatcher(String filter) {
+    HorspoolMatcher current = this.matcher;
+    if (current == null || !current.getPattern().equals(filter)) {
+      current = new HorspoolMatcher(filter);
+      this.matcher = current;
+    }
+    return current;
+  }
+
   /**
    * Match the snippet to a filter search string. If the snippet in some way matches the filter string, return true
    * 
    * @param snippet
    *          The snippet to compare
    * @param search
-   *          The search filter string to use when comparing
+   *          The search filter string to use when comparing, already trimmed and in lower case
    * @return True if a value in the snippet contains the search string, false otherwise
    */
   @Override
   public boolean isMatch(Snippet snippet, String search) {
-    // Check if any element in the snippet contains the search string
-    boolean found = snippet.getName().toLowerCase().trim().contains(search);
-    found |= snippet.getDescription().toLowerCase().trim().contains(search);
-    found |= snippet.toString().toLowerCase().contains(search);
-    found |= snippet.getLanguage().toString().toLowerCase().contains(search);
-    found |= snippet.getKeywords().contains(search);
-
-    return found;
+    // Check if the name, description or language of the snippet contains the search string
+    if (this.getMatcher(search).isFoundIn(snippet.getSearchText())) {
+      return true;
+    }
+    // Otherwise check if the search string is one of the keywords of the snippet
+    return snippet.hasKeyword(search);
   }
 }
@@ -0,0 +1,257 @@
+/**
+ * SnippetIndex.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * The base of the indexes over the snippets of a manager. Each indexed snippet is given a slot number, the lowest that is free, so
+ * an index can keep what it knows about each snippet in arrays and bit sets indexed by slot that stay about as long as the number of
+ * snippets. Snippets are compared by identity, as different snippets may have the same name while one replaces another.
+ * <p>
+ * An index is updated by the thread that changes the manager and read by any thread that searches it, so it is guarded by a read
+ * write lock: any number of searches run at once, and a change waits only for the searches in progress. The work of splitting a
+ * snippet into what is indexed is done before the lock is taken, so the lock is only held while the index itself is changed and
+ * writers to different snippets hardly wait for each other. Subclasses hold the read lock while they search.
+ * <p>
+ * What each snippet was split into is kept in its slot, and is what is taken out again when the snippet is removed or indexed again.
+ * A snippet whose body changes while it is indexed, perhaps while another thread is filling the index, is then always removed
+ * cleanly rather than by splitting up a body it was never indexed with.
+ *
+ * @author Ryan Harrison
+ *
+ * @param <T>
+ *          What a snippet is split into to be indexed, such as its terms
+ */
+public abstract class SnippetIndex<T> {
+
+  /** Guards the index, so that searches can run at once but not while it is being changed */
+  private final ReadWriteLock   lock;
+
+  /** The snippet in each slot, null if the slot is free */
+  private Snippet[]             snippets;
+
+  /** What the snippet in each slot was split into when it was indexed, null if the slot is free */
+  private Object[]              parts;
+
+  /** The slot of each indexed snippet */
+  private Map<Snippet, Integer> slots;
+
+  /** The slots that currently hold a snippet */
+  private BitSet                used;
+
+  /**
+   * Create a new, empty index
+   */
+  protected SnippetIndex() {
+    super();
+    this.lock = new ReentrantReadWriteLock();
+    this.snippets = new Snippet[16];
+    this.parts = new Object[16];
+    this.slots = new IdentityHashMap<Snippet, Integer>();
+    this.used = new BitSet();
+  }
+
+  /**
+   * Add a snippet to the index. Adding a snippet that is already indexed indexes it again as it is now, keeping its slot
+   *
+   * @param snippet
+   *          The snippet to add
+   */
+  public void add(Snippet snippet) {
+    T parts = this.analyse(snippet);
+    Lock write = this.lock.writeLock();
+    write.lock();
+    try {
+      Integer existing = this.slots.get(snippet);
+      if (existing != null) {
+        this.removed(existing, this.getParts(existing));
+        this.parts[existing] = parts;
+        this.added(existing, parts);
+        return;
+      }
+      // Fill the lowest free slot so the tables indexed by slot stay short
+      int slot = this.used.nextClearBit(0);
+      if (slot == this.snippets.length) {
+        this.snippets = Arrays.copyOf(this.snippets, this.snippets.length * 2);
+        this.parts = Arrays.copyOf(this.parts, this.parts.length * 2);
+      }
+      this.snippets[slot] = snippet;
+      this.parts[slot] = parts;
+      this.slots.put(snippet, slot);
+      this.used.set(slot);
+      this.added(slot, parts);
+    }
+    finally {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Index a snippet that has been given a slot. Called while the write lock is held
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param parts
+   *          What the snippet was split into to be indexed
+   */
+  protected abstract void added(int slot, T parts);
+
+  /**
+   * Split a snippet into what is indexed. Called before the lock is taken, so it must only read the snippet
+   *
+   * @param snippet
+   *          The snippet
+   * @return What the snippet is indexed by
+   */
+  protected abstract T analyse(Snippet snippet);
+
+  /**
+   * Remove every snippet from the index
+   */
+  public void clear() {
+    Lock write = this.lock.writeLock();
+    write.lock();
+    try {
+      Arrays.fill(this.snippets, null);
+      Arrays.fill(this.parts, null);
+      this.slots.clear();
+      this.used.clear();
+      this.cleared();
+    }
+    finally {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Forget everything indexed about every snippet. Called while the write lock is held
+   */
+  protected abstract void cleared();
+
+  /**
+   * Get the number of slots the index has room for before it grows, so that tables indexed by slot can be grown to match
+   *
+   * @return The number of slots
+   */
+  protected int getCapacity() {
+    return this.snippets.length;
+  }
+
+  /**
+   * Get what the snippet in a slot was split into when it was indexed
+   *
+   * @param slot
+   *          The slot
+   * @return What the snippet in the slot is indexed by, null if the slot is free
+   */
+  @SuppressWarnings("unchecked")
+  private T getParts(int slot) {
+    // Only ever set from analyse, so always of the right type
+    return (T) this.parts[slot];
+  }
+
+  /**
+   * Get the snippet in a slot
+   *
+   * @param slot
+   *          The slot
+   * @return The snippet in the slot, null if the slot is free
+   */
+  protected Snippet getSnippet(int slot) {
+    return this.snippets[slot];
+  }
+
+  /**
+   * Get the lock held while the index is searched
+   *
+   * @return The read lock of the index
+   */
+  protected Lock readLock() {
+    return this.lock.readLock();
+  }
+
+  /**
+   * Remove a snippet from the index. Removing a snippet that is not indexed has no effect
+   *
+   * @param snippet
+   *          The snippet to remove
+   */
+  public void remove(Snippet snippet) {
+    Lock write = this.lock.writeLock();
+    write.lock();
+    try {
+      Integer slot = this.slots.remove(snippet);
+      if (slot == null) {
+        return;
+      }
+      this.removed(slot, this.getParts(slot));
+      this.snippets[slot] = null;
+      this.parts[slot] = null;
+      this.used.clear(slot);
+    }
+    finally {
+      write.unlock();
+    }
+  }
+
+  /**
+   * Forget what is indexed about a snippet before its slot is freed. Called while the write lock is held
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param parts
+   *          What the snippet was split into to be indexed
+   */
+  protected abstract void removed(int slot, T parts);
+
+  /**
+   * Get the number of snippets in the index
+   *
+   * @return The number of snippets in the index
+   */
+  public int size() {
+    Lock read = this.lock.readLock();
+    read.lock();
+    try {
+      return this.slots.size();
+    }
+    finally {
+      read.unlock();
+    }
+  }
+
+  /**
+   * Get the snippets in a set of slots. Called while a lock is held
+   *
+   * @param matches
+   *          The slots of the snippets
+   * @return The snippets in the slots, in slot order
+   */
+  protected List<Snippet> toSnippets(BitSet matches) {
+    List<Snippet> result = new ArrayList<Snippet>(matches.cardinality());
+    for (int slot = matches.nextSetBit(0); slot >= 0; slot = matches.nextSetBit(slot + 1)) {
+      result.add(this.snippets[slot]);
+    }
+    return result;
+  }
+
+  /**
+   * Get the lock held while the index is changed, which can be held across several changes so that no search sees only some of them
+   *
+   * @return The write lock of the index
+   */
+  Lock writeLock() {
+    return this.lock.writeLock();
+  }
+}
@@ -9,9 +9,6 @@ import java.awt.Dimension;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.Set;
 
 import javax.swing.Box;
 import javax.swing.BoxLayout;
@@ -201,12 +198,8 @@ public class SnippetInformationEditor extends JDialog {
     String description = this.descriptionField.getText();
     Language language = (Language) this.languages.getSelectedItem();
 
-    // As the keywords are comma separated, split them and add them all to a set first
-    String[] keywordsString = this.keywordField.getText().split(",");
-    for (int i = 0; i < keywordsString.length; i++) {
-      keywordsString[i] = keywordsString[i].trim().toLowerCase();
-    }
-    Set<String> keywords = new HashSet<String>(Arrays.asList(keywordsString));
+    // As the keywords are comma separated, look up the id of each one in the dictionary
+    int[] keywords = KeywordDictionary.getInstance().parse(this.keywordField.getText());
     String data = this.snippet == null ? "" : this.snippet.getSnippet();
     // Return a new snippet from the data entered into this dialog box
     return new Snippet(name, data, description, keywords, language);
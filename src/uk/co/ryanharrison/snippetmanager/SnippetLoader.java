@@ -0,0 +1,220 @@
+/**
+ * SnippetLoader.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
+
+/**
+ * Loads a file of snippets into a snippet manager on a background thread, so that the interface carries on responding while a large
+ * file is read. The file is read by a SnippetFileReader, and the snippets of each language are added to the manager on the event
+ * dispatch thread as soon as they have been read, so the snippets read so far can be browsed while the rest of the file is read. The
+ * progress property goes from 0 to 100 as the file is read.
+ * <p>
+ * Cancelling the loader, or an error reading the file, puts back the snippets the manager held before the load began. Changes made
+ * to the manager while the file was being read are lost when that happens. The manager is only changed on the event dispatch thread,
+ * so it does not need to be safe to use from several threads.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager#beginLoad()
+ */
+public class SnippetLoader extends SwingWorker<Integer, Void> implements SnippetFileReader.Listener {
+
+  /** The manager to load the snippets into */
+  private final SnippetManager      manager;
+
+  /** The file to load */
+  private final File                file;
+
+  /** The codec the file was found to be written with, or null if it has not been read yet */
+  private volatile SnippetFileCodec codec;
+
+  /** The number of snippets read so far. Only used by the background thread */
+  private int                       count;
+
+  /** The number of snippets the manager has added so far, less any it held twice. Only used on the event dispatch thread */
+  private int                       added;
+
+  /**
+   * Create a new loader. Nothing is read until the loader is executed
+   *
+   * @param manager
+   *          The manager to load the snippets into
+   * @param file
+   *          The file to load
+   * @throws NullPointerException
+   *           If the manager or the file is null
+   */
+  public SnippetLoader(SnippetManager manager, File file) {
+    super();
+    if (manager == null || file == null) {
+      throw new NullPointerException("Manager and file cannot be null");
+    }
+    this.manager = manager;
+    this.file = file;
+  }
+
+  /**
+   * Stop reading the file if the loader has been cancelled
+   *
+   * @throws CancellationException
+   *           If the loader has been cancelled
+   */
+  private void checkCancelled() throws CancellationException {
+    if (this.isCancelled()) {
+      throw new CancellationException("Loading was cancelled");
+    }
+  }
+
+  /**
+   * Read the file, handing each language to the manager as it is read. Everything done to the manager is queued on the event
+   * dispatch thread in order, so the load always begins before the first language is added and finishes after the last
+   *
+   * @return The number of snippets read from the file
+   * @throws Exception
+   *           If the file could not be read
+   *
+   * @see javax.swing.SwingWorker#doInBackground()
+   */
+  @Override
+  protected Integer doInBackground() throws Exception {
+    SwingUtilities.invokeLater(new Runnable() {
+
+      @Override
+      public void run() {
+        SnippetLoader.this.manager.beginLoad();
+      }
+    });
+    final SnippetFileEvent event = new SnippetFileEvent();
+    event.begin();
+    boolean read = false;
+    Exception error = null;
+    try {
+      SnippetFileReader reader = new SnippetFileReader(this.file);
+      reader.read(this);
+      this.codec = reader.getCodec();
+      read = true;
+      return this.count;
+    }
+    catch (Exception e) {
+      error = e;
+      throw e;
+    }
+    finally {
+      final boolean loaded = read;
+      final Exception failure = error;
+      SwingUtilities.invokeLater(new Runnable() {
+
+        @Override
+        public void run() {
+          SnippetLoader.this.finish(loaded, failure, event);
+        }
+      });
+    }
+  }
+
+  /**
+   * Finish the load in the manager, keeping the file if the whole of it was read and the loader has not been cancelled, and putting
+   * back the previous snippets otherwise
+   *
+   * @param loaded
+   *          Whether the whole file was read
+   * @param error
+   *          The error that stopped the file being read, or null if there was not one
+   * @param event
+   *          The event begun when the file started being read, which is given the number of snippets the manager added
+   */
+  private void finish(boolean loaded, Exception error, SnippetFileEvent event) {
+    if (loaded && !this.isCancelled()) {
+      this.manager.endLoad();
+      // Every part has been added by now, as they were queued before this
+      event.finish("load", this.file.getAbsolutePath(), this.added);
+    }
+    else {
+      this.manager.cancelLoad();
+    }
+    // Stopping the read is how cancelling works, so it is not an error
+    this.finished(this.isCancelled() ? null : error);
+  }
+
+  /**
+   * Called on the event dispatch thread once the load has finished and the manager holds either the whole file or the snippets it
+   * held before. Unlike done, this is not called until the manager has been put back after the loader is cancelled. Does nothing
+   * unless overridden
+   *
+   * @param error
+   *          The error that stopped the file being read, or null if the file was read or the loader was cancelled
+   */
+  protected void finished(Exception error) {
+    // Nothing to do by default
+  }
+
+  /**
+   * Get the codec the file was found to be written with, so that it can be saved the same way whatever it is named
+   *
+   * @return The codec of the file, or null if it has not been read yet
+   */
+  public SnippetFileCodec getCodec() {
+    return this.codec;
+  }
+
+  /**
+   * Get the file being loaded
+   *
+   * @return The file
+   */
+  public File getFile() {
+    return this.file;
+  }
+
+  /**
+   * Hand the snippets of a language to the manager on the event dispatch thread
+   *
+   * @param language
+   *          The language
+   * @param snippets
+   *          The snippets of the language
+   * @throws CancellationException
+   *           If the loader has been cancelled
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetFileReader.Listener#languageRead(uk.co.ryanharrison.snippetmanager.Language,
+   *      java.util.List)
+   */
+  @Override
+  public void languageRead(Language language, final List<Snippet> snippets) throws CancellationException {
+    this.checkCancelled();
+    this.count += snippets.size();
+    SwingUtilities.invokeLater(new Runnable() {
+
+      @Override
+      public void run() {
+        SnippetLoader.this.added += SnippetLoader.this.manager.loadPart(snippets);
+      }
+    });
+  }
+
+  /**
+   * Update the progress of the loader
+   *
+   * @param read
+   *          The number of bytes read so far
+   * @param length
+   *          The length of the file in bytes
+   * @throws CancellationException
+   *           If the loader has been cancelled
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetFileReader.Listener#progressMade(long, long)
+   */
+  @Override
+  public void progressMade(long read, long length) throws CancellationException {
+    this.checkCancelled();
+    this.setProgress(length <= 0 ? 100 : (int) Math.min(100, read * 100 / length));
+  }
+}
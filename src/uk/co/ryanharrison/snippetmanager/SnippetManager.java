@@ -7,31 +7,30 @@ package uk.co.ryanharrison.snippetmanager;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
 
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.TreeNode;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
-import javax.xml.transform.OutputKeys;
-import javax.xml.transform.Transformer;
+import javax.xml.stream.XMLStreamException;
 import javax.xml.transform.TransformerException;
-import javax.xml.transform.TransformerFactory;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+
 import org.xml.sax.SAXException;
 
 /**
@@ -40,7 +39,7 @@ import org.xml.sax.SAXException;
  * 
  * @author Ryan Harrison
  */
-public class SnippetManager implements SnippetSetObservable {
+public class SnippetManager implements SnippetSetObservable, Iterable<Snippet> {
 
   /**
    * A custom iterator that iterates through each snippet in the set. This is a convinient iterator as looping through a map of sets
@@ -56,11 +55,23 @@ public class SnippetManager implements SnippetSetObservable {
     /** Inner iterator goes through each set of snippets */
     private Iterator<Snippet>            innerIterator;
 
+    /** Whether or not snippets can be removed through this iterator */
+    private boolean                      readOnly;
+
     /**
      * The constructor takes as its argument the data structure that it wants to iterate over
      */
     public SnippetIterator(Map<Language, SortedSet<Snippet>> snippets) {
+      this(snippets, false);
+    }
+
+    /**
+     * The constructor takes as its argument the data structure that it wants to iterate over and whether or not snippets can be
+     * removed through the iterator
+     */
+    public SnippetIterator(Map<Language, SortedSet<Snippet>> snippets, boolean readOnly) {
       super();
+      this.readOnly = readOnly;
       // The outer iterator points to the values of the map
       this.outerIterator = snippets.values().iterator();
 
@@ -80,6 +91,10 @@ public class SnippetManager implements SnippetSetObservable {
      */
     @Override
     public boolean hasNext() {
+      // There is nothing left if there were no sets to begin with or the end has already been reached
+      if (this.innerIterator == null) {
+        return false;
+      }
       // While the inner iterator does not have a next element
       while (!this.innerIterator.hasNext()) {
         // Move on to the next outer element if there is one
@@ -124,25 +139,169 @@ public class SnippetManager implements SnippetSetObservable {
      */
     @Override
     public void remove() {
+      if (this.readOnly) {
+        throw new UnsupportedOperationException("Snippets must be removed through the snippet manager");
+      }
       if (!(this.innerIterator == null)) {
         this.innerIterator.remove();
       }
     }
   }
 
+  /** Times loading a file of snippets, including notifying observers */
+  private static final LatencyRecorder               LOAD_LATENCY     = Metrics.getInstance().getRecorder("load");
+
+  /** Times saving the snippets to a file */
+  private static final LatencyRecorder               SAVE_LATENCY     = Metrics.getInstance().getRecorder("save");
+
+  /** Times adding a snippet or a batch of snippets, including notifying observers */
+  private static final LatencyRecorder               ADD_LATENCY      = Metrics.getInstance().getRecorder("add");
+
+  /** Times deleting a snippet or a batch of snippets, including notifying observers */
+  private static final LatencyRecorder               DELETE_LATENCY   = Metrics.getInstance().getRecorder("delete");
+
+  /** Times updating a snippet to a new version or changing its body */
+  private static final LatencyRecorder               UPDATE_LATENCY   = Metrics.getInstance().getRecorder("update");
+
+  /** Counts the snippets added, whether one at a time or in batches */
+  private static final LongAdder                     SNIPPETS_ADDED   = Metrics.getInstance().getCounter("snippets.added");
+
+  /** Counts the snippets deleted, whether one at a time or in batches */
+  private static final LongAdder                     SNIPPETS_DELETED = Metrics.getInstance().getCounter("snippets.deleted");
+
+  /** Counts the snippets read from files */
+  private static final LongAdder                     SNIPPETS_LOADED  = Metrics.getInstance().getCounter("snippets.loaded");
+
+  /** Counts the snippets written to files */
+  private static final LongAdder                     SNIPPETS_SAVED   = Metrics.getInstance().getCounter("snippets.saved");
+
   /** The actual snippets that are being managed. This is stored as a map of languages to a set of snippets written in that language */
-  private Map<Language, SortedSet<Snippet>> snippets;
+  private volatile Map<Language, SortedSet<Snippet>> snippets;
+
+  /** Every snippet in the current set keyed by its case insensitive name, used to find snippets by name without a scan */
+  private volatile Map<String, Snippet>              names;
+
+  /** Every snippet in the current set indexed by its keywords, used to find snippets by keyword without a scan */
+  private volatile KeywordIndex                      keywords;
+
+  /** Every snippet in the current set indexed by the terms of its name and keywords, used to find snippets by misspelt words */
+  private volatile FuzzyIndex                        similar;
+
+  /** Every snippet in the current set indexed by its text for ranked searches. Null until first needed, as it is costly to build */
+  private volatile SearchIndex                       search;
+
+  /** Every snippet in the current set indexed by the trigrams of its body for regex searches. Null until first needed */
+  private volatile TrigramIndex                      bodies;
 
   /** A list of listeners that will be notified when the snippet set is modified */
-  private List<SnippetSetChangedListener>   listeners;
+  private List<SnippetSetChangedListener>            listeners;
+
+  /** Delivers notifications asynchronously when an executor has been set, otherwise null and observers are notified synchronously */
+  private volatile SnippetSetDispatcher              dispatcher;
+
+  /** The snippets held before a load in parts began, put back if the load is cancelled. Null while no such load is in progress */
+  private Map<Language, SortedSet<Snippet>>          previous;
 
   /**
    * Create a new snippet manager.
    */
   public SnippetManager() {
     super();
-    this.snippets = new LinkedHashMap<Language, SortedSet<Snippet>>();
-    this.listeners = new ArrayList<SnippetSetChangedListener>();
+    this.snippets = this.createSnippetMap();
+    this.names = this.createNameIndex();
+    this.keywords = new KeywordIndex();
+    this.similar = new FuzzyIndex();
+    this.listeners = this.createListenerList();
+  }
+
+  /**
+   * Add a batch of snippets to the current set in one go. Every name is checked in a single pass before anything is added, so either
+   * all of the snippets are added or none are. The snippets are sorted into their languages once and observers are notified of a
+   * single change for the whole batch, rather than once per snippet.
+   * 
+   * @param snippets
+   *          The snippets to add
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists in the set, or two of the snippets have the same name
+   * @throws NullPointerException
+   *           If the collection or any snippet in it is null
+   */
+  public void addAll(Collection<Snippet> snippets) throws DuplicateSnippetException, NullPointerException {
+    if (snippets == null) {
+      throw new NullPointerException("Snippets cannot be null");
+    }
+    if (snippets.isEmpty()) {
+      return;
+    }
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = ADD_LATENCY.start();
+    try {
+      this.addAllHelper(snippets);
+
+      // Notify observers once that the whole batch has been added
+      this.notifyObservers(ChangeType.Add);
+      if (Metrics.isRecording()) {
+        SNIPPETS_ADDED.add(snippets.size());
+      }
+      event.finish("add", snippets, this.getSnippetCount());
+    }
+    finally {
+      ADD_LATENCY.stop(start);
+    }
+  }
+
+  /**
+   * Helper method to add a batch of snippets to the current set
+   * 
+   * @param snippets
+   *          The snippets to add
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists in the set, or two of the snippets have the same name
+   * @throws NullPointerException
+   *           If any snippet is null
+   */
+  protected void addAllHelper(Collection<Snippet> snippets) throws DuplicateSnippetException {
+    // Check every name against the index and the rest of the batch before changing anything
+    Map<String, Snippet> batch = new HashMap<String, Snippet>(snippets.size() * 2);
+    for (Snippet snippet : snippets) {
+      if (snippet == null) {
+        throw new NullPointerException("Snippet cannot be null");
+      }
+      String key = nameKey(snippet.getName());
+      if (this.names.containsKey(key) || batch.put(key, snippet) != null) {
+        throw new DuplicateSnippetException("Snippet with name '" + snippet.getName() + "' already exists");
+      }
+    }
+
+    // Sort the batch into its languages, then add each language in one go
+    Map<Language, SortedSet<Snippet>> groups = new HashMap<Language, SortedSet<Snippet>>();
+    for (Snippet snippet : batch.values()) {
+      SortedSet<Snippet> group = groups.get(snippet.getLanguage());
+      if (group == null) {
+        group = new TreeSet<Snippet>();
+        groups.put(snippet.getLanguage(), group);
+      }
+      group.add(snippet);
+    }
+    for (Entry<Language, SortedSet<Snippet>> group : groups.entrySet()) {
+      SortedSet<Snippet> set = this.snippets.get(group.getKey());
+      if (set == null) {
+        set = this.createSnippetSet();
+        // Adding an already sorted set to an empty one does not need to sort it again
+        set.addAll(group.getValue());
+        this.snippets.put(group.getKey(), set);
+      }
+      else {
+        set.addAll(group.getValue());
+      }
+    }
+    this.names.putAll(batch);
+    for (Snippet snippet : batch.values()) {
+      this.keywords.add(snippet);
+      this.similar.add(snippet);
+      this.addToTextIndexes(snippet);
+    }
   }
 
   /**
@@ -159,10 +318,22 @@ public class SnippetManager implements SnippetSetObservable {
     if (snippet == null) {
       throw new NullPointerException("Snippet cannot be null");
     }
-    this.addSnippetHelper(snippet);
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = ADD_LATENCY.start();
+    try {
+      this.addSnippetHelper(snippet);
 
-    // Notify observers that a new snippet has been added
-    this.notifyObservers(ChangeType.Add);
+      // Notify observers that a new snippet has been added
+      this.notifyObservers(ChangeType.Add);
+      if (Metrics.isRecording()) {
+        SNIPPETS_ADDED.increment();
+      }
+      event.finish("add", Collections.singleton(snippet), this.getSnippetCount());
+    }
+    finally {
+      ADD_LATENCY.stop(start);
+    }
   }
 
   /**
@@ -173,23 +344,26 @@ public class SnippetManager implements SnippetSetObservable {
    * @throws DuplicateSnippetException
    *           If the snippet already exists in the set
    */
-  private void addSnippetHelper(Snippet snippet) throws DuplicateSnippetException {
+  protected void addSnippetHelper(Snippet snippet) throws DuplicateSnippetException {
     // Throw an exception if the snippet already exists
-    if (this.isDuplicateName(snippet.getName())) {
+    String key = nameKey(snippet.getName());
+    if (this.names.containsKey(key)) {
       throw new DuplicateSnippetException("Snippet with name '" + snippet.getName() + "' already exists");
     }
-    // If a snippet of that language already exists
-    if (this.snippets.containsKey(snippet.getLanguage())) {
-      // Add the new snippet to the set for that language
-      Set<Snippet> set = this.snippets.get(snippet.getLanguage());
-      set.add(snippet);
-    }
-    // Otherwise create a new set, add the snippet to it and add the set with the language that it represents
-    else {
-      SortedSet<Snippet> list = new TreeSet<Snippet>();
-      list.add(snippet);
-      this.snippets.put(snippet.getLanguage(), list);
+    // Add the new snippet to the set for that language, creating the set if this is the first snippet of that language
+    Set<Snippet> set = this.snippets.get(snippet.getLanguage());
+    if (set == null) {
+      SortedSet<Snippet> list = this.createSnippetSet();
+      set = this.snippets.putIfAbsent(snippet.getLanguage(), list);
+      if (set == null) {
+        set = list;
+      }
     }
+    set.add(snippet);
+    this.names.put(key, snippet);
+    this.keywords.add(snippet);
+    this.similar.add(snippet);
+    this.addToTextIndexes(snippet);
   }
 
   /**
@@ -205,6 +379,133 @@ public class SnippetManager implements SnippetSetObservable {
     this.listeners.add(o);
   }
 
+  /**
+   * Add a snippet to the text indexes that have been built so far. Indexes that have not been built yet will include the snippet when
+   * they are
+   * 
+   * @param snippet
+   *          The snippet to add
+   */
+  private void addToTextIndexes(Snippet snippet) {
+    SearchIndex search = this.search;
+    if (search != null) {
+      search.add(snippet);
+    }
+    TrigramIndex bodies = this.bodies;
+    if (bodies != null) {
+      bodies.add(snippet);
+    }
+  }
+
+  /**
+   * Begin loading a file in parts, as a SnippetLoader does while it reads a file in the background. The current set is put aside and
+   * replaced with an empty one, which each part of the file is then added to as soon as it has been read, so that the snippets read
+   * so far can be used before the whole file has been read. Observers are notified of a Loading change for the empty set and for
+   * each part. The load must be finished with either endLoad or cancelLoad.
+   * 
+   * @throws IllegalStateException
+   *           If a load in parts is already in progress
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#loadPart(java.util.Collection)
+   */
+  public void beginLoad() throws IllegalStateException {
+    this.beginLoadHelper();
+    this.notifyObservers(ChangeType.Loading);
+  }
+
+  /**
+   * Helper method to put the current set aside and replace it with an empty one at the start of a load in parts
+   * 
+   * @throws IllegalStateException
+   *           If a load in parts is already in progress
+   */
+  protected void beginLoadHelper() throws IllegalStateException {
+    if (this.previous != null) {
+      throw new IllegalStateException("A load is already in progress");
+    }
+    this.previous = this.snippets;
+    this.replaceSnippets(this.createSnippetMap());
+  }
+
+  /**
+   * Cancel a load in parts, putting back the snippets held before it began. Anything added to the set since the load began, whether
+   * part of the file or not, is discarded. Observers are notified of a Loading change, as the set is back to one they have seen
+   * before.
+   * 
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   */
+  public void cancelLoad() throws IllegalStateException {
+    this.cancelLoadHelper();
+    this.notifyObservers(ChangeType.Loading);
+  }
+
+  /**
+   * Helper method to put back the snippets held before a load in parts began
+   * 
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   */
+  protected void cancelLoadHelper() throws IllegalStateException {
+    if (this.previous == null) {
+      throw new IllegalStateException("No load is in progress");
+    }
+    Map<Language, SortedSet<Snippet>> previous = this.previous;
+    this.previous = null;
+    this.replaceSnippets(previous);
+  }
+
+  /**
+   * Create the list that holds the listeners of this manager. Subclasses can override this to use a different list implementation
+   * 
+   * @return A new, empty list of listeners
+   */
+  protected List<SnippetSetChangedListener> createListenerList() {
+    return new ArrayList<SnippetSetChangedListener>();
+  }
+
+  /**
+   * Create the map that indexes every snippet by its case insensitive name. Subclasses can override this to use a different map
+   * implementation
+   * 
+   * @return A new, empty map of names to snippets
+   */
+  protected Map<String, Snippet> createNameIndex() {
+    return new HashMap<String, Snippet>();
+  }
+
+  /**
+   * Take a snapshot of the current set, which nothing done to the manager afterwards changes. This is cheap enough to take on the
+   * event dispatch thread, and the snapshot can then be saved on another thread while the manager carries on being changed
+   * 
+   * @return A snapshot of every snippet in the current set as it is now
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#saveSnapshotToFile(uk.co.ryanharrison.snippetmanager.SnippetSnapshot,
+   *      java.lang.String)
+   */
+  public SnippetSnapshot createSnapshot() {
+    return new SnippetSnapshot(this.snippets);
+  }
+
+  /**
+   * Create the map that holds the set of snippets for each language. Subclasses can override this to use a different map
+   * implementation
+   * 
+   * @return A new, empty map of languages to snippet sets
+   */
+  protected Map<Language, SortedSet<Snippet>> createSnippetMap() {
+    return new LinkedHashMap<Language, SortedSet<Snippet>>();
+  }
+
+  /**
+   * Create the set that holds the snippets of a single language. Subclasses can override this to use a different set implementation
+   * 
+   * @return A new, empty set of snippets
+   */
+  protected SortedSet<Snippet> createSnippetSet() {
+    return new TreeSet<Snippet>();
+  }
+
   /**
    * Fill a tree node with the snippets held in the current set. The snippet are grouped by languages. There are branches for each
    * language and then leafs for each snippet written in that language
@@ -230,6 +531,89 @@ public class SnippetManager implements SnippetSetObservable {
     return top;
   }
 
+  /**
+   * Delete a batch of snippets from the current collection in one go. Snippets that are not in the collection are ignored. The
+   * removals are grouped by language so each language set is changed once, and observers are notified of a single change for the
+   * whole batch, rather than once per snippet. Observers are not notified if none of the snippets were in the collection.
+   * 
+   * @param snippets
+   *          The snippets to delete
+   * @throws NullPointerException
+   *           If the collection or any snippet in it is null
+   */
+  public void deleteAll(Collection<Snippet> snippets) throws NullPointerException {
+    if (snippets == null) {
+      throw new NullPointerException("Snippets cannot be null");
+    }
+    if (snippets.isEmpty()) {
+      return;
+    }
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = DELETE_LATENCY.start();
+    try {
+      Collection<Snippet> deleted = this.deleteAllHelper(snippets);
+      if (deleted.isEmpty()) {
+        return;
+      }
+
+      // Notify observers once that the whole batch has been deleted
+      this.notifyObservers(ChangeType.Delete);
+      if (Metrics.isRecording()) {
+        SNIPPETS_DELETED.add(deleted.size());
+      }
+      event.finish("delete", deleted, this.getSnippetCount());
+    }
+    finally {
+      DELETE_LATENCY.stop(start);
+    }
+  }
+
+  /**
+   * Helper method to delete a batch of snippets from the current set
+   * 
+   * @param snippets
+   *          The snippets to delete
+   * @return The snippets that were deleted, which are those held in the set under the names of the snippets given
+   * @throws NullPointerException
+   *           If any snippet is null
+   */
+  protected Collection<Snippet> deleteAllHelper(Collection<Snippet> snippets) {
+    // Find the snippet held under each name and group them by the language set they are in
+    Map<Language, SortedSet<Snippet>> groups = new HashMap<Language, SortedSet<Snippet>>();
+    for (Snippet snippet : snippets) {
+      if (snippet == null) {
+        throw new NullPointerException("Snippet cannot be null");
+      }
+      Snippet existing = this.names.get(nameKey(snippet.getName()));
+      if (existing != null && existing.compareTo(snippet) == 0) {
+        SortedSet<Snippet> group = groups.get(existing.getLanguage());
+        if (group == null) {
+          group = new TreeSet<Snippet>();
+          groups.put(existing.getLanguage(), group);
+        }
+        group.add(existing);
+      }
+    }
+
+    // Remove each group from its language set in one go
+    List<Snippet> deleted = new ArrayList<Snippet>();
+    for (Entry<Language, SortedSet<Snippet>> group : groups.entrySet()) {
+      SortedSet<Snippet> set = this.snippets.get(group.getKey());
+      if (set != null) {
+        set.removeAll(group.getValue());
+      }
+      for (Snippet snippet : group.getValue()) {
+        this.names.remove(nameKey(snippet.getName()));
+        this.keywords.remove(snippet);
+        this.similar.remove(snippet);
+        this.removeFromTextIndexes(snippet);
+      }
+      deleted.addAll(group.getValue());
+    }
+    return deleted;
+  }
+
   /**
    * Delete a snippet from the current collection
    * 
@@ -242,10 +626,22 @@ public class SnippetManager implements SnippetSetObservable {
     if (snippet == null) {
       throw new NullPointerException("Snippet cannot be null");
     }
-    this.deleteSnippetHelper(snippet);
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = DELETE_LATENCY.start();
+    try {
+      this.deleteSnippetHelper(snippet);
 
-    // Notify all observers that a snippet has been deleted
-    this.notifyObservers(ChangeType.Delete);
+      // Notify all observers that a snippet has been deleted
+      this.notifyObservers(ChangeType.Delete);
+      if (Metrics.isRecording()) {
+        SNIPPETS_DELETED.increment();
+      }
+      event.finish("delete", Collections.singleton(snippet), this.getSnippetCount());
+    }
+    finally {
+      DELETE_LATENCY.stop(start);
+    }
   }
 
   /**
@@ -254,36 +650,186 @@ public class SnippetManager implements SnippetSetObservable {
    * @param snippet
    *          The snippet to delete
    */
-  private void deleteSnippetHelper(Snippet snippet) {
-    SnippetIterator iterator = new SnippetIterator(this.snippets);
-    // Iterate through each snippet in the current set using the custom iterator
-    while (iterator.hasNext()) {
-      Snippet s = iterator.next();
-      // If the two snippets match, remove it
-      if (s.compareTo(snippet) == 0) {
-        iterator.remove();
+  protected void deleteSnippetHelper(Snippet snippet) {
+    // The snippet held under the name knows which language set it is in, so there is no need to search every language
+    String key = nameKey(snippet.getName());
+    Snippet existing = this.names.get(key);
+    // Only remove the snippet if the two names match exactly
+    if (existing != null && existing.compareTo(snippet) == 0) {
+      Set<Snippet> set = this.snippets.get(existing.getLanguage());
+      if (set != null) {
+        set.remove(existing);
       }
+      this.names.remove(key);
+      this.keywords.remove(existing);
+      this.similar.remove(existing);
+      this.removeFromTextIndexes(existing);
     }
   }
 
+  /**
+   * Finish a load in parts once the whole file has been read, dropping the snippets held before it began. Observers are notified of
+   * a Load change, as they are when a file is loaded in one go.
+   * 
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   */
+  public void endLoad() throws IllegalStateException {
+    this.endLoadHelper();
+    this.notifyObservers(ChangeType.Load);
+    if (Metrics.isRecording()) {
+      SNIPPETS_LOADED.add(this.getSnippetCount());
+    }
+  }
+
+  /**
+   * Helper method to drop the snippets held before a load in parts began, once the whole file has been read
+   * 
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   */
+  protected void endLoadHelper() throws IllegalStateException {
+    if (this.previous == null) {
+      throw new IllegalStateException("No load is in progress");
+    }
+    this.previous = null;
+  }
+
+  /**
+   * Find the snippets in the current set whose body contains a match for a regular expression. Rather than running the expression
+   * over every snippet, the literal text that any match must contain is worked out from the expression and an index of the bodies is
+   * used to find the few snippets that contain it. The first regex search builds the index, after which it follows every change to
+   * the set
+   * 
+   * @param pattern
+   *          The regular expression to find in the bodies of the snippets
+   * @return The snippets whose body contains a match, in order of name
+   * @throws NullPointerException
+   *           If the pattern is null
+   */
+  public List<Snippet> findMatches(Pattern pattern) {
+    if (pattern == null) {
+      throw new NullPointerException("Pattern cannot be null");
+    }
+    // Without any literals to narrow down the candidates, every snippet has to be checked
+    Iterable<Snippet> candidates = this.getTrigramIndex().getCandidates(pattern);
+    if (candidates == null) {
+      candidates = this;
+    }
+    List<Snippet> matches = new ArrayList<Snippet>();
+    for (Snippet snippet : candidates) {
+      if (snippet.getSnippet() != null && pattern.matcher(snippet.getSnippet()).find()) {
+        matches.add(snippet);
+      }
+    }
+    Collections.sort(matches);
+    return matches;
+  }
+
+  /**
+   * Find the snippets in the current set with a name or keyword that is close to every word of a query, allowing for typing
+   * mistakes. Longer words allow more mistakes, while words of one or two characters must match exactly
+   * 
+   * @param query
+   *          The words to search for
+   * @return The matching snippets, in no particular order. Empty if the query has no words
+   * @throws NullPointerException
+   *           If the query is null
+   */
+  public List<Snippet> findSimilar(String query) {
+    if (query == null) {
+      throw new NullPointerException("Query cannot be null");
+    }
+    return this.similar.find(query);
+  }
+
+  /**
+   * Get the number of snippets in the current set with each keyword, for example to show alongside each keyword when filtering by
+   * keyword
+   * 
+   * @return A map of each keyword used by a snippet to the number of snippets with it
+   */
+  public Map<String, Integer> getKeywordCounts() {
+    return this.keywords.getKeywordCounts();
+  }
+
+  /**
+   * Get the search index of the current set, building it from every snippet in the set the first time it is needed
+   * 
+   * @return The search index of the current set
+   */
+  private synchronized SearchIndex getSearchIndex() {
+    if (this.search == null) {
+      SearchIndex search = new SearchIndex();
+      // Publish the index before filling it, so a snippet added or deleted meanwhile waits for the index rather than being missed
+      Lock lock = search.writeLock();
+      lock.lock();
+      try {
+        this.search = search;
+        for (Snippet snippet : this) {
+          search.add(snippet);
+        }
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+    return this.search;
+  }
+
+  /**
+   * Get the trigram index of the bodies in the current set, building it from every snippet in the set the first time it is needed
+   * 
+   * @return The trigram index of the current set
+   */
+  private synchronized TrigramIndex getTrigramIndex() {
+    if (this.bodies == null) {
+      TrigramIndex bodies = new TrigramIndex();
+      // Publish the index before filling it, so a snippet added or deleted meanwhile waits for the index rather than being missed
+      Lock lock = bodies.writeLock();
+      lock.lock();
+      try {
+        this.bodies = bodies;
+        for (Snippet snippet : this) {
+          bodies.add(snippet);
+        }
+      }
+      finally {
+        lock.unlock();
+      }
+    }
+    return this.bodies;
+  }
+
   /**
    * Get the number of snippets currently in the data model
    * 
    * @return The number of snippets in the data model
    */
   public int getSnippetCount() {
-    if (this.snippets.isEmpty()) {
-      return 0;
-    }
+    return this.names.size();
+  }
 
-    int count = 0;
-    SnippetIterator iterator = new SnippetIterator(this.snippets);
-    // Iterate through each snippet in the current set using the custom iterator
-    while (iterator.hasNext()) {
-      iterator.next();
-      count++;
-    }
-    return count;
+  /**
+   * Get the snippets in the current set that have every one of some keywords
+   * 
+   * @param keywords
+   *          The keywords the snippets must have, in lower case
+   * @return The snippets with all of the keywords, in no particular order. Empty if no keywords are given
+   */
+  public List<Snippet> getSnippetsWithAllKeywords(Collection<String> keywords) {
+    return this.keywords.findAll(keywords);
+  }
+
+  /**
+   * Get the snippets in the current set that have at least one of some keywords
+   * 
+   * @param keywords
+   *          The keywords the snippets may have, in lower case
+   * @return The snippets with any of the keywords, in no particular order
+   */
+  public List<Snippet> getSnippetsWithAnyKeyword(Collection<String> keywords) {
+    return this.keywords.findAny(keywords);
   }
 
   /**
@@ -299,50 +845,213 @@ public class SnippetManager implements SnippetSetObservable {
     if (name == null) {
       throw new NullPointerException("Name is null");
     }
-    if (this.snippets.isEmpty()) {
-      return null;
+    return this.names.get(nameKey(name));
+  }
+
+  /**
+   * Get an iterator over every snippet in the current set, grouped by language. Snippets cannot be removed through the iterator
+   * 
+   * @return An iterator over every snippet
+   * 
+   * @see java.lang.Iterable#iterator()
+   */
+  @Override
+  public Iterator<Snippet> iterator() {
+    return new SnippetIterator(this.snippets, true);
+  }
+
+  /**
+   * Get the key a snippet name is indexed under. Names are unique regardless of case, so names differing only in case share a key
+   * 
+   * @param name
+   *          The name of the snippet
+   * @return The key for the name
+   */
+  protected static String nameKey(String name) {
+    return name.toLowerCase(Locale.ROOT);
+  }
+
+  /**
+   * Pick out the snippets being loaded whose names are not yet taken. A file may hold a name more than once, in different cases or
+   * in different languages, and only the first of them in the order they were read is kept, so that the same file always gives the
+   * same set however it is loaded
+   * 
+   * @param snippets
+   *          The snippets being loaded, in the order they were read
+   * @param held
+   *          The snippets already held, by name key
+   * @param kept
+   *          The snippets kept so far during the load, by name key, which the snippets kept now are added to
+   * @return The snippets whose names were not taken, in the order they were read
+   * @throws NullPointerException
+   *           If any snippet is null
+   */
+  static List<Snippet> keepFirstOfEachName(Collection<Snippet> snippets, Map<String, Snippet> held,
+      Map<String, Snippet> kept) {
+    List<Snippet> result = new ArrayList<Snippet>(snippets.size());
+    for (Snippet snippet : snippets) {
+      if (snippet == null) {
+        throw new NullPointerException("Snippet cannot be null");
+      }
+      String key = nameKey(snippet.getName());
+      if (!held.containsKey(key) && !kept.containsKey(key)) {
+        kept.put(key, snippet);
+        result.add(snippet);
+      }
     }
+    return result;
+  }
 
-    SnippetIterator iterator = new SnippetIterator(this.snippets);
-    // Iterate through each snippet in the current set using the custom iterator
-    while (iterator.hasNext()) {
-      Snippet s = iterator.next();
-      // If the names match return the snippet
-      if (s.getName().equalsIgnoreCase(name)) {
-        return s;
+  /**
+   * Load snippets from an xml file at path. The file may be compressed with gzip, which is worked out from its content rather than
+   * its name
+   * 
+   * @param path
+   *          The path to the file of snippets
+   * @throws ParserConfigurationException
+   *           If there was an error parsing the xml file
+   * @throws IOException
+   *           If the was an error reading the file
+   * @throws SAXException
+   *           If there was an error parsing the xml file
+   */
+  public void loadFromFile(String path) throws ParserConfigurationException, SAXException, IOException {
+    SnippetFileEvent event = new SnippetFileEvent();
+    event.begin();
+    long start = LOAD_LATENCY.start();
+    try {
+      // Read the whole file before replacing the current set
+      this.replaceSnippets(this.readSnippetsFromFile(path));
+
+      // Notify that observers that new snippets have been loaded
+      this.notifyObservers(ChangeType.Load);
+      if (Metrics.isRecording()) {
+        SNIPPETS_LOADED.add(this.getSnippetCount());
       }
+      event.finish("load", path, this.getSnippetCount());
+    }
+    finally {
+      LOAD_LATENCY.stop(start);
     }
-    return null;
   }
 
   /**
-   * Determines whether a snippet with a name already exists in the current snippet set
+   * Load snippets from several xml files, or directories of them, replacing the current set. The files are read in parallel, so this
+   * takes about as long as reading the largest of them, and are then merged in the order given. A directory stands for the files of
+   * snippets directly inside it, in order of name. Nothing is replaced if any file cannot be read, or if there are no files to read
    * 
-   * @param name
-   *          The name to check
-   * @return True if a snippet with the name already exits, otherwise false
+   * @param paths
+   *          The paths to the files or directories of snippets
+   * @param policy
+   *          What to do with snippets of the same name in more than one file
+   * @throws ParserConfigurationException
+   *           If there was an error parsing an xml file
+   * @throws SAXException
+   *           If there was an error parsing an xml file
+   * @throws IOException
+   *           If the was an error reading a file, or the paths hold no files of snippets
+   * @throws DuplicateSnippetException
+   *           If the policy is to fail and more than one file holds a snippet with the same name
+   * @throws InterruptedException
+   *           If the thread was interrupted while the files were read
+   * @throws NullPointerException
+   *           If the paths, any path or the policy is null
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetFilesReader
    */
-  private boolean isDuplicateName(String name) {
-    if (this.snippets.isEmpty()) {
-      return false;
+  public void loadFromFiles(List<String> paths, ConflictPolicy policy) throws ParserConfigurationException, SAXException,
+      IOException, DuplicateSnippetException, InterruptedException {
+    List<File> files = new ArrayList<File>(paths.size());
+    for (String path : paths) {
+      files.add(new File(path));
+    }
+    files = SnippetFilesReader.expand(files);
+    if (files.isEmpty()) {
+      // Loading nothing would silently empty the set
+      throw new IOException("No files of snippets in " + paths);
     }
-    SnippetIterator iterator = new SnippetIterator(this.snippets);
-    // Iterate through each snippet in the current set using the custom iterator
-    while (iterator.hasNext()) {
-      Snippet s = iterator.next();
-      // If the names match return true
-      if (s.getName().equalsIgnoreCase(name)) {
-        return true;
+    SnippetFileEvent event = new SnippetFileEvent();
+    event.begin();
+    long start = LOAD_LATENCY.start();
+    try {
+      List<Snippet> snippets = new SnippetFilesReader(files, policy).read();
+      // Conflicts have already been resolved, so every name is unique
+      Map<Language, SortedSet<Snippet>> result = this.createSnippetMap();
+      for (Snippet snippet : snippets) {
+        SortedSet<Snippet> set = result.get(snippet.getLanguage());
+        if (set == null) {
+          set = this.createSnippetSet();
+          result.put(snippet.getLanguage(), set);
+        }
+        set.add(snippet);
       }
+      this.replaceSnippets(result);
+
+      this.notifyObservers(ChangeType.Load);
+      if (Metrics.isRecording()) {
+        SNIPPETS_LOADED.add(this.getSnippetCount());
+      }
+      event.finish("merge", files, this.getSnippetCount());
+    }
+    finally {
+      LOAD_LATENCY.stop(start);
+    }
+  }
+
+  /**
+   * Add the next part of a file to the current set during a load in parts. A file may hold a name more than once, or the set may
+   * already hold a name added since the load began, so any snippet whose name is already held is left out rather than failing the
+   * whole part. Observers are notified of a Loading change.
+   * 
+   * @param snippets
+   *          The snippets read from the next part of the file
+   * @return The number of snippets added
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   * @throws NullPointerException
+   *           If the collection or any snippet in it is null
+   */
+  public int loadPart(Collection<Snippet> snippets) throws IllegalStateException, NullPointerException {
+    int added = this.loadPartHelper(snippets);
+    this.notifyObservers(ChangeType.Loading);
+    return added;
+  }
+
+  /**
+   * Helper method to add the snippets of the next part of a file whose names are not already held to the current set
+   * 
+   * @param snippets
+   *          The snippets read from the next part of the file
+   * @return The number of snippets added
+   * @throws IllegalStateException
+   *           If no load in parts is in progress
+   * @throws NullPointerException
+   *           If the collection or any snippet in it is null
+   */
+  protected int loadPartHelper(Collection<Snippet> snippets) throws IllegalStateException, NullPointerException {
+    if (this.previous == null) {
+      throw new IllegalStateException("No load is in progress");
+    }
+    if (snippets == null) {
+      throw new NullPointerException("Snippets cannot be null");
+    }
+    List<Snippet> batch = keepFirstOfEachName(snippets, this.names, new HashMap<String, Snippet>());
+    try {
+      this.addAllHelper(batch);
     }
-    return false;
+    catch (DuplicateSnippetException e) {
+      // Every name has just been checked, and no other write can add one until the batch is in, so this cannot happen
+      throw new IllegalStateException(e);
+    }
+    return batch.size();
   }
 
   /**
-   * Load snippets from an xml file at path
+   * Read the snippets held in an xml file at path. Only the first snippet with each name is kept
    * 
    * @param path
    *          The path to the file of snippets
+   * @return A new map of languages to the snippets of that language held in the file
    * @throws ParserConfigurationException
    *           If there was an error parsing the xml file
    * @throws IOException
@@ -350,41 +1059,31 @@ public class SnippetManager implements SnippetSetObservable {
    * @throws SAXException
    *           If there was an error parsing the xml file
    */
-  public void loadFromFile(String path) throws ParserConfigurationException, SAXException, IOException {
-    this.snippets = new LinkedHashMap<Language, SortedSet<Snippet>>();
-    File file = new File(path);
-
-    // Create an xml document from the file
-    DocumentBuilderFactory dbFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder dBuilder = dbFactory.newDocumentBuilder();
-    Document doc = dBuilder.parse(file);
-    doc.getDocumentElement().normalize();
-
-    // Get a list of every node in the document
-    NodeList langs = doc.getDocumentElement().getChildNodes();
-    for (int i = 0; i < langs.getLength(); i++) {
-      Node n = langs.item(i);
-
-      // If the node is an element node (corresponding to a language node in this case)
-      if (n.getNodeType() == Node.ELEMENT_NODE) {
-        Element e = (Element) n;
-        Language lang = Language.valueOf(e.getNodeName());
-        SortedSet<Snippet> snippets = new TreeSet<Snippet>();
-        // Get each snippet node from the language node
-        NodeList snippetNodes = e.getElementsByTagName("snippet");
-        for (int j = 0; j < snippetNodes.getLength(); j++) {
-          // Parse the snippet element into a new snippet and add it to the set for that language
-          snippets.add(Snippet.getFromXMLElement((Element) snippetNodes.item(j), lang));
-        }
-        // If there is a snippet for the current language, add it to the overall result
-        if (snippets.size() > 0) {
-          this.snippets.put(lang, snippets);
+  private Map<Language, SortedSet<Snippet>> readSnippetsFromFile(String path) throws ParserConfigurationException, SAXException,
+      IOException {
+    final Map<Language, SortedSet<Snippet>> result = this.createSnippetMap();
+    final Map<String, Snippet> none = Collections.emptyMap();
+    final Map<String, Snippet> kept = new HashMap<String, Snippet>();
+    // Stream the file rather than building a document of the whole of it, putting each language into its own set as it is read
+    new SnippetFileReader(new File(path)).read(new SnippetFileReader.Listener() {
+
+      @Override
+      public void languageRead(Language language, List<Snippet> snippets) {
+        // Leave out any name already read, so every name in the sets is unique before the name index is built from them
+        SortedSet<Snippet> set = result.get(language);
+        if (set == null) {
+          set = SnippetManager.this.createSnippetSet();
+          result.put(language, set);
         }
+        set.addAll(keepFirstOfEachName(snippets, none, kept));
       }
-    }
 
-    // Notify that observers that new snippets have been loaded
-    this.notifyObservers(ChangeType.Load);
+      @Override
+      public void progressMade(long read, long length) {
+        // Nothing is shown until the whole file has been read
+      }
+    });
+    return result;
   }
 
   /**
@@ -396,11 +1095,34 @@ public class SnippetManager implements SnippetSetObservable {
    */
   @Override
   public void notifyObservers(ChangeType type) {
+    // Hand the change to the dispatcher if notifications are asynchronous, so the caller never waits for the listeners
+    SnippetSetDispatcher dispatcher = this.dispatcher;
+    if (dispatcher != null) {
+      dispatcher.dispatch(type);
+      return;
+    }
     for (SnippetSetChangedListener observer : this.listeners) {
       observer.onSnippetSetChanged(this, type);
     }
   }
 
+  /**
+   * Remove a snippet from the text indexes that have been built so far
+   * 
+   * @param snippet
+   *          The snippet to remove
+   */
+  private void removeFromTextIndexes(Snippet snippet) {
+    SearchIndex search = this.search;
+    if (search != null) {
+      search.remove(snippet);
+    }
+    TrigramIndex bodies = this.bodies;
+    if (bodies != null) {
+      bodies.remove(snippet);
+    }
+  }
+
   /**
    * Remove a listener from the current set of observers
    * 
@@ -415,49 +1137,194 @@ public class SnippetManager implements SnippetSetObservable {
   }
 
   /**
-   * Save all snippets to an xml file at path
+   * Replace the whole of the current set with a new one
+   * 
+   * @param snippets
+   *          The new map of languages to snippet sets
+   */
+  protected void replaceSnippets(Map<Language, SortedSet<Snippet>> snippets) {
+    Map<String, Snippet> names = this.createNameIndex();
+    KeywordIndex keywords = new KeywordIndex();
+    FuzzyIndex similar = new FuzzyIndex();
+    for (SortedSet<Snippet> set : snippets.values()) {
+      for (Snippet snippet : set) {
+        names.put(nameKey(snippet.getName()), snippet);
+        keywords.add(snippet);
+        similar.add(snippet);
+      }
+    }
+    this.names = names;
+    this.keywords = keywords;
+    this.similar = similar;
+    // The text indexes are built again from the new set when they are next needed
+    this.search = null;
+    this.bodies = null;
+    this.snippets = snippets;
+  }
+
+  /**
+   * Save a snapshot of the snippets to an xml file at path. Only the snapshot is read, so this can be called on a background thread
+   * while the manager carries on being changed. Observers are notified of the save on the calling thread, unless a notification
+   * executor has been set
    * 
+   * @param snapshot
+   *          The snapshot to save
    * @param path
    *          The path to the file to save to
    * @throws ParserConfigurationException
    *           If there was an error making the xml document
    * @throws TransformerException
    *           If there was an error creating the xml document
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnapshot()
    */
-  public void saveSnippetsToFile(String path) throws ParserConfigurationException, TransformerException {
-    DocumentBuilderFactory docFactory = DocumentBuilderFactory.newInstance();
-    DocumentBuilder docBuilder = docFactory.newDocumentBuilder();
+  public void saveSnapshotToFile(SnippetSnapshot snapshot, String path) throws ParserConfigurationException, TransformerException {
+    this.saveSnapshotToFile(snapshot, path, true);
+  }
 
-    // Create the root element
-    Document doc = docBuilder.newDocument();
-    Element rootElement = doc.createElement("snippets");
-    doc.appendChild(rootElement);
+  /**
+   * Save a snapshot of the snippets to an xml file at path, optionally without notifying observers, as when saving automatically
+   * rather than because the user asked to
+   * 
+   * @param snapshot
+   *          The snapshot to save
+   * @param path
+   *          The path to the file to save to
+   * @param notify
+   *          Whether to notify observers of the save
+   * @throws ParserConfigurationException
+   *           If there was an error making the xml document
+   * @throws TransformerException
+   *           If there was an error creating the xml document
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetManager#saveSnapshotToFile(uk.co.ryanharrison.snippetmanager.SnippetSnapshot,
+   *      java.lang.String)
+   */
+  public void saveSnapshotToFile(SnippetSnapshot snapshot, String path, boolean notify) throws ParserConfigurationException,
+      TransformerException {
+    this.saveSnapshotToFile(snapshot, path, SnippetFileCodec.forPath(path), notify);
+  }
 
-    // Loop through each entry in the map
-    for (Entry<Language, SortedSet<Snippet>> entry : this.snippets.entrySet()) {
-      // Create a new xml element from the language key from each entry
-      Element lang = doc.createElement(entry.getKey().name());
-      // For every snippet in the language group, add an xml element representing the snippet to the language xml element
-      for (Snippet s : entry.getValue()) {
-        lang.appendChild(s.toXMLElement(doc));
+  /**
+   * Save a snapshot of the snippets to an xml file at path written with a codec whatever the file is named, as when saving back to a
+   * file that was compressed when it was loaded, optionally without notifying observers of the save
+   * 
+   * @param snapshot
+   *          The snapshot to save
+   * @param path
+   *          The path to the file to save to
+   * @param codec
+   *          The codec to write the file with
+   * @param notify
+   *          Whether to notify observers of the save
+   * @throws ParserConfigurationException
+   *           If there was an error making the xml document
+   * @throws TransformerException
+   *           If there was an error creating the xml document
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetLoader#getCodec()
+   */
+  public void saveSnapshotToFile(SnippetSnapshot snapshot, String path, SnippetFileCodec codec, boolean notify)
+      throws ParserConfigurationException, TransformerException {
+    this.saveToFile(snapshot.getSnippets(), snapshot.getSnippetCount(), path, codec, notify);
+  }
+
+  /**
+   * Save all snippets to an xml file at path. The file is compressed with gzip if the path ends with .gz
+   * 
+   * @param path
+   *          The path to the file to save to
+   * @throws ParserConfigurationException
+   *           If there was an error making the xml document
+   * @throws TransformerException
+   *           If there was an error creating the xml document
+   */
+  public void saveSnippetsToFile(String path) throws ParserConfigurationException, TransformerException {
+    this.saveToFile(this.snippets, this.getSnippetCount(), path, SnippetFileCodec.forPath(path), true);
+  }
+
+  /**
+   * Save snippets to an xml file at path
+   * 
+   * @param snippets
+   *          The snippets of each language to save
+   * @param count
+   *          The total number of snippets
+   * @param path
+   *          The path to the file to save to
+   * @param codec
+   *          The codec to write the file with
+   * @param notify
+   *          Whether to notify observers of the save
+   * @throws ParserConfigurationException
+   *           If there was an error making the xml document
+   * @throws TransformerException
+   *           If there was an error creating the xml document
+   */
+  private void saveToFile(Map<Language, ? extends Collection<Snippet>> snippets, int count, String path, SnippetFileCodec codec,
+      boolean notify) throws ParserConfigurationException, TransformerException {
+    SnippetFileEvent event = new SnippetFileEvent();
+    event.begin();
+    long start = SAVE_LATENCY.start();
+    try {
+      this.writeSnippetsToFile(snippets, path, codec);
+      if (Metrics.isRecording()) {
+        SNIPPETS_SAVED.add(count);
       }
-      rootElement.appendChild(lang);
+      event.finish("save", path, count);
+    }
+    finally {
+      SAVE_LATENCY.stop(start);
     }
 
-    // Write the content into the xml file
-    TransformerFactory transformerFactory = TransformerFactory.newInstance();
-    Transformer transformer = transformerFactory.newTransformer();
-    // Enable indentation
-    transformer.setOutputProperty("{http://xml.apache.org/xslt}indent-amount", "4");
-    transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-    DOMSource source = new DOMSource(doc);
-    StreamResult result = new StreamResult(new File(path));
+    // Notify that observers that the snippets have been saved
+    if (notify) {
+      this.notifyObservers(ChangeType.Save);
+    }
+  }
 
-    transformer.transform(source, result);
+  /**
+   * Find the snippets in the current set that best match a query, ranked by relevance rather than by name. Matches in the name count
+   * for more than matches in the keywords, which count for more than the description and then the body, and rare terms count for more
+   * than common ones. The first search builds an index of the whole set, after which the index follows every change to the set
+   * 
+   * @param query
+   *          The text to search for
+   * @param limit
+   *          The largest number of results to return
+   * @return The best matching snippets, best first. Empty if nothing matched
+   * @throws NullPointerException
+   *           If the query is null
+   * @throws IllegalArgumentException
+   *           If the limit is not positive
+   */
+  public List<SearchResult> search(String query, int limit) {
+    if (query == null) {
+      throw new NullPointerException("Query cannot be null");
+    }
+    return this.getSearchIndex().search(query, limit);
+  }
 
-    // Notify that observers that the snippets have been saved
-    this.notifyObservers(ChangeType.Save);
-    System.out.println("In snippet manager data model: Saving snippets to file at: " + path);
+  /**
+   * Set the executor that change notifications are delivered on. Once set, notifying observers only records the change and returns
+   * straight away, and runs of changes made before the listeners have run are coalesced into batches, kept in order. Listeners that
+   * implement SnippetSetBatchListener receive each whole batch, other listeners are notified once for each run of changes in it.
+   * 
+   * @param executor
+   *          The executor to deliver notifications on, or null to notify observers synchronously on the thread making the change
+   * 
+   * @see uk.co.ryanharrison.snippetmanager.SnippetSetDispatcher
+   */
+  public synchronized void setNotificationExecutor(Executor executor) {
+    if (executor == null) {
+      this.dispatcher = null;
+      return;
+    }
+    // Listeners are now iterated on the executor, so the list must be safe to modify while it is being iterated
+    if (!(this.listeners instanceof CopyOnWriteArrayList)) {
+      this.listeners = new CopyOnWriteArrayList<SnippetSetChangedListener>(this.listeners);
+    }
+    this.dispatcher = new SnippetSetDispatcher(this, this.listeners, executor);
   }
 
   /**
@@ -477,10 +1344,76 @@ public class SnippetManager implements SnippetSetObservable {
     if (newSnippet == null) {
       throw new NullPointerException("Snippet to update to is null");
     }
-    this.updateSnippetHelper(old, newSnippet);
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = UPDATE_LATENCY.start();
+    try {
+      this.updateSnippetHelper(old, newSnippet);
+
+      // Notify all observers that a snippet has been updated
+      this.notifyObservers(ChangeType.Update);
+      event.finish("update", Collections.singleton(newSnippet), this.getSnippetCount());
+    }
+    finally {
+      UPDATE_LATENCY.stop(start);
+    }
+  }
+
+  /**
+   * Change the content of a snippet held in the current set in place. This is much cheaper than updating the snippet to a new
+   * version, as the snippet stays where it is in its language set and nothing has to be removed or added. Observers are not notified,
+   * in the same way as updateSnippetData
+   * 
+   * @param snippet
+   *          The snippet to change, which must be the instance held in the set
+   * @param body
+   *          The new content of the snippet
+   * @return True if the snippet is held in the set and now has the new content, otherwise false
+   * @throws NullPointerException
+   *           If the snippet or the content is null
+   */
+  public boolean updateSnippetBody(Snippet snippet, String body) {
+    if (snippet == null) {
+      throw new NullPointerException("Snippet to update is null");
+    }
+    if (body == null) {
+      throw new NullPointerException("Content to update to is null");
+    }
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = UPDATE_LATENCY.start();
+    try {
+      return this.updateSnippetBodyHelper(snippet, body, event);
+    }
+    finally {
+      UPDATE_LATENCY.stop(start);
+    }
+  }
 
-    // Notify all observers that a snippet has been updated
-    this.notifyObservers(ChangeType.Update);
+  /**
+   * Helper method to change the content of a snippet held in the current set. The flight recorder event is only committed if the
+   * content actually changed
+   * 
+   * @param snippet
+   *          The snippet to change
+   * @param body
+   *          The new content of the snippet
+   * @param event
+   *          The flight recorder event of the update, which has already begun
+   * @return True if the snippet is held in the set and now has the new content, otherwise false
+   */
+  protected boolean updateSnippetBodyHelper(Snippet snippet, String body, SnippetChangeEvent event) {
+    // Only change the snippet if it is the one actually held in the set, otherwise the change would be lost
+    if (this.names.get(nameKey(snippet.getName())) != snippet) {
+      return false;
+    }
+    if (!body.equals(snippet.getSnippet())) {
+      snippet.setSnippet(body);
+      // Adding the snippet again replaces whatever it was indexed by, even if an index was being filled as the body changed
+      this.addToTextIndexes(snippet);
+      event.finish("update", Collections.singleton(snippet), this.getSnippetCount());
+    }
+    return true;
   }
 
   /**
@@ -500,7 +1433,16 @@ public class SnippetManager implements SnippetSetObservable {
     if (newSnippet == null) {
       throw new NullPointerException("Snippet to update to is null");
     }
-    this.updateSnippetHelper(old, newSnippet);
+    SnippetChangeEvent event = new SnippetChangeEvent();
+    event.begin();
+    long start = UPDATE_LATENCY.start();
+    try {
+      this.updateSnippetHelper(old, newSnippet);
+      event.finish("update", Collections.singleton(newSnippet), this.getSnippetCount());
+    }
+    finally {
+      UPDATE_LATENCY.stop(start);
+    }
   }
 
   /**
@@ -511,7 +1453,7 @@ public class SnippetManager implements SnippetSetObservable {
    * @param newSnippet
    *          The new snippet to replace the old one with
    */
-  private void updateSnippetHelper(Snippet old, Snippet newSnippet) {
+  protected void updateSnippetHelper(Snippet old, Snippet newSnippet) {
     // Only update if the old snippet exists in the set
     // This prevents the new snippet from being added when the old one isn't present
     if (this.getSnippetFromName(old.getName()) != null) {
@@ -526,4 +1468,29 @@ public class SnippetManager implements SnippetSetObservable {
       }
     }
   }
+
+  /**
+   * Write snippets to an xml file at path, compressing it with a codec as it is written
+   * 
+   * @param snippets
+   *          The snippets of each language to write
+   * @param path
+   *          The path to the file to write to
+   * @param codec
+   *          The codec to write the file with
+   * @throws TransformerException
+   *           If there was an error writing the xml or the file
+   */
+  private void writeSnippetsToFile(Map<Language, ? extends Collection<Snippet>> snippets, String path, SnippetFileCodec codec)
+      throws TransformerException {
+    try {
+      new SnippetFileWriter(new File(path), codec).write(snippets);
+    }
+    catch (IOException e) {
+      throw new TransformerException(e);
+    }
+    catch (XMLStreamException e) {
+      throw new TransformerException(e);
+    }
+  }
 }
@@ -0,0 +1,142 @@
+/**
+ * SnippetSaver.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import javax.swing.SwingWorker;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.transform.TransformerException;
+
+/**
+ * Saves the snippets held by a snippet manager to a file on a background thread, so that the interface carries on responding, and
+ * the snippets can carry on being edited, while a large library is written. A snapshot of the manager is taken when the saver is
+ * created, so the file holds exactly the snippets as they were at that moment whatever is changed while it is written.
+ * <p>
+ * The saver should be created on the thread that changes the manager, normally the event dispatch thread, so that the snapshot is
+ * not taken half way through a change. Savers writing to the same file should be run one after another, such as on a single thread
+ * executor, rather than with execute, which may run them at the same time.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnapshot()
+ */
+public class SnippetSaver extends SwingWorker<Integer, Void> {
+
+  /** The manager the snippets are saved from */
+  private final SnippetManager   manager;
+
+  /** The snippets as they were when the saver was created */
+  private final SnippetSnapshot  snapshot;
+
+  /** The path to the file to save to */
+  private final String           path;
+
+  /** The codec the file is written with */
+  private final SnippetFileCodec codec;
+
+  /** Whether observers of the manager are notified of the save */
+  private final boolean          notify;
+
+  /**
+   * Create a new saver, taking a snapshot of the snippets to save. Nothing is written until the saver is run
+   *
+   * @param manager
+   *          The manager to save the snippets of
+   * @param path
+   *          The path to the file to save to
+   * @throws NullPointerException
+   *           If the manager or the path is null
+   */
+  public SnippetSaver(SnippetManager manager, String path) {
+    this(manager, path, true);
+  }
+
+  /**
+   * Create a new saver, taking a snapshot of the snippets to save, optionally without notifying observers of the save. Nothing is
+   * written until the saver is run
+   *
+   * @param manager
+   *          The manager to save the snippets of
+   * @param path
+   *          The path to the file to save to
+   * @param notify
+   *          Whether observers of the manager are notified of the save
+   * @throws NullPointerException
+   *           If the manager or the path is null
+   */
+  public SnippetSaver(SnippetManager manager, String path, boolean notify) {
+    this(manager, path, path == null ? null : SnippetFileCodec.forPath(path), notify);
+  }
+
+  /**
+   * Create a new saver, taking a snapshot of the snippets to save, that writes the file with a codec whatever it is named. Nothing is
+   * written until the saver is run
+   *
+   * @param manager
+   *          The manager to save the snippets of
+   * @param path
+   *          The path to the file to save to
+   * @param codec
+   *          The codec to write the file with
+   * @param notify
+   *          Whether observers of the manager are notified of the save
+   * @throws NullPointerException
+   *           If the manager, the path or the codec is null
+   */
+  public SnippetSaver(SnippetManager manager, String path, SnippetFileCodec codec, boolean notify) {
+    super();
+    if (manager == null || path == null || codec == null) {
+      throw new NullPointerException("Manager, path and codec cannot be null");
+    }
+    this.manager = manager;
+    this.path = path;
+    this.codec = codec;
+    this.notify = notify;
+    this.snapshot = manager.createSnapshot();
+  }
+
+  /**
+   * Write the snapshot to the file
+   *
+   * @return The number of snippets saved
+   * @throws ParserConfigurationException
+   *           If there was an error making the xml document
+   * @throws TransformerException
+   *           If there was an error creating the xml document
+   *
+   * @see javax.swing.SwingWorker#doInBackground()
+   */
+  @Override
+  protected Integer doInBackground() throws ParserConfigurationException, TransformerException {
+    this.manager.saveSnapshotToFile(this.snapshot, this.path, this.codec, this.notify);
+    return this.snapshot.getSnippetCount();
+  }
+
+  /**
+   * Get the codec the file is written with
+   *
+   * @return The codec
+   */
+  public SnippetFileCodec getCodec() {
+    return this.codec;
+  }
+
+  /**
+   * Get the path to the file being saved to
+   *
+   * @return The path
+   */
+  public String getPath() {
+    return this.path;
+  }
+
+  /**
+   * Get the snapshot being saved
+   *
+   * @return The snippets as they were when the saver was created
+   */
+  public SnippetSnapshot getSnapshot() {
+    return this.snapshot;
+  }
+}
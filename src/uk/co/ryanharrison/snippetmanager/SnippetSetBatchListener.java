@@ -0,0 +1,28 @@
+/**
+ * SnippetSetBatchListener.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Map;
+
+/**
+ * An interface for listeners that can handle a batch of changes to a snippet set in one go. When an observable delivers its
+ * notifications asynchronously, a burst of changes is coalesced into a single batch so that the listener only has to react once,
+ * for example by rebuilding a view a single time after a bulk import
+ *
+ * @author Ryan Harrison
+ */
+public interface SnippetSetBatchListener extends SnippetSetChangedListener {
+
+  /**
+   * Called when the observable has notified its observers of a batch of changes to the snippet set
+   *
+   * @param subject
+   *          The observable whose snippet set has been changed
+   * @param changes
+   *          The types of the changes that make up the batch, in the order they happened, each mapped to the number of times that
+   *          type of change occurred in a row
+   */
+  public void onSnippetSetChanged(SnippetSetObservable subject, Map<ChangeType, Integer> changes);
+}
@@ -4,15 +4,6 @@
 
 package uk.co.ryanharrison.snippetmanager;
 
-/**
- * A set of constants representing the type of change that has happened to the snippet set
- * 
- * @author Ryan Harrison
- */
-enum ChangeType {
-  Add, Delete, Update, Save, Load;
-}
-
 /**
  * An interface for classes that can listen to a snippet set and are notified when the snippet set has been changed in some way
  * Implementations can then take action depending on the type of change that has occured to the snippet set that is being listened
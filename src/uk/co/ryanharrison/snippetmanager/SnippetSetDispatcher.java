@@ -0,0 +1,183 @@
+/**
+ * SnippetSetDispatcher.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Delivers snippet set change notifications to listeners on an executor rather than on the thread that made the change. Changes that
+ * happen while a notification is waiting to be delivered are coalesced into it, so a burst of changes results in a single batch and
+ * a writer never waits for a slow listener.
+ * <p>
+ * Listeners see changes in the order they happened. A batch holds runs of changes in order, each type at most once, so a change of
+ * a type the batch already holds, other than the last one, starts a new batch. A load or a save ends the batch it is in, so changes
+ * before and after it are never merged across it.
+ * <p>
+ * Changes of different types that keep taking turns, such as adds and deletes, each start a new batch, so a listener that falls
+ * behind them could leave an ever growing backlog. Once MAX_PENDING batches are waiting they are collapsed into a single batch
+ * holding every type that happened and how many times, giving up their order. A listener that far behind only needs to know what
+ * to refresh.
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetSetDispatcher {
+
+  /** The most batches that wait to be delivered before they are collapsed into one */
+  public static final int                       MAX_PENDING = 64;
+
+  /** The observable whose changes are being delivered */
+  private SnippetSetObservable                  subject;
+
+  /** The listeners to deliver the changes to */
+  private List<SnippetSetChangedListener>       listeners;
+
+  /** The executor the changes are delivered on */
+  private Executor                              executor;
+
+  /** The batches of changes that have happened since the last delivery, in order, each mapping a type to the times it happened */
+  private LinkedList<Map<ChangeType, Integer>>  pending;
+
+  /** The type of the last change that happened */
+  private ChangeType                            last;
+
+  /** Whether or not a batch is currently waiting to be delivered or being delivered */
+  private boolean                               scheduled;
+
+  /** The task that takes the pending changes and delivers them */
+  private Runnable                              deliverTask;
+
+  /**
+   * Create a new dispatcher
+   *
+   * @param subject
+   *          The observable whose changes are being delivered
+   * @param listeners
+   *          The listeners to deliver the changes to. This list must be safe to iterate on the executor while it is being modified
+   * @param executor
+   *          The executor the changes are delivered on
+   * @throws NullPointerException
+   *           If any argument is null
+   */
+  public SnippetSetDispatcher(SnippetSetObservable subject, List<SnippetSetChangedListener> listeners, Executor executor) {
+    super();
+    if (subject == null || listeners == null || executor == null) {
+      throw new NullPointerException("Dispatcher arguments cannot be null");
+    }
+    this.subject = subject;
+    this.listeners = listeners;
+    this.executor = executor;
+    this.pending = new LinkedList<Map<ChangeType, Integer>>();
+    this.scheduled = false;
+    this.deliverTask = new Runnable() {
+
+      @Override
+      public void run() {
+        SnippetSetDispatcher.this.deliver();
+      }
+    };
+  }
+
+  /**
+   * Record that a change has happened, scheduling a batch to be delivered if one is not already waiting
+   *
+   * @param type
+   *          The type of change that has happened
+   */
+  public void dispatch(ChangeType type) {
+    synchronized (this) {
+      Map<ChangeType, Integer> batch = this.pending.peekLast();
+      boolean closed = this.last == ChangeType.Load || this.last == ChangeType.Save;
+      if (batch == null || closed || (batch.containsKey(type) && type != this.last)) {
+        batch = new LinkedHashMap<ChangeType, Integer>();
+        if (this.pending.size() >= MAX_PENDING) {
+          // Collapse the backlog rather than let it grow without limit
+          for (Map<ChangeType, Integer> waiting : this.pending) {
+            for (Map.Entry<ChangeType, Integer> change : waiting.entrySet()) {
+              Integer count = batch.get(change.getKey());
+              batch.put(change.getKey(), count == null ? change.getValue() : count + change.getValue());
+            }
+          }
+          this.pending.clear();
+        }
+        this.pending.add(batch);
+      }
+      Integer count = batch.get(type);
+      batch.put(type, count == null ? 1 : count + 1);
+      this.last = type;
+      // If a batch is already waiting this change will be delivered with it
+      if (this.scheduled) {
+        return;
+      }
+      this.scheduled = true;
+    }
+    this.executor.execute(this.deliverTask);
+  }
+
+  /**
+   * Take every pending batch and deliver them to the listeners in order. If further changes arrive during delivery, another delivery
+   * is scheduled once this one has finished, so batches are always delivered one at a time and in order
+   */
+  private void deliver() {
+    List<Map<ChangeType, Integer>> batches;
+    synchronized (this) {
+      batches = new ArrayList<Map<ChangeType, Integer>>(this.pending);
+      this.pending.clear();
+    }
+
+    try {
+      for (Map<ChangeType, Integer> batch : batches) {
+        for (SnippetSetChangedListener listener : this.listeners) {
+          // Batch listeners can handle the whole batch at once
+          if (listener instanceof SnippetSetBatchListener) {
+            ((SnippetSetBatchListener) listener).onSnippetSetChanged(this.subject, batch);
+          }
+          // Other listeners are told about each run of changes once, in order
+          else {
+            for (ChangeType type : batch.keySet()) {
+              listener.onSnippetSetChanged(this.subject, type);
+            }
+          }
+        }
+      }
+    }
+    finally {
+      boolean reschedule;
+      synchronized (this) {
+        reschedule = !this.pending.isEmpty();
+        this.scheduled = reschedule;
+      }
+      if (reschedule) {
+        this.executor.execute(this.deliverTask);
+      }
+    }
+  }
+
+  /**
+   * Create an executor with a single dedicated background thread, suitable for delivering changes to listeners that do not need to
+   * run on any particular thread
+   *
+   * @return A new single threaded executor
+   */
+  public static ExecutorService newDedicatedExecutor() {
+    return Executors.newSingleThreadExecutor(new ThreadFactory() {
+
+      @Override
+      public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, "snippet-set-dispatcher");
+        // Do not keep the application alive just to deliver notifications
+        thread.setDaemon(true);
+        return thread;
+      }
+    });
+  }
+}
@@ -0,0 +1,72 @@
+/**
+ * SnippetSnapshot.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/**
+ * An unchanging copy of the snippets held by a snippet manager at one moment, so that they can be saved on a background thread while
+ * the manager carries on being changed. Taking a snapshot only copies references, along with a small copy of each snippet that keeps
+ * its content as it was, because the content is the only part of a snippet that is changed in place. Nothing done to the manager
+ * afterwards, whether adding, deleting or editing snippets, changes the snapshot.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.SnippetManager#createSnapshot()
+ */
+public final class SnippetSnapshot {
+
+  /** The snippets of each language, in the order the manager held them */
+  private final Map<Language, List<Snippet>> snippets;
+
+  /** The total number of snippets */
+  private final int                          count;
+
+  /**
+   * Take a snapshot of a map of languages to snippets. The map must not be changed while the snapshot is taken
+   *
+   * @param snippets
+   *          The snippets of each language
+   */
+  SnippetSnapshot(Map<Language, ? extends Collection<Snippet>> snippets) {
+    super();
+    Map<Language, List<Snippet>> copy = new LinkedHashMap<Language, List<Snippet>>();
+    int count = 0;
+    for (Entry<Language, ? extends Collection<Snippet>> entry : snippets.entrySet()) {
+      List<Snippet> list = new ArrayList<Snippet>(entry.getValue().size());
+      for (Snippet snippet : entry.getValue()) {
+        list.add(snippet.copy());
+      }
+      copy.put(entry.getKey(), Collections.unmodifiableList(list));
+      count += list.size();
+    }
+    this.snippets = Collections.unmodifiableMap(copy);
+    this.count = count;
+  }
+
+  /**
+   * Get the number of snippets in the snapshot
+   *
+   * @return The total number of snippets
+   */
+  public int getSnippetCount() {
+    return this.count;
+  }
+
+  /**
+   * Get the snippets in the snapshot
+   *
+   * @return An unmodifiable map of each language to its snippets, in the order the manager held them
+   */
+  public Map<Language, List<Snippet>> getSnippets() {
+    return this.snippets;
+  }
+}
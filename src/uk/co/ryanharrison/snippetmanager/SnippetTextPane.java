@@ -6,6 +6,8 @@ import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
+import java.beans.PropertyChangeEvent;
+import java.beans.PropertyChangeListener;
 
 import javax.swing.DropMode;
 import javax.swing.JMenuItem;
@@ -17,9 +19,10 @@ import javax.swing.event.UndoableEditListener;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.Document;
 import javax.swing.text.Element;
+import javax.swing.text.StyledDocument;
 import javax.swing.text.Utilities;
+import javax.swing.undo.CannotRedoException;
 import javax.swing.undo.CannotUndoException;
-import javax.swing.undo.UndoManager;
 
 /**
  * Class representing a text pane where keywords of languages are highlighted. This text pane also has a right click menu to display
@@ -30,19 +33,25 @@ import javax.swing.undo.UndoManager;
 public class SnippetTextPane extends JTextPane implements ActionListener {
 
   /** Serialisaton identifier */
-  private static final long serialVersionUID = 5562822940346845853L;
+  private static final long    serialVersionUID = 5562822940346845853L;
 
   /** The highlighter used when highlighting the keywords in the text of this pane */
-  private SyntaxHighlighter highlighter;
+  private SyntaxHighlighter    highlighter;
 
   /** The right click context menu */
-  private JPopupMenu        contextMenu;
+  private JPopupMenu           contextMenu;
 
-  /** A manager that takes care of undoing changes made to the text in the pane */
-  private UndoManager       undo;
+  /** A manager that takes care of undoing and redoing changes made to the text in the pane */
+  private SnippetUndoManager   undo;
 
   /** Menu item to undo changes. This is a field as it will be enabled/disabled dynamically */
-  private JMenuItem         undoItem;
+  private JMenuItem            undoItem;
+
+  /** Menu item to redo changes. This is a field as it will be enabled/disabled dynamically */
+  private JMenuItem            redoItem;
+
+  /** Listener that passes the edits made in the current document on to the undo manager */
+  private UndoableEditListener undoListener;
 
   /**
    * Construct a new SnippetTextPane. Initialise fields and construct the context menu
@@ -50,7 +59,8 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
   public SnippetTextPane() {
     super();
     this.highlighter = null;
-    this.undo = new UndoManager();
+    this.undo = new SnippetUndoManager();
+    this.undo.setDocument(this.getDocument());
 
     // Create the context menu
     this.contextMenu = new JPopupMenu();
@@ -60,6 +70,12 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
     this.undoItem.addActionListener(this);
     this.undoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Z, ActionEvent.CTRL_MASK));
     this.contextMenu.add(this.undoItem);
+
+    this.redoItem = new JMenuItem("Redo");
+    this.redoItem.setEnabled(false);
+    this.redoItem.addActionListener(this);
+    this.redoItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_Y, ActionEvent.CTRL_MASK));
+    this.contextMenu.add(this.redoItem);
     this.contextMenu.addSeparator();
 
     JMenuItem cut = new JMenuItem("Cut");
@@ -114,14 +130,24 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
     });
 
     // Enable the ability to undo changes in the current document
-    this.getDocument().addUndoableEditListener(new UndoableEditListener() {
+    this.undoListener = new UndoableEditListener() {
 
       @Override
       public void undoableEditHappened(UndoableEditEvent e) {
-        // Remember the edit that has just been made
-        SnippetTextPane.this.undo.addEdit(e.getEdit());
-        // Set the menu item to be enabled only if an undo can be made
-        SnippetTextPane.this.undoItem.setEnabled(SnippetTextPane.this.undo.canUndo());
+        // Remember the edit that has just been made. Style changes and typing are filtered and coalesced by the manager
+        SnippetTextPane.this.undo.undoableEditHappened(e);
+        // Set the menu items to be enabled only if an undo or redo can be made
+        SnippetTextPane.this.updateUndoItems();
+      }
+    };
+    this.getDocument().addUndoableEditListener(this.undoListener);
+
+    // When the document is swapped, move the undo listener across to the new one
+    this.addPropertyChangeListener("document", new PropertyChangeListener() {
+
+      @Override
+      public void propertyChange(PropertyChangeEvent e) {
+        SnippetTextPane.this.documentChanged((Document) e.getOldValue(), (Document) e.getNewValue());
       }
     });
   }
@@ -141,12 +167,20 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
     // Depending on which item that has been clicked on, take the appropriate action
     if (text.equals("Undo")) {
       try {
-        SnippetTextPane.this.undo.undo();
+        this.undo();
       }
       catch (CannotUndoException ex) {
         ex.printStackTrace();
       }
     }
+    else if (text.equals("Redo")) {
+      try {
+        this.redo();
+      }
+      catch (CannotRedoException ex) {
+        ex.printStackTrace();
+      }
+    }
     else if (text.equals("Cut")) {
       this.cut();
     }
@@ -214,6 +248,38 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
     return this.undo.canUndo();
   }
 
+  /**
+   * Get whether or not a redo operation can be made
+   * 
+   * @return True if a redo operation can be made, otherwise false
+   */
+  public boolean canRedo() {
+    return this.undo.canRedo();
+  }
+
+  /**
+   * Called when the document shown in this pane has been replaced. The undo listener is moved to the new document and, unless the
+   * current undo manager already belongs to the new document, a fresh history is started
+   * 
+   * @param oldDocument
+   *          The document that was previously shown
+   * @param newDocument
+   *          The document that is now shown
+   */
+  private void documentChanged(Document oldDocument, Document newDocument) {
+    if (oldDocument != null) {
+      oldDocument.removeUndoableEditListener(this.undoListener);
+    }
+    if (newDocument != null) {
+      newDocument.addUndoableEditListener(this.undoListener);
+    }
+    if (this.undo.getDocument() != newDocument) {
+      this.undo = new SnippetUndoManager(this.undo.getLimit(), this.undo.getByteLimit());
+      this.undo.setDocument(newDocument);
+    }
+    this.updateUndoItems();
+  }
+
   /**
    * Get the column number from a caret position in the document
    * 
@@ -244,6 +310,15 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
     return map.getElementIndex(caretPosition);
   }
 
+  /**
+   * Get the manager that records the changes made in this pane. This can be used to configure the size of the undo history
+   * 
+   * @return The undo manager of this pane
+   */
+  public SnippetUndoManager getUndoManager() {
+    return this.undo;
+  }
+
   /**
    * Get the number of lines in the document
    * 
@@ -298,14 +373,50 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
   }
 
   /**
-   * Set the SyntaxHighlighter to use when highlighting the keywords in the current text
+   * Redo the last change that was undone
+   */
+  public void redo() {
+    // If a redo can be made, redo it
+    if (this.undo.canRedo()) {
+      this.undo.redo();
+    }
+    this.updateUndoItems();
+  }
+
+  /**
+   * Show a different document in this pane along with the undo history that belongs to it. This allows each snippet to keep its own
+   * history, which is restored straight away when the document is shown again
+   * 
+   * @param document
+   *          The document to show
+   * @param history
+   *          The undo history of the document
+   * @throws IllegalArgumentException
+   *           If the history does not belong to the document
+   */
+  public void setDocument(StyledDocument document, SnippetUndoManager history) {
+    if (history.getDocument() != document) {
+      throw new IllegalArgumentException("Undo history does not belong to the document");
+    }
+    // Swap the history first so that it is kept when the document changes
+    this.undo.endWord();
+    this.undo = history;
+    this.setDocument(document);
+    this.updateUndoItems();
+  }
+
+  /**
+   * Set the SyntaxHighlighter to use when highlighting the keywords in the current text. The text is only highlighted again if the
+   * current document has not already been highlighted in the same way
    * 
    * @param highlighter
    *          The new highlighter to use
    */
   public void setSyntaxHighlighter(SyntaxHighlighter highlighter) {
     this.highlighter = highlighter;
-    this.highlight();
+    if (highlighter != null && !highlighter.isHighlighted(this.getDocument())) {
+      this.highlight();
+    }
   }
 
   /**
@@ -316,7 +427,14 @@ public class SnippetTextPane extends JTextPane implements ActionListener {
     if (this.undo.canUndo()) {
       this.undo.undo();
     }
-    // Set the menu item to be enabled only if an undo can be made
+    this.updateUndoItems();
+  }
+
+  /**
+   * Set the undo and redo menu items to be enabled only if an undo or redo can be made
+   */
+  private void updateUndoItems() {
     this.undoItem.setEnabled(this.undo.canUndo());
+    this.redoItem.setEnabled(this.undo.canRedo());
   }
 }
@@ -0,0 +1,418 @@
+/**
+ * SnippetUndoManager.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
+import javax.swing.text.AbstractDocument;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * An undo manager with a bounded history suited to editing snippets. Runs of single character typing or deleting are coalesced into
+ * word level edits, style only changes (such as those made by the syntax highlighter) are never recorded and the history is limited
+ * by both a number of entries and an approximate number of bytes. The oldest edits are discarded first when either limit is reached.
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetUndoManager extends UndoManager {
+
+  /**
+   * A compound edit made up of a run of single character edits that together form a word. The edit keeps track of where the run
+   * currently ends so that the next edit can determine whether it continues the run
+   *
+   * @author Ryan Harrison
+   */
+  private static class WordEdit extends CompoundEdit {
+
+    /** Serialisation identifier */
+    private static final long       serialVersionUID = -2915425342016219423L;
+
+    /** The type of document change that makes up this run, null if the edit cannot be coalesced */
+    private DocumentEvent.EventType type;
+
+    /** The offset in the document of the last character edited in this run */
+    private int                     offset;
+
+    /** Whether or not the last character typed ended the current word */
+    private boolean                 wordEnded;
+
+    /** The approximate number of bytes held by this edit */
+    private long                    size;
+
+    /**
+     * Determine whether an edit continues the run of typing held by this edit
+     *
+     * @param edit
+     *          The edit to check
+     * @return True if the edit can be coalesced into this one, otherwise false
+     */
+    public boolean canCoalesce(UndoableEdit edit) {
+      if (!this.isInProgress() || this.type == null || this.wordEnded || !isSingleCharacter(edit)) {
+        return false;
+      }
+      DocumentEvent event = (DocumentEvent) edit;
+      if (event.getType() != this.type) {
+        return false;
+      }
+      // Typing continues directly after the last character
+      if (this.type == DocumentEvent.EventType.INSERT) {
+        return event.getOffset() == this.offset + 1;
+      }
+      // Backspace moves one character back, delete stays where it is
+      return event.getOffset() == this.offset - 1 || event.getOffset() == this.offset;
+    }
+
+    /**
+     * Remember where a coalescable edit happened so the next one can be compared against it
+     *
+     * @param edit
+     *          The edit that was just added to this run
+     */
+    public void track(UndoableEdit edit) {
+      if (!isSingleCharacter(edit)) {
+        this.type = null;
+        return;
+      }
+      DocumentEvent event = (DocumentEvent) edit;
+      this.type = event.getType();
+      this.offset = event.getOffset();
+      // A typed whitespace character finishes the current word
+      if (this.type == DocumentEvent.EventType.INSERT) {
+        try {
+          String text = event.getDocument().getText(event.getOffset(), 1);
+          this.wordEnded = Character.isWhitespace(text.charAt(0));
+        }
+        catch (BadLocationException e) {
+          this.wordEnded = true;
+        }
+      }
+    }
+  }
+
+  /** Serialisation identifier */
+  private static final long serialVersionUID   = 4012580893628114725L;
+
+  /** The default maximum number of word edits that are remembered */
+  public static final int   DEFAULT_LIMIT      = 500;
+
+  /** The default maximum number of bytes of text that the history can hold */
+  public static final long  DEFAULT_BYTE_LIMIT = 1024 * 1024;
+
+  /** The maximum number of bytes the history can hold before the oldest edits are discarded */
+  private long              byteLimit;
+
+  /** The approximate number of bytes currently held by the history */
+  private long              byteSize;
+
+  /** The word edit that is currently being added to, null if no word is in progress */
+  private WordEdit          current;
+
+  /** The document whose edits are recorded by this manager. Edits can only ever be undone against this document */
+  private Document          document;
+
+  /**
+   * Create a new undo manager with the default limits
+   */
+  public SnippetUndoManager() {
+    this(DEFAULT_LIMIT, DEFAULT_BYTE_LIMIT);
+  }
+
+  /**
+   * Create a new undo manager with specified limits
+   *
+   * @param limit
+   *          The maximum number of word edits to remember
+   * @param byteLimit
+   *          The maximum number of bytes of text the history can hold
+   * @throws IllegalArgumentException
+   *           If either limit is not positive
+   */
+  public SnippetUndoManager(int limit, long byteLimit) {
+    super();
+    if (limit <= 0 || byteLimit <= 0) {
+      throw new IllegalArgumentException("Undo limits must be positive");
+    }
+    this.setLimit(limit);
+    this.byteLimit = byteLimit;
+    this.byteSize = 0;
+    this.current = null;
+    this.document = null;
+  }
+
+  /**
+   * Add an edit to the history. Style changes are ignored and single character edits are coalesced into the current word where
+   * possible
+   *
+   * @param anEdit
+   *          The edit to add
+   * @return True if the edit was recorded, otherwise false
+   *
+   * @see javax.swing.undo.UndoManager#addEdit(javax.swing.undo.UndoableEdit)
+   */
+  @Override
+  public synchronized boolean addEdit(UndoableEdit anEdit) {
+    // Changes in style only are made by the highlighter and are never worth undoing
+    if (isStyleChange(anEdit)) {
+      return false;
+    }
+
+    long size = sizeOf(anEdit);
+
+    // Continue the current word if the edit follows on from it
+    if (this.current != null && this.current.canCoalesce(anEdit)) {
+      this.current.addEdit(anEdit);
+      this.current.track(anEdit);
+      this.current.size += size;
+      this.byteSize += size;
+      this.trimForByteLimit();
+      return true;
+    }
+
+    // Otherwise finish the current word and start a new one
+    this.endWord();
+    WordEdit word = new WordEdit();
+    word.addEdit(anEdit);
+    word.track(anEdit);
+    word.size = size;
+
+    boolean added = super.addEdit(word);
+    if (added) {
+      this.current = word;
+      this.byteSize += size;
+      this.trimForByteLimit();
+    }
+    return added;
+  }
+
+  /**
+   * Determine whether or not a redo operation can be made
+   *
+   * @return True if a redo can be made, otherwise false
+   *
+   * @see javax.swing.undo.UndoManager#canRedo()
+   */
+  @Override
+  public synchronized boolean canRedo() {
+    // Nothing can be redone while a word is still being typed
+    return this.current == null && super.canRedo();
+  }
+
+  /**
+   * Determine whether or not an undo operation can be made
+   *
+   * @return True if an undo can be made, otherwise false
+   *
+   * @see javax.swing.undo.UndoManager#canUndo()
+   */
+  @Override
+  public synchronized boolean canUndo() {
+    // A word that is still being typed can always be undone
+    return this.current != null || super.canUndo();
+  }
+
+  /**
+   * Remove all edits from the history
+   *
+   * @see javax.swing.undo.UndoManager#discardAllEdits()
+   */
+  @Override
+  public synchronized void discardAllEdits() {
+    this.endWord();
+    super.discardAllEdits();
+    this.byteSize = 0;
+  }
+
+  /**
+   * Finish the word that is currently being typed so that the next edit starts a new one
+   */
+  public synchronized void endWord() {
+    if (this.current != null) {
+      this.current.end();
+      this.current = null;
+    }
+  }
+
+  /**
+   * Get the maximum number of bytes of text the history can hold
+   *
+   * @return The maximum number of bytes of text the history can hold
+   */
+  public synchronized long getByteLimit() {
+    return this.byteLimit;
+  }
+
+  /**
+   * Get the approximate number of bytes of text currently held by the history
+   *
+   * @return The approximate number of bytes currently held
+   */
+  public synchronized long getByteSize() {
+    return this.byteSize;
+  }
+
+  /**
+   * Get the document whose edits are recorded by this manager
+   *
+   * @return The document this history belongs to, null if it has not been bound to one
+   */
+  public synchronized Document getDocument() {
+    return this.document;
+  }
+
+  /**
+   * Get the number of word edits currently held by the history
+   *
+   * @return The number of edits in the history
+   */
+  public synchronized int getEditCount() {
+    return this.edits.size();
+  }
+
+  /**
+   * Redo the last undone word
+   *
+   * @see javax.swing.undo.UndoManager#redo()
+   */
+  @Override
+  public synchronized void redo() {
+    this.endWord();
+    super.redo();
+  }
+
+  /**
+   * Set the maximum number of bytes of text the history can hold. The oldest edits are discarded immediately if the history is now
+   * too large
+   *
+   * @param byteLimit
+   *          The new maximum number of bytes
+   * @throws IllegalArgumentException
+   *           If the limit is not positive
+   */
+  public synchronized void setByteLimit(long byteLimit) {
+    if (byteLimit <= 0) {
+      throw new IllegalArgumentException("Byte limit must be positive");
+    }
+    this.byteLimit = byteLimit;
+    this.trimForByteLimit();
+  }
+
+  /**
+   * Bind this history to a document. As edits can only be undone against the document they were made in, the history is discarded
+   * if the document is different to the current one
+   *
+   * @param document
+   *          The document whose edits will be recorded
+   */
+  public synchronized void setDocument(Document document) {
+    if (this.document != document) {
+      this.discardAllEdits();
+      this.document = document;
+    }
+  }
+
+  /**
+   * Discard the oldest edits until the history fits inside the byte limit. The most recent edit is always kept so the last change
+   * can be undone no matter how large it is
+   */
+  private void trimForByteLimit() {
+    while (this.byteSize > this.byteLimit && this.edits.size() > 1 && this.editToBeUndone() != null) {
+      this.trimEdits(0, 0);
+    }
+  }
+
+  /**
+   * Remove edits from the history, keeping the byte count up to date
+   *
+   * @param from
+   *          The index of the first edit to remove
+   * @param to
+   *          The index of the last edit to remove
+   *
+   * @see javax.swing.undo.UndoManager#trimEdits(int, int)
+   */
+  @Override
+  protected void trimEdits(int from, int to) {
+    for (int i = from; i <= to && i < this.edits.size(); i++) {
+      UndoableEdit edit = this.edits.get(i);
+      if (edit instanceof WordEdit) {
+        this.byteSize -= ((WordEdit) edit).size;
+      }
+      if (edit == this.current) {
+        this.current = null;
+      }
+    }
+    super.trimEdits(from, to);
+  }
+
+  /**
+   * Undo the last word
+   *
+   * @see javax.swing.undo.UndoManager#undo()
+   */
+  @Override
+  public synchronized void undo() {
+    this.endWord();
+    super.undo();
+  }
+
+  /**
+   * Called when an undoable edit happens in a document that is being listened to
+   *
+   * @param e
+   *          Event information
+   *
+   * @see javax.swing.undo.UndoManager#undoableEditHappened(javax.swing.event.UndoableEditEvent)
+   */
+  @Override
+  public void undoableEditHappened(UndoableEditEvent e) {
+    this.addEdit(e.getEdit());
+  }
+
+  /**
+   * Determine whether an edit is a single character insertion or removal
+   *
+   * @param edit
+   *          The edit to check
+   * @return True if the edit inserts or removes exactly one character
+   */
+  private static boolean isSingleCharacter(UndoableEdit edit) {
+    if (!(edit instanceof DocumentEvent)) {
+      return false;
+    }
+    DocumentEvent event = (DocumentEvent) edit;
+    return event.getLength() == 1 && event.getType() != DocumentEvent.EventType.CHANGE;
+  }
+
+  /**
+   * Determine whether an edit only changes the style of the text in a document
+   *
+   * @param edit
+   *          The edit to check
+   * @return True if the edit only changes attributes
+   */
+  private static boolean isStyleChange(UndoableEdit edit) {
+    return edit instanceof AbstractDocument.DefaultDocumentEvent
+        && ((AbstractDocument.DefaultDocumentEvent) edit).getType() == DocumentEvent.EventType.CHANGE;
+  }
+
+  /**
+   * Get the approximate number of bytes of text an edit holds on to
+   *
+   * @param edit
+   *          The edit to measure
+   * @return The approximate size of the edit in bytes
+   */
+  private static long sizeOf(UndoableEdit edit) {
+    if (edit instanceof DocumentEvent) {
+      // Each character is held as a two byte char
+      return ((DocumentEvent) edit).getLength() * 2L;
+    }
+    return 0;
+  }
+}
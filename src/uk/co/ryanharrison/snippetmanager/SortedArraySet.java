@@ -0,0 +1,570 @@
+/**
+ * SortedArraySet.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.ConcurrentModificationException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.SortedSet;
+
+/**
+ * A sorted set of elements held in their natural order in a single array. Compared to a TreeSet, there is no node per element and
+ * the elements are next to each other in memory, so iterating the set is a linear scan and lookups are a binary search over the
+ * array.
+ * <p>
+ * New elements are not inserted into the array straight away, as that would mean shifting the rest of the array on every add.
+ * Instead they are kept in a small sorted buffer that is merged into the array in one pass once it fills up or the set is iterated,
+ * so adding many elements at once costs a merge rather than a shift per element. This makes the set best suited to collections that
+ * are read much more often than they are changed.
+ * <p>
+ * The subSet, headSet and tailSet methods return copies of the requested range rather than views backed by this set. Like TreeSet,
+ * this set is not safe to use from several threads at once.
+ *
+ * @author Ryan Harrison
+ *
+ * @param <E>
+ *          The type of element held in the set
+ */
+public class SortedArraySet<E extends Comparable<? super E>> extends AbstractSet<E> implements SortedSet<E> {
+
+  /**
+   * An iterator over the array of a SortedArraySet
+   *
+   * @author Ryan Harrison
+   */
+  private class ArrayIterator implements Iterator<E> {
+
+    /** The index of the next element to return */
+    private int cursor;
+
+    /** The index of the last element returned, -1 if there isn't one or it has been removed */
+    private int last;
+
+    /** The modification count of the set this iterator expects */
+    private int expectedModCount;
+
+    /**
+     * Create a new iterator over the set, merging any buffered elements into the array first
+     */
+    public ArrayIterator() {
+      super();
+      SortedArraySet.this.merge();
+      this.cursor = 0;
+      this.last = -1;
+      this.expectedModCount = SortedArraySet.this.modCount;
+    }
+
+    /**
+     * Determine whether there are any more elements to return
+     *
+     * @return True if there are more elements, otherwise false
+     *
+     * @see java.util.Iterator#hasNext()
+     */
+    @Override
+    public boolean hasNext() {
+      return this.cursor < SortedArraySet.this.size;
+    }
+
+    /**
+     * Get the next element in the set
+     *
+     * @return The next element in the set
+     *
+     * @see java.util.Iterator#next()
+     */
+    @Override
+    public E next() {
+      this.checkForComodification();
+      if (this.cursor >= SortedArraySet.this.size) {
+        throw new NoSuchElementException();
+      }
+      this.last = this.cursor++;
+      return SortedArraySet.this.elementAt(this.last);
+    }
+
+    /**
+     * Remove the last element returned from the set
+     *
+     * @see java.util.Iterator#remove()
+     */
+    @Override
+    public void remove() {
+      if (this.last < 0) {
+        throw new IllegalStateException();
+      }
+      this.checkForComodification();
+      SortedArraySet.this.removeAt(this.last);
+      this.cursor = this.last;
+      this.last = -1;
+      this.expectedModCount = SortedArraySet.this.modCount;
+    }
+
+    /**
+     * Check that the set has not been changed other than through this iterator
+     *
+     * @throws ConcurrentModificationException
+     *           If the set has been changed
+     */
+    private void checkForComodification() {
+      if (SortedArraySet.this.modCount != this.expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+  /** The smallest number of new elements that are buffered before being merged into the array */
+  private static final int MIN_BUFFER = 16;
+
+  /** The elements of the set in their natural order. Only the first size entries are used */
+  private Object[]         elements;
+
+  /** The number of elements in the array */
+  private int              size;
+
+  /** Elements that have been added but not yet merged into the array, in their natural order */
+  private Object[]         buffer;
+
+  /** The number of elements in the buffer */
+  private int              buffered;
+
+  /** The number of times the set has been changed, used to detect changes during iteration */
+  private int              modCount;
+
+  /**
+   * Create a new, empty set
+   */
+  public SortedArraySet() {
+    super();
+    this.elements = new Object[0];
+    this.size = 0;
+    this.buffer = new Object[MIN_BUFFER];
+    this.buffered = 0;
+    this.modCount = 0;
+  }
+
+  /**
+   * Create a new set holding the elements of a collection
+   *
+   * @param c
+   *          The collection whose elements are placed in the set
+   */
+  public SortedArraySet(Collection<? extends E> c) {
+    this();
+    this.addAll(c);
+  }
+
+  /**
+   * Add an element to the set. The element is buffered and merged into the array later
+   *
+   * @param e
+   *          The element to add
+   * @return True if the element was added, false if it was already in the set
+   * @throws NullPointerException
+   *           If the element is null
+   *
+   * @see java.util.AbstractCollection#add(java.lang.Object)
+   */
+  @Override
+  public boolean add(E e) {
+    if (e == null) {
+      throw new NullPointerException("Element cannot be null");
+    }
+    if (search(this.elements, this.size, e) >= 0) {
+      return false;
+    }
+    int index = search(this.buffer, this.buffered, e);
+    if (index >= 0) {
+      return false;
+    }
+
+    // Merge first if the buffer is full, so that it never grows beyond a small fraction of the set
+    if (this.buffered == this.buffer.length) {
+      this.merge();
+      index = -1;
+    }
+    index = -(index + 1);
+    System.arraycopy(this.buffer, index, this.buffer, index + 1, this.buffered - index);
+    this.buffer[index] = e;
+    this.buffered++;
+    this.modCount++;
+    return true;
+  }
+
+  /**
+   * Add every element of a collection to the set. Elements are added to the buffer and merged into the array in a single pass
+   *
+   * @param c
+   *          The collection of elements to add
+   * @return True if the set changed as a result
+   *
+   * @see java.util.AbstractCollection#addAll(java.util.Collection)
+   */
+  @Override
+  public boolean addAll(Collection<? extends E> c) {
+    // Large collections are sorted and merged in one go rather than passing through the buffer
+    if (c.size() > this.buffer.length) {
+      Object[] added = c.toArray();
+      for (Object o : added) {
+        if (o == null) {
+          throw new NullPointerException("Element cannot be null");
+        }
+      }
+      if (!(c instanceof SortedSet && ((SortedSet<?>) c).comparator() == null)) {
+        Arrays.sort(added);
+      }
+      this.merge();
+      int before = this.size;
+      this.mergeIntoArray(added, added.length);
+      return this.size != before;
+    }
+    return super.addAll(c);
+  }
+
+  /**
+   * Remove every element from the set
+   *
+   * @see java.util.AbstractCollection#clear()
+   */
+  @Override
+  public void clear() {
+    this.elements = new Object[0];
+    this.size = 0;
+    Arrays.fill(this.buffer, 0, this.buffered, null);
+    this.buffered = 0;
+    this.modCount++;
+  }
+
+  /**
+   * Get the comparator used to order the set. This set always uses the natural order of its elements
+   *
+   * @return null, as the natural ordering is used
+   *
+   * @see java.util.SortedSet#comparator()
+   */
+  @Override
+  public Comparator<? super E> comparator() {
+    return null;
+  }
+
+  /**
+   * Determine whether an element is in the set
+   *
+   * @param o
+   *          The element to look for
+   * @return True if the element is in the set, otherwise false
+   *
+   * @see java.util.AbstractCollection#contains(java.lang.Object)
+   */
+  @Override
+  public boolean contains(Object o) {
+    if (o == null) {
+      return false;
+    }
+    return search(this.elements, this.size, o) >= 0 || search(this.buffer, this.buffered, o) >= 0;
+  }
+
+  /**
+   * Get the element at an index of the array
+   *
+   * @param index
+   *          The index of the element
+   * @return The element at the index
+   */
+  @SuppressWarnings("unchecked")
+  private E elementAt(int index) {
+    return (E) this.elements[index];
+  }
+
+  /**
+   * Get the first (lowest) element in the set
+   *
+   * @return The first element in the set
+   * @throws NoSuchElementException
+   *           If the set is empty
+   *
+   * @see java.util.SortedSet#first()
+   */
+  @Override
+  public E first() {
+    this.merge();
+    if (this.size == 0) {
+      throw new NoSuchElementException();
+    }
+    return this.elementAt(0);
+  }
+
+  /**
+   * Get a copy of the elements of the set that are strictly less than an element
+   *
+   * @param toElement
+   *          The high endpoint (exclusive) of the copy
+   * @return A new set holding the elements less than toElement
+   *
+   * @see java.util.SortedSet#headSet(java.lang.Object)
+   */
+  @Override
+  public SortedSet<E> headSet(E toElement) {
+    this.merge();
+    return this.copyOfRange(0, insertionPoint(this.elements, this.size, toElement));
+  }
+
+  /**
+   * Get an iterator over the elements of the set in ascending order
+   *
+   * @return An iterator over the set
+   *
+   * @see java.util.AbstractCollection#iterator()
+   */
+  @Override
+  public Iterator<E> iterator() {
+    return new ArrayIterator();
+  }
+
+  /**
+   * Get the last (highest) element in the set
+   *
+   * @return The last element in the set
+   * @throws NoSuchElementException
+   *           If the set is empty
+   *
+   * @see java.util.SortedSet#last()
+   */
+  @Override
+  public E last() {
+    this.merge();
+    if (this.size == 0) {
+      throw new NoSuchElementException();
+    }
+    return this.elementAt(this.size - 1);
+  }
+
+  /**
+   * Merge the buffered elements into the array
+   */
+  private void merge() {
+    if (this.buffered == 0) {
+      return;
+    }
+    this.mergeIntoArray(this.buffer, this.buffered);
+    Arrays.fill(this.buffer, 0, this.buffered, null);
+    this.buffered = 0;
+    // Let the buffer grow with the set so the number of merges stays small compared to the number of adds
+    int capacity = Math.max(MIN_BUFFER, (int) Math.sqrt(this.size));
+    if (capacity > this.buffer.length) {
+      this.buffer = new Object[capacity];
+    }
+  }
+
+  /**
+   * Merge a sorted run of elements into the array in a single pass, skipping any that are already present
+   *
+   * @param added
+   *          The sorted elements to merge
+   * @param count
+   *          The number of elements of added to merge
+   */
+  @SuppressWarnings("unchecked")
+  private void mergeIntoArray(Object[] added, int count) {
+    Object[] merged = new Object[this.size + count];
+    int i = 0, j = 0, k = 0;
+    while (i < this.size || j < count) {
+      Object next;
+      if (j == count) {
+        next = this.elements[i++];
+      }
+      else if (i == this.size) {
+        next = added[j++];
+      }
+      else {
+        int cmp = ((Comparable<Object>) this.elements[i]).compareTo(added[j]);
+        if (cmp <= 0) {
+          next = this.elements[i++];
+        }
+        else {
+          next = added[j++];
+        }
+      }
+      // Elements of the array come first among equals, so any later equal elements are duplicates to skip
+      if (k == 0 || ((Comparable<Object>) merged[k - 1]).compareTo(next) != 0) {
+        merged[k++] = next;
+      }
+    }
+    this.elements = k == merged.length ? merged : Arrays.copyOf(merged, k);
+    this.size = k;
+    this.modCount++;
+  }
+
+  /**
+   * Remove an element from the set
+   *
+   * @param o
+   *          The element to remove
+   * @return True if the element was in the set, otherwise false
+   *
+   * @see java.util.AbstractCollection#remove(java.lang.Object)
+   */
+  @Override
+  public boolean remove(Object o) {
+    if (o == null) {
+      return false;
+    }
+    int index = search(this.buffer, this.buffered, o);
+    if (index >= 0) {
+      System.arraycopy(this.buffer, index + 1, this.buffer, index, this.buffered - index - 1);
+      this.buffer[--this.buffered] = null;
+      this.modCount++;
+      return true;
+    }
+    index = search(this.elements, this.size, o);
+    if (index >= 0) {
+      this.removeAt(index);
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Remove the element at an index of the array
+   *
+   * @param index
+   *          The index of the element to remove
+   */
+  private void removeAt(int index) {
+    System.arraycopy(this.elements, index + 1, this.elements, index, this.size - index - 1);
+    this.elements[--this.size] = null;
+    this.modCount++;
+  }
+
+  /**
+   * Remove every element of a collection from the set. The array is compacted in a single pass rather than shifted once per
+   * removed element
+   *
+   * @param c
+   *          The collection of elements to remove
+   * @return True if the set changed as a result
+   *
+   * @see java.util.AbstractSet#removeAll(java.util.Collection)
+   */
+  @Override
+  public boolean removeAll(Collection<?> c) {
+    this.merge();
+    int k = 0;
+    for (int i = 0; i < this.size; i++) {
+      if (!c.contains(this.elements[i])) {
+        this.elements[k++] = this.elements[i];
+      }
+    }
+    if (k == this.size) {
+      return false;
+    }
+    Arrays.fill(this.elements, k, this.size, null);
+    this.size = k;
+    this.modCount++;
+    return true;
+  }
+
+  /**
+   * Get the number of elements in the set
+   *
+   * @return The number of elements in the set
+   *
+   * @see java.util.AbstractCollection#size()
+   */
+  @Override
+  public int size() {
+    // An element is never in both the array and the buffer
+    return this.size + this.buffered;
+  }
+
+  /**
+   * Get a copy of the elements of the set from fromElement (inclusive) to toElement (exclusive)
+   *
+   * @param fromElement
+   *          The low endpoint (inclusive) of the copy
+   * @param toElement
+   *          The high endpoint (exclusive) of the copy
+   * @return A new set holding the elements in the range
+   * @throws IllegalArgumentException
+   *           If fromElement is greater than toElement
+   *
+   * @see java.util.SortedSet#subSet(java.lang.Object, java.lang.Object)
+   */
+  @Override
+  public SortedSet<E> subSet(E fromElement, E toElement) {
+    if (fromElement.compareTo(toElement) > 0) {
+      throw new IllegalArgumentException("fromElement is greater than toElement");
+    }
+    this.merge();
+    return this.copyOfRange(insertionPoint(this.elements, this.size, fromElement),
+        insertionPoint(this.elements, this.size, toElement));
+  }
+
+  /**
+   * Get a copy of the elements of the set that are greater than or equal to an element
+   *
+   * @param fromElement
+   *          The low endpoint (inclusive) of the copy
+   * @return A new set holding the elements greater than or equal to fromElement
+   *
+   * @see java.util.SortedSet#tailSet(java.lang.Object)
+   */
+  @Override
+  public SortedSet<E> tailSet(E fromElement) {
+    this.merge();
+    return this.copyOfRange(insertionPoint(this.elements, this.size, fromElement), this.size);
+  }
+
+  /**
+   * Get a new set holding a range of the array
+   *
+   * @param from
+   *          The first index of the range (inclusive)
+   * @param to
+   *          The last index of the range (exclusive)
+   * @return A new set holding the elements in the range
+   */
+  private SortedSet<E> copyOfRange(int from, int to) {
+    SortedArraySet<E> copy = new SortedArraySet<E>();
+    copy.elements = Arrays.copyOfRange(this.elements, from, to);
+    copy.size = to - from;
+    return copy;
+  }
+
+  /**
+   * Get the index of the first element in a sorted array that is greater than or equal to a key
+   *
+   * @param array
+   *          The sorted array to search
+   * @param length
+   *          The number of elements of the array in use
+   * @param key
+   *          The key to search for
+   * @return The index of the first element not less than key, or length if there isn't one
+   */
+  private static int insertionPoint(Object[] array, int length, Object key) {
+    int index = search(array, length, key);
+    return index >= 0 ? index : -(index + 1);
+  }
+
+  /**
+   * Binary search a sorted array for a key
+   *
+   * @param array
+   *          The sorted array to search
+   * @param length
+   *          The number of elements of the array in use
+   * @param key
+   *          The key to search for
+   * @return The index of the key if it is found, otherwise (-(insertion point) - 1)
+   */
+  private static int search(Object[] array, int length, Object key) {
+    return Arrays.binarySearch(array, 0, length, key);
+  }
+}
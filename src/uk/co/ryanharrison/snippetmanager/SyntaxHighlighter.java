@@ -5,9 +5,11 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
 import javax.swing.text.Element;
 import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.StyleConstants;
+import javax.swing.text.StyledDocument;
 import javax.swing.text.Utilities;
 
 /**
@@ -18,11 +20,23 @@ import javax.swing.text.Utilities;
  */
 public class SyntaxHighlighter {
 
+  /** The document property recording which highlighter the whole document was last highlighted with */
+  public static final String           HIGHLIGHTED_PROPERTY = "highlightedWith";
+
+  /** Times highlighting the whole of a document */
+  private static final LatencyRecorder HIGHLIGHT_LATENCY    = Metrics.getInstance().getRecorder("highlight");
+
   /** The regular expression pattern to use when matching keywords in the text */
-  private Pattern            pattern;
+  private Pattern                      pattern;
+
+  /** A key identifying the language and colour used by this highlighter */
+  private String                       key;
+
+  /** The language whose keywords are highlighted */
+  private Language                     language;
 
-  private SimpleAttributeSet highlighter = new SimpleAttributeSet();
-  private SimpleAttributeSet black       = new SimpleAttributeSet();
+  private SimpleAttributeSet           highlighter          = new SimpleAttributeSet();
+  private SimpleAttributeSet           black                = new SimpleAttributeSet();
 
   /**
    * Initialise a new SyntaxHighlighter object with the language to highlight
@@ -33,10 +47,13 @@ public class SyntaxHighlighter {
   public SyntaxHighlighter(Language language) {
     super();
     this.pattern = language.getRegex();
+    this.language = language;
 
     // Get the colour to highlight to from the preferences singleton
-    StyleConstants.setForeground(this.highlighter, Preferences.getInstance().getHighlightColour());
+    Color colour = Preferences.getInstance().getHighlightColour();
+    StyleConstants.setForeground(this.highlighter, colour);
     StyleConstants.setForeground(this.black, Color.BLACK);
+    this.key = language.name() + ":" + colour.getRGB();
   }
 
   /**
@@ -50,6 +67,47 @@ public class SyntaxHighlighter {
     return this.pattern.matcher(text.replace("\r\n", "\r").replace("\n", "\r"));
   }
 
+  /**
+   * Highlight every keyword found throughout the whole of a document. The attributes are applied to the document directly, so this
+   * can be used to prepare a document before it is shown in a text pane
+   * 
+   * @param doc
+   *          The document to highlight the keywords in the text of
+   */
+  public void highlightAll(StyledDocument doc) {
+    HighlightEvent event = new HighlightEvent();
+    event.begin();
+    long start = HIGHLIGHT_LATENCY.start();
+    try {
+      String text;
+      try {
+        text = doc.getText(0, doc.getLength());
+      }
+      catch (BadLocationException e) {
+        e.printStackTrace();
+        return;
+      }
+
+      // Set all the text to black initially
+      doc.setCharacterAttributes(0, text.length(), this.black, true);
+
+      // Loop through each match, highlighting the keyword using the colour
+      Matcher matcher = this.getMatcherFrom(text);
+      int keywords = 0;
+      while (matcher.find()) {
+        doc.setCharacterAttributes(matcher.start(), matcher.end() - matcher.start(), this.highlighter, true);
+        keywords++;
+      }
+
+      // Remember that the document is fully highlighted so that it does not need to be done again when it is next shown
+      doc.putProperty(HIGHLIGHTED_PROPERTY, this.key);
+      event.finish(this.language.name(), text, keywords);
+    }
+    finally {
+      HIGHLIGHT_LATENCY.stop(start);
+    }
+  }
+
   /**
    * Highlight every keyword fond throughout the whole document in the pane
    * 
@@ -57,33 +115,23 @@ public class SyntaxHighlighter {
    *          The textpane to highlight the keywords in the text of
    */
   public void highlightAll(SnippetTextPane pane) {
-    // Set all the text to black initially
-    int caret = pane.getCaretPosition();
-    pane.select(0, pane.getText().length());
-    pane.setCharacterAttributes(this.black, true);
-    pane.setCaretPosition(caret);
+    this.highlightAll(pane.getStyledDocument());
 
-    // Highlight every valid keyword
-    Matcher matcher = this.getMatcherFrom(pane.getText());
-    caret = pane.getCaretPosition();
-
-    // Loop through each match
-    while (matcher.find()) {
-      // Get the indexes
-      int begin = matcher.start();
-      int end = matcher.end();
-
-      // Select the keyword
-      pane.select(begin, end);
-
-      // Highlight the keyword using the colour
-      pane.setCharacterAttributes(this.highlighter, true);
-    }
-    // Reset the caret position and colour to type in afterwards
-    pane.setCaretPosition(caret);
+    // Reset the colour to type in afterwards
     pane.setCharacterAttributes(this.black, true);
   }
 
+  /**
+   * Determine whether a whole document has already been highlighted by a highlighter using the same language and colour as this one
+   * 
+   * @param doc
+   *          The document to check
+   * @return True if the document does not need to be highlighted again, otherwise false
+   */
+  public boolean isHighlighted(Document doc) {
+    return this.key.equals(doc.getProperty(HIGHLIGHTED_PROPERTY));
+  }
+
   /**
    * Highlight the keywords in the current line (where the users cursor currently is) of a textpane
    * 
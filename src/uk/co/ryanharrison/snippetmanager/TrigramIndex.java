@@ -0,0 +1,289 @@
+/**
+ * TrigramIndex.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+
+/**
+ * An index from each run of three characters to the snippets whose bodies contain it, used to narrow down the snippets a regular
+ * expression needs to be run against. The literals that every match of a pattern must contain are found, and only snippets whose
+ * bodies contain every trigram of those literals can match. For a selective pattern this leaves a handful of candidates out of the
+ * whole library, found by intersecting a few posting lists, rather than running the pattern over every body.
+ * <p>
+ * Bodies are indexed in lower case, so the same index serves patterns whether or not they ignore case. Each posting list is a sorted
+ * array of slot numbers, which stays compact for the many trigrams that only appear in a few snippets. The trigrams of a snippet are
+ * found again when it is removed, so a snippet must not change while it is indexed.
+ *
+ * @author Ryan Harrison
+ *
+ * @see uk.co.ryanharrison.snippetmanager.RegexLiterals
+ */
+public class TrigramIndex extends SnippetIndex<Set<Long>> {
+
+  /**
+   * A sorted list of the slots of the snippets containing a trigram. Lists compare by length, so that intersections can start from
+   * the most selective trigram
+   */
+  private static class Posting implements Comparable<Posting> {
+
+    /** The slots in ascending order */
+    private int[] slots;
+
+    /** The number of slots in the list */
+    private int   size;
+
+    /**
+     * Create a new, empty posting list
+     */
+    public Posting() {
+      super();
+      this.slots = new int[2];
+    }
+
+    /**
+     * Add a slot to the list, keeping it sorted. Slots are normally added in ascending order, so this is usually an append
+     *
+     * @param slot
+     *          The slot to add
+     */
+    public void add(int slot) {
+      int index = this.size;
+      if (index > 0 && this.slots[index - 1] >= slot) {
+        index = Arrays.binarySearch(this.slots, 0, this.size, slot);
+        if (index >= 0) {
+          return;
+        }
+        index = -index - 1;
+      }
+      if (this.size == this.slots.length) {
+        this.slots = Arrays.copyOf(this.slots, this.size * 2);
+      }
+      System.arraycopy(this.slots, index, this.slots, index + 1, this.size - index);
+      this.slots[index] = slot;
+      this.size++;
+    }
+
+    /**
+     * Compare the length of this list with another
+     *
+     * @param o
+     *          The other list
+     * @return A negative number if this list is shorter, a positive number if it is longer, otherwise zero
+     *
+     * @see java.lang.Comparable#compareTo(java.lang.Object)
+     */
+    @Override
+    public int compareTo(Posting o) {
+      return this.size - o.size;
+    }
+
+    /**
+     * Remove a slot from the list
+     *
+     * @param slot
+     *          The slot to remove
+     */
+    public void remove(int slot) {
+      int index = Arrays.binarySearch(this.slots, 0, this.size, slot);
+      if (index >= 0) {
+        System.arraycopy(this.slots, index + 1, this.slots, index, this.size - index - 1);
+        this.size--;
+      }
+    }
+  }
+
+  /** The posting list of each trigram, keyed by the three characters packed into a long */
+  private Map<Long, Posting> postings;
+
+  /**
+   * Create a new, empty trigram index
+   */
+  public TrigramIndex() {
+    super();
+    this.postings = new HashMap<Long, Posting>();
+  }
+
+  /**
+   * Add the slot of a snippet to the posting list of each trigram of its body
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param trigrams
+   *          The trigrams of the body of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#added(int, java.lang.Object)
+   */
+  @Override
+  protected void added(int slot, Set<Long> trigrams) {
+    for (Long trigram : trigrams) {
+      Posting posting = this.postings.get(trigram);
+      if (posting == null) {
+        posting = new Posting();
+        this.postings.put(trigram, posting);
+      }
+      posting.add(slot);
+    }
+  }
+
+  /**
+   * Get the trigrams of the body of a snippet
+   *
+   * @param snippet
+   *          The snippet
+   * @return The distinct trigrams of its body in lower case
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#analyse(uk.co.ryanharrison.snippetmanager.Snippet)
+   */
+  @Override
+  protected Set<Long> analyse(Snippet snippet) {
+    return getTrigrams(snippet.getSnippet());
+  }
+
+  /**
+   * Forget the posting list of every trigram
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#cleared()
+   */
+  @Override
+  protected void cleared() {
+    this.postings.clear();
+  }
+
+  /**
+   * Find the snippets whose bodies could match a pattern. Every snippet whose body matches the pattern is among the candidates, but
+   * not every candidate will match, so the pattern still needs to be run against each of them
+   *
+   * @param pattern
+   *          The pattern to find candidates for
+   * @return The candidate snippets in no particular order, or null if nothing could be learned from the pattern and every snippet
+   *         is a candidate
+   */
+  public List<Snippet> getCandidates(Pattern pattern) {
+    List<List<String>> alternatives = RegexLiterals.extract(pattern);
+    if (alternatives == null) {
+      return null;
+    }
+    List<Set<Long>> required = new ArrayList<Set<Long>>(alternatives.size());
+    for (List<String> literals : alternatives) {
+      Set<Long> trigrams = new HashSet<Long>();
+      for (String literal : literals) {
+        trigrams.addAll(getTrigrams(literal));
+      }
+      // An alternative whose literals are all too short to have trigrams could match any snippet
+      if (trigrams.isEmpty()) {
+        return null;
+      }
+      required.add(trigrams);
+    }
+    Lock lock = this.readLock();
+    lock.lock();
+    try {
+      BitSet candidates = new BitSet();
+      for (Set<Long> trigrams : required) {
+        this.matchAll(trigrams, candidates);
+      }
+      return this.toSnippets(candidates);
+    }
+    finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Get the distinct trigrams of some text in lower case, each packed into a long
+   *
+   * @param text
+   *          The text, may be null
+   * @return The distinct trigrams of the text
+   */
+  private static Set<Long> getTrigrams(String text) {
+    Set<Long> trigrams = new HashSet<Long>();
+    if (text == null) {
+      return trigrams;
+    }
+    long trigram = 0;
+    for (int i = 0; i < text.length(); i++) {
+      // Shift the next character in, keeping the last three
+      trigram = (trigram << 16 | Character.toLowerCase(text.charAt(i))) & 0xFFFFFFFFFFFFL;
+      if (i >= 2) {
+        trigrams.add(trigram);
+      }
+    }
+    return trigrams;
+  }
+
+  /**
+   * Add the slots of the snippets containing every one of some trigrams to a set of slots
+   *
+   * @param trigrams
+   *          The trigrams the snippets must contain
+   * @param result
+   *          The set of slots to add to
+   */
+  private void matchAll(Set<Long> trigrams, BitSet result) {
+    List<Posting> lists = new ArrayList<Posting>(trigrams.size());
+    for (Long trigram : trigrams) {
+      Posting posting = this.postings.get(trigram);
+      if (posting == null) {
+        return;
+      }
+      lists.add(posting);
+    }
+    Collections.sort(lists);
+
+    // Check each slot of the shortest list against the others, each of which is searched from where the last slot was found
+    Posting shortest = lists.get(0);
+    int[] starts = new int[lists.size()];
+    outer: for (int i = 0; i < shortest.size; i++) {
+      int slot = shortest.slots[i];
+      for (int j = 1; j < lists.size(); j++) {
+        Posting other = lists.get(j);
+        int index = Arrays.binarySearch(other.slots, starts[j], other.size, slot);
+        if (index < 0) {
+          starts[j] = -index - 1;
+          if (starts[j] == other.size) {
+            return;
+          }
+          continue outer;
+        }
+        starts[j] = index + 1;
+      }
+      result.set(slot);
+    }
+  }
+
+  /**
+   * Remove the slot of a snippet from the posting list of each trigram of its body, dropping lists that are left empty
+   *
+   * @param slot
+   *          The slot of the snippet
+   * @param trigrams
+   *          The trigrams of the body of the snippet
+   *
+   * @see uk.co.ryanharrison.snippetmanager.SnippetIndex#removed(int, java.lang.Object)
+   */
+  @Override
+  protected void removed(int slot, Set<Long> trigrams) {
+    for (Long trigram : trigrams) {
+      Posting posting = this.postings.get(trigram);
+      if (posting != null) {
+        posting.remove(slot);
+        if (posting.size == 0) {
+          this.postings.remove(trigram);
+        }
+      }
+    }
+  }
+}
@@ -0,0 +1,264 @@
+/**
+ * UndoHistoryCache.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Document;
+import javax.swing.text.StyledDocument;
+
+/**
+ * A cache of undo histories, one for each snippet that has been opened in the editor. This lets each snippet keep its own history
+ * when the user switches between snippets. The cache is limited by an approximate memory cap and whole histories are evicted in least
+ * recently used order when the cap is exceeded. As an undo history is only valid for the document it was recorded against, the size of
+ * each entry includes the text of its document.
+ * <p>
+ * The document of each history is also the document the snippet is shown in. It already holds the content of the snippet and has
+ * been highlighted for the snippet's language, so showing a recently viewed snippet only requires swapping its document into the text
+ * pane. Each document records the body of the snippet it holds, so that whether it is still current is found by comparing references
+ * rather than text. Whatever hands the text of a document back to its snippet must record the new body with markCurrent.
+ *
+ * @author Ryan Harrison
+ */
+public class UndoHistoryCache {
+
+  /** The document property recording which language the document was prepared for */
+  public static final String                      LANGUAGE_PROPERTY  = "snippetLanguage";
+
+  /** The document property recording the body of the snippet the document holds */
+  public static final String                      BODY_PROPERTY      = "snippetBody";
+
+  /** The default approximate number of bytes the cache can hold */
+  public static final long                        DEFAULT_BYTE_LIMIT = 16 * 1024 * 1024;
+
+  /** The undo histories of each snippet, keyed by snippet name. The map is kept in access order, least recently used first */
+  private LinkedHashMap<String, SnippetUndoManager> histories;
+
+  /** The approximate number of bytes the cache can hold before histories are evicted */
+  private long                                    byteLimit;
+
+  /**
+   * Create a new cache with the default memory cap
+   */
+  public UndoHistoryCache() {
+    this(DEFAULT_BYTE_LIMIT);
+  }
+
+  /**
+   * Create a new cache with a specified memory cap
+   *
+   * @param byteLimit
+   *          The approximate number of bytes the cache can hold
+   * @throws IllegalArgumentException
+   *           If the limit is not positive
+   */
+  public UndoHistoryCache(long byteLimit) {
+    super();
+    if (byteLimit <= 0) {
+      throw new IllegalArgumentException("Byte limit must be positive");
+    }
+    this.byteLimit = byteLimit;
+    this.histories = new LinkedHashMap<String, SnippetUndoManager>(16, 0.75f, true);
+  }
+
+  /**
+   * Remove all histories from the cache
+   */
+  public void clear() {
+    this.histories.clear();
+  }
+
+  /**
+   * Remove the oldest histories until the cache fits inside its memory cap. The most recently used history is never removed
+   */
+  private void evict() {
+    long size = this.getByteSize();
+    Iterator<Map.Entry<String, SnippetUndoManager>> iterator = this.histories.entrySet().iterator();
+    // Iterate from the least recently used history, leaving the most recent in place
+    while (size > this.byteLimit && this.histories.size() > 1 && iterator.hasNext()) {
+      size -= sizeOf(iterator.next().getValue());
+      iterator.remove();
+    }
+  }
+
+  /**
+   * Get the undo history of a snippet, marking it as recently used
+   *
+   * @param name
+   *          The name of the snippet
+   * @return The undo history of the snippet, null if the snippet has no cached history
+   */
+  public SnippetUndoManager get(String name) {
+    return this.histories.get(name);
+  }
+
+  /**
+   * Get the undo history of a snippet along with the document it belongs to, marking it as recently used. A cached history is
+   * returned if its document still matches the snippet, otherwise a new document is prepared and cached with a new history
+   *
+   * @param snippet
+   *          The snippet to get the history of
+   * @return The undo history of the snippet, whose document is highlighted and holds the content of the snippet
+   */
+  public SnippetUndoManager get(Snippet snippet) {
+    SnippetUndoManager history = this.histories.get(snippet.getName());
+    Document document = history == null ? null : history.getDocument();
+    if (document instanceof StyledDocument && isCurrent((StyledDocument) document, snippet)) {
+      return history;
+    }
+    history = new SnippetUndoManager();
+    history.setDocument(prepare(snippet));
+    this.put(snippet.getName(), history);
+    return history;
+  }
+
+  /**
+   * Get the approximate number of bytes the cache can hold
+   *
+   * @return The approximate number of bytes the cache can hold
+   */
+  public long getByteLimit() {
+    return this.byteLimit;
+  }
+
+  /**
+   * Get the approximate number of bytes currently held by all the histories in the cache
+   *
+   * @return The approximate number of bytes currently held
+   */
+  public long getByteSize() {
+    long size = 0;
+    for (SnippetUndoManager history : this.histories.values()) {
+      size += sizeOf(history);
+    }
+    return size;
+  }
+
+  /**
+   * Determine whether a document still matches the content and language of a snippet. The document matches if it was prepared for,
+   * or last marked as holding, the very body the snippet now has, and has not been edited to a different length since
+   *
+   * @param document
+   *          The document to check
+   * @param snippet
+   *          The snippet to check against
+   * @return True if the document can be shown for the snippet, otherwise false
+   */
+  private static boolean isCurrent(StyledDocument document, Snippet snippet) {
+    if (document.getProperty(LANGUAGE_PROPERTY) != snippet.getLanguage()) {
+      return false;
+    }
+    String content = snippet.getSnippet();
+    return document.getProperty(BODY_PROPERTY) == content && document.getLength() == (content == null ? 0 : content.length());
+  }
+
+  /**
+   * Record that a document holds the current body of a snippet, after the text of the document has been handed back to the snippet
+   *
+   * @param document
+   *          The document of the snippet
+   * @param snippet
+   *          The snippet, whose body is now the text of the document
+   */
+  public static void markCurrent(Document document, Snippet snippet) {
+    document.putProperty(BODY_PROPERTY, snippet.getSnippet());
+  }
+
+  /**
+   * Prepare a new document for a snippet, filling it with the content of the snippet and highlighting the keywords of its language
+   *
+   * @param snippet
+   *          The snippet to prepare the document of
+   * @return A new highlighted document
+   */
+  private static StyledDocument prepare(Snippet snippet) {
+    StyledDocument document = new DefaultStyledDocument();
+    try {
+      document.insertString(0, snippet.getSnippet(), null);
+    }
+    catch (BadLocationException e) {
+      e.printStackTrace();
+    }
+    snippet.getLanguage().getSyntaxHighlighter().highlightAll(document);
+    document.putProperty(LANGUAGE_PROPERTY, snippet.getLanguage());
+    markCurrent(document, snippet);
+    return document;
+  }
+
+  /**
+   * Add the undo history of a snippet to the cache, evicting older histories if the cache has grown too large
+   *
+   * @param name
+   *          The name of the snippet
+   * @param history
+   *          The undo history of the snippet
+   * @throws NullPointerException
+   *           If the name or history is null
+   */
+  public void put(String name, SnippetUndoManager history) {
+    if (name == null || history == null) {
+      throw new NullPointerException("Name and history cannot be null");
+    }
+    this.histories.put(name, history);
+    this.evict();
+  }
+
+  /**
+   * Remove the undo history of a snippet from the cache
+   *
+   * @param name
+   *          The name of the snippet
+   */
+  public void remove(String name) {
+    this.histories.remove(name);
+  }
+
+  /**
+   * Move the undo history of a snippet to a new name, when the snippet is renamed. The history is still only used for the renamed
+   * snippet while its document matches it
+   *
+   * @param name
+   *          The old name of the snippet
+   * @param newName
+   *          The new name of the snippet
+   * @throws NullPointerException
+   *           If the new name is null
+   */
+  public void rename(String name, String newName) {
+    if (newName == null) {
+      throw new NullPointerException("Name cannot be null");
+    }
+    SnippetUndoManager history = this.histories.remove(name);
+    if (history != null) {
+      this.histories.put(newName, history);
+    }
+  }
+
+  /**
+   * Get the number of histories in the cache
+   *
+   * @return The number of histories in the cache
+   */
+  public int size() {
+    return this.histories.size();
+  }
+
+  /**
+   * Get the approximate number of bytes held by a history, including the text of the document it belongs to
+   *
+   * @param history
+   *          The history to measure
+   * @return The approximate size of the history in bytes
+   */
+  private static long sizeOf(SnippetUndoManager history) {
+    Document document = history.getDocument();
+    long documentSize = document == null ? 0 : document.getLength() * 2L;
+    return history.getByteSize() + documentSize;
+  }
+}
@@ -1,12 +1,13 @@
 package uk.co.ryanharrison.snippetmanager;
 
 import java.io.File;
+import java.util.Locale;
 
 import javax.swing.JFileChooser;
 import javax.swing.filechooser.FileFilter;
 
 /**
- * A custom file chooser that only lets users pick XML files
+ * A custom file chooser that only lets users pick XML files, whether plain or compressed with gzip
  * 
  * @author Ryan Harrison
  */
@@ -33,8 +34,9 @@ public class XMLFileChooser extends JFileChooser {
         // Get the extension
         String extension = this.getExtension(f);
         if (extension != null) {
-          // Make sure the extension is xml
-          return extension.equalsIgnoreCase("xml");
+          // Make sure the extension is xml, or gz on a file whose name otherwise ends in xml
+          return extension.equalsIgnoreCase("xml") || extension.equalsIgnoreCase("gz")
+              && f.getName().toLowerCase(Locale.ROOT).endsWith(".xml.gz");
         }
         return false;
       }
@@ -42,7 +44,7 @@ public class XMLFileChooser extends JFileChooser {
       // Get a description of what files this chooser accepts
       @Override
       public String getDescription() {
-        return "XML files";
+        return "XML files (*.xml, *.xml.gz)";
       }
 
       /*
@@ -14,10 +14,16 @@ import org.junit.runners.Suite.SuiteClasses;
  * @author Ryan Harrison
  */
 @RunWith(Suite.class)
-@SuiteClasses({ AboutDialogTest.class, DuplicateSnippetExceptionTest.class, FilteredTreeModelTest.class, FindReplaceTest.class,
-    GoToDialogTest.class, HintTextFieldTest.class, LanguageTest.class, MainFrameTest.class, PreferencesDialogTest.class,
-    PreferencesTest.class, SnippetFilterComparatorTest.class, SnippetInformationEditorTest.class, SnippetManagerTest.class,
-    SnippetTest.class, SnippetTextPaneTest.class, SyntaxHighlighterTest.class, XMLFileChooserTest.class })
+@SuiteClasses({ AboutDialogTest.class, AutoSaverTest.class, ConcurrentSnippetManagerTest.class, DuplicateSnippetExceptionTest.class,
+    EdtWatchdogTest.class, FilteredTreeModelTest.class, FindReplaceTest.class, FuzzyIndexTest.class, GoToDialogTest.class,
+    HintTextFieldTest.class, HorspoolMatcherTest.class, KeywordDictionaryTest.class, KeywordIndexTest.class, LanguageTest.class,
+    LatencyRecorderTest.class, MainFrameTest.class, MetricsTest.class, PreferencesDialogTest.class, PreferencesTest.class,
+    ReadOptimisedSnippetManagerTest.class, RegexLiteralsTest.class, SearchIndexTest.class, SnippetEventTest.class,
+    SnippetFileCodecTest.class, SnippetFileReaderTest.class, SnippetFileWriterTest.class, SnippetFilesReaderTest.class,
+    SnippetFilterComparatorTest.class, SnippetIndexTest.class, SnippetInformationEditorTest.class, SnippetLoaderTest.class,
+    SnippetManagerTest.class, SnippetSaverTest.class, SnippetSetDispatcherTest.class, SnippetSnapshotTest.class, SnippetTest.class,
+    SnippetTextPaneTest.class, SnippetUndoManagerTest.class, SortedArraySetTest.class, SyntaxHighlighterTest.class,
+    TrigramIndexTest.class, UndoHistoryCacheTest.class, XMLFileChooserTest.class })
 public class AllTests {
 
 }
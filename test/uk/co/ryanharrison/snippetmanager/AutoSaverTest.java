@@ -0,0 +1,278 @@
+/**
+ * AutoSaverTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+
+import javax.swing.SwingUtilities;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for AutoSaver
+ *
+ * @author Ryan Harrison
+ */
+public class AutoSaverTest {
+
+  /** Runs each save straight away on the calling thread, so it has finished when the tick that started it returns */
+  private static final Executor DIRECT = new Executor() {
+
+    @Override
+    public void execute(Runnable command) {
+      command.run();
+    }
+  };
+
+  /** The file to save to in each test */
+  private File                  file;
+
+  /** The manager to save the snippets of in each test */
+  private SnippetManager        manager;
+
+  /**
+   * Run a tick of an auto saver on the event dispatch thread, as its timer does
+   *
+   * @param saver
+   *          The auto saver
+   * @return True if a save was started, otherwise false
+   * @throws Exception
+   *           If the tick could not be run
+   */
+  private static boolean tick(final AutoSaver saver) throws Exception {
+    final boolean[] started = new boolean[1];
+    SwingUtilities.invokeAndWait(new Runnable() {
+
+      @Override
+      public void run() {
+        started[0] = saver.tick();
+      }
+    });
+    return started[0];
+  }
+
+  /**
+   * Create the file to save to and the manager
+   *
+   * @throws Exception
+   *           If the file could not be created
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.file = File.createTempFile("snippets", ".xml");
+    this.manager = new SnippetManager();
+  }
+
+  /**
+   * Delete the file
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Test that a file found to be compressed when it was read is saved compressed, even though its name does not say so
+   *
+   * @throws Exception
+   *           If the file could not be written, read or saved
+   */
+  @Test
+  public void testCodec() throws Exception {
+    Map<Language, Collection<Snippet>> snippets = Collections.<Language, Collection<Snippet>> singletonMap(Language.Java,
+        Collections.singletonList(new Snippet("One", "data", "", new HashSet<String>(), Language.Java)));
+    new SnippetFileWriter(this.file, SnippetFileCodec.Gzip).write(snippets);
+    SnippetFileReader reader = new SnippetFileReader(this.file);
+    reader.read(new SnippetFileReader.Listener() {
+
+      @Override
+      public void languageRead(Language language, List<Snippet> read) {
+        // Not needed
+      }
+
+      @Override
+      public void progressMade(long read, long length) {
+        // Not needed
+      }
+    });
+    assertEquals("Wrong codec read", SnippetFileCodec.Gzip, reader.getCodec());
+
+    AutoSaver saver = new AutoSaver(this.manager, DIRECT, 1000, 1);
+    saver.setPath(this.file.getAbsolutePath(), reader.getCodec());
+    saver.markDirty();
+    assertTrue("Should have saved", tick(saver));
+    assertFalse("Should be saved", saver.isDirty());
+    InputStream in = new BufferedInputStream(new FileInputStream(this.file));
+    try {
+      assertEquals("File should still be compressed", SnippetFileCodec.Gzip, SnippetFileCodec.detect(in));
+    }
+    finally {
+      in.close();
+    }
+
+    saver.setPath(this.file.getAbsolutePath());
+    assertEquals("Name should choose the codec", SnippetFileCodec.Plain, saver.getCodec());
+  }
+
+  /**
+   * Test that changes reported by the manager mark the snippets as changed, and that loading a file marks them as saved
+   */
+  @Test
+  public void testDirtiness() {
+    AutoSaver saver = new AutoSaver(this.manager, DIRECT, 1000, 1);
+    assertFalse("Nothing has changed yet", saver.isDirty());
+    saver.onSnippetSetChanged(this.manager, ChangeType.Loading);
+    saver.onSnippetSetChanged(this.manager, ChangeType.Save);
+    assertFalse("Loading and saving are not changes", saver.isDirty());
+    for (ChangeType type : new ChangeType[] { ChangeType.Add, ChangeType.Delete, ChangeType.Update }) {
+      saver.onSnippetSetChanged(this.manager, type);
+      assertTrue(type + " is a change", saver.isDirty());
+      saver.onSnippetSetChanged(this.manager, ChangeType.Load);
+      assertFalse("Loaded snippets are saved", saver.isDirty());
+    }
+    saver.markDirty();
+    assertTrue("Should be changed", saver.isDirty());
+    saver.markClean();
+    assertFalse("Should be saved", saver.isDirty());
+  }
+
+  /**
+   * Test that a save that fails is reported and leaves the snippets marked as changed
+   *
+   * @throws Exception
+   *           If the tick could not be run
+   */
+  @Test
+  public void testFailedSave() throws Exception {
+    final List<String> failures = new ArrayList<String>();
+    AutoSaver saver = new AutoSaver(this.manager, DIRECT, 1000, 1) {
+
+      @Override
+      protected void failed(String path, Exception error) {
+        failures.add(path);
+      }
+    };
+    String path = new File(this.file, "missing").getAbsolutePath();
+    saver.setPath(path);
+    saver.markDirty();
+    assertTrue("Should have tried to save", tick(saver));
+    assertTrue("Should still be changed", saver.isDirty());
+    assertEquals("Failure should be reported", Collections.singletonList(path), failures);
+    assertTrue("Should have measured the save", saver.getSaveCost() > 0);
+  }
+
+  /**
+   * Test that the interval and budget must be in range
+   */
+  @Test
+  public void testInvalidArguments() {
+    for (double budget : new double[] { 0, -0.5, 1.5, Double.NaN }) {
+      try {
+        new AutoSaver(this.manager, DIRECT, 1000, budget);
+        throw new AssertionError("Budget of " + budget + " should be refused");
+      }
+      catch (IllegalArgumentException e) {
+        // Expected
+      }
+    }
+    try {
+      new AutoSaver(this.manager, DIRECT, 0, 0.5);
+      throw new AssertionError("Interval of zero should be refused");
+    }
+    catch (IllegalArgumentException e) {
+      // Expected
+    }
+  }
+
+  /**
+   * Test that nothing is saved until there is a path to save to
+   *
+   * @throws Exception
+   *           If the tick could not be run
+   */
+  @Test
+  public void testNoPath() throws Exception {
+    AutoSaver saver = new AutoSaver(this.manager, DIRECT, 1000, 1);
+    saver.markDirty();
+    assertFalse("Should not save without a path", tick(saver));
+    assertTrue("Should still be changed", saver.isDirty());
+  }
+
+  /**
+   * Test that the snippets are only saved when they have changed, that the file holds them, and that observers of the manager are
+   * not told of the save
+   *
+   * @throws Exception
+   *           If the snippets could not be saved or loaded
+   */
+  @Test
+  public void testSavesWhenChanged() throws Exception {
+    final List<ChangeType> changes = new ArrayList<ChangeType>();
+    this.manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        changes.add(type);
+      }
+    });
+    AutoSaver saver = new AutoSaver(this.manager, DIRECT, 3600000, 1);
+    saver.setPath(this.file.getAbsolutePath());
+    saver.start();
+    try {
+      assertFalse("Nothing has changed to save", tick(saver));
+
+      this.manager.addSnippet(new Snippet("One", "data", "", new HashSet<String>(), Language.Java));
+      assertTrue("Should save the change", tick(saver));
+      assertFalse("Should be saved", saver.isDirty());
+      assertFalse("Nothing has changed since", tick(saver));
+
+      SnippetManager loaded = new SnippetManager();
+      loaded.loadFromFile(this.file.getAbsolutePath());
+      assertEquals("Wrong snippet saved", "data", loaded.getSnippetFromName("One").getSnippet());
+      assertEquals("Autosaves should not be announced", 1, changes.size());
+    }
+    finally {
+      saver.stop();
+    }
+  }
+
+  /**
+   * Test that a small budget holds back the next save until enough time has passed, while a budget of one does not
+   *
+   * @throws Exception
+   *           If the tick could not be run
+   */
+  @Test
+  public void testThrottling() throws Exception {
+    AutoSaver throttled = new AutoSaver(this.manager, DIRECT, 1000, 1e-9);
+    AutoSaver unthrottled = new AutoSaver(this.manager, DIRECT, 1000, 1);
+    for (AutoSaver saver : new AutoSaver[] { throttled, unthrottled }) {
+      saver.setPath(this.file.getAbsolutePath());
+      saver.markDirty();
+      assertTrue("First save should not be held back", tick(saver));
+      assertTrue("Should have measured the save", saver.getSaveCost() > 0);
+      saver.markDirty();
+    }
+    assertFalse("Next save should be held back", tick(throttled));
+    assertTrue("Should still be changed", throttled.isDirty());
+    assertTrue("Next save should not be held back", tick(unthrottled));
+  }
+}
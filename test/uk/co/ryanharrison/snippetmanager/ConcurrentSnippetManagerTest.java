@@ -0,0 +1,195 @@
+/**
+ * ConcurrentSnippetManagerTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.Test;
+
+/**
+ * Test class for ConcurrentSnippetManager
+ *
+ * @author Ryan Harrison
+ */
+public class ConcurrentSnippetManagerTest {
+
+  /**
+   * A manager that has another thread add a snippet with the name of the first snippet in each batch just before the batch is added,
+   * to race the check for names already held
+   */
+  private static class RacingManager extends ConcurrentSnippetManager {
+
+    /** Runs the adds racing the batches */
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+
+    /** The last racing add */
+    private Future<Void>          racer;
+
+    /**
+     * Race the batch, giving the racing add a short while to get in first before adding the batch
+     *
+     * @param snippets
+     *          The snippets to add
+     * @throws DuplicateSnippetException
+     *           If a snippet already exists in the set, or two of the snippets have the same name
+     *
+     * @see uk.co.ryanharrison.snippetmanager.ConcurrentSnippetManager#addAllHelper(java.util.Collection)
+     */
+    @Override
+    protected void addAllHelper(Collection<Snippet> snippets) throws DuplicateSnippetException {
+      final String name = snippets.iterator().next().getName();
+      this.racer = this.executor.submit(new Callable<Void>() {
+
+        @Override
+        public Void call() throws DuplicateSnippetException {
+          RacingManager.this.addSnippet(new Snippet(name, "racer", "description", new HashSet<String>(), Language.Java));
+          return null;
+        }
+      });
+      try {
+        this.racer.get(200, TimeUnit.MILLISECONDS);
+      }
+      catch (TimeoutException e) {
+        // Held off until the batch is in
+      }
+      catch (Exception e) {
+        // The racing add failed, which is checked by the test
+      }
+      super.addAllHelper(snippets);
+    }
+  }
+
+  /**
+   * Test that snippets added by several threads at once are all kept and that each name is only ever added once.
+   *
+   * @throws Exception
+   *           If a writer thread failed
+   */
+  @Test
+  public void testConcurrentAdd() throws Exception {
+    final ConcurrentSnippetManager manager = new ConcurrentSnippetManager();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    List<Future<Integer>> results = new ArrayList<Future<Integer>>();
+
+    // Every thread tries to add the same 100 names, so exactly one add of each name must succeed
+    for (int t = 0; t < 4; t++) {
+      results.add(executor.submit(new Callable<Integer>() {
+
+        @Override
+        public Integer call() {
+          int added = 0;
+          for (int i = 0; i < 100; i++) {
+            Language lang = Language.values()[i % Language.values().length];
+            try {
+              manager.addSnippet(new Snippet("snippet" + i, "data", "description", new HashSet<String>(), lang));
+              added++;
+            }
+            catch (DuplicateSnippetException e) {
+              // Another thread added the name first
+            }
+          }
+          return added;
+        }
+      }));
+    }
+
+    int total = 0;
+    for (Future<Integer> result : results) {
+      total += result.get();
+    }
+    executor.shutdown();
+    executor.awaitTermination(10, TimeUnit.SECONDS);
+
+    assertEquals("Each name should be added once", 100, total);
+    assertEquals("Wrong number of snippets", 100, manager.getSnippetCount());
+  }
+
+  /**
+   * Test that a part of a file being loaded is checked for names already held under the same locks it is added under, so that a
+   * snippet added by another thread in between cannot fail the part.
+   *
+   * @throws Exception
+   *           If the part could not be loaded
+   */
+  @Test
+  public void testLoadPartWhileAdding() throws Exception {
+    RacingManager manager = new RacingManager();
+    manager.beginLoad();
+    List<Snippet> part = new ArrayList<Snippet>();
+    part.add(new Snippet("Shared", "loaded", "description", new HashSet<String>(), Language.Python));
+    try {
+      assertEquals("Part should be added", 1, manager.loadPart(part));
+      try {
+        manager.racer.get();
+        fail("Racing add should find the name taken");
+      }
+      catch (ExecutionException e) {
+        assertTrue("Wrong error", e.getCause() instanceof DuplicateSnippetException);
+      }
+    }
+    finally {
+      manager.executor.shutdownNow();
+    }
+    manager.endLoad();
+    assertEquals("Wrong number of snippets", 1, manager.getSnippetCount());
+    assertEquals("Part should be kept", "loaded", manager.getSnippetFromName("Shared").getSnippet());
+  }
+
+  /**
+   * Test that the manager can be iterated while another thread is writing to it.
+   *
+   * @throws Exception
+   *           If the writer thread failed
+   */
+  @Test
+  public void testIterateWhileWriting() throws Exception {
+    final ConcurrentSnippetManager manager = new ConcurrentSnippetManager();
+    for (int i = 0; i < 100; i++) {
+      manager.addSnippet(new Snippet("existing" + i, "data", "description", new HashSet<String>(), Language.Java));
+    }
+
+    ExecutorService executor = Executors.newSingleThreadExecutor();
+    Future<?> writer = executor.submit(new Callable<Void>() {
+
+      @Override
+      public Void call() throws DuplicateSnippetException {
+        for (int i = 0; i < 1000; i++) {
+          manager.addSnippet(new Snippet("new" + i, "data", "description", new HashSet<String>(), Language.Java));
+        }
+        return null;
+      }
+    });
+
+    // Iterating must never fail, and must always see the snippets that existed before it started
+    while (!writer.isDone()) {
+      int count = 0;
+      Iterator<Snippet> iterator = manager.iterator();
+      while (iterator.hasNext()) {
+        iterator.next();
+        count++;
+      }
+      assertTrue("Existing snippets should be seen", count >= 100);
+    }
+    writer.get();
+    executor.shutdown();
+
+    assertEquals("Wrong number of snippets", 1100, manager.getSnippetCount());
+  }
+}
@@ -0,0 +1,128 @@
+/**
+ * EdtWatchdogTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+/**
+ * Test class for EdtWatchdog
+ *
+ * @author Ryan Harrison
+ */
+public class EdtWatchdogTest {
+
+  /**
+   * Run a task on the event dispatch thread and wait for it
+   *
+   * @param millis
+   *          How long the task should block the thread for
+   * @throws Exception
+   *           If the task could not be run
+   */
+  private static void block(final long millis) throws Exception {
+    SwingUtilities.invokeAndWait(new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          Thread.sleep(millis);
+        }
+        catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+    });
+  }
+
+  /**
+   * Test that the handler is the outermost call into MainFrame or one of its inner classes
+   */
+  @Test
+  public void testGetHandler() {
+    String name = MainFrame.class.getName();
+    StackTraceElement[] stack = { new StackTraceElement("java.lang.Thread", "sleep", null, -1),
+        new StackTraceElement(name, "saveSnippets", null, -1), new StackTraceElement(name + "$3", "actionPerformed", null, -1),
+        new StackTraceElement("javax.swing.AbstractButton", "fireActionPerformed", null, -1) };
+    assertEquals("MainFrame$3.actionPerformed", EdtWatchdog.getHandler(stack));
+
+    StackTraceElement[] other = { new StackTraceElement("java.lang.Thread", "sleep", null, -1),
+        new StackTraceElement(name + "Test", "testCreation", null, -1) };
+    assertNull(EdtWatchdog.getHandler(other));
+  }
+
+  /**
+   * Test that a threshold that is not positive is rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalThreshold() {
+    new EdtWatchdog(0);
+  }
+
+  /**
+   * Test that an event blocking the event dispatch thread for longer than the threshold is reported with its stack and recorded as
+   * a flight recorder event, and that quick events are not
+   *
+   * @throws Exception
+   *           If the events could not be run
+   */
+  @Test
+  public void testStall() throws Exception {
+    EdtWatchdog watchdog = new EdtWatchdog(100);
+    File dump = File.createTempFile("stalls", ".jfr");
+    Recording recording = new Recording();
+    recording.enable(EdtStallEvent.class);
+    recording.start();
+    watchdog.install();
+    try {
+      block(1);
+      assertTrue(watchdog.getStalls().isEmpty());
+
+      block(400);
+      // The waiting thread is woken as soon as the task ends, so wait for another event to be sure the stalled one has finished
+      block(1);
+      List<EdtWatchdog.Stall> stalls = watchdog.getStalls();
+      assertEquals(1, stalls.size());
+      EdtWatchdog.Stall stall = stalls.get(0);
+      assertTrue(stall.isFinished());
+      assertTrue("Stall too short " + stall.getDuration(), stall.getDuration() >= 350);
+      assertTrue(stall.getEvent().startsWith("InvocationEvent"));
+      assertNull(stall.getHandler());
+
+      // The captured stack shows where the thread was stuck
+      boolean sleeping = false;
+      for (StackTraceElement element : stall.getStack()) {
+        sleeping |= element.getClassName().equals(Thread.class.getName()) && element.getMethodName().startsWith("sleep");
+      }
+      assertTrue(sleeping);
+
+      recording.stop();
+      recording.dump(dump.toPath());
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump.toPath());
+      assertEquals(1, events.size());
+      assertEquals("uk.co.ryanharrison.snippetmanager.EdtStall", events.get(0).getEventType().getName());
+      assertEquals(stall.getEvent(), events.get(0).getString("event"));
+      assertTrue(events.get(0).getString("stack").contains("sleep"));
+      assertTrue(events.get(0).getDuration("stalled").toMillis() >= 100);
+    }
+    finally {
+      watchdog.uninstall();
+      recording.close();
+      dump.delete();
+    }
+  }
+}
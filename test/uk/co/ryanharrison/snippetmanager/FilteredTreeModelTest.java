@@ -6,6 +6,10 @@ package uk.co.ryanharrison.snippetmanager;
 
 import static org.junit.Assert.assertEquals;
 
+import java.util.HashSet;
+
+import javax.swing.event.TreeModelEvent;
+import javax.swing.event.TreeModelListener;
 import javax.swing.tree.DefaultMutableTreeNode;
 import javax.swing.tree.DefaultTreeModel;
 import javax.swing.tree.TreeModel;
@@ -37,4 +41,56 @@ public class FilteredTreeModelTest {
     assertEquals("Root nodes are not the same", root, filteredModel.getTreeModel().getRoot());
   }
 
+  /**
+   * Test that only nodes passing the filter are shown, and that the filter is applied again when the filter or the underlying model
+   * changes, before the listeners are told of the change
+   */
+  @Test
+  public void testFilter() {
+    DefaultMutableTreeNode root = new DefaultMutableTreeNode("root node");
+    DefaultMutableTreeNode java = new DefaultMutableTreeNode("Java");
+    root.add(java);
+    DefaultMutableTreeNode map = new DefaultMutableTreeNode(new Snippet("HashMap", "data", "", new HashSet<String>(),
+        Language.Java));
+    java.add(map);
+    java.add(new DefaultMutableTreeNode(new Snippet("Thread", "data", "", new HashSet<String>(), Language.Java)));
+    final DefaultTreeModel model = new DefaultTreeModel(root);
+    final FilteredTreeModel filteredModel = new FilteredTreeModel(model);
+
+    filteredModel.setFilter("map");
+    assertEquals("Wrong number of languages", 1, filteredModel.getChildCount(root));
+    assertEquals("Wrong number of snippets", 1, filteredModel.getChildCount(java));
+    assertEquals("Wrong snippet", map, filteredModel.getChild(java, 0));
+    assertEquals("Wrong index", 0, filteredModel.getIndexOfChild(java, map));
+
+    final int[] counts = new int[1];
+    filteredModel.addTreeModelListener(new TreeModelListener() {
+
+      @Override
+      public void treeNodesChanged(TreeModelEvent e) {
+        // Not needed
+      }
+
+      @Override
+      public void treeNodesInserted(TreeModelEvent e) {
+        // Not needed
+      }
+
+      @Override
+      public void treeNodesRemoved(TreeModelEvent e) {
+        // Not needed
+      }
+
+      @Override
+      public void treeStructureChanged(TreeModelEvent e) {
+        counts[0] = filteredModel.getChildCount(filteredModel.getChild(filteredModel.getRoot(), 0));
+      }
+    });
+    java.add(new DefaultMutableTreeNode(new Snippet("TreeMap", "data", "", new HashSet<String>(), Language.Java)));
+    model.reload();
+    assertEquals("Listener should see the new snippet", 2, counts[0]);
+
+    filteredModel.setFilter("");
+    assertEquals("Every snippet should be shown", 3, filteredModel.getChildCount(java));
+  }
 }
@@ -0,0 +1,177 @@
+/**
+ * FuzzyIndexTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.snippet;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test class for FuzzyIndex
+ *
+ * @author Ryan Harrison
+ */
+public class FuzzyIndexTest {
+
+  /**
+   * Find the edit distance between two strings without any limit, for comparison
+   *
+   * @param a
+   *          The first string
+   * @param b
+   *          The second string
+   * @return The number of edits needed, counting a swap of adjacent characters as one edit
+   */
+  private static int fullDistance(String a, String b) {
+    int[][] d = new int[a.length() + 1][b.length() + 1];
+    for (int i = 0; i <= a.length(); i++) {
+      for (int j = 0; j <= b.length(); j++) {
+        if (i == 0 || j == 0) {
+          d[i][j] = i + j;
+          continue;
+        }
+        int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+        d[i][j] = Math.min(Math.min(d[i - 1][j] + 1, d[i][j - 1] + 1), d[i - 1][j - 1] + cost);
+        if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+          d[i][j] = Math.min(d[i][j], d[i - 2][j - 2] + 1);
+        }
+      }
+    }
+    return d[a.length()][b.length()];
+  }
+
+  /**
+   * Test that the bounded distance agrees with the full table wherever it is within the limit.
+   */
+  @Test
+  public void testDistance() {
+    assertEquals("Wrong distance", 1, FuzzyIndex.getDistance("concurent", "concurrent", 2));
+    assertEquals("Swap should be one edit", 1, FuzzyIndex.getDistance("hashmpa", "hashmap", 2));
+    Random random = new Random(3);
+    for (int run = 0; run < 2000; run++) {
+      String a = randomWord(random);
+      String b = randomWord(random);
+      int limit = random.nextInt(3);
+      assertEquals("Wrong distance between " + a + " and " + b, Math.min(fullDistance(a, b), limit + 1),
+          FuzzyIndex.getDistance(a, b, limit));
+    }
+  }
+
+  /**
+   * Test that misspelt words find snippets by name and keyword, and that removed snippets are no longer found.
+   */
+  @Test
+  public void testFind() {
+    FuzzyIndex index = new FuzzyIndex();
+    Snippet map = snippet("HashMap example", "collections");
+    Snippet threads = snippet("Thread pool", "concurrency");
+    index.add(map);
+    index.add(threads);
+    index.add(snippet("Read a file", "io"));
+
+    assertEquals("Swapped letters should match", Collections.singletonList(map), index.find("hashmpa"));
+    assertEquals("Missing letter should match", Collections.singletonList(threads), index.find("concurency"));
+    assertEquals("Every word should match", Collections.singletonList(threads), index.find("thraed concurrancy"));
+    assertTrue("Short words should match exactly", index.find("ix").isEmpty());
+    assertTrue("Distant words should not match", index.find("database").isEmpty());
+
+    index.remove(threads);
+    assertTrue("Removed snippet should not be found", index.find("concurency").isEmpty());
+    assertEquals("Wrong number of snippets", 2, index.size());
+  }
+
+  /**
+   * Test that the fuzzy index of a snippet manager follows snippets as they are added and deleted.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists
+   */
+  @Test
+  public void testManagerFind() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    Snippet sort = snippet("Quick sort", "algorithms");
+    manager.addAll(Arrays.asList(sort, snippet("Binary search", "algorithms")));
+    List<Snippet> found = manager.findSimilar("algoritms");
+    assertEquals("Wrong number of results", 2, found.size());
+
+    manager.deleteSnippet(sort);
+    assertTrue("Deleted snippet should not be found", manager.findSimilar("quik").isEmpty());
+  }
+
+  /**
+   * Test that a query one swap away from a term finds it, since a swap changes four trigrams rather than three, and that the index
+   * finds exactly the terms within the allowed distance of random queries.
+   */
+  @Test
+  public void testSwappedQuery() {
+    FuzzyIndex index = new FuzzyIndex();
+    Snippet java = snippet("java");
+    index.add(java);
+    assertEquals("Swap in the middle should match", Collections.singletonList(java), index.find("jvaa"));
+    assertEquals("Swap at the start should match", Collections.singletonList(java), index.find("ajva"));
+    assertEquals("Swap at the end should match", Collections.singletonList(java), index.find("jaav"));
+
+    Random random = new Random(5);
+    index = new FuzzyIndex();
+    List<Snippet> snippets = new ArrayList<Snippet>();
+    for (int i = 0; i < 200; i++) {
+      Snippet snippet = snippet(randomWord(random, 3));
+      snippets.add(snippet);
+      index.add(snippet);
+    }
+    for (int run = 0; run < 500; run++) {
+      String query = randomWord(random, 3);
+      int limit = FuzzyIndex.getMaxDistance(query.length());
+      Set<Snippet> expected = Collections.newSetFromMap(new IdentityHashMap<Snippet, Boolean>());
+      for (Snippet snippet : snippets) {
+        if (fullDistance(query, snippet.getName()) <= limit) {
+          expected.add(snippet);
+        }
+      }
+      Set<Snippet> found = Collections.newSetFromMap(new IdentityHashMap<Snippet, Boolean>());
+      found.addAll(index.find(query));
+      assertEquals("Wrong snippets found for " + query, expected, found);
+    }
+  }
+
+  /**
+   * Create a short random word from a small alphabet, so that words are often close to each other
+   *
+   * @param random
+   *          The source of randomness
+   * @return A new random word
+   */
+  private static String randomWord(Random random) {
+    return randomWord(random, 0);
+  }
+
+  /**
+   * Create a short random word from a small alphabet, so that words are often close to each other
+   *
+   * @param random
+   *          The source of randomness
+   * @param minimum
+   *          The fewest characters the word may have
+   * @return A new random word
+   */
+  private static String randomWord(Random random, int minimum) {
+    StringBuilder builder = new StringBuilder();
+    int length = minimum + random.nextInt(7 - minimum);
+    for (int i = 0; i < length; i++) {
+      builder.append((char) ('a' + random.nextInt(3)));
+    }
+    return builder.toString();
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * HorspoolMatcherTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for HorspoolMatcher
+ *
+ * @author Ryan Harrison
+ */
+public class HorspoolMatcherTest {
+
+  /**
+   * Test that the matcher finds the same occurrences as String.indexOf, including characters that share a skip table entry.
+   */
+  @Test
+  public void testMatchesIndexOf() {
+    Random random = new Random(7);
+    // A small alphabet gives plenty of partial matches, and the last two characters share a skip table entry with 'a'
+    char[] alphabet = { 'a', 'b', 'c', '\u0161', '\u0261' };
+    for (int run = 0; run < 2000; run++) {
+      String text = randomString(random, alphabet, random.nextInt(40));
+      String pattern = randomString(random, alphabet, 1 + random.nextInt(4));
+      assertEquals("Wrong index of '" + pattern + "' in '" + text + "'", text.indexOf(pattern),
+          new HorspoolMatcher(pattern).indexIn(text));
+    }
+  }
+
+  /**
+   * Test that an empty pattern is found in any text, and that a pattern longer than the text is not found.
+   */
+  @Test
+  public void testEdgeCases() {
+    assertTrue("Empty pattern should be found", new HorspoolMatcher("").isFoundIn("text"));
+    assertTrue("Empty pattern should be found", new HorspoolMatcher("").isFoundIn(""));
+    assertFalse("Longer pattern should not be found", new HorspoolMatcher("longer").isFoundIn("long"));
+    assertEquals("Wrong index", 6, new HorspoolMatcher("needle").indexIn("a hay needle"));
+  }
+
+  /**
+   * Create a random string
+   *
+   * @param random
+   *          The source of randomness
+   * @param alphabet
+   *          The characters to use
+   * @param length
+   *          The length of the string
+   * @return A new random string
+   */
+  private static String randomString(Random random, char[] alphabet, int length) {
+    StringBuilder builder = new StringBuilder(length);
+    for (int i = 0; i < length; i++) {
+      builder.append(alphabet[random.nextInt(alphabet.length)]);
+    }
+    return builder.toString();
+  }
+}
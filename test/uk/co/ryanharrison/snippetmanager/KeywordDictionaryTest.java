@@ -0,0 +1,64 @@
+/**
+ * KeywordDictionaryTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Test;
+
+/**
+ * Test class for KeywordDictionary
+ *
+ * @author Ryan Harrison
+ */
+public class KeywordDictionaryTest {
+
+  /**
+   * Test that parsed keywords are trimmed, lower cased, given sorted distinct ids and that empty keywords are ignored.
+   */
+  @Test
+  public void testParse() {
+    KeywordDictionary dictionary = KeywordDictionary.getInstance();
+    int[] ids = dictionary.parse(" Sorting, list ,,sorting");
+
+    assertEquals("Wrong number of keywords", 2, ids.length);
+    assertTrue("Ids should be sorted", ids[0] < ids[1]);
+    assertEquals("Wrong keywords", new HashSet<String>(Arrays.asList("sorting", "list")), dictionary.asSet(ids));
+    assertEquals("Empty text should have no keywords", 0, dictionary.parse("").length);
+  }
+
+  /**
+   * Test that every use of a keyword is given the same id, so the keyword is only held once.
+   */
+  @Test
+  public void testSharedIds() {
+    KeywordDictionary dictionary = KeywordDictionary.getInstance();
+    int id = dictionary.getId("shared");
+
+    assertEquals("Same keyword should have the same id", id, dictionary.getId("shared"));
+    assertEquals("Wrong keyword", "shared", dictionary.getKeyword(id));
+    assertArrayEquals("Wrong ids", new int[] { id }, dictionary.getIds(Arrays.asList("shared", "shared")));
+  }
+
+  /**
+   * Test that the keywords of a snippet are held as ids but can still be used as a set.
+   */
+  @Test
+  public void testSnippetKeywords() {
+    Set<String> keywords = new HashSet<String>(Arrays.asList("tree", "graph"));
+    Snippet snippet = new Snippet("name", "data", "description", keywords, Language.Java);
+
+    assertEquals("Wrong keywords", keywords, snippet.getKeywords());
+    assertTrue("Snippet should have keyword", snippet.hasKeyword("graph"));
+    assertFalse("Snippet should not have keyword", snippet.hasKeyword("never used as a keyword"));
+  }
+}
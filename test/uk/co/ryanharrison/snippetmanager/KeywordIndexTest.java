@@ -0,0 +1,88 @@
+/**
+ * KeywordIndexTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.snippet;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Test;
+
+/**
+ * Test class for KeywordIndex
+ *
+ * @author Ryan Harrison
+ */
+public class KeywordIndexTest {
+
+  /**
+   * Test that snippets can be found by all or any of several keywords, and that removed snippets are no longer found.
+   */
+  @Test
+  public void testQueries() {
+    KeywordIndex index = new KeywordIndex();
+    Snippet both = snippet("both", "io", "concurrency");
+    Snippet io = snippet("io", "io");
+    Snippet neither = snippet("neither", "graphics");
+    index.add(both);
+    index.add(io);
+    index.add(neither);
+
+    assertEquals("Wrong AND result", Collections.singletonList(both), index.findAll(Arrays.asList("io", "concurrency")));
+    List<Snippet> any = index.findAny(Arrays.asList("concurrency", "graphics"));
+    assertEquals("Wrong OR result", 2, any.size());
+    assertTrue("Wrong OR result", any.contains(both) && any.contains(neither));
+    assertTrue("Unused keyword should match nothing", index.findAll(Arrays.asList("io", "never used as a keyword")).isEmpty());
+
+    index.remove(both);
+    assertTrue("Removed snippet should not be found", index.findAll(Arrays.asList("concurrency")).isEmpty());
+    assertEquals("Wrong number of snippets", 2, index.size());
+  }
+
+  /**
+   * Test that the number of snippets with each keyword is counted, overall and within a keyword filter.
+   */
+  @Test
+  public void testKeywordCounts() {
+    KeywordIndex index = new KeywordIndex();
+    index.add(snippet("first", "io", "concurrency"));
+    index.add(snippet("second", "io"));
+    index.add(snippet("third", "graphics"));
+
+    Map<String, Integer> counts = index.getKeywordCounts();
+    assertEquals("Wrong count", Integer.valueOf(2), counts.get("io"));
+    assertEquals("Wrong count", Integer.valueOf(1), counts.get("graphics"));
+
+    Map<String, Integer> filtered = index.getKeywordCounts(Arrays.asList("io"));
+    assertEquals("Wrong filtered count", Integer.valueOf(1), filtered.get("concurrency"));
+    assertEquals("Keyword outside the filter should not be counted", null, filtered.get("graphics"));
+  }
+
+  /**
+   * Test that the index of a snippet manager follows snippets as they are added, updated and deleted.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists
+   */
+  @Test
+  public void testManagerIndex() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    Snippet first = snippet("first", "io");
+    manager.addAll(Arrays.asList(first, snippet("second", "io", "concurrency")));
+    assertEquals("Wrong count", Integer.valueOf(2), manager.getKeywordCounts().get("io"));
+
+    manager.updateSnippet(first, snippet("first", "concurrency"));
+    assertEquals("Wrong count after update", Integer.valueOf(1), manager.getKeywordCounts().get("io"));
+    assertEquals("Wrong result after update", 2, manager.getSnippetsWithAllKeywords(Arrays.asList("concurrency")).size());
+
+    manager.deleteSnippet(manager.getSnippetFromName("second"));
+    assertTrue("Deleted snippet should not be found", manager.getSnippetsWithAnyKeyword(Arrays.asList("io")).isEmpty());
+  }
+}
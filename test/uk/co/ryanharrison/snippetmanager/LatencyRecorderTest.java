@@ -0,0 +1,128 @@
+/**
+ * LatencyRecorderTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Test class for LatencyRecorder
+ *
+ * @author Ryan Harrison
+ */
+public class LatencyRecorderTest {
+
+  /**
+   * Test that every value falls in a bucket whose highest value is at least the value and within the promised precision of it, and
+   * that buckets follow on from each other without gaps
+   */
+  @Test
+  public void testBuckets() {
+    for (long value = 0; value < 100000; value++) {
+      int bucket = LatencyRecorder.getBucket(value);
+      assertTrue("Value above its bucket " + value, LatencyRecorder.getHighestValue(bucket) >= value);
+      assertTrue("Value in too high a bucket " + value, bucket == 0 || LatencyRecorder.getHighestValue(bucket - 1) < value);
+    }
+    Random random = new Random(1);
+    for (int i = 0; i < 100000; i++) {
+      long value = random.nextLong() >>> (1 + random.nextInt(63));
+      long highest = LatencyRecorder.getHighestValue(LatencyRecorder.getBucket(value));
+      assertTrue("Value above its bucket " + value, highest >= value);
+      assertTrue("Bucket too wide for " + value, highest - value <= value / 16 + 1);
+    }
+    assertEquals(Long.MAX_VALUE, LatencyRecorder.getHighestValue(LatencyRecorder.getBucket(Long.MAX_VALUE)));
+  }
+
+  /**
+   * Test that the count, mean and maximum are exact
+   */
+  @Test
+  public void testCountMeanAndMax() {
+    LatencyRecorder recorder = new LatencyRecorder("test");
+    assertEquals("test", recorder.getName());
+    assertEquals(0, recorder.getCount());
+    assertEquals(0, recorder.getMean(), 0);
+    assertEquals(0, recorder.getMax());
+    assertEquals(0, recorder.getValueAtPercentile(50));
+
+    recorder.record(100);
+    recorder.record(300);
+    recorder.record(-5);
+    assertEquals(3, recorder.getCount());
+    assertEquals(400 / 3.0, recorder.getMean(), 1e-9);
+    assertEquals(300, recorder.getMax());
+
+    recorder.reset();
+    assertEquals(0, recorder.getCount());
+    assertEquals(0, recorder.getMax());
+    assertEquals(0, recorder.getValueAtPercentile(100));
+  }
+
+  /**
+   * Test that percentiles of random times are within the precision of the buckets of the exact percentiles
+   */
+  @Test
+  public void testPercentiles() {
+    LatencyRecorder recorder = new LatencyRecorder("test");
+    Random random = new Random(7);
+    long[] values = new long[10000];
+    for (int i = 0; i < values.length; i++) {
+      // Spread the times over several orders of magnitude, as real latencies are
+      values[i] = (long) Math.exp(random.nextDouble() * 20);
+      recorder.record(values[i]);
+    }
+    Arrays.sort(values);
+    for (double percentile : new double[] { 1, 50, 90, 99, 99.9, 100 }) {
+      long exact = values[(int) Math.ceil(percentile / 100 * values.length) - 1];
+      long estimate = recorder.getValueAtPercentile(percentile);
+      assertTrue("Percentile " + percentile + " too low", estimate >= exact);
+      assertTrue("Percentile " + percentile + " too high", estimate - exact <= exact / 16 + 1);
+    }
+    assertEquals(values[values.length - 1], recorder.getValueAtPercentile(100));
+
+    LatencySnapshot snapshot = recorder.getSnapshot();
+    assertEquals(values.length, snapshot.getCount());
+    assertEquals(recorder.getValueAtPercentile(50), snapshot.getP50());
+    assertEquals(recorder.getValueAtPercentile(90), snapshot.getP90());
+    assertEquals(recorder.getValueAtPercentile(99), snapshot.getP99());
+    assertEquals(recorder.getMax(), snapshot.getMax());
+  }
+
+  /**
+   * Test that a percentile outside 0 to 100 is rejected
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testPercentileOutOfRange() {
+    new LatencyRecorder("test").getValueAtPercentile(101);
+  }
+
+  /**
+   * Test that times are only recorded while metrics are turned on
+   */
+  @Test
+  public void testStartAndStop() {
+    Metrics metrics = Metrics.getInstance();
+    boolean enabled = metrics.isEnabled();
+    try {
+      LatencyRecorder recorder = new LatencyRecorder("test");
+      metrics.setEnabled(false);
+      assertEquals(0, recorder.start());
+      recorder.stop(recorder.start());
+      assertEquals(0, recorder.getCount());
+
+      metrics.setEnabled(true);
+      recorder.stop(recorder.start());
+      assertEquals(1, recorder.getCount());
+    }
+    finally {
+      metrics.setEnabled(enabled);
+    }
+  }
+}
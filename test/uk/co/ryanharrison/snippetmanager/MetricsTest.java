@@ -0,0 +1,151 @@
+/**
+ * MetricsTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.snippet;
+
+import java.io.File;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.Map;
+
+import javax.management.Attribute;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+import javax.management.openmbean.TabularData;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for Metrics
+ *
+ * @author Ryan Harrison
+ */
+public class MetricsTest {
+
+  /** Whether metrics were turned on before the test, to restore afterwards */
+  private boolean enabled;
+
+  /**
+   * Start each test with metrics turned on and empty
+   */
+  @Before
+  public void setUp() {
+    this.enabled = Metrics.getInstance().isEnabled();
+    Metrics.getInstance().setEnabled(true);
+    Metrics.getInstance().reset();
+  }
+
+  /**
+   * Put the metrics back how they were
+   */
+  @After
+  public void tearDown() {
+    Metrics.getInstance().setEnabled(this.enabled);
+    Metrics.getInstance().reset();
+  }
+
+  /**
+   * Test that the registry can be read and turned off through JMX
+   *
+   * @throws Exception
+   *           If the registry cannot be registered or read
+   */
+  @Test
+  public void testJmx() throws Exception {
+    Metrics metrics = Metrics.getInstance();
+    metrics.register();
+    // Registering twice is harmless
+    metrics.register();
+    metrics.getRecorder("test").record(5000);
+    metrics.getCounter("test").increment();
+
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    ObjectName name = new ObjectName(Metrics.OBJECT_NAME);
+    assertEquals(Boolean.TRUE, server.getAttribute(name, "Enabled"));
+
+    TabularData latencies = (TabularData) server.getAttribute(name, "Latencies");
+    CompositeData test = (CompositeData) latencies.get(new Object[] { "test" }).get("value");
+    assertEquals(1L, test.get("count"));
+    assertEquals(5000L, test.get("max"));
+
+    TabularData counters = (TabularData) server.getAttribute(name, "Counters");
+    assertEquals(1L, counters.get(new Object[] { "test" }).get("value"));
+
+    server.setAttribute(name, new Attribute("Enabled", false));
+    assertFalse(metrics.isEnabled());
+    assertFalse(Metrics.isRecording());
+  }
+
+  /**
+   * Test that the registry is a singleton and gives the same recorder and counter for the same name
+   */
+  @Test
+  public void testRegistry() {
+    Metrics metrics = Metrics.getInstance();
+    assertSame(metrics, Metrics.getInstance());
+    assertSame(metrics.getRecorder("test"), metrics.getRecorder("test"));
+    assertSame(metrics.getCounter("test"), metrics.getCounter("test"));
+
+    metrics.getRecorder("test").record(1000);
+    metrics.getCounter("test").add(3);
+    assertEquals(1, metrics.getLatencies().get("test").getCount());
+    assertEquals(Long.valueOf(3), metrics.getCounters().get("test"));
+
+    metrics.reset();
+    assertEquals(0, metrics.getLatencies().get("test").getCount());
+    assertEquals(Long.valueOf(0), metrics.getCounters().get("test"));
+  }
+
+  /**
+   * Test that changes to the snippet manager are timed and counted while metrics are on, and not while they are off
+   *
+   * @throws Exception
+   *           If the snippets cannot be saved or loaded
+   */
+  @Test
+  public void testSnippetManager() throws Exception {
+    SnippetManager manager = new SnippetManager();
+    manager.addSnippet(snippet("One", "keyword"));
+    manager.addAll(Arrays.asList(snippet("Two", "keyword"), snippet("Three", "keyword")));
+    manager.updateSnippet(manager.getSnippetFromName("One"), snippet("One", "keyword"));
+    manager.deleteSnippet(manager.getSnippetFromName("Two"));
+
+    File file = File.createTempFile("snippets", ".xml");
+    try {
+      manager.saveSnippetsToFile(file.getAbsolutePath());
+      new SnippetManager().loadFromFile(file.getAbsolutePath());
+    }
+    finally {
+      file.delete();
+    }
+
+    Map<String, LatencySnapshot> latencies = Metrics.getInstance().getLatencies();
+    assertEquals(2, latencies.get("add").getCount());
+    assertEquals(1, latencies.get("update").getCount());
+    assertEquals(1, latencies.get("delete").getCount());
+    assertEquals(1, latencies.get("save").getCount());
+    assertEquals(1, latencies.get("load").getCount());
+    assertTrue(latencies.get("load").getMax() > 0);
+
+    Map<String, Long> counters = Metrics.getInstance().getCounters();
+    assertEquals(Long.valueOf(3), counters.get("snippets.added"));
+    assertEquals(Long.valueOf(1), counters.get("snippets.deleted"));
+    assertEquals(Long.valueOf(2), counters.get("snippets.saved"));
+    assertEquals(Long.valueOf(2), counters.get("snippets.loaded"));
+
+    Metrics.getInstance().setEnabled(false);
+    manager.addSnippet(snippet("Four", "keyword"));
+    assertEquals(2, Metrics.getInstance().getLatencies().get("add").getCount());
+    assertEquals(Long.valueOf(3), Metrics.getInstance().getCounters().get("snippets.added"));
+  }
+}
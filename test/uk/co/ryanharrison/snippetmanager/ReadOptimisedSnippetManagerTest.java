@@ -0,0 +1,49 @@
+/**
+ * ReadOptimisedSnippetManagerTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.HashSet;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+/**
+ * Test class for ReadOptimisedSnippetManager
+ *
+ * @author Ryan Harrison
+ */
+public class ReadOptimisedSnippetManagerTest {
+
+  /**
+   * Test that snippets can be added, updated and deleted, and are iterated in order within their language.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists
+   */
+  @Test
+  public void testAddUpdateDelete() throws DuplicateSnippetException {
+    SnippetManager manager = new ReadOptimisedSnippetManager();
+    Snippet b = new Snippet("b", "data", "description", new HashSet<String>(), Language.Java);
+    manager.addSnippet(b);
+    manager.addSnippet(new Snippet("a", "data", "description", new HashSet<String>(), Language.Java));
+    manager.addSnippet(new Snippet("c", "data", "description", new HashSet<String>(), Language.Java));
+
+    Iterator<Snippet> iterator = manager.iterator();
+    assertEquals("Wrong order", "a", iterator.next().getName());
+    assertEquals("Wrong order", "b", iterator.next().getName());
+    assertEquals("Wrong order", "c", iterator.next().getName());
+
+    Snippet updated = new Snippet("b", "new data", "description", new HashSet<String>(), Language.Java);
+    manager.updateSnippet(b, updated);
+    assertEquals("Snippet should be updated", "new data", manager.getSnippetFromName("b").getSnippet());
+
+    manager.deleteSnippet(updated);
+    assertNull("Snippet should be deleted", manager.getSnippetFromName("b"));
+    assertEquals("Wrong number of snippets", 2, manager.getSnippetCount());
+  }
+}
@@ -0,0 +1,76 @@
+/**
+ * RegexLiteralsTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Test class for RegexLiterals
+ *
+ * @author Ryan Harrison
+ */
+public class RegexLiteralsTest {
+
+  /**
+   * Find the literals of a pattern
+   *
+   * @param regex
+   *          The pattern
+   * @return The literals required by each alternative of the pattern
+   */
+  private static List<List<String>> extract(String regex) {
+    return RegexLiterals.extract(Pattern.compile(regex));
+  }
+
+  /**
+   * Test that runs of literal characters are found, ending wherever the pattern can match more than one string.
+   */
+  @Test
+  public void testLiteralRuns() {
+    assertEquals("Wrong literals", Collections.singletonList(Arrays.asList("public", "void", "main(")),
+        extract("public\\s+void\\s+main\\("));
+    assertEquals("Wrong literals", Collections.singletonList(Arrays.asList("hashm", "p")), extract("HashM.p"));
+    assertEquals("Optional character should be left out", Collections.singletonList(Arrays.asList("colo", "r")),
+        extract("colou?r"));
+    assertEquals("Repeated character should end the run", Collections.singletonList(Arrays.asList("fo", "bar")),
+        extract("fo+bar"));
+    assertEquals("Groups and classes should end the run", Collections.singletonList(Arrays.asList("get", "ter")),
+        extract("get(ter)?[A-Z]ter"));
+    assertEquals("Quoted text is literal", Collections.singletonList(Arrays.asList("a.b(c")), extract("\\Qa.b(c\\E"));
+  }
+
+  /**
+   * Test that each top level alternative has its own literals, and that an alternative without any gives up on the whole pattern.
+   */
+  @Test
+  public void testAlternatives() {
+    assertEquals("Wrong literals", Arrays.asList(Arrays.asList("arraylist"), Arrays.asList("linkedlist")),
+        extract("ArrayList|LinkedList"));
+    assertEquals("Alternation inside a group is skipped", Collections.singletonList(Arrays.asList("list")),
+        extract("(Array|Linked)List"));
+    assertNull("Alternative without literals", extract("foo|\\d+"));
+    assertNull("Empty alternative", extract("foo|"));
+  }
+
+  /**
+   * Test that features the analysis does not follow give up on the pattern rather than finding wrong literals.
+   */
+  @Test
+  public void testUnsupported() {
+    assertNull("Comments flag", RegexLiterals.extract(Pattern.compile("foo bar", Pattern.COMMENTS)));
+    assertNull("Inline comments flag", extract("(?x)foo bar"));
+    assertNull("Back reference", extract("(a)foo\\1"));
+    assertNull("Hex escape", extract("\\x41bc"));
+    assertEquals("Case insensitive flag is fine", Collections.singletonList(Arrays.asList("foo")), extract("(?i)FOO"));
+  }
+}
@@ -0,0 +1,108 @@
+/**
+ * SearchIndexTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.create;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for SearchIndex
+ *
+ * @author Ryan Harrison
+ */
+public class SearchIndexTest {
+
+  /**
+   * Test that text is split into lower case runs of letters and digits.
+   */
+  @Test
+  public void testTokenize() {
+    assertEquals("Wrong terms", Arrays.asList("map", "string", "integer", "x2", "x2"),
+        SearchIndex.tokenize("Map<String, Integer> x2 = X2;"));
+    assertTrue("Null text should have no terms", SearchIndex.tokenize(null).isEmpty());
+  }
+
+  /**
+   * Test that a match in the name outranks the same match in the body, and that only the requested number of results are returned.
+   */
+  @Test
+  public void testFieldBoosts() {
+    SearchIndex index = new SearchIndex();
+    Snippet inBody = create("Copy stream", "read a buffer then write the buffer", "Copies bytes", Language.Java);
+    Snippet inName = create("Buffer pool", "reuse arrays", "Pools arrays", Language.Java);
+    Snippet inKeywords = create("Read file", "lines", "Reads lines", Language.Java, "buffer");
+    index.add(inBody);
+    index.add(inName);
+    index.add(inKeywords);
+    index.add(create("Unrelated", "nothing", "Nothing at all", Language.Java));
+
+    List<SearchResult> results = index.search("BUFFER", 10);
+    assertEquals("Wrong number of results", 3, results.size());
+    assertEquals("Name match should rank first", inName, results.get(0).getSnippet());
+    assertEquals("Keyword match should rank second", inKeywords, results.get(1).getSnippet());
+    assertEquals("Body match should rank last", inBody, results.get(2).getSnippet());
+
+    List<SearchResult> best = index.search("buffer", 1);
+    assertEquals("Wrong number of results", 1, best.size());
+    assertEquals("Wrong best result", inName, best.get(0).getSnippet());
+  }
+
+  /**
+   * Test that the best results are the same as scoring and sorting every match, for a larger number of snippets.
+   */
+  @Test
+  public void testTopResults() {
+    SearchIndex index = new SearchIndex();
+    for (int i = 0; i < 500; i++) {
+      StringBuilder body = new StringBuilder();
+      for (int j = 0; j < i % 7; j++) {
+        body.append("loop ");
+      }
+      index.add(create("Snippet " + i, body.toString() + (i % 3 == 0 ? "sort" : "map"), "Example " + (i % 11), Language.Java));
+    }
+    List<SearchResult> all = index.search("loop sort", 500);
+    List<SearchResult> best = index.search("loop sort", 20);
+    assertEquals("Wrong number of results", 20, best.size());
+    for (int i = 0; i < best.size(); i++) {
+      assertEquals("Wrong score at " + i, all.get(i).getScore(), best.get(i).getScore(), 1e-9);
+      assertEquals("Ties should be broken the same way at " + i, all.get(i).getSnippet(), best.get(i).getSnippet());
+    }
+    for (int i = 1; i < all.size(); i++) {
+      assertTrue("Results should be best first", all.get(i - 1).getScore() >= all.get(i).getScore());
+    }
+  }
+
+  /**
+   * Test that the search index of a snippet manager follows snippets as they are added, deleted and have their body changed.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists
+   */
+  @Test
+  public void testManagerSearch() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    Snippet first = create("First", "quick sort", "Sorting", Language.Java);
+    manager.addSnippet(first);
+    assertEquals("Wrong result", first, manager.search("sort", 5).get(0).getSnippet());
+
+    // Changes after the index has been built should be reflected in it
+    Snippet second = create("Second", "merge sort", "Sorting", Language.Java);
+    manager.addSnippet(second);
+    assertEquals("Wrong number of results after add", 1, manager.search("merge", 5).size());
+
+    manager.updateSnippetBody(first, "heap");
+    assertTrue("Old body should not be found", manager.search("quick", 5).isEmpty());
+    assertEquals("New body should be found", first, manager.search("heap", 5).get(0).getSnippet());
+
+    manager.deleteSnippet(second);
+    assertTrue("Deleted snippet should not be found", manager.search("merge", 5).isEmpty());
+  }
+}
@@ -0,0 +1,411 @@
+/**
+ * SnippetBenchmark.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.regex.Pattern;
+
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.StyledDocument;
+
+/**
+ * Measures the hot paths of the snippet manager against generated libraries of increasing size, so that performance regressions
+ * show up as numbers rather than as complaints. Each benchmark is warmed up until the JIT compiler has settled, then timed over
+ * several measurement rounds, and the median time per operation is reported. Results can be saved to a properties file and later
+ * runs compared against it, failing if anything has slowed down by more than a tolerance.
+ * <p>
+ * This is a plain program rather than a unit test, as a benchmark run takes minutes. Run it from the compiled main and test classes
+ * along with any of the following system properties:
+ * <ul>
+ * <li>benchmark.sizes - comma separated library sizes, by default 1000,10000,100000. Sizes up to 1000000 need a larger heap</li>
+ * <li>benchmark.include - a regular expression, only benchmarks whose names match it are run</li>
+ * <li>benchmark.save - a properties file to write the results to, to use as a baseline later</li>
+ * <li>benchmark.baseline - a properties file of earlier results to compare against</li>
+ * <li>benchmark.tolerance - how much slower than the baseline a result may be before it counts as a regression, by default 0.2</li>
+ * </ul>
+ * For example {@code java -Xmx4g -Dbenchmark.baseline=baseline.properties uk.co.ryanharrison.snippetmanager.SnippetBenchmark}
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetBenchmark {
+
+  /**
+   * A single benchmark. The set up is not timed, and each run should do a fixed amount of work and say how many operations that was
+   */
+  private abstract static class Benchmark {
+
+    /** The name of the benchmark, used in reports and as part of the baseline keys */
+    private String name;
+
+    /**
+     * Create a new benchmark
+     *
+     * @param name
+     *          The name of the benchmark
+     */
+    public Benchmark(String name) {
+      super();
+      this.name = name;
+    }
+
+    /**
+     * Get the name of the benchmark
+     *
+     * @return The name of the benchmark
+     */
+    public String getName() {
+      return this.name;
+    }
+
+    /**
+     * Run the benchmark once
+     *
+     * @return The number of operations that were performed
+     * @throws Exception
+     *           If the benchmark fails
+     */
+    public abstract int run() throws Exception;
+
+    /**
+     * Prepare to run the benchmark against a library
+     *
+     * @param manager
+     *          A manager holding the library
+     * @param library
+     *          The snippets in the library
+     * @param file
+     *          A temporary file the benchmark may use, which holds the library in XML
+     * @throws Exception
+     *           If the benchmark cannot be prepared
+     */
+    public void setUp(SnippetManager manager, List<Snippet> library, File file) throws Exception {
+    }
+  }
+
+  /** The minimum time to spend warming up each benchmark, in nanoseconds */
+  private static final long   WARMUP_TIME  = 2000000000L;
+
+  /** The minimum time to spend in each measurement round, in nanoseconds */
+  private static final long   ROUND_TIME   = 500000000L;
+
+  /** The number of measurement rounds, the median of which is reported */
+  private static final int    ROUNDS       = 5;
+
+  /** Something for every benchmark to feed its results into, so that the JIT compiler cannot remove the work as unused */
+  private static volatile int sink;
+
+  /**
+   * Create the benchmarks of the hot paths
+   *
+   * @return Every benchmark
+   */
+  private static List<Benchmark> createBenchmarks() {
+    List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+    benchmarks.add(new Benchmark("load") {
+
+      private File file;
+
+      @Override
+      public int run() throws Exception {
+        SnippetManager manager = new SnippetManager();
+        manager.loadFromFile(this.file.getAbsolutePath());
+        sink += manager.getSnippetCount();
+        return 1;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.file = file;
+      }
+    });
+    benchmarks.add(new Benchmark("save") {
+
+      private SnippetManager manager;
+
+      private File           file;
+
+      @Override
+      public int run() throws Exception {
+        this.manager.saveSnippetsToFile(this.file.getAbsolutePath());
+        sink += (int) this.file.length();
+        return 1;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.manager = manager;
+        this.file = file;
+      }
+    });
+    benchmarks.add(new Benchmark("getSnippetFromName") {
+
+      private SnippetManager manager;
+
+      private String[]       names;
+
+      @Override
+      public int run() {
+        for (String name : this.names) {
+          sink += this.manager.getSnippetFromName(name).hashCode();
+        }
+        return this.names.length;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.manager = manager;
+        this.names = new String[1024];
+        for (int i = 0; i < this.names.length; i++) {
+          this.names[i] = library.get((int) ((long) i * 7919 % library.size())).getName().toUpperCase();
+        }
+      }
+    });
+    benchmarks.add(new Benchmark("filter") {
+
+      private List<Snippet>           library;
+
+      private SnippetFilterComparator comparator = new SnippetFilterComparator();
+
+      @Override
+      public int run() {
+        // One operation is a whole pass over the library, as happens on every keystroke in the filter field
+        int matches = 0;
+        for (Snippet snippet : this.library) {
+          if (this.comparator.isMatch(snippet, "buffer")) {
+            matches++;
+          }
+        }
+        sink += matches;
+        return 1;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.library = library;
+      }
+    });
+    benchmarks.add(new Benchmark("highlight") {
+
+      private SyntaxHighlighter highlighter = Language.Java.getSyntaxHighlighter();
+
+      private String            body;
+
+      @Override
+      public int run() throws Exception {
+        StyledDocument doc = new DefaultStyledDocument();
+        doc.insertString(0, this.body, null);
+        this.highlighter.highlightAll(doc);
+        sink += doc.getLength();
+        return 1;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        // Highlighting only depends on the length of the body, so every size uses the same large snippet
+        this.body = new SnippetLibraryGenerator(1, 2000).generateBody(Language.Java);
+      }
+    });
+    benchmarks.add(new Benchmark("search") {
+
+      private SnippetManager manager;
+
+      @Override
+      public int run() {
+        sink += this.manager.search("read buffer stream", 50).size();
+        return 1;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.manager = manager;
+      }
+    });
+    benchmarks.add(new Benchmark("findSimilar") {
+
+      private SnippetManager manager;
+
+      @Override
+      public int run() {
+        sink += this.manager.findSimilar("dictionery").size() + this.manager.findSimilar("bufer").size();
+        return 2;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.manager = manager;
+      }
+    });
+    benchmarks.add(new Benchmark("findMatches") {
+
+      private SnippetManager manager;
+
+      private Pattern        pattern = Pattern.compile("encrypt\\(\\w+\\) logger");
+
+      @Override
+      public int run() {
+        sink += this.manager.findMatches(this.pattern).size();
+        return 1;
+      }
+
+      @Override
+      public void setUp(SnippetManager manager, List<Snippet> library, File file) {
+        this.manager = manager;
+      }
+    });
+    return benchmarks;
+  }
+
+  /**
+   * Load the results of an earlier run
+   *
+   * @param path
+   *          The path to the properties file, or null if there is no baseline
+   * @return The earlier results, empty if there is no baseline
+   * @throws IOException
+   *           If the file cannot be read
+   */
+  private static Properties loadBaseline(String path) throws IOException {
+    Properties baseline = new Properties();
+    if (path != null) {
+      InputStream in = new FileInputStream(path);
+      try {
+        baseline.load(in);
+      }
+      finally {
+        in.close();
+      }
+    }
+    return baseline;
+  }
+
+  /**
+   * Run the benchmarks and report the results
+   *
+   * @param args
+   *          Not used, the benchmarks are configured through system properties
+   * @throws Exception
+   *           If a benchmark fails
+   */
+  public static void main(String[] args) throws Exception {
+    String[] sizes = System.getProperty("benchmark.sizes", "1000,10000,100000").split(",");
+    Pattern include = Pattern.compile(System.getProperty("benchmark.include", ".*"));
+    Properties baseline = loadBaseline(System.getProperty("benchmark.baseline"));
+    double tolerance = Double.parseDouble(System.getProperty("benchmark.tolerance", "0.2"));
+
+    Map<String, Double> results = new LinkedHashMap<String, Double>();
+    List<String> regressions = new ArrayList<String>();
+    System.out.println(String.format(Locale.ROOT, "%-20s %10s %16s %16s %8s", "Benchmark", "Size", "ns/op", "Baseline", "Change"));
+    for (String size : sizes) {
+      int count = Integer.parseInt(size.trim());
+      List<Snippet> library = new SnippetLibraryGenerator(count).generateLibrary(count);
+      SnippetManager manager = new SnippetManager();
+      manager.addAll(library);
+      File file = File.createTempFile("snippets", ".xml");
+      file.deleteOnExit();
+      manager.saveSnippetsToFile(file.getAbsolutePath());
+
+      for (Benchmark benchmark : createBenchmarks()) {
+        if (!include.matcher(benchmark.getName()).matches()) {
+          continue;
+        }
+        benchmark.setUp(manager, library, file);
+        double time = measure(benchmark);
+        String key = benchmark.getName() + "." + count;
+        results.put(key, time);
+
+        String expected = baseline.getProperty(key);
+        String change = "";
+        if (expected != null) {
+          double ratio = time / Double.parseDouble(expected) - 1;
+          change = String.format(Locale.ROOT, "%+.1f%%", ratio * 100);
+          if (ratio > tolerance) {
+            regressions.add(key + " " + change);
+          }
+        }
+        System.out.println(String.format(Locale.ROOT, "%-20s %10d %16.1f %16s %8s", benchmark.getName(), count, time,
+            expected == null ? "-" : expected, change));
+      }
+      file.delete();
+    }
+
+    String save = System.getProperty("benchmark.save");
+    if (save != null) {
+      saveResults(results, save);
+    }
+    if (!regressions.isEmpty()) {
+      System.out.println("Regressions beyond " + Math.round(tolerance * 100) + "%: " + regressions);
+      System.exit(1);
+    }
+  }
+
+  /**
+   * Time a benchmark, warming it up first
+   *
+   * @param benchmark
+   *          The benchmark to time
+   * @return The median time per operation over the measurement rounds, in nanoseconds
+   * @throws Exception
+   *           If the benchmark fails
+   */
+  private static double measure(Benchmark benchmark) throws Exception {
+    long end = System.nanoTime() + WARMUP_TIME;
+    int runs = 0;
+    while (runs < 3 || System.nanoTime() < end) {
+      benchmark.run();
+      runs++;
+    }
+
+    double[] rounds = new double[ROUNDS];
+    for (int round = 0; round < ROUNDS; round++) {
+      long operations = 0;
+      long start = System.nanoTime();
+      long elapsed;
+      do {
+        operations += benchmark.run();
+        elapsed = System.nanoTime() - start;
+      }
+      while (elapsed < ROUND_TIME);
+      rounds[round] = (double) elapsed / operations;
+    }
+    Arrays.sort(rounds);
+    return rounds[ROUNDS / 2];
+  }
+
+  /**
+   * Save results to use as a baseline for later runs
+   *
+   * @param results
+   *          The time per operation of each benchmark and size
+   * @param path
+   *          The path to the properties file to write
+   * @throws IOException
+   *           If the file cannot be written
+   */
+  private static void saveResults(Map<String, Double> results, String path) throws IOException {
+    Properties properties = new Properties();
+    for (Map.Entry<String, Double> result : results.entrySet()) {
+      properties.setProperty(result.getKey(), String.format(Locale.ROOT, "%.1f", result.getValue()));
+    }
+    OutputStream out = new FileOutputStream(path);
+    try {
+      properties.store(out, "Snippet manager benchmark results in nanoseconds per operation");
+    }
+    finally {
+      out.close();
+    }
+  }
+}
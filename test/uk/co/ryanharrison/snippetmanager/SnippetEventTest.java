@@ -0,0 +1,147 @@
+/**
+ * SnippetEventTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.withBody;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.tree.DefaultTreeModel;
+
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+
+import org.junit.Test;
+
+/**
+ * Test class for SnippetEvent and the flight recorder events built on it
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetEventTest {
+
+  /**
+   * Get the recorded events of a type
+   *
+   * @param events
+   *          Every recorded event
+   * @param type
+   *          The type of event
+   * @return The events of the type, in the order they were recorded
+   */
+  private static List<RecordedEvent> ofType(List<RecordedEvent> events, Class<?> type) {
+    List<RecordedEvent> result = new ArrayList<RecordedEvent>();
+    for (RecordedEvent event : events) {
+      if (event.getEventType().getName().equals("uk.co.ryanharrison.snippetmanager." + type.getSimpleName().replace("Event", ""))) {
+        result.add(event);
+      }
+    }
+    return result;
+  }
+
+  /**
+   * Test that changes, file access, filtering and highlighting are recorded with their sizes
+   *
+   * @throws Exception
+   *           If the recording cannot be made or read
+   */
+  @Test
+  public void testEvents() throws Exception {
+    File file = File.createTempFile("snippets", ".xml");
+    File dump = File.createTempFile("snippets", ".jfr");
+    Recording recording = new Recording();
+    try {
+      for (Class<? extends SnippetEvent> type : Arrays.asList(SnippetChangeEvent.class, SnippetFileEvent.class,
+          FilterEvaluationEvent.class, HighlightEvent.class)) {
+        recording.enable(type).withThreshold(Duration.ZERO);
+      }
+      recording.start();
+
+      SnippetManager manager = new SnippetManager();
+      manager.addSnippet(withBody("One", "public class One {}", "keyword"));
+      manager.addAll(Arrays.asList(withBody("Two", "caf\u00e9", "keyword"), withBody("Three", "", "keyword")));
+      manager.deleteSnippet(manager.getSnippetFromName("Three"));
+      // Only an update that changes a snippet held in the set is recorded
+      Snippet one = manager.getSnippetFromName("One");
+      manager.updateSnippetBody(one, one.getSnippet());
+      manager.updateSnippetBody(withBody("One", "copy"), "class One {}");
+      manager.updateSnippetBody(one, "class One {}");
+      manager.saveSnippetsToFile(file.getAbsolutePath());
+      new SnippetManager().loadFromFile(file.getAbsolutePath());
+
+      FilteredTreeModel model = new FilteredTreeModel(new DefaultTreeModel(manager.createTreeNodeFromSnippets()));
+      model.setFilter("one");
+      model.getChildCount(model.getRoot());
+
+      DefaultStyledDocument doc = new DefaultStyledDocument();
+      doc.insertString(0, "public class One {}", null);
+      Language.Java.getSyntaxHighlighter().highlightAll(doc);
+
+      recording.stop();
+      recording.dump(dump.toPath());
+      List<RecordedEvent> events = RecordingFile.readAllEvents(dump.toPath());
+
+      List<RecordedEvent> changes = ofType(events, SnippetChangeEvent.class);
+      assertEquals(4, changes.size());
+      assertEquals("add", changes.get(0).getString("operation"));
+      assertEquals(1, changes.get(0).getInt("snippets"));
+      assertEquals(19, changes.get(0).getLong("size"));
+      assertEquals(1, changes.get(0).getInt("librarySize"));
+      assertEquals(2, changes.get(1).getInt("snippets"));
+      assertEquals(5, changes.get(1).getLong("size"));
+      assertEquals(3, changes.get(1).getInt("librarySize"));
+      assertEquals("delete", changes.get(2).getString("operation"));
+      assertEquals(2, changes.get(2).getInt("librarySize"));
+      assertEquals("update", changes.get(3).getString("operation"));
+      assertEquals(12, changes.get(3).getLong("size"));
+
+      List<RecordedEvent> files = ofType(events, SnippetFileEvent.class);
+      assertEquals(2, files.size());
+      assertEquals("save", files.get(0).getString("operation"));
+      assertEquals("load", files.get(1).getString("operation"));
+      assertEquals(2, files.get(1).getInt("snippets"));
+      assertEquals(file.length(), files.get(1).getLong("size"));
+      assertEquals(file.getAbsolutePath(), files.get(1).getString("path"));
+
+      List<RecordedEvent> filters = ofType(events, FilterEvaluationEvent.class);
+      assertEquals(1, filters.size());
+      assertEquals(2, filters.get(0).getInt("snippets"));
+      assertEquals(1, filters.get(0).getInt("matches"));
+      assertEquals(3, filters.get(0).getLong("size"));
+
+      List<RecordedEvent> highlights = ofType(events, HighlightEvent.class);
+      assertEquals(1, highlights.size());
+      assertEquals("Java", highlights.get(0).getString("language"));
+      assertEquals(2, highlights.get(0).getInt("keywords"));
+      assertTrue(highlights.get(0).getDuration().toNanos() > 0);
+    }
+    finally {
+      recording.close();
+      file.delete();
+      dump.delete();
+    }
+  }
+
+  /**
+   * Test that sizes are those of the text encoded in UTF-8
+   */
+  @Test
+  public void testGetSize() {
+    for (String text : new String[] { "", "plain", "caf\u00e9", "\u20ac100", "\ud83d\ude00 smile" }) {
+      assertEquals(text, text.getBytes(StandardCharsets.UTF_8).length, SnippetEvent.getSize(text));
+    }
+    assertEquals(0, SnippetEvent.getSize((CharSequence) null));
+    assertEquals(8, SnippetEvent.getSize(Arrays.asList(withBody("a", "abc", "keyword"), withBody("b", "caf\u00e9", "keyword"))));
+  }
+}
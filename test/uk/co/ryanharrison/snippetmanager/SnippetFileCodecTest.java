@@ -0,0 +1,141 @@
+/**
+ * SnippetFileCodecTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for SnippetFileCodec
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetFileCodecTest {
+
+  /** The compressed file to save to in each test */
+  private File file;
+
+  /**
+   * Create the file to save to
+   *
+   * @throws IOException
+   *           If the file could not be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.file = File.createTempFile("snippets", ".xml.gz");
+  }
+
+  /**
+   * Delete the file
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Test that the codec of a stream is worked out from the bytes it starts with, and that the stream is left where it was
+   *
+   * @throws IOException
+   *           If a stream could not be read
+   */
+  @Test
+  public void testDetect() throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    OutputStream out = SnippetFileCodec.Gzip.encode(compressed);
+    out.write("<snippets/>".getBytes(StandardCharsets.UTF_8));
+    out.close();
+
+    InputStream in = new ByteArrayInputStream(compressed.toByteArray());
+    assertEquals("Should be gzip", SnippetFileCodec.Gzip, SnippetFileCodec.detect(in));
+    assertEquals("Stream should not have moved", 0x1f, in.read());
+
+    for (String plain : Arrays.asList("<snippets/>", "<", "")) {
+      in = new ByteArrayInputStream(plain.getBytes(StandardCharsets.UTF_8));
+      assertEquals("Should be plain", SnippetFileCodec.Plain, SnippetFileCodec.detect(in));
+      assertEquals("Stream should not have moved", plain.length(), in.available());
+    }
+  }
+
+  /**
+   * Test that a stream that cannot be reset is refused
+   *
+   * @throws IOException
+   *           If the stream could not be read
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testDetectUnmarkable() throws IOException {
+    SnippetFileCodec.detect(Files.newInputStream(this.file.toPath()));
+  }
+
+  /**
+   * Test that a file compressed with Zstandard is recognised and refused
+   *
+   * @throws IOException
+   *           If the stream could not be read
+   */
+  @Test(expected = IOException.class)
+  public void testDetectZstd() throws IOException {
+    SnippetFileCodec.detect(new BufferedInputStream(new ByteArrayInputStream(new byte[] { 0x28, (byte) 0xb5, 0x2f, (byte) 0xfd, 0 })));
+  }
+
+  /**
+   * Test that the codec of a file to write is worked out from its name
+   */
+  @Test
+  public void testForPath() {
+    assertEquals("Wrong codec", SnippetFileCodec.Gzip, SnippetFileCodec.forPath("snippets.xml.gz"));
+    assertEquals("Wrong codec", SnippetFileCodec.Gzip, SnippetFileCodec.forPath("SNIPPETS.XML.GZ"));
+    assertEquals("Wrong codec", SnippetFileCodec.Plain, SnippetFileCodec.forPath("snippets.xml"));
+  }
+
+  /**
+   * Test that a manager saves a compressed file when the name asks for it, and loads it back whatever it is named
+   *
+   * @throws Exception
+   *           If the snippets could not be saved or loaded
+   */
+  @Test
+  public void testRoundTrip() throws Exception {
+    SnippetManager manager = new SnippetManager();
+    manager.addAll(Arrays.asList(new Snippet("One", "data", "description", new HashSet<String>(Arrays.asList("keyword")),
+        Language.Java), new Snippet("Two", "more data", "", new HashSet<String>(), Language.Python)));
+    manager.saveSnippetsToFile(this.file.getAbsolutePath());
+
+    byte[] bytes = Files.readAllBytes(this.file.toPath());
+    assertTrue("File should be compressed", bytes[0] == 0x1f && bytes[1] == (byte) 0x8b);
+
+    // The content, not the name, says how the file is compressed
+    File renamed = new File(this.file.getAbsolutePath() + ".xml");
+    try {
+      Files.copy(this.file.toPath(), renamed.toPath());
+      SnippetManager loaded = new SnippetManager();
+      loaded.loadFromFile(renamed.getAbsolutePath());
+      assertEquals("Wrong number of snippets", 2, loaded.getSnippetCount());
+      assertEquals("Wrong content", "more data", loaded.getSnippetFromName("Two").getSnippet());
+      assertEquals("Wrong keywords", new HashSet<String>(Arrays.asList("keyword")), loaded.getSnippetFromName("One").getKeywords());
+    }
+    finally {
+      renamed.delete();
+    }
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * SnippetFileReaderTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Test class for SnippetFileReader
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetFileReaderTest {
+
+  /**
+   * A listener that records what it is told
+   */
+  private static class RecordingListener implements SnippetFileReader.Listener {
+
+    /** The languages read, in order */
+    private final List<Language> languages = new ArrayList<Language>();
+
+    /** The snippets read, in order */
+    private final List<Snippet>  snippets  = new ArrayList<Snippet>();
+
+    /** The number of bytes read each time progress was made */
+    private final List<Long>     progress  = new ArrayList<Long>();
+
+    /** The length of the file as given with the progress */
+    private long                 length;
+
+    /**
+     * Record a language and its snippets
+     *
+     * @see uk.co.ryanharrison.snippetmanager.SnippetFileReader.Listener#languageRead(uk.co.ryanharrison.snippetmanager.Language,
+     *      java.util.List)
+     */
+    @Override
+    public void languageRead(Language language, List<Snippet> snippets) {
+      this.languages.add(language);
+      this.snippets.addAll(snippets);
+    }
+
+    /**
+     * Record the progress
+     *
+     * @see uk.co.ryanharrison.snippetmanager.SnippetFileReader.Listener#progressMade(long, long)
+     */
+    @Override
+    public void progressMade(long read, long length) {
+      this.progress.add(read);
+      this.length = length;
+    }
+  }
+
+  /** The file to read in each test */
+  private File file;
+
+  /**
+   * Create the file to read
+   *
+   * @throws IOException
+   *           If the file could not be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.file = File.createTempFile("snippets", ".xml");
+  }
+
+  /**
+   * Delete the file
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Write some xml to the file
+   *
+   * @param xml
+   *          The xml to write
+   * @throws IOException
+   *           If the file could not be written
+   */
+  private void write(String xml) throws IOException {
+    Writer writer = new OutputStreamWriter(Files.newOutputStream(this.file.toPath()), StandardCharsets.UTF_8);
+    try {
+      writer.write(xml);
+    }
+    finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Test that an unchecked exception thrown by the listener stops the read and is passed on
+   *
+   * @throws Exception
+   *           If the file could not be read
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testListenerStopsRead() throws Exception {
+    SnippetManager manager = new SnippetManager();
+    manager.addSnippet(new Snippet("One", "data", "", new HashSet<String>(), Language.Java));
+    manager.saveSnippetsToFile(this.file.getAbsolutePath());
+    new SnippetFileReader(this.file).read(new RecordingListener() {
+
+      @Override
+      public void progressMade(long read, long length) {
+        throw new IllegalStateException("Stop");
+      }
+    });
+  }
+
+  /**
+   * Test that a snippet without all of its fields is rejected
+   *
+   * @throws Exception
+   *           If the file could not be read
+   */
+  @Test(expected = SAXException.class)
+  public void testMissingField() throws Exception {
+    this.write("<snippets><Java><snippet><name>One</name><data>x</data></snippet></Java></snippets>");
+    new SnippetFileReader(this.file).read(new RecordingListener());
+  }
+
+  /**
+   * Test that each language is handed over as it is read, with the same snippets as were saved, and that the progress reaches the
+   * length of the file
+   *
+   * @throws Exception
+   *           If the file could not be written or read
+   */
+  @Test
+  public void testRead() throws Exception {
+    SnippetManager manager = new SnippetManager();
+    Snippet one = new Snippet("One", "public class One {}", "First", new HashSet<String>(Arrays.asList("class", "java")), Language.Java);
+    Snippet two = new Snippet("Two", "print('caf\u00e9')", "", new HashSet<String>(), Language.Python);
+    Snippet three = new Snippet("Three", "int x;", "Third", new HashSet<String>(Arrays.asList("int")), Language.Java);
+    manager.addAll(Arrays.asList(one, two, three));
+    manager.saveSnippetsToFile(this.file.getAbsolutePath());
+
+    RecordingListener listener = new RecordingListener();
+    new SnippetFileReader(this.file).read(listener);
+    assertEquals("Each language should be read once", 2, new HashSet<Language>(listener.languages).size());
+    assertEquals("Every snippet should be read", 3, listener.snippets.size());
+    for (Snippet snippet : listener.snippets) {
+      Snippet saved = manager.getSnippetFromName(snippet.getName());
+      assertEquals("Wrong content", saved.getSnippet(), snippet.getSnippet());
+      assertEquals("Wrong description", saved.getDescription(), snippet.getDescription());
+      assertEquals("Wrong keywords", saved.getKeywords(), snippet.getKeywords());
+      assertEquals("Wrong language", saved.getLanguage(), snippet.getLanguage());
+    }
+
+    assertEquals("Wrong length", this.file.length(), listener.length);
+    assertEquals("Whole file should be read", Long.valueOf(this.file.length()), listener.progress.get(listener.progress.size() - 1));
+    for (int i = 1; i < listener.progress.size(); i++) {
+      assertTrue("Progress should only go up", listener.progress.get(i) > listener.progress.get(i - 1));
+    }
+  }
+
+  /**
+   * Test that a language element that is not named after a language is rejected
+   *
+   * @throws Exception
+   *           If the file could not be read
+   */
+  @Test(expected = SAXException.class)
+  public void testUnknownLanguage() throws Exception {
+    this.write("<snippets><Cobol></Cobol></snippets>");
+    new SnippetFileReader(this.file).read(new RecordingListener());
+  }
+}
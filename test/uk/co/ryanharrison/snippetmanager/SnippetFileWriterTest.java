@@ -0,0 +1,164 @@
+/**
+ * SnippetFileWriterTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for SnippetFileWriter
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetFileWriterTest {
+
+  /** The file to write in each test */
+  private File file;
+
+  /**
+   * Create the file to write
+   *
+   * @throws IOException
+   *           If the file could not be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.file = File.createTempFile("snippets", ".xml");
+  }
+
+  /**
+   * Delete the file
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Get the codec a file was written with, from the bytes it starts with
+   *
+   * @return The codec of the file
+   * @throws IOException
+   *           If the file could not be read
+   */
+  private SnippetFileCodec detect() throws IOException {
+    InputStream in = new BufferedInputStream(new FileInputStream(this.file));
+    try {
+      return SnippetFileCodec.detect(in);
+    }
+    finally {
+      in.close();
+    }
+  }
+
+  /**
+   * Test that a file is compressed with the codec it is given whatever it is named
+   *
+   * @throws Exception
+   *           If the file could not be written or read
+   */
+  @Test
+  public void testCodec() throws Exception {
+    Map<Language, Collection<Snippet>> snippets = new LinkedHashMap<Language, Collection<Snippet>>();
+    snippets.put(Language.Java, Arrays.asList(new Snippet("One", "data", "", new HashSet<String>(), Language.Java)));
+
+    new SnippetFileWriter(this.file).write(snippets);
+    assertEquals("Name should choose the codec", SnippetFileCodec.Plain, this.detect());
+
+    SnippetFileWriter writer = new SnippetFileWriter(this.file, SnippetFileCodec.Gzip);
+    writer.write(snippets);
+    assertEquals("Wrong codec", SnippetFileCodec.Gzip, writer.getCodec());
+    assertEquals("Given codec should be used", SnippetFileCodec.Gzip, this.detect());
+    SnippetManager manager = new SnippetManager();
+    manager.loadFromFile(this.file.getAbsolutePath());
+    assertEquals("Wrong number of snippets", 1, manager.getSnippetCount());
+  }
+
+  /**
+   * Test that a write that fails part way through leaves the file it was replacing as it was, and no other file behind
+   *
+   * @throws Exception
+   *           If the file could not be written or read
+   */
+  @Test
+  public void testFailedWrite() throws Exception {
+    Map<Language, Collection<Snippet>> snippets = new LinkedHashMap<Language, Collection<Snippet>>();
+    snippets.put(Language.Java, Arrays.asList(new Snippet("One", "data", "", new HashSet<String>(), Language.Java)));
+    new SnippetFileWriter(this.file).write(snippets);
+    byte[] saved = Files.readAllBytes(this.file.toPath());
+
+    snippets.put(Language.Python, new AbstractList<Snippet>() {
+
+      @Override
+      public Snippet get(int index) {
+        throw new IllegalStateException("Failed part way through");
+      }
+
+      @Override
+      public int size() {
+        return 1;
+      }
+    });
+    try {
+      new SnippetFileWriter(this.file).write(snippets);
+      fail("Write should have failed");
+    }
+    catch (IllegalStateException e) {
+      // Expected
+    }
+    assertArrayEquals("File should be unchanged", saved, Files.readAllBytes(this.file.toPath()));
+    String[] left = this.file.getParentFile().list();
+    for (String name : left) {
+      if (name.startsWith("." + this.file.getName())) {
+        fail("Incomplete file left behind: " + name);
+      }
+    }
+  }
+
+  /**
+   * Test that snippets written are read back the same, including text that has to be escaped
+   *
+   * @throws Exception
+   *           If the file could not be written or read
+   */
+  @Test
+  public void testRoundTrip() throws Exception {
+    Snippet generic = new Snippet("List<T> & co", "  List<String> a = \"b\" && c;\n  return a;\n", "Less < more > \"quoted\"",
+        new HashSet<String>(Arrays.asList("generics", "lists")), Language.Java);
+    Snippet python = new Snippet("Print", "print('\u00e9')", "Unicode", new HashSet<String>(), Language.Python);
+    Map<Language, Collection<Snippet>> snippets = new LinkedHashMap<Language, Collection<Snippet>>();
+    snippets.put(Language.Java, Arrays.asList(generic));
+    snippets.put(Language.Python, Arrays.asList(python));
+    new SnippetFileWriter(this.file).write(snippets);
+
+    SnippetManager manager = new SnippetManager();
+    manager.loadFromFile(this.file.getAbsolutePath());
+    assertEquals("Wrong number of snippets", 2, manager.getSnippetCount());
+    Snippet read = manager.getSnippetFromName("List<T> & co");
+    assertEquals("Wrong body", generic.getSnippet().trim(), read.getSnippet());
+    assertEquals("Wrong description", generic.getDescription(), read.getDescription());
+    assertEquals("Wrong keywords", generic.getKeywords(), read.getKeywords());
+    assertEquals("Wrong language", Language.Java, read.getLanguage());
+    assertEquals("Wrong unicode body", python.getSnippet(), manager.getSnippetFromName("Print").getSnippet());
+  }
+}
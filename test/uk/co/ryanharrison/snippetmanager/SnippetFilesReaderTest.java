@@ -0,0 +1,239 @@
+/**
+ * SnippetFilesReaderTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.xml.sax.SAXException;
+
+/**
+ * Test class for SnippetFilesReader
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetFilesReaderTest {
+
+  /** The directory holding the files to read in each test */
+  private File directory;
+
+  /**
+   * Create the directory
+   *
+   * @throws IOException
+   *           If the directory could not be created
+   */
+  @Before
+  public void setUp() throws IOException {
+    this.directory = Files.createTempDirectory("snippets").toFile();
+  }
+
+  /**
+   * Delete the directory and the files in it
+   */
+  @After
+  public void tearDown() {
+    for (File file : this.directory.listFiles()) {
+      file.delete();
+    }
+    this.directory.delete();
+  }
+
+  /**
+   * Get the content of each snippet
+   *
+   * @param snippets
+   *          The snippets
+   * @return The content of each snippet, in the same order
+   */
+  private static List<String> contents(List<Snippet> snippets) {
+    List<String> contents = new ArrayList<String>();
+    for (Snippet snippet : snippets) {
+      contents.add(snippet.getSnippet());
+    }
+    return contents;
+  }
+
+  /**
+   * Save a file of snippets into the directory, where each snippet has the name it is given and content naming the file
+   *
+   * @param name
+   *          The name of the file
+   * @param snippets
+   *          The names of the snippets in the file
+   * @return The file
+   * @throws Exception
+   *           If the file could not be saved
+   */
+  private File save(String name, String... snippets) throws Exception {
+    SnippetManager manager = new SnippetManager();
+    for (String snippet : snippets) {
+      manager.addSnippet(new Snippet(snippet, name + ":" + snippet, "", new HashSet<String>(), Language.Java));
+    }
+    File file = new File(this.directory, name);
+    manager.saveSnippetsToFile(file.getAbsolutePath());
+    return file;
+  }
+
+  /**
+   * Test that a file that cannot be read fails the read as soon as it has been read, even while a file before it is still being
+   * read, and that the file still being read is stopped
+   *
+   * @throws Exception
+   *           If a file could not be saved
+   */
+  @Test(timeout = 10000)
+  public void testFailFast() throws Exception {
+    File invalid = new File(this.directory, "invalid.xml");
+    Files.write(invalid.toPath(), "<snippets><Java>".getBytes("UTF-8"));
+    final File slow = this.save("a.xml", "One");
+    final CountDownLatch started = new CountDownLatch(1);
+    final CountDownLatch stopped = new CountDownLatch(1);
+    SnippetFilesReader reader = new SnippetFilesReader(Arrays.asList(slow, invalid), ConflictPolicy.KeepFirst) {
+
+      @Override
+      protected void fileRead(File file, int snippets) {
+        if (file.equals(slow)) {
+          started.countDown();
+          try {
+            // Never finishes unless it is stopped
+            new CountDownLatch(1).await();
+          }
+          catch (InterruptedException e) {
+            stopped.countDown();
+          }
+        }
+      }
+    };
+    try {
+      reader.read();
+      fail("Read should have failed");
+    }
+    catch (SAXException e) {
+      // Expected
+    }
+    // The invalid file can fail before the slow file has begun, in which case it is never read at all
+    assertTrue("Slow file should have been stopped", stopped.await(5, TimeUnit.SECONDS) || started.getCount() == 1);
+  }
+
+  /**
+   * Test that a directory is replaced by the files of snippets in it, in order of name, and that other files are left as they are
+   *
+   * @throws Exception
+   *           If a file could not be saved
+   */
+  @Test
+  public void testExpand() throws Exception {
+    File b = this.save("b.xml", "One");
+    File a = this.save("a.xml.gz", "Two");
+    Files.write(new File(this.directory, "notes.txt").toPath(), new byte[] { 1 });
+    File other = new File("other.xml");
+
+    assertEquals("Wrong files", Arrays.asList(other, a, b), SnippetFilesReader.expand(Arrays.asList(other, this.directory)));
+  }
+
+  /**
+   * Test that a file that cannot be read fails the whole read
+   *
+   * @throws Exception
+   *           If the files could not be read
+   */
+  @Test(expected = SAXException.class)
+  public void testInvalidFile() throws Exception {
+    File invalid = new File(this.directory, "invalid.xml");
+    Files.write(invalid.toPath(), "<snippets><Java>".getBytes("UTF-8"));
+    new SnippetFilesReader(Arrays.asList(this.save("a.xml", "One"), invalid), ConflictPolicy.KeepFirst).read();
+  }
+
+  /**
+   * Test that a manager given a directory with no files of snippets in it fails rather than emptying itself
+   *
+   * @throws Exception
+   *           If a snippet could not be added or the notes could not be written
+   */
+  @Test
+  public void testLoadFromEmptyDirectory() throws Exception {
+    Files.write(new File(this.directory, "notes.txt").toPath(), new byte[] { 1 });
+    SnippetManager manager = new SnippetManager();
+    manager.addSnippet(new Snippet("Old", "data", "", new HashSet<String>(), Language.Python));
+
+    try {
+      manager.loadFromFiles(Arrays.asList(this.directory.getAbsolutePath()), ConflictPolicy.KeepFirst);
+      fail("Load should have failed");
+    }
+    catch (IOException e) {
+      // Expected
+    }
+    assertEquals("Old snippets should be kept", 1, manager.getSnippetCount());
+  }
+
+  /**
+   * Test that a manager loads several files, replacing its snippets
+   *
+   * @throws Exception
+   *           If the files could not be saved or loaded
+   */
+  @Test
+  public void testLoadFromFiles() throws Exception {
+    this.save("a.xml", "One", "Two");
+    this.save("b.xml.gz", "Three");
+    SnippetManager manager = new SnippetManager();
+    manager.addSnippet(new Snippet("Old", "data", "", new HashSet<String>(), Language.Python));
+
+    manager.loadFromFiles(Arrays.asList(this.directory.getAbsolutePath()), ConflictPolicy.KeepFirst);
+    assertEquals("Wrong number of snippets", 3, manager.getSnippetCount());
+    assertEquals("Wrong content", "b.xml.gz:Three", manager.getSnippetFromName("Three").getSnippet());
+    assertEquals("Old snippets should be replaced", null, manager.getSnippetFromName("Old"));
+  }
+
+  /**
+   * Test that a policy of failing fails on a name in more than one file, ignoring case
+   *
+   * @throws Exception
+   *           If the files could not be read
+   */
+  @Test(expected = DuplicateSnippetException.class)
+  public void testPolicyFail() throws Exception {
+    new SnippetFilesReader(Arrays.asList(this.save("a.xml", "One"), this.save("b.xml", "ONE")), ConflictPolicy.Fail).read();
+  }
+
+  /**
+   * Test that the files are merged in the order given, whatever order they are read in, keeping the first or last snippet of each
+   * name as the policy says
+   *
+   * @throws Exception
+   *           If the files could not be saved or read
+   */
+  @Test
+  public void testPolicyKeep() throws Exception {
+    List<File> files = new ArrayList<File>();
+    for (int i = 0; i < 8; i++) {
+      files.add(this.save("file" + i + ".xml", "Common", "Own" + i));
+    }
+
+    List<Snippet> first = new SnippetFilesReader(files, ConflictPolicy.KeepFirst).read();
+    assertEquals("Wrong number of snippets", 9, first.size());
+    assertEquals("First file should win", "file0.xml:Common", first.get(0).getSnippet());
+
+    List<Snippet> last = new SnippetFilesReader(files, ConflictPolicy.KeepLast).read();
+    assertEquals("Wrong number of snippets", 9, last.size());
+    assertEquals("Last file should win", "file7.xml:Common", last.get(0).getSnippet());
+    assertEquals("Others should be kept in order", contents(first.subList(1, 9)), contents(last.subList(1, 9)));
+  }
+}
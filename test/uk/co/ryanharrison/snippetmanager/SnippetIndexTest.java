@@ -0,0 +1,132 @@
+/**
+ * SnippetIndexTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.snippet;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.withBody;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Test class for SnippetIndex
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetIndexTest {
+
+  /**
+   * Test that a snippet whose body changes while it is indexed is removed by what it was indexed by, and that adding it again
+   * replaces what it was indexed by
+   */
+  @Test
+  public void testChangedBody() {
+    TrigramIndex index = new TrigramIndex();
+    Snippet changed = withBody("changed", "alpha text");
+    index.add(changed);
+    changed.setSnippet("omega text");
+    index.add(changed);
+    assertEquals("Old body should not be found", Collections.emptyList(), index.getCandidates(Pattern.compile("alpha")));
+    assertEquals("New body should be found", Collections.singletonList(changed), index.getCandidates(Pattern.compile("omega")));
+
+    changed.setSnippet("gamma text");
+    index.remove(changed);
+    Snippet other = withBody("other", "other text");
+    index.add(other);
+    assertEquals("Removed body should not be found", Collections.emptyList(), index.getCandidates(Pattern.compile("omega")));
+    assertEquals("Wrong number of snippets", 1, index.size());
+  }
+
+  /**
+   * Test that searches running alongside writers always see whole snippets, and that every snippet written is found at the end
+   *
+   * @throws Exception
+   *           If a thread failed
+   */
+  @Test
+  public void testConcurrentAccess() throws Exception {
+    final FuzzyIndex index = new FuzzyIndex();
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      List<Future<Void>> results = new ArrayList<Future<Void>>();
+      for (int writer = 0; writer < 2; writer++) {
+        final String name = writer == 0 ? "alpha" : "omega";
+        results.add(executor.submit(new Callable<Void>() {
+
+          @Override
+          public Void call() {
+            for (int i = 0; i < 500; i++) {
+              Snippet snippet = snippet(name + i);
+              index.add(snippet);
+              if (i % 2 == 1) {
+                index.remove(snippet);
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (int reader = 0; reader < 2; reader++) {
+        results.add(executor.submit(new Callable<Void>() {
+
+          @Override
+          public Void call() {
+            for (int i = 0; i < 500; i++) {
+              for (Snippet snippet : index.find("alpah")) {
+                assertTrue("Found snippet should be whole", snippet.getName().startsWith("alpha"));
+              }
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> result : results) {
+        result.get();
+      }
+    }
+    finally {
+      executor.shutdownNow();
+    }
+    assertEquals("Wrong number of snippets", 500, index.size());
+  }
+
+  /**
+   * Test that the slot of a removed snippet is given to the next snippet added, and that clearing frees every slot
+   */
+  @Test
+  public void testSlotReuse() {
+    KeywordIndex index = new KeywordIndex();
+    List<Snippet> snippets = new ArrayList<Snippet>();
+    for (String name : Arrays.asList("first", "second", "third")) {
+      Snippet snippet = snippet(name, "shared");
+      snippets.add(snippet);
+      index.add(snippet);
+    }
+    index.add(snippets.get(0));
+    assertEquals("Adding twice should have no effect", 3, index.size());
+
+    index.remove(snippets.get(1));
+    Snippet fourth = snippet("fourth", "shared");
+    index.add(fourth);
+    assertEquals("Freed slot should be reused", Arrays.asList(snippets.get(0), fourth, snippets.get(2)),
+        index.findAll(Collections.singletonList("shared")));
+
+    index.clear();
+    assertEquals("Wrong number of snippets", 0, index.size());
+    index.add(fourth);
+    assertEquals("Wrong snippets", Collections.singletonList(fourth), index.findAll(Collections.singletonList("shared")));
+  }
+}
@@ -0,0 +1,136 @@
+/**
+ * SnippetLibraryGenerator.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Generates synthetic snippet libraries of any size for benchmarks. Libraries are built from a fixed seed, so the same size always
+ * gives the same library and results can be compared between runs. Words are drawn with a skewed distribution so that a few are
+ * very common and most are rare, as in a real library, and bodies are built from the keywords of the language of each snippet so
+ * that syntax highlighting has realistic work to do.
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetLibraryGenerator {
+
+  /** Words that names, descriptions, keywords and identifiers are made from, most common first */
+  private static final String[] WORDS = { "list", "map", "string", "file", "sort", "read", "write", "thread", "parse", "json", "xml",
+      "date", "format", "buffer", "stream", "socket", "http", "regex", "hash", "queue", "tree", "graph", "cache", "lock", "pool",
+      "timer", "event", "button", "dialog", "table", "image", "colour", "random", "matrix", "vector", "binary", "search", "merge",
+      "split", "join", "trim", "encode", "decode", "compress", "encrypt", "database", "query", "cursor", "logger", "config" };
+
+  /** The source of randomness, seeded so that libraries are repeatable */
+  private Random                random;
+
+  /** The approximate number of lines in each body */
+  private int                   lines;
+
+  /**
+   * Create a new generator with bodies of about twenty lines
+   *
+   * @param seed
+   *          The seed of the generator. The same seed always generates the same libraries
+   */
+  public SnippetLibraryGenerator(long seed) {
+    this(seed, 20);
+  }
+
+  /**
+   * Create a new generator
+   *
+   * @param seed
+   *          The seed of the generator. The same seed always generates the same libraries
+   * @param lines
+   *          The approximate number of lines in each body
+   */
+  public SnippetLibraryGenerator(long seed, int lines) {
+    super();
+    this.random = new Random(seed);
+    this.lines = lines;
+  }
+
+  /**
+   * Make the first letter of a word upper case
+   *
+   * @param word
+   *          The word
+   * @return The word with its first letter in upper case
+   */
+  private static String capitalise(String word) {
+    return Character.toUpperCase(word.charAt(0)) + word.substring(1);
+  }
+
+  /**
+   * Generate the body of a snippet from the keywords of its language and some identifiers
+   *
+   * @param language
+   *          The language of the snippet
+   * @return A new body
+   */
+  public String generateBody(Language language) {
+    String[] keywords = language.getPattern().replace("\\b", "").split("\\|");
+    StringBuilder body = new StringBuilder();
+    int count = this.lines / 2 + this.random.nextInt(this.lines + 1);
+    for (int line = 0; line < count; line++) {
+      int indent = this.random.nextInt(4);
+      for (int i = 0; i < indent; i++) {
+        body.append("  ");
+      }
+      int tokens = 2 + this.random.nextInt(6);
+      for (int i = 0; i < tokens; i++) {
+        if (keywords.length > 1 && this.random.nextInt(3) == 0) {
+          body.append(keywords[this.random.nextInt(keywords.length)]);
+        }
+        else {
+          body.append(this.nextWord()).append(this.random.nextInt(3) == 0 ? "(" + this.nextWord() + ")" : "");
+        }
+        body.append(i + 1 < tokens ? " " : ";");
+      }
+      body.append('\n');
+    }
+    return body.toString();
+  }
+
+  /**
+   * Generate a library of snippets with distinct names
+   *
+   * @param count
+   *          The number of snippets to generate
+   * @return The new snippets
+   */
+  public List<Snippet> generateLibrary(int count) {
+    Language[] languages = Language.values();
+    List<Snippet> library = new ArrayList<Snippet>(count);
+    for (int i = 0; i < count; i++) {
+      Language language = languages[this.random.nextInt(languages.length)];
+      // The number keeps the names distinct, the words make them worth searching
+      String name = capitalise(this.nextWord()) + " " + this.nextWord() + " " + i;
+      String description = "How to " + this.nextWord() + " a " + this.nextWord() + " with " + this.nextWord();
+      Set<String> keywords = new HashSet<String>();
+      int keywordCount = 1 + this.random.nextInt(4);
+      for (int k = 0; k < keywordCount; k++) {
+        keywords.add(this.nextWord());
+      }
+      library.add(new Snippet(name, this.generateBody(language), description, keywords, language));
+    }
+    return library;
+  }
+
+  /**
+   * Get a word from the vocabulary, favouring the words at the start of it
+   *
+   * @return A random word
+   */
+  public String nextWord() {
+    // Squaring a uniform number skews it towards zero, so early words are picked far more often than later ones
+    double skewed = this.random.nextDouble();
+    return WORDS[(int) (skewed * skewed * WORDS.length)];
+  }
+}
@@ -0,0 +1,192 @@
+/**
+ * SnippetLoaderTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for SnippetLoader
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetLoaderTest {
+
+  /**
+   * A loader that records how it finished
+   */
+  private static class RecordingLoader extends SnippetLoader {
+
+    /** Counted down once the loader has finished */
+    private final CountDownLatch finished = new CountDownLatch(1);
+
+    /** The error the loader finished with */
+    private volatile Exception   error;
+
+    /**
+     * Create a new loader
+     *
+     * @param manager
+     *          The manager to load the snippets into
+     * @param file
+     *          The file to load
+     */
+    public RecordingLoader(SnippetManager manager, File file) {
+      super(manager, file);
+    }
+
+    /**
+     * Wait for the loader to finish
+     *
+     * @throws InterruptedException
+     *           If interrupted while waiting
+     */
+    public void await() throws InterruptedException {
+      assertTrue("Loader did not finish", this.finished.await(10, TimeUnit.SECONDS));
+    }
+
+    /**
+     * Record the error and that the loader has finished
+     *
+     * @see uk.co.ryanharrison.snippetmanager.SnippetLoader#finished(java.lang.Exception)
+     */
+    @Override
+    protected void finished(Exception error) {
+      this.error = error;
+      this.finished.countDown();
+    }
+  }
+
+  /** The file to load in each test */
+  private File             file;
+
+  /** The manager to load the file into, which holds a single snippet before the load */
+  private SnippetManager   manager;
+
+  /** The snippet held before the load */
+  private Snippet          existing;
+
+  /** The changes the manager has notified, in order */
+  private List<ChangeType> changes;
+
+  /**
+   * Save a file holding snippets of several languages, and create a manager holding a different snippet
+   *
+   * @throws Exception
+   *           If the file could not be saved
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.file = File.createTempFile("snippets", ".xml");
+    SnippetManager source = new SnippetManager();
+    List<Snippet> snippets = new ArrayList<Snippet>();
+    for (Language language : Arrays.asList(Language.Java, Language.Python, Language.PHP)) {
+      for (int i = 0; i < 50; i++) {
+        snippets.add(new Snippet(language + " " + i, "data " + i, "", new HashSet<String>(Arrays.asList("keyword")), language));
+      }
+    }
+    source.addAll(snippets);
+    source.saveSnippetsToFile(this.file.getAbsolutePath());
+
+    this.changes = new ArrayList<ChangeType>();
+    this.manager = new SnippetManager();
+    this.existing = new Snippet("Existing", "data", "", new HashSet<String>(), Language.Java);
+    this.manager.addSnippet(this.existing);
+    this.manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        SnippetLoaderTest.this.changes.add(type);
+      }
+    });
+  }
+
+  /**
+   * Delete the file
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Test that cancelling the loader part way through puts back the snippets held before
+   *
+   * @throws Exception
+   *           If the loader did not finish
+   */
+  @Test
+  public void testCancel() throws Exception {
+    RecordingLoader loader = new RecordingLoader(this.manager, this.file) {
+
+      @Override
+      public void languageRead(Language language, List<Snippet> snippets) {
+        super.languageRead(language, snippets);
+        // Cancel once the first language has been handed over, so the rest of the file is not read
+        this.cancel(false);
+      }
+    };
+    loader.execute();
+    loader.await();
+
+    assertTrue("Loader should be cancelled", loader.isCancelled());
+    assertNull("Cancelling is not an error", loader.error);
+    assertEquals("Previous snippets should be back", 1, this.manager.getSnippetCount());
+    assertEquals("Previous snippets should be back", this.existing, this.manager.getSnippetFromName("Existing"));
+    assertTrue("Should not finish as a load", !this.changes.contains(ChangeType.Load));
+  }
+
+  /**
+   * Test that an error reading the file puts back the snippets held before and is reported
+   *
+   * @throws Exception
+   *           If the loader did not finish
+   */
+  @Test
+  public void testError() throws Exception {
+    RecordingLoader loader = new RecordingLoader(this.manager, new File(this.file.getAbsolutePath() + ".missing"));
+    loader.execute();
+    loader.await();
+
+    assertTrue("Error should be reported", loader.error instanceof IOException);
+    assertEquals("Previous snippets should be back", 1, this.manager.getSnippetCount());
+  }
+
+  /**
+   * Test that the whole file replaces the snippets held before, with each language added as a part before the load finishes
+   *
+   * @throws Exception
+   *           If the loader did not finish
+   */
+  @Test
+  public void testLoad() throws Exception {
+    RecordingLoader loader = new RecordingLoader(this.manager, this.file);
+    loader.execute();
+    loader.await();
+
+    assertNull("Should be no error", loader.error);
+    assertEquals("Wrong number of snippets read", Integer.valueOf(150), loader.get());
+    assertEquals("Wrong number of snippets", 150, this.manager.getSnippetCount());
+    assertNull("Previous snippets should be replaced", this.manager.getSnippetFromName("Existing"));
+    assertEquals("Progress should reach the end", 100, loader.getProgress());
+    // The set is emptied, then each of the three languages is added, then the load finishes
+    assertEquals("Wrong changes", Arrays.asList(ChangeType.Loading, ChangeType.Loading, ChangeType.Loading, ChangeType.Loading,
+        ChangeType.Load), this.changes);
+  }
+}
@@ -5,10 +5,17 @@
 package uk.co.ryanharrison.snippetmanager;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.List;
 
 import javax.swing.tree.TreeNode;
 
@@ -31,6 +38,64 @@ public class SnippetManagerTest {
   private static Snippet sampleSnippet;
   private static Snippet sampleSnippet2;
 
+  /**
+   * Write a snippet as it is held in a file
+   * 
+   * @param name
+   *          The name of the snippet
+   * @param data
+   *          The content of the snippet
+   * @return The xml of the snippet
+   */
+  private static String snippetXml(String name, String data) {
+    return "<snippet><name>" + name + "</name><data>" + data + "</data><description>d</description><keywords>k</keywords></snippet>";
+  }
+
+  /**
+   * Test that a batch of snippets can be added to the manager with a single notification.
+   * 
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists.
+   */
+  @Test
+  public void testAddAll() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    final int[] notifications = new int[1];
+    manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        notifications[0]++;
+      }
+    });
+
+    Snippet third = new Snippet("Third", "data", "description", new HashSet<String>(), Language.Python);
+    manager.addAll(Arrays.asList(SnippetManagerTest.sampleSnippet, SnippetManagerTest.sampleSnippet2, third));
+    assertEquals("Wrong number of snippets", 3, manager.getSnippetCount());
+    assertEquals("Wrong number of notifications", 1, notifications[0]);
+    assertEquals("Snippet should be found by name", third, manager.getSnippetFromName("third"));
+  }
+
+  /**
+   * Test that no snippets in a batch are added if one of them already exists.
+   * 
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists.
+   */
+  @Test
+  public void testAddAllDuplicate() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    manager.addSnippet(SnippetManagerTest.sampleSnippet);
+    try {
+      manager.addAll(Arrays.asList(SnippetManagerTest.sampleSnippet2, SnippetManagerTest.sampleSnippet));
+    }
+    catch (DuplicateSnippetException e) {
+      // Expected
+    }
+    assertEquals("Batch should not be partly added", 1, manager.getSnippetCount());
+    assertNull("Batch should not be partly added", manager.getSnippetFromName(SnippetManagerTest.sampleSnippet2.getName()));
+  }
+
   /**
    * Test that an exception is thrown if a snippet is added to the model that already exists in it.
    * 
@@ -84,6 +149,39 @@ public class SnippetManagerTest {
     assertEquals("Wrong number of snippets", 0, manager.getSnippetCount());
   }
 
+  /**
+   * Test that a batch of snippets can be deleted from the manager with a single notification, ignoring snippets it does not hold.
+   * 
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists.
+   */
+  @Test
+  public void testDeleteAll() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    Snippet third = new Snippet("Third", "data", "description", new HashSet<String>(), Language.Python);
+    manager.addAll(Arrays.asList(SnippetManagerTest.sampleSnippet, SnippetManagerTest.sampleSnippet2, third));
+
+    final int[] notifications = new int[1];
+    manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        notifications[0]++;
+      }
+    });
+
+    Snippet missing = new Snippet("Missing", "data", "description", new HashSet<String>(), Language.Java);
+    manager.deleteAll(Arrays.asList(SnippetManagerTest.sampleSnippet, third, missing));
+    assertEquals("Wrong number of snippets", 1, manager.getSnippetCount());
+    assertEquals("Wrong number of notifications", 1, notifications[0]);
+    assertNull("Snippet should be deleted", manager.getSnippetFromName("third"));
+    assertNotNull("Snippet should not be deleted", manager.getSnippetFromName(SnippetManagerTest.sampleSnippet2.getName()));
+
+    // Nothing has changed if none of the snippets are held, so observers are not told of a change
+    manager.deleteAll(Arrays.asList(third, missing));
+    assertEquals("Wrong number of notifications", 1, notifications[0]);
+  }
+
   /**
    * Test that an exception is thrown when a null snippet is deleted.
    * 
@@ -181,6 +279,95 @@ public class SnippetManagerTest {
     assertNull(snippet);
   }
 
+  /**
+   * Test that a file holding the same name more than once, in different cases and languages, is loaded with only the first of them,
+   * so the count, iteration, lookup by name and deletion all agree.
+   * 
+   * @throws Exception
+   *           If the file could not be written or loaded.
+   */
+  @Test
+  public void testLoadDuplicateNames() throws Exception {
+    File file = File.createTempFile("snippets", ".xml");
+    try {
+      String xml = "<snippets><Java>" + snippetXml("Sort", "java") + "</Java><Python>" + snippetXml("sort", "python")
+          + snippetXml("SORT", "again") + snippetXml("Other", "other") + "</Python></snippets>";
+      Files.write(file.toPath(), xml.getBytes("UTF-8"));
+      SnippetManager manager = new SnippetManager();
+      manager.loadFromFile(file.getAbsolutePath());
+
+      List<Snippet> iterated = new ArrayList<Snippet>();
+      for (Snippet snippet : manager) {
+        iterated.add(snippet);
+      }
+      assertEquals("Wrong number of snippets", 2, manager.getSnippetCount());
+      assertEquals("Iteration should agree with the count", 2, iterated.size());
+      assertEquals("First snippet with the name should be kept", "java", manager.getSnippetFromName("sort").getSnippet());
+
+      for (Snippet snippet : iterated) {
+        manager.deleteSnippet(snippet);
+      }
+      assertEquals("Every snippet should be deleted", 0, manager.getSnippetCount());
+      assertFalse("Nothing should be left", manager.iterator().hasNext());
+    }
+    finally {
+      file.delete();
+    }
+  }
+
+  /**
+   * Test that a load in parts starts from an empty set, adds each part while leaving out names already held, and puts the previous
+   * snippets back when it is cancelled.
+   * 
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists.
+   */
+  @Test
+  public void testLoadInParts() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    final List<ChangeType> changes = new ArrayList<ChangeType>();
+    manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        changes.add(type);
+      }
+    });
+    manager.addSnippet(SnippetManagerTest.sampleSnippet);
+
+    manager.beginLoad();
+    assertEquals("Set should be empty while loading", 0, manager.getSnippetCount());
+    Snippet third = new Snippet("Third", "data", "description", new HashSet<String>(), Language.Python);
+    Snippet copy = new Snippet("third", "other", "description", new HashSet<String>(), Language.Java);
+    assertEquals("Duplicate name should be left out", 2,
+        manager.loadPart(Arrays.asList(SnippetManagerTest.sampleSnippet2, third, copy)));
+    assertEquals("Duplicate name should be left out", 0, manager.loadPart(Arrays.asList(copy)));
+    assertEquals("Wrong number of snippets", 2, manager.getSnippetCount());
+    assertEquals("First snippet with a name should be kept", third, manager.getSnippetFromName("THIRD"));
+
+    manager.cancelLoad();
+    assertEquals("Previous snippets should be back", 1, manager.getSnippetCount());
+    assertEquals("Previous snippets should be back", SnippetManagerTest.sampleSnippet,
+        manager.getSnippetFromName(SnippetManagerTest.sampleSnippet.getName()));
+    assertNull("Part should be discarded", manager.getSnippetFromName("Third"));
+
+    manager.beginLoad();
+    manager.loadPart(Arrays.asList(third));
+    manager.endLoad();
+    assertEquals("Loaded snippets should be kept", 1, manager.getSnippetCount());
+    assertEquals("Loaded snippets should be kept", third, manager.getSnippetFromName("Third"));
+    assertEquals("Wrong notifications", Arrays.asList(ChangeType.Add, ChangeType.Loading, ChangeType.Loading, ChangeType.Loading,
+        ChangeType.Loading, ChangeType.Loading, ChangeType.Loading, ChangeType.Load), changes);
+  }
+
+  /**
+   * Test that a part cannot be loaded unless a load has begun.
+   */
+  @Test(expected = IllegalStateException.class)
+  public void testLoadPartNotLoading() {
+    new SnippetManager().loadPart(Arrays.asList(SnippetManagerTest.sampleSnippet));
+  }
+
   /**
    * Test that a root tree node containing all the snippets currently in the manager can be generated.
    * 
@@ -213,6 +400,27 @@ public class SnippetManagerTest {
     manager.updateSnippet(null, sampleSnippet2);
   }
 
+  /**
+   * Test that the content of a snippet held by the manager can be changed in place, and that a copy of it is not changed.
+   * 
+   * @throws DuplicateSnippetException
+   *           If the snippet already exists.
+   */
+  @Test
+  public void testUpdateSnippetBody() throws DuplicateSnippetException {
+    SnippetManager manager = new SnippetManager();
+    Snippet snippet = new Snippet("name", "data", "description", new HashSet<String>(), Language.Java);
+    manager.addSnippet(snippet);
+
+    assertTrue("Held snippet should be updated", manager.updateSnippetBody(snippet, "new data"));
+    assertEquals("Wrong content", "new data", manager.getSnippetFromName("name").getSnippet());
+    assertEquals("Wrong number of snippets", 1, manager.getSnippetCount());
+
+    Snippet copy = new Snippet("name", "data", "description", new HashSet<String>(), Language.Java);
+    assertFalse("Copy should not be updated", manager.updateSnippetBody(copy, "other data"));
+    assertEquals("Wrong content", "new data", manager.getSnippetFromName("name").getSnippet());
+  }
+
   /**
    * Test that an existing snippet can be updated to become another snippet.
    * 
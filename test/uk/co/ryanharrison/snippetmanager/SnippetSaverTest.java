@@ -0,0 +1,106 @@
+/**
+ * SnippetSaverTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import javax.xml.transform.TransformerException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for SnippetSaver
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetSaverTest {
+
+  /** The file to save to in each test */
+  private File file;
+
+  /**
+   * Create the file to save to
+   *
+   * @throws Exception
+   *           If the file could not be created
+   */
+  @Before
+  public void setUp() throws Exception {
+    this.file = File.createTempFile("snippets", ".xml");
+  }
+
+  /**
+   * Delete the file
+   */
+  @After
+  public void tearDown() {
+    this.file.delete();
+  }
+
+  /**
+   * Test that the file holds the snippets as they were when the saver was created, not as they are when it runs, and that
+   * observers are told of the save
+   *
+   * @throws Exception
+   *           If the snippets could not be saved or loaded
+   */
+  @Test
+  public void testSavesSnapshot() throws Exception {
+    SnippetManager manager = new SnippetManager();
+    Snippet one = new Snippet("One", "original", "", new HashSet<String>(), Language.Java);
+    manager.addAll(Arrays.asList(one, new Snippet("Two", "data", "", new HashSet<String>(), Language.Python)));
+    final List<ChangeType> changes = new ArrayList<ChangeType>();
+    manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        changes.add(type);
+      }
+    });
+
+    SnippetSaver saver = new SnippetSaver(manager, this.file.getAbsolutePath());
+    // Carry on editing before the saver has run
+    manager.updateSnippetBody(one, "edited");
+    manager.addSnippet(new Snippet("Three", "data", "", new HashSet<String>(), Language.Java));
+    saver.execute();
+    assertEquals("Wrong number of snippets saved", Integer.valueOf(2), saver.get());
+
+    SnippetManager loaded = new SnippetManager();
+    loaded.loadFromFile(this.file.getAbsolutePath());
+    assertEquals("File should hold the snapshot", 2, loaded.getSnippetCount());
+    assertEquals("File should hold the content as it was", "original", loaded.getSnippetFromName("One").getSnippet());
+    assertNull("File should not hold later snippets", loaded.getSnippetFromName("Three"));
+    assertEquals("Manager should keep its changes", "edited", one.getSnippet());
+    assertEquals("Wrong changes", Arrays.asList(ChangeType.Add, ChangeType.Save), changes);
+  }
+
+  /**
+   * Test that a failure to write the file is passed on
+   *
+   * @throws Exception
+   *           If the saver was interrupted
+   */
+  @Test(expected = TransformerException.class)
+  public void testWriteError() throws Exception {
+    SnippetSaver saver = new SnippetSaver(new SnippetManager(), new File(this.file, "missing").getAbsolutePath());
+    saver.execute();
+    try {
+      saver.get();
+    }
+    catch (ExecutionException e) {
+      throw (Exception) e.getCause();
+    }
+  }
+}
@@ -0,0 +1,211 @@
+/**
+ * SnippetSetDispatcherTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Executor;
+
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test class for SnippetSetDispatcher
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetSetDispatcherTest {
+
+  /** An executor that only runs its tasks when the test asks it to */
+  private Queue<Runnable>                tasks;
+
+  /** The executor backed by the task queue */
+  private Executor                       executor;
+
+  /** The batches received by the batch listener */
+  private List<Map<ChangeType, Integer>> batches;
+
+  /** The changes received by the plain listener */
+  private List<ChangeType>               changes;
+
+  /** The manager under test */
+  private SnippetManager                 manager;
+
+  /**
+   * Set up a manager that delivers its notifications on the queued executor, with one batch listener and one plain listener
+   */
+  @Before
+  public void setUp() {
+    this.tasks = new LinkedList<Runnable>();
+    this.executor = new Executor() {
+
+      @Override
+      public void execute(Runnable command) {
+        SnippetSetDispatcherTest.this.tasks.add(command);
+      }
+    };
+    this.batches = new ArrayList<Map<ChangeType, Integer>>();
+    this.changes = new ArrayList<ChangeType>();
+
+    this.manager = new SnippetManager();
+    this.manager.addSnippetSetChangedListener(new SnippetSetBatchListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        SnippetSetDispatcherTest.this.batches.add(Collections.singletonMap(type, 1));
+      }
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, Map<ChangeType, Integer> batch) {
+        SnippetSetDispatcherTest.this.batches.add(batch);
+      }
+    });
+    this.manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        SnippetSetDispatcherTest.this.changes.add(type);
+      }
+    });
+    this.manager.setNotificationExecutor(this.executor);
+  }
+
+  /**
+   * Test that a burst of changes is coalesced into a single batch, and that nothing is delivered on the thread making the changes.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet could not be added
+   */
+  @Test
+  public void testBurstIsCoalesced() throws DuplicateSnippetException {
+    Snippet first = new Snippet("first", "data", "description", new HashSet<String>(), Language.Java);
+    this.manager.addSnippet(first);
+    this.manager.addSnippet(new Snippet("second", "data", "description", new HashSet<String>(), Language.Java));
+    this.manager.addSnippet(new Snippet("third", "data", "description", new HashSet<String>(), Language.Java));
+    this.manager.deleteSnippet(first);
+
+    assertTrue("Nothing should be delivered before the executor runs", this.batches.isEmpty());
+    assertEquals("Only one delivery should be scheduled", 1, this.tasks.size());
+
+    this.tasks.poll().run();
+
+    assertEquals("Wrong number of batches", 1, this.batches.size());
+    assertEquals("Wrong number of adds", Integer.valueOf(3), this.batches.get(0).get(ChangeType.Add));
+    assertEquals("Wrong number of deletes", Integer.valueOf(1), this.batches.get(0).get(ChangeType.Delete));
+    assertEquals("Plain listener should be told of each type once", 2, this.changes.size());
+    assertTrue("No further delivery should be scheduled", this.tasks.isEmpty());
+  }
+
+  /**
+   * Test that changes whose types keep taking turns leave at most MAX_PENDING batches waiting, and that every change is still
+   * delivered once they are collapsed.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet could not be added
+   */
+  @Test
+  public void testAlternatingChangesAreCapped() throws DuplicateSnippetException {
+    Snippet snippet = new Snippet("name", "data", "description", new HashSet<String>(), Language.Java);
+    for (int i = 0; i < 1000; i++) {
+      this.manager.addSnippet(snippet);
+      this.manager.deleteSnippet(snippet);
+    }
+    assertEquals("Only one delivery should be scheduled", 1, this.tasks.size());
+
+    this.tasks.poll().run();
+    assertTrue("Too many batches", this.batches.size() <= SnippetSetDispatcher.MAX_PENDING);
+    int[] counts = new int[ChangeType.values().length];
+    for (Map<ChangeType, Integer> batch : this.batches) {
+      for (Map.Entry<ChangeType, Integer> change : batch.entrySet()) {
+        counts[change.getKey().ordinal()] += change.getValue();
+      }
+    }
+    assertEquals("Wrong number of adds", 1000, counts[ChangeType.Add.ordinal()]);
+    assertEquals("Wrong number of deletes", 1000, counts[ChangeType.Delete.ordinal()]);
+  }
+
+  /**
+   * Test that changes made while a batch is being delivered are sent in a following batch.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet could not be added
+   */
+  @Test
+  public void testChangeDuringDelivery() throws DuplicateSnippetException {
+    this.manager.addSnippetSetChangedListener(new SnippetSetChangedListener() {
+
+      @Override
+      public void onSnippetSetChanged(SnippetSetObservable subject, ChangeType type) {
+        // Save once in response to the first add
+        if (type == ChangeType.Add) {
+          SnippetSetDispatcherTest.this.manager.notifyObservers(ChangeType.Save);
+        }
+      }
+    });
+
+    this.manager.addSnippet(new Snippet("name", "data", "description", new HashSet<String>(), Language.Java));
+    this.tasks.poll().run();
+    assertEquals("The save should be delivered separately", 1, this.tasks.size());
+
+    this.tasks.poll().run();
+    assertEquals("Wrong number of batches", 2, this.batches.size());
+    assertEquals("Second batch should hold the save", Integer.valueOf(1), this.batches.get(1).get(ChangeType.Save));
+  }
+
+  /**
+   * Test that changes are delivered in the order they happened, with only runs of the same type coalesced and a save ending the
+   * batch it is in.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet could not be added
+   */
+  @Test
+  public void testOrderIsKept() throws DuplicateSnippetException {
+    Snippet first = new Snippet("first", "data", "description", new HashSet<String>(), Language.Java);
+    this.manager.addSnippet(first);
+    this.manager.addSnippet(new Snippet("second", "data", "description", new HashSet<String>(), Language.Java));
+    this.manager.deleteSnippet(first);
+    this.manager.addSnippet(new Snippet("third", "data", "description", new HashSet<String>(), Language.Java));
+    this.manager.notifyObservers(ChangeType.Save);
+    this.manager.notifyObservers(ChangeType.Update);
+    assertEquals("Only one delivery should be scheduled", 1, this.tasks.size());
+
+    this.tasks.poll().run();
+    assertEquals("Wrong number of batches", 3, this.batches.size());
+    assertEquals("Wrong first batch", Arrays.asList(ChangeType.Add, ChangeType.Delete),
+        new ArrayList<ChangeType>(this.batches.get(0).keySet()));
+    assertEquals("Run of adds should be coalesced", Integer.valueOf(2), this.batches.get(0).get(ChangeType.Add));
+    assertEquals("Wrong second batch", Arrays.asList(ChangeType.Add, ChangeType.Save),
+        new ArrayList<ChangeType>(this.batches.get(1).keySet()));
+    assertEquals("Save should end the batch", Collections.singletonMap(ChangeType.Update, 1), this.batches.get(2));
+    assertEquals("Plain listener should be told of each run in order", Arrays.asList(ChangeType.Add, ChangeType.Delete,
+        ChangeType.Add, ChangeType.Save, ChangeType.Update), this.changes);
+  }
+
+  /**
+   * Test that observers are notified synchronously again once the executor is removed.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet could not be added
+   */
+  @Test
+  public void testSynchronousNotification() throws DuplicateSnippetException {
+    this.manager.setNotificationExecutor(null);
+    this.manager.addSnippet(new Snippet("name", "data", "description", new HashSet<String>(), Language.Java));
+
+    assertTrue("Nothing should be scheduled", this.tasks.isEmpty());
+    assertEquals("Batch listener should be notified straight away", 1, this.batches.size());
+    assertEquals("Plain listener should be notified straight away", 1, this.changes.size());
+  }
+}
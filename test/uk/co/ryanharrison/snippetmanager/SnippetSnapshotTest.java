@@ -0,0 +1,61 @@
+/**
+ * SnippetSnapshotTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.create;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+/**
+ * Test class for SnippetSnapshot
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetSnapshotTest {
+
+  /**
+   * Test that changing the manager after a snapshot is taken, whether by adding, deleting or editing snippets, does not change the
+   * snapshot
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists
+   */
+  @Test
+  public void testIsolation() throws DuplicateSnippetException {
+    for (SnippetManager manager : Arrays.asList(new SnippetManager(), new ConcurrentSnippetManager(),
+        new ReadOptimisedSnippetManager())) {
+      Snippet one = create("One", "data", "description", Language.Java, "keyword");
+      Snippet two = create("Two", "data", "description", Language.Java, "keyword");
+      manager.addAll(Arrays.asList(one, two, create("Three", "data", "description", Language.Python, "keyword")));
+
+      SnippetSnapshot snapshot = manager.createSnapshot();
+      manager.updateSnippetBody(one, "changed");
+      manager.deleteSnippet(two);
+      manager.addSnippet(create("Four", "data", "description", Language.Java, "keyword"));
+
+      assertEquals("Wrong number of snippets", 3, snapshot.getSnippetCount());
+      List<Snippet> java = snapshot.getSnippets().get(Language.Java);
+      assertEquals("Wrong snippets", "[One, Two]", java.toString());
+      assertEquals("Content should be as it was", "data", java.get(0).getSnippet());
+      assertNotSame("Snippets should be copied", one, java.get(0));
+      assertEquals("Wrong keywords", one.getKeywords(), java.get(0).getKeywords());
+      assertEquals("Wrong snippets", 1, snapshot.getSnippets().get(Language.Python).size());
+    }
+  }
+
+  /**
+   * Test that the snippets of a snapshot cannot be changed
+   */
+  @Test(expected = UnsupportedOperationException.class)
+  public void testUnmodifiable() {
+    SnippetManager manager = new SnippetManager();
+    manager.createSnapshot().getSnippets().put(Language.Java, null);
+  }
+}
@@ -0,0 +1,116 @@
+/**
+ * SnippetUndoManagerTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.SimpleAttributeSet;
+import javax.swing.text.StyleConstants;
+
+import org.junit.Test;
+
+/**
+ * Test class for SnippetUndoManager
+ *
+ * @author Ryan Harrison
+ */
+public class SnippetUndoManagerTest {
+
+  /**
+   * Type a piece of text into a document one character at a time
+   *
+   * @param doc
+   *          The document to type into
+   * @param text
+   *          The text to type at the end of the document
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  private static void type(DefaultStyledDocument doc, String text) throws BadLocationException {
+    for (char c : text.toCharArray()) {
+      doc.insertString(doc.getLength(), String.valueOf(c), null);
+    }
+  }
+
+  /**
+   * Test that a run of typing is undone a word at a time and can be redone again.
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testCoalescesWords() throws BadLocationException {
+    DefaultStyledDocument doc = new DefaultStyledDocument();
+    SnippetUndoManager undo = new SnippetUndoManager();
+    doc.addUndoableEditListener(undo);
+
+    type(doc, "hello world");
+    assertEquals("Wrong number of edits", 2, undo.getEditCount());
+
+    // Undo the last word only
+    assertTrue("Should be able to undo", undo.canUndo());
+    undo.undo();
+    assertEquals("Wrong text", "hello ", doc.getText(0, doc.getLength()));
+
+    // Redo the word again
+    assertTrue("Should be able to redo", undo.canRedo());
+    undo.redo();
+    assertEquals("Wrong text", "hello world", doc.getText(0, doc.getLength()));
+    assertFalse("Should not be able to redo", undo.canRedo());
+  }
+
+  /**
+   * Test that changes to the style of the text are not recorded in the history.
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testIgnoresStyleChanges() throws BadLocationException {
+    DefaultStyledDocument doc = new DefaultStyledDocument();
+    SnippetUndoManager undo = new SnippetUndoManager();
+    doc.addUndoableEditListener(undo);
+
+    doc.insertString(0, "public class", null);
+    SimpleAttributeSet style = new SimpleAttributeSet();
+    StyleConstants.setBold(style, true);
+    doc.setCharacterAttributes(0, 6, style, true);
+
+    assertEquals("Style changes should not be recorded", 1, undo.getEditCount());
+  }
+
+  /**
+   * Test that the oldest edits are discarded once the byte limit has been reached.
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testByteLimit() throws BadLocationException {
+    DefaultStyledDocument doc = new DefaultStyledDocument();
+    SnippetUndoManager undo = new SnippetUndoManager(100, 20);
+    doc.addUndoableEditListener(undo);
+
+    // Each pasted block is 8 characters, so 16 bytes
+    doc.insertString(0, "aaaaaaaa", null);
+    doc.insertString(8, "bbbbbbbb", null);
+    doc.insertString(16, "cccccccc", null);
+
+    assertEquals("Oldest edits should be discarded", 1, undo.getEditCount());
+    assertEquals("Wrong history size", 16, undo.getByteSize());
+  }
+
+  /**
+   * Test that an exception is thrown if the undo limits are not positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalLimits() {
+    new SnippetUndoManager(0, 0);
+  }
+}
@@ -0,0 +1,113 @@
+/**
+ * SortedArraySetTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.Test;
+
+/**
+ * Test class for SortedArraySet
+ *
+ * @author Ryan Harrison
+ */
+public class SortedArraySetTest {
+
+  /**
+   * Test that elements added one at a time and in bulk are kept in order without duplicates, matching a TreeSet.
+   */
+  @Test
+  public void testMatchesTreeSet() {
+    Random random = new Random(42);
+    SortedArraySet<Integer> set = new SortedArraySet<Integer>();
+    TreeSet<Integer> expected = new TreeSet<Integer>();
+
+    for (int i = 0; i < 1000; i++) {
+      Integer value = random.nextInt(500);
+      assertEquals("Wrong add result", expected.add(value), set.add(value));
+    }
+    List<Integer> batch = new ArrayList<Integer>();
+    for (int i = 0; i < 200; i++) {
+      batch.add(random.nextInt(1000));
+    }
+    expected.addAll(batch);
+    set.addAll(batch);
+
+    assertEquals("Wrong size", expected.size(), set.size());
+    assertEquals("Wrong order", new ArrayList<Integer>(expected), new ArrayList<Integer>(set));
+    assertEquals("Wrong first element", expected.first(), set.first());
+    assertEquals("Wrong last element", expected.last(), set.last());
+    assertEquals("Wrong head set", expected.headSet(250), set.headSet(250));
+    assertEquals("Wrong sub set", expected.subSet(100, 200), set.subSet(100, 200));
+  }
+
+  /**
+   * Test that elements can be found and removed whether or not they have been merged into the array yet.
+   */
+  @Test
+  public void testContainsAndRemove() {
+    SortedArraySet<String> set = new SortedArraySet<String>();
+    Collections.addAll(set, "c", "a", "b");
+    assertTrue("Buffered element should be found", set.contains("b"));
+    assertTrue("Buffered element should be removed", set.remove("b"));
+
+    // Iterating merges the buffer into the array
+    assertEquals("Wrong order", "[a, c]", set.toString());
+    assertTrue("Merged element should be found", set.contains("c"));
+    assertTrue("Merged element should be removed", set.remove("c"));
+    assertFalse("Removed element should not be found", set.contains("c"));
+    assertEquals("Wrong size", 1, set.size());
+  }
+
+  /**
+   * Test that elements can be removed through the iterator.
+   */
+  @Test
+  public void testIteratorRemove() {
+    SortedArraySet<Integer> set = new SortedArraySet<Integer>();
+    for (int i = 0; i < 10; i++) {
+      set.add(i);
+    }
+    Iterator<Integer> iterator = set.iterator();
+    while (iterator.hasNext()) {
+      if (iterator.next() % 2 == 0) {
+        iterator.remove();
+      }
+    }
+    assertEquals("Wrong elements", "[1, 3, 5, 7, 9]", set.toString());
+  }
+
+  /**
+   * Test that a collection of elements can be removed in one go.
+   */
+  @Test
+  public void testRemoveAll() {
+    SortedArraySet<Integer> set = new SortedArraySet<Integer>();
+    for (int i = 0; i < 10; i++) {
+      set.add(i);
+    }
+    assertTrue("Set should change", set.removeAll(new TreeSet<Integer>(Arrays.asList(0, 4, 9, 20))));
+    assertFalse("Set should not change", set.removeAll(Arrays.asList(20)));
+    assertEquals("Wrong elements", "[1, 2, 3, 5, 6, 7, 8]", set.toString());
+  }
+
+  /**
+   * Test that an exception is thrown if a null element is added.
+   */
+  @Test(expected = NullPointerException.class)
+  public void testAddNull() {
+    new SortedArraySet<String>().add(null);
+  }
+}
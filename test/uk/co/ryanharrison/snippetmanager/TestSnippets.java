@@ -0,0 +1,71 @@
+/**
+ * TestSnippets.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+/**
+ * Creates the snippets used by the tests. Anything a test does not care about is given a fixed value, the body data, the
+ * description description and the language Java
+ *
+ * @author Ryan Harrison
+ */
+final class TestSnippets {
+
+  /**
+   * Not to be created, only holds factory methods
+   */
+  private TestSnippets() {
+    super();
+  }
+
+  /**
+   * Create a snippet
+   *
+   * @param name
+   *          The name of the snippet
+   * @param body
+   *          The body of the snippet
+   * @param description
+   *          The description of the snippet
+   * @param language
+   *          The language of the snippet
+   * @param keywords
+   *          The keywords of the snippet
+   * @return A new snippet
+   */
+  static Snippet create(String name, String body, String description, Language language, String... keywords) {
+    return new Snippet(name, body, description, new HashSet<String>(Arrays.asList(keywords)), language);
+  }
+
+  /**
+   * Create a snippet with some keywords
+   *
+   * @param name
+   *          The name of the snippet
+   * @param keywords
+   *          The keywords of the snippet
+   * @return A new snippet with the keywords
+   */
+  static Snippet snippet(String name, String... keywords) {
+    return create(name, "data", "description", Language.Java, keywords);
+  }
+
+  /**
+   * Create a snippet with a body and some keywords
+   *
+   * @param name
+   *          The name of the snippet
+   * @param body
+   *          The body of the snippet
+   * @param keywords
+   *          The keywords of the snippet
+   * @return A new snippet with the body
+   */
+  static Snippet withBody(String name, String body, String... keywords) {
+    return create(name, body, "description", Language.Java, keywords);
+  }
+}
@@ -0,0 +1,115 @@
+/**
+ * TrigramIndexTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static uk.co.ryanharrison.snippetmanager.TestSnippets.withBody;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Test class for TrigramIndex
+ *
+ * @author Ryan Harrison
+ */
+public class TrigramIndexTest {
+
+  /** Patterns to compare against a scan of every snippet */
+  private static final String[] PATTERNS = { "HashMap", "new\\s+ArrayList<", "(?i)arraylist", "Array|Hash", "for ?\\(int",
+      "\\bint\\b", "Str.ng", "List<(String|Integer)>", "x{2,}y", "catch \\(\\w+Exception", "\\Q(int\\E", "zzz" };
+
+  /** Pieces of code that random bodies are made from */
+  private static final String[] WORDS    = { "HashMap", "ArrayList", "new ", "List<String>", "List<Integer>", "for (int i",
+      "for(int", "String", "Strong", "xxy", "catch (IOException e)", " int ", "\n" };
+
+  /**
+   * Test that only snippets containing the literals of a pattern are candidates.
+   */
+  @Test
+  public void testCandidates() {
+    TrigramIndex index = new TrigramIndex();
+    Snippet map = withBody("map", "Map<String, Integer> map = new HashMap<>();");
+    Snippet list = withBody("list", "List<String> list = new ArrayList<>();");
+    index.add(map);
+    index.add(list);
+
+    assertEquals("Wrong candidates", Collections.singletonList(map), index.getCandidates(Pattern.compile("new\\s+HashMap")));
+    assertEquals("Wrong candidates", 2, index.getCandidates(Pattern.compile("Hash|Array")).size());
+    assertTrue("No snippet should be a candidate", index.getCandidates(Pattern.compile("TreeMap")).isEmpty());
+    assertNull("Every snippet should be a candidate", index.getCandidates(Pattern.compile("\\w+")));
+
+    index.remove(map);
+    assertTrue("Removed snippet should not be a candidate", index.getCandidates(Pattern.compile("HashMap")).isEmpty());
+  }
+
+  /**
+   * Test that a regex search of a snippet manager finds exactly the snippets a scan of every body finds, including after bodies
+   * are changed.
+   *
+   * @throws DuplicateSnippetException
+   *           If a snippet already exists
+   */
+  @Test
+  public void testManagerFindMatches() throws DuplicateSnippetException {
+    Random random = new Random(11);
+    SnippetManager manager = new SnippetManager();
+    List<Snippet> snippets = new ArrayList<Snippet>();
+    for (int i = 0; i < 300; i++) {
+      snippets.add(withBody("Snippet " + i, randomBody(random)));
+    }
+    manager.addAll(snippets);
+    this.checkMatches(manager);
+
+    // Change some bodies once the index has been built
+    for (int i = 0; i < 50; i++) {
+      manager.updateSnippetBody(snippets.get(random.nextInt(snippets.size())), randomBody(random));
+    }
+    this.checkMatches(manager);
+  }
+
+  /**
+   * Check that every pattern finds the same snippets through the index as by a scan
+   *
+   * @param manager
+   *          The manager to search
+   */
+  private void checkMatches(SnippetManager manager) {
+    for (String regex : PATTERNS) {
+      Pattern pattern = Pattern.compile(regex);
+      List<Snippet> expected = new ArrayList<Snippet>();
+      for (Snippet snippet : manager) {
+        if (pattern.matcher(snippet.getSnippet()).find()) {
+          expected.add(snippet);
+        }
+      }
+      Collections.sort(expected);
+      assertEquals("Wrong matches for " + regex, expected, manager.findMatches(pattern));
+    }
+  }
+
+  /**
+   * Create a random body from pieces of code
+   *
+   * @param random
+   *          The source of randomness
+   * @return A new random body
+   */
+  private static String randomBody(Random random) {
+    StringBuilder builder = new StringBuilder();
+    int words = random.nextInt(6);
+    for (int i = 0; i < words; i++) {
+      builder.append(WORDS[random.nextInt(WORDS.length)]);
+    }
+    return builder.toString();
+  }
+}
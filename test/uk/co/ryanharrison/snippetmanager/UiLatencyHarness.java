@@ -0,0 +1,405 @@
+/**
+ * UiLatencyHarness.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import java.awt.AWTEvent;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.EventQueue;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+import javax.swing.JButton;
+import javax.swing.JFrame;
+import javax.swing.JTree;
+import javax.swing.SwingUtilities;
+import javax.swing.WindowConstants;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+/**
+ * Measures how long the user interface takes to respond to common interactions with a large library. A real MainFrame is shown and
+ * scripted sessions of typing in the filter field, selecting snippets in the tree, editing the selected snippet and expanding and
+ * collapsing the tree are replayed against it, the same way the user would trigger them. For each interaction two numbers are
+ * recorded: the latency, from the moment the interaction is posted to the event queue until every event it caused has been
+ * dispatched, and the stall, the longest time a single one of those events held the event dispatch thread. Percentiles of both are
+ * reported for each type of interaction.
+ * <p>
+ * The harness needs a display, so on a machine without one run it under a virtual frame buffer, for example
+ * {@code xvfb-run -a java -cp <classes> uk.co.ryanharrison.snippetmanager.UiLatencyHarness}. It is configured through the system
+ * properties latency.size, the number of snippets in the library (by default 100000), latency.sessions, the number of sessions to
+ * replay (by default 20) and latency.seed, the seed of the library and the scripts.
+ *
+ * @author Ryan Harrison
+ */
+public class UiLatencyHarness {
+
+  /**
+   * An event queue that times how long each event takes to dispatch, remembering the longest since it was last reset
+   */
+  private static class TimingEventQueue extends EventQueue {
+
+    /** The longest time taken to dispatch a single event since the last reset, in nanoseconds */
+    private volatile long longest;
+
+    /**
+     * Dispatch an event, timing how long it takes
+     *
+     * @param event
+     *          The event to dispatch
+     *
+     * @see java.awt.EventQueue#dispatchEvent(java.awt.AWTEvent)
+     */
+    @Override
+    protected void dispatchEvent(AWTEvent event) {
+      long start = System.nanoTime();
+      try {
+        super.dispatchEvent(event);
+      }
+      finally {
+        long time = System.nanoTime() - start;
+        if (time > this.longest) {
+          this.longest = time;
+        }
+      }
+    }
+
+    /**
+     * Get the longest time taken to dispatch a single event since the last reset, and reset it
+     *
+     * @return The longest dispatch time in nanoseconds
+     */
+    public long takeLongest() {
+      long result = this.longest;
+      this.longest = 0;
+      return result;
+    }
+  }
+
+  /** The events being timed */
+  private TimingEventQueue        queue;
+
+  /** The interface under test */
+  private MainFrame               panel;
+
+  /** The tree of snippets in the interface */
+  private JTree                   tree;
+
+  /** The filter field in the interface */
+  private Document                filter;
+
+  /** The button that expands every node of the tree */
+  private JButton                 expand;
+
+  /** The button that collapses every node of the tree */
+  private JButton                 collapse;
+
+  /** The latency of each interaction, in nanoseconds, by the type of interaction */
+  private Map<String, List<Long>> latencies;
+
+  /** The longest single dispatch of each interaction, in nanoseconds, by the type of interaction */
+  private Map<String, List<Long>> stalls;
+
+  /** The source of randomness for the scripts */
+  private Random                  random;
+
+  /**
+   * Create a new harness
+   *
+   * @param seed
+   *          The seed of the scripts
+   */
+  public UiLatencyHarness(long seed) {
+    super();
+    this.latencies = new LinkedHashMap<String, List<Long>>();
+    this.stalls = new LinkedHashMap<String, List<Long>>();
+    this.random = new Random(seed);
+  }
+
+  /**
+   * Find the first component of a type below a container
+   *
+   * @param container
+   *          The container to search
+   * @param type
+   *          The type of component to find
+   * @param text
+   *          The text of the button to find, or null if the component is not a button
+   * @return The first matching component, or null if there is none
+   */
+  private static <T extends Component> T find(Container container, Class<T> type, String text) {
+    for (Component child : container.getComponents()) {
+      if (type.isInstance(child) && (text == null || text.equals(((JButton) child).getText()))) {
+        return type.cast(child);
+      }
+      if (child instanceof Container) {
+        T found = find((Container) child, type, text);
+        if (found != null) {
+          return found;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Insert text into a document
+   *
+   * @param document
+   *          The document
+   * @param offset
+   *          Where to insert the text
+   * @param text
+   *          The text to insert
+   */
+  private static void insert(Document document, int offset, String text) {
+    try {
+      document.insertString(offset, text, null);
+    }
+    catch (BadLocationException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * Run the harness and report the results
+   *
+   * @param args
+   *          Not used, the harness is configured through system properties
+   * @throws Exception
+   *           If the harness fails
+   */
+  public static void main(String[] args) throws Exception {
+    if (GraphicsEnvironment.isHeadless()) {
+      System.err.println("The UI latency harness needs a display. Run it under a virtual frame buffer such as xvfb-run");
+      System.exit(2);
+    }
+    int size = Integer.getInteger("latency.size", 100000);
+    int sessions = Integer.getInteger("latency.sessions", 20);
+    long seed = Long.getLong("latency.seed", 1);
+
+    UiLatencyHarness harness = new UiLatencyHarness(seed);
+    harness.setUp(new SnippetLibraryGenerator(seed).generateLibrary(size));
+    for (int session = 0; session < sessions; session++) {
+      harness.replaySession();
+    }
+    harness.report();
+    System.exit(0);
+  }
+
+  /**
+   * Run an interaction on the event dispatch thread and record how long it and the events it caused took
+   *
+   * @param type
+   *          The type of interaction
+   * @param interaction
+   *          The interaction to run
+   * @throws Exception
+   *           If the interaction fails
+   */
+  private void measure(String type, Runnable interaction) throws Exception {
+    // Let any earlier work finish so that it is not counted against this interaction
+    this.waitForIdle();
+    this.queue.takeLongest();
+    long start = System.nanoTime();
+    SwingUtilities.invokeAndWait(interaction);
+    this.waitForIdle();
+    long latency = System.nanoTime() - start;
+    record(this.latencies, type, latency);
+    record(this.stalls, type, this.queue.takeLongest());
+  }
+
+  /**
+   * Get a percentile of some sorted times
+   *
+   * @param sorted
+   *          The times in ascending order
+   * @param percentile
+   *          The percentile to get, between 0 and 100
+   * @return The time at the percentile, in milliseconds
+   */
+  private static double percentile(List<Long> sorted, double percentile) {
+    int index = (int) Math.ceil(percentile / 100 * sorted.size()) - 1;
+    return sorted.get(Math.max(index, 0)) / 1e6;
+  }
+
+  /**
+   * Add a time to the times recorded for a type of interaction
+   *
+   * @param times
+   *          The times by type of interaction
+   * @param type
+   *          The type of interaction
+   * @param time
+   *          The time to add
+   */
+  private static void record(Map<String, List<Long>> times, String type, long time) {
+    List<Long> list = times.get(type);
+    if (list == null) {
+      list = new ArrayList<Long>();
+      times.put(type, list);
+    }
+    list.add(time);
+  }
+
+  /**
+   * Replay a session of typing a filter, selecting snippets, editing them and clearing the filter
+   *
+   * @throws Exception
+   *           If an interaction fails
+   */
+  private void replaySession() throws Exception {
+    final String word = new SnippetLibraryGenerator(this.random.nextLong()).nextWord();
+    for (int i = 0; i < word.length(); i++) {
+      final int position = i;
+      this.measure("filter keystroke", new Runnable() {
+
+        @Override
+        public void run() {
+          insert(UiLatencyHarness.this.filter, position, word.substring(position, position + 1));
+        }
+      });
+    }
+
+    for (int i = 0; i < 5; i++) {
+      this.measure("select snippet", new Runnable() {
+
+        @Override
+        public void run() {
+          JTree tree = UiLatencyHarness.this.tree;
+          if (tree.getRowCount() > 1) {
+            tree.setSelectionRow(1 + UiLatencyHarness.this.random.nextInt(tree.getRowCount() - 1));
+          }
+        }
+      });
+      for (int j = 0; j < 3; j++) {
+        this.measure("edit keystroke", new Runnable() {
+
+          @Override
+          public void run() {
+            SnippetTextPane pane = find(UiLatencyHarness.this.panel, SnippetTextPane.class, null);
+            insert(pane.getDocument(), pane.getCaretPosition(), "x\n");
+          }
+        });
+      }
+    }
+
+    while (this.filter.getLength() > 0) {
+      this.measure("filter backspace", new Runnable() {
+
+        @Override
+        public void run() {
+          try {
+            UiLatencyHarness.this.filter.remove(UiLatencyHarness.this.filter.getLength() - 1, 1);
+          }
+          catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+          }
+        }
+      });
+    }
+
+    this.measure("collapse tree", new Runnable() {
+
+      @Override
+      public void run() {
+        UiLatencyHarness.this.collapse.doClick();
+      }
+    });
+    this.measure("expand tree", new Runnable() {
+
+      @Override
+      public void run() {
+        UiLatencyHarness.this.expand.doClick();
+      }
+    });
+  }
+
+  /**
+   * Print percentiles of the latencies and stalls of each type of interaction
+   */
+  private void report() {
+    System.out.println(String.format(Locale.ROOT, "%-18s %6s %28s %28s", "Interaction", "Count", "Latency ms (p50 p90 p99 max)",
+        "Stall ms (p50 p90 p99 max)"));
+    for (String type : this.latencies.keySet()) {
+      List<Long> latency = new ArrayList<Long>(this.latencies.get(type));
+      List<Long> stall = new ArrayList<Long>(this.stalls.get(type));
+      Collections.sort(latency);
+      Collections.sort(stall);
+      System.out.println(String.format(Locale.ROOT, "%-18s %6d %7.1f %6.1f %6.1f %6.1f %7.1f %6.1f %6.1f %6.1f", type,
+          latency.size(), percentile(latency, 50), percentile(latency, 90), percentile(latency, 99), percentile(latency, 100),
+          percentile(stall, 50), percentile(stall, 90), percentile(stall, 99), percentile(stall, 100)));
+    }
+  }
+
+  /**
+   * Show the interface with a library loaded into it
+   *
+   * @param library
+   *          The snippets to load
+   * @throws Exception
+   *           If the interface cannot be shown
+   */
+  private void setUp(final List<Snippet> library) throws Exception {
+    this.queue = new TimingEventQueue();
+    Toolkit.getDefaultToolkit().getSystemEventQueue().push(this.queue);
+    SwingUtilities.invokeAndWait(new Runnable() {
+
+      @Override
+      public void run() {
+        JFrame frame = new JFrame("Snippet Manager");
+        frame.setDefaultCloseOperation(WindowConstants.DISPOSE_ON_CLOSE);
+        UiLatencyHarness.this.panel = new MainFrame(frame);
+        frame.setJMenuBar(UiLatencyHarness.this.panel.createMenuBar());
+        frame.add(UiLatencyHarness.this.panel);
+        frame.pack();
+        frame.setVisible(true);
+
+        UiLatencyHarness.this.tree = find(UiLatencyHarness.this.panel, JTree.class, null);
+        UiLatencyHarness.this.filter = find(UiLatencyHarness.this.panel, HintTextField.class, null).getDocument();
+        UiLatencyHarness.this.expand = find(UiLatencyHarness.this.panel, JButton.class, "Expand All");
+        UiLatencyHarness.this.collapse = find(UiLatencyHarness.this.panel, JButton.class, "Collapse All");
+      }
+    });
+    this.measure("load library", new Runnable() {
+
+      @Override
+      public void run() {
+        try {
+          UiLatencyHarness.this.panel.getManager().addAll(library);
+        }
+        catch (DuplicateSnippetException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+    });
+  }
+
+  /**
+   * Wait until every event posted so far, and every event those events post in turn, has been dispatched
+   *
+   * @throws Exception
+   *           If waiting is interrupted
+   */
+  private void waitForIdle() throws Exception {
+    // Events such as change notifications and repaints are posted for later, so wait until a pass finds nothing left to do
+    do {
+      SwingUtilities.invokeAndWait(new Runnable() {
+
+        @Override
+        public void run() {
+        }
+      });
+    }
+    while (this.queue.peekEvent() != null);
+  }
+}
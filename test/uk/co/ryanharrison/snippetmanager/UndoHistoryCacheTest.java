@@ -0,0 +1,179 @@
+/**
+ * UndoHistoryCacheTest.java
+ */
+
+package uk.co.ryanharrison.snippetmanager;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Document;
+
+import org.junit.Test;
+
+/**
+ * Test class for UndoHistoryCache
+ *
+ * @author Ryan Harrison
+ */
+public class UndoHistoryCacheTest {
+
+  /**
+   * Create an undo history bound to a new document holding some text
+   *
+   * @param text
+   *          The text of the document
+   * @return A new undo history
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  private static SnippetUndoManager createHistory(String text) throws BadLocationException {
+    DefaultStyledDocument doc = new DefaultStyledDocument();
+    doc.insertString(0, text, null);
+    SnippetUndoManager history = new SnippetUndoManager();
+    history.setDocument(doc);
+    doc.addUndoableEditListener(history);
+    return history;
+  }
+
+  /**
+   * Test that histories can be stored and retrieved again by snippet name.
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testGetAndPut() throws BadLocationException {
+    UndoHistoryCache cache = new UndoHistoryCache();
+    SnippetUndoManager history = createHistory("data");
+
+    cache.put("name", history);
+    assertSame("Wrong history", history, cache.get("name"));
+    assertNull("History should not exist", cache.get("other"));
+
+    cache.remove("name");
+    assertEquals("Wrong number of histories", 0, cache.size());
+  }
+
+  /**
+   * Test that the history of a snippet comes with a prepared document that holds the content of the snippet, is highlighted and is
+   * reused when the snippet is shown again
+   *
+   * @throws BadLocationException
+   *           If the document text could not be read
+   */
+  @Test
+  public void testPreparedDocument() throws BadLocationException {
+    UndoHistoryCache cache = new UndoHistoryCache();
+    Snippet snippet = new Snippet("name", "public class Test", "description", new HashSet<String>(), Language.Java);
+
+    SnippetUndoManager history = cache.get(snippet);
+    Document document = history.getDocument();
+    assertEquals("Wrong text", "public class Test", document.getText(0, document.getLength()));
+    assertTrue("Document should be highlighted", Language.Java.getSyntaxHighlighter().isHighlighted(document));
+    assertSame("History should be cached", history, cache.get("name"));
+
+    // The same history and document are returned while the snippet is unchanged
+    assertSame("History should be reused", history, cache.get(snippet));
+
+    // A new document and history are prepared once the content of the snippet changes
+    Snippet changed = new Snippet("name", "public class Other", "description", new HashSet<String>(), Language.Java);
+    SnippetUndoManager other = cache.get(changed);
+    assertNotSame("Document should be prepared again", document, other.getDocument());
+    assertEquals("Wrong number of histories", 1, cache.size());
+  }
+
+  /**
+   * Test that a document edited and handed back to its snippet is still current once it is marked as holding the new body, and that
+   * it is not current before then
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testMarkCurrent() throws BadLocationException {
+    UndoHistoryCache cache = new UndoHistoryCache();
+    Snippet snippet = new Snippet("name", "public class Test", "description", new HashSet<String>(), Language.Java);
+    SnippetUndoManager history = cache.get(snippet);
+    Document document = history.getDocument();
+
+    document.insertString(document.getLength(), " {}", null);
+    snippet.setSnippet(document.getText(0, document.getLength()));
+    UndoHistoryCache.markCurrent(document, snippet);
+    assertSame("Edited history should be reused", history, cache.get(snippet));
+
+    // A body with the same text that the document was never marked with is not trusted
+    snippet.setSnippet(new String(snippet.getSnippet()));
+    assertNotSame("Document should be prepared again", history, cache.get(snippet));
+  }
+
+  /**
+   * Test that the history of a renamed snippet moves to its new name and is still used for it
+   */
+  @Test
+  public void testRename() {
+    UndoHistoryCache cache = new UndoHistoryCache();
+    Snippet snippet = new Snippet("name", "public class Test", "description", new HashSet<String>(), Language.Java);
+    SnippetUndoManager history = cache.get(snippet);
+
+    Snippet renamed = new Snippet("renamed", snippet.getSnippet(), "description", new HashSet<String>(), Language.Java);
+    cache.rename("name", "renamed");
+    assertNull("Old name should have no history", cache.get("name"));
+    assertSame("History should move with the snippet", history, cache.get(renamed));
+    assertEquals("Wrong number of histories", 1, cache.size());
+  }
+
+  /**
+   * Test that the least recently used histories are evicted once the memory cap is reached.
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testEviction() throws BadLocationException {
+    // Each history holds 10 characters, so 20 bytes
+    UndoHistoryCache cache = new UndoHistoryCache(50);
+    cache.put("first", createHistory("0123456789"));
+    cache.put("second", createHistory("0123456789"));
+
+    // Use the first history so that the second becomes the least recently used
+    assertNotNull(cache.get("first"));
+    cache.put("third", createHistory("0123456789"));
+
+    assertEquals("Wrong number of histories", 2, cache.size());
+    assertNull("Least recently used history should be evicted", cache.get("second"));
+    assertNotNull("Recently used history should be kept", cache.get("first"));
+  }
+
+  /**
+   * Test that a history is discarded when it is bound to a different document.
+   *
+   * @throws BadLocationException
+   *           If the text could not be inserted
+   */
+  @Test
+  public void testRebindDiscardsHistory() throws BadLocationException {
+    SnippetUndoManager history = createHistory("");
+    history.getDocument().insertString(0, "text", null);
+    assertEquals("Wrong number of edits", 1, history.getEditCount());
+
+    history.setDocument(new DefaultStyledDocument());
+    assertEquals("History should be discarded", 0, history.getEditCount());
+  }
+
+  /**
+   * Test that an exception is thrown if the memory cap is not positive.
+   */
+  @Test(expected = IllegalArgumentException.class)
+  public void testIllegalLimit() {
+    new UndoHistoryCache(0);
+  }
+}